@@ -1,6 +1,7 @@
 package com.aiproxy.admin.controller;
 
 import com.aiproxy.auth.service.ApiKeyService;
+import com.aiproxy.common.enums.PriorityTier;
 import com.aiproxy.common.model.ApiKey;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
@@ -24,8 +25,9 @@ public class ApiKeyController {
     public Mono<Map<String, Object>> createApiKey(@RequestBody Map<String, String> request) {
         String name = request.getOrDefault("name", "New API Key");
         String description = request.getOrDefault("description", "");
+        PriorityTier priorityTier = PriorityTier.fromString(request.get("priorityTier"));
         
-        return apiKeyService.createApiKey(name, description)
+        return apiKeyService.createApiKey(name, description, priorityTier)
             .map(key -> Map.<String, Object>of(
                 "success", true,
                 "api_key", key,
@@ -74,4 +76,19 @@ public class ApiKeyController {
                 "message", success ? "API key deleted" : "API key not found"
             ));
     }
-}
\ No newline at end of file
+    
+    @PutMapping("/id/{id}/scheduling")
+    public Mono<Map<String, Object>> updateScheduling(@PathVariable String id,
+                                                      @RequestBody Map<String, Object> request) {
+        Object tier = request.get("priorityTier");
+        Object weight = request.get("schedulingWeight");
+        PriorityTier priorityTier = tier != null ? PriorityTier.fromString(tier.toString()) : null;
+        Integer schedulingWeight = weight instanceof Number number ? number.intValue() : null;
+        
+        return apiKeyService.updateScheduling(id, priorityTier, schedulingWeight)
+            .map(success -> Map.of(
+                "success", success,
+                "message", success ? "Scheduling settings updated" : "API key not found"
+            ));
+    }
+}
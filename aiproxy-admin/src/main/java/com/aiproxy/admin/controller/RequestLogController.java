@@ -1,21 +1,41 @@
 package com.aiproxy.admin.controller;
 
+import com.aiproxy.admin.export.CsvChunkEncoder;
 import com.aiproxy.common.entity.RequestLogEntity;
+import com.aiproxy.common.model.RequestLogFilter;
 import com.aiproxy.common.service.RequestLogService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/admin/request-logs")
 @Slf4j
 public class RequestLogController {
     
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    private static final DateTimeFormatter EXPORT_FILENAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
     private final RequestLogService requestLogService;
     
     public RequestLogController(RequestLogService requestLogService) {
@@ -23,12 +43,13 @@ public class RequestLogController {
     }
     
     /**
-     * 获取所有请求日志（支持搜索）
+     * 分页查询请求日志（支持搜索，apiKey/accountId/endpoint 按前缀匹配，requestId 精确匹配）
      */
     @GetMapping
     public Mono<Map<String, Object>> getRequestLogs(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String requestId,
             @RequestParam(required = false) String apiKey,
             @RequestParam(required = false) String accountId,
             @RequestParam(required = false) String status,
@@ -39,64 +60,83 @@ public class RequestLogController {
         log.info("Fetching request logs with filters: page={}, size={}, apiKey={}, status={}", 
             page, size, apiKey, status);
         
-        return requestLogService.getAllLogsWithAccounts()
-            .filter(logEntry -> {
-                // 应用搜索过滤器
-                if (apiKey != null && !apiKey.isEmpty()) {
-                    String logApiKey = logEntry.getApiKeyId() != null ? logEntry.getApiKeyId() : "";
-                    if (!logApiKey.contains(apiKey)) return false;
-                }
-                if (accountId != null && !accountId.isEmpty()) {
-                    String logAccountId = logEntry.getAccountId() != null ? logEntry.getAccountId() : "";
-                    if (!logAccountId.contains(accountId)) return false;
-                }
-                if (status != null && !status.isEmpty()) {
-                    String logStatus = determineStatus(logEntry.getStatusCode());
-                    if (!logStatus.equals(status)) return false;
-                }
-                if (endpoint != null && !endpoint.isEmpty()) {
-                    String logEndpoint = logEntry.getEndpoint() != null ? logEntry.getEndpoint() : 
-                                        (logEntry.getRequestPath() != null ? logEntry.getRequestPath() : "");
-                    if (!logEndpoint.contains(endpoint)) return false;
-                }
-                if (startTime != null && logEntry.getCreatedAt() != null) {
-                    if (logEntry.getCreatedAt().toEpochSecond(java.time.ZoneOffset.UTC) * 1000 < startTime) return false;
-                }
-                if (endTime != null && logEntry.getCreatedAt() != null) {
-                    if (logEntry.getCreatedAt().toEpochSecond(java.time.ZoneOffset.UTC) * 1000 > endTime) return false;
-                }
-                return true;
-            })
-            .collectList()
-            .map(allLogs -> {
+        RequestLogFilter filter = buildFilter(requestId, apiKey, accountId, status, endpoint, startTime, endTime);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        
+        return requestLogService.searchLogs(filter, Math.max(page, 0), pageSize)
+            .map(logPage -> {
                 Map<String, Object> result = new HashMap<>();
-                int total = allLogs.size();
-                
-                // 分页
-                int fromIndex = page * size;
-                int toIndex = Math.min(fromIndex + size, total);
-                
-                List<Map<String, Object>> pagedLogs;
-                if (fromIndex >= total) {
-                    // 如果起始索引超过总数，返回空列表
-                    pagedLogs = new java.util.ArrayList<>();
-                } else {
-                    pagedLogs = allLogs.subList(fromIndex, toIndex)
-                        .stream()
-                        .map(this::convertToResponseMap)
-                        .collect(java.util.stream.Collectors.toList());
-                }
-                
-                result.put("data", pagedLogs);
-                result.put("total", total);
+                result.put("data", logPage.content().stream()
+                    .map(this::convertToResponseMap)
+                    .collect(Collectors.toList()));
+                result.put("total", logPage.total());
+                result.put("totalExact", logPage.totalExact());
                 result.put("page", page);
-                result.put("size", size);
+                result.put("size", pageSize);
                 
                 return result;
             })
             .doOnError(error -> log.error("Error fetching request logs", error));
     }
     
+    /**
+     * 游标分页查询请求日志，适合向后翻阅大量历史记录
+     * 首次请求不传 cursor，之后传入上一次响应中的 nextCursor
+     */
+    @GetMapping("/scroll")
+    public Mono<Map<String, Object>> scrollRequestLogs(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String requestId,
+            @RequestParam(required = false) String apiKey,
+            @RequestParam(required = false) String accountId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String endpoint,
+            @RequestParam(required = false) Long startTime,
+            @RequestParam(required = false) Long endTime) {
+        
+        RequestLogFilter filter = buildFilter(requestId, apiKey, accountId, status, endpoint, startTime, endTime);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        
+        return Mono.defer(() -> requestLogService.queryLogs(filter, cursor, pageSize))
+            .map(slice -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("data", slice.content().stream()
+                    .map(this::convertToResponseMap)
+                    .collect(Collectors.toList()));
+                result.put("nextCursor", slice.nextCursor());
+                result.put("hasMore", slice.hasMore());
+                result.put("size", pageSize);
+                
+                return result;
+            })
+            .onErrorMap(IllegalArgumentException.class,
+                error -> new ResponseStatusException(HttpStatus.BAD_REQUEST, error.getMessage()))
+            .doOnError(error -> log.error("Error scrolling request logs", error));
+    }
+    
+    private RequestLogFilter buildFilter(String requestId, String apiKey, String accountId, String status,
+                                         String endpoint, Long startTime, Long endTime) {
+        return RequestLogFilter.builder()
+            .requestId(requestId)
+            .apiKeyId(apiKey)
+            .accountId(accountId)
+            .status(status)
+            .endpoint(endpoint)
+            .startTime(toLocalDateTime(startTime))
+            .endTime(toLocalDateTime(endTime))
+            .build();
+    }
+    
+    /**
+     * 前端传入的是毫秒时间戳，日志时间按服务器本地时区存储
+     */
+    private LocalDateTime toLocalDateTime(Long epochMillis) {
+        return epochMillis != null
+            ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+            : null;
+    }
+    
     /**
      * 将RequestLogEntity转换为前端需要的格式
      */
@@ -149,32 +189,63 @@ public class RequestLogController {
     }
     
     /**
-     * 导出请求日志
+     * 导出请求日志（流式 CSV，按游标分批读取数据库并直接写入响应，内存占用与导出量无关）
      */
     @GetMapping("/export")
-    public Mono<String> exportLogs(
+    public ResponseEntity<Flux<DataBuffer>> exportLogs(
             @RequestParam(required = false) String type,  // all, failed, slow, success
-            @RequestParam(required = false) Integer threshold) { // 慢请求阈值（毫秒）
+            @RequestParam(required = false) Integer threshold, // 慢请求阈值（毫秒）
+            @RequestParam(required = false) String requestId,
+            @RequestParam(required = false) String apiKey,
+            @RequestParam(required = false) String accountId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String endpoint,
+            @RequestParam(required = false) Long startTime,
+            @RequestParam(required = false) Long endTime,
+            @RequestParam(defaultValue = "false") boolean gzip) {
         
-        log.info("Exporting logs: type={}, threshold={}", type, threshold);
+        log.info("Exporting logs: type={}, threshold={}, startTime={}, endTime={}, gzip={}", 
+            type, threshold, startTime, endTime, gzip);
         
-        return requestLogService.getAllLogsWithAccounts()
-            .filter(log -> {
-                if (type == null || "all".equals(type)) {
-                    return true;
-                } else if ("failed".equals(type)) {
-                    return log.getStatusCode() == null || log.getStatusCode() >= 400;
-                } else if ("success".equals(type)) {
-                    return log.getStatusCode() != null && log.getStatusCode() >= 200 && log.getStatusCode() < 300;
-                } else if ("slow".equals(type)) {
-                    int slowThreshold = threshold != null ? threshold : 3000; // 默认3秒
-                    return log.getLatencyMs() != null && log.getLatencyMs() > slowThreshold;
-                }
-                return true;
-            })
-            .map(this::convertToCSVRow)
-            .reduce(getCSVHeader(), (csv, row) -> csv + "\n" + row)
-            .map(csv -> csv);
+        if (("failed".equals(type) || "success".equals(type)) && status != null && !status.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "type=" + type + " cannot be combined with status, use one of them");
+        }
+        
+        RequestLogFilter filter = buildFilter(requestId, apiKey, accountId, status, endpoint, startTime, endTime);
+        if ("failed".equals(type)) {
+            // 旧版导出的 failed 包含状态码为空（进行中/未知）的请求，与查询接口的 status=failed 不同
+            filter.setFailedOrUnknown(true);
+        } else if ("success".equals(type)) {
+            filter.setStatus(type);
+        } else if ("slow".equals(type)) {
+            filter.setMinLatencyMs(threshold != null ? threshold : 3000); // 默认3秒
+        }
+        
+        Flux<DataBuffer> body = Flux.defer(() -> {
+            CsvChunkEncoder encoder = new CsvChunkEncoder(gzip);
+            Flux<byte[]> chunks = Flux.concat(
+                Mono.fromCallable(() -> encoder.encode(getCSVHeader() + "\n")),
+                requestLogService.streamLogs(filter, EXPORT_BATCH_SIZE)
+                    .map(batch -> encoder.encode(toCSVChunk(batch))),
+                Mono.fromCallable(encoder::finish)
+            );
+            return chunks
+                .filter(bytes -> bytes.length > 0)
+                .<DataBuffer>map(DefaultDataBufferFactory.sharedInstance::wrap);
+        })
+        .doOnError(error -> log.error("Error exporting request logs", error));
+        
+        String filename = "request-logs-" + LocalDateTime.now().format(EXPORT_FILENAME_FORMAT)
+            + (gzip ? ".csv.gz" : ".csv");
+        return ResponseEntity.ok()
+            .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                              : new MediaType("text", "csv", StandardCharsets.UTF_8))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(filename)
+                .build()
+                .toString())
+            .body(body);
     }
     
     /**
@@ -184,24 +255,31 @@ public class RequestLogController {
         return "时间,API Key,账号,端点,方法,状态,状态码,响应时间(ms),请求Tokens,响应Tokens,总Tokens,错误信息";
     }
     
+    private String toCSVChunk(List<RequestLogEntity> batch) {
+        StringBuilder chunk = new StringBuilder(batch.size() * 160);
+        for (RequestLogEntity entity : batch) {
+            appendCSVRow(chunk, entity);
+            chunk.append('\n');
+        }
+        return chunk.toString();
+    }
+    
     /**
      * 转换为CSV行
      */
-    private String convertToCSVRow(RequestLogEntity log) {
-        return String.format("%s,%s,%s,%s,%s,%s,%d,%d,%d,%d,%d,%s",
-            log.getCreatedAt() != null ? log.getCreatedAt().toString() : "",
-            log.getApiKeyId() != null ? log.getApiKeyId() : "",
-            log.getAccountId() != null ? log.getAccountId() : "",
-            log.getEndpoint() != null ? log.getEndpoint() : log.getRequestPath(),
-            log.getMethod() != null ? log.getMethod() : "POST",
-            determineStatus(log.getStatusCode()),
-            log.getStatusCode() != null ? log.getStatusCode() : 0,
-            log.getLatencyMs() != null ? log.getLatencyMs() : 0,
-            log.getRequestTokens() != null ? log.getRequestTokens() : 0,
-            log.getResponseTokens() != null ? log.getResponseTokens() : 0,
-            log.getTotalTokens() != null ? log.getTotalTokens() : 0,
-            log.getErrorMessage() != null ? log.getErrorMessage().replace(",", ";") : ""
-        );
+    private void appendCSVRow(StringBuilder row, RequestLogEntity log) {
+        row.append(CsvChunkEncoder.escape(log.getCreatedAt())).append(',')
+            .append(CsvChunkEncoder.escape(log.getApiKeyId())).append(',')
+            .append(CsvChunkEncoder.escape(log.getAccountId())).append(',')
+            .append(CsvChunkEncoder.escape(log.getEndpoint() != null ? log.getEndpoint() : log.getRequestPath())).append(',')
+            .append(CsvChunkEncoder.escape(log.getMethod() != null ? log.getMethod() : "POST")).append(',')
+            .append(determineStatus(log.getStatusCode())).append(',')
+            .append(log.getStatusCode() != null ? log.getStatusCode() : 0).append(',')
+            .append(log.getLatencyMs() != null ? log.getLatencyMs() : 0).append(',')
+            .append(log.getRequestTokens() != null ? log.getRequestTokens() : 0).append(',')
+            .append(log.getResponseTokens() != null ? log.getResponseTokens() : 0).append(',')
+            .append(log.getTotalTokens() != null ? log.getTotalTokens() : 0).append(',')
+            .append(CsvChunkEncoder.escape(log.getErrorMessage()));
     }
     
     /**
@@ -2,6 +2,7 @@ package com.aiproxy.admin.controller;
 
 import com.aiproxy.auth.service.AdminAuthService;
 import com.aiproxy.common.entity.AdminUserEntity;
+import com.aiproxy.common.persistence.PersistenceScheduler;
 import com.aiproxy.common.repository.AdminUserRepository;
 import com.aiproxy.common.service.SystemSettingService;
 import lombok.Data;
@@ -10,7 +11,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -24,15 +24,18 @@ public class SettingsController {
     private final AdminUserRepository adminUserRepository;
     private final PasswordEncoder passwordEncoder;
     private final AdminAuthService adminAuthService;
+    private final PersistenceScheduler persistenceScheduler;
     
     public SettingsController(SystemSettingService settingService,
                             AdminUserRepository adminUserRepository,
                             PasswordEncoder passwordEncoder,
-                            AdminAuthService adminAuthService) {
+                            AdminAuthService adminAuthService,
+                            PersistenceScheduler persistenceScheduler) {
         this.settingService = settingService;
         this.adminUserRepository = adminUserRepository;
         this.passwordEncoder = passwordEncoder;
         this.adminAuthService = adminAuthService;
+        this.persistenceScheduler = persistenceScheduler;
     }
     
     /**
@@ -126,8 +129,7 @@ public class SettingsController {
         // 这里暂时使用默认的admin用户，后续可以从token中解析用户名
         String username = "admin";
         
-        return Mono.fromCallable(() -> adminUserRepository.findByUsername(username))
-            .subscribeOn(Schedulers.boundedElastic())
+        return persistenceScheduler.mono(() -> adminUserRepository.findByUsername(username))
             .flatMap(optionalUser -> {
                 Map<String, Object> response = new HashMap<>();
                 
@@ -142,8 +144,7 @@ public class SettingsController {
                             .isActive(true)
                             .build();
                         
-                        return Mono.fromCallable(() -> adminUserRepository.save(newAdmin))
-                            .subscribeOn(Schedulers.boundedElastic())
+                        return persistenceScheduler.mono(() -> adminUserRepository.save(newAdmin))
                             .map(saved -> {
                                 response.put("success", true);
                                 response.put("message", "密码修改成功");
@@ -168,8 +169,7 @@ public class SettingsController {
                 // 更新密码
                 user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
                 
-                return Mono.fromCallable(() -> adminUserRepository.save(user))
-                    .subscribeOn(Schedulers.boundedElastic())
+                return persistenceScheduler.mono(() -> adminUserRepository.save(user))
                     .map(saved -> {
                         log.info("Password changed successfully for user: {}", username);
                         response.put("success", true);
@@ -0,0 +1,82 @@
+package com.aiproxy.admin.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 将 CSV 文本分块编码为字节，可选 gzip 压缩
+ * <p>
+ * gzip 模式下每块都做 SYNC_FLUSH，保证已写出的字节可以立即发送给客户端；
+ * 调用方按顺序调用 encode，最后调用 finish 写出 gzip 尾部。非线程安全。
+ */
+public class CsvChunkEncoder {
+    
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+    private final OutputStream out;
+    private final boolean gzip;
+    
+    public CsvChunkEncoder(boolean gzip) {
+        this.gzip = gzip;
+        try {
+            this.out = gzip ? new GZIPOutputStream(buffer, INITIAL_BUFFER_SIZE, true) : buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public byte[] encode(CharSequence chunk) {
+        try {
+            out.write(chunk.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public byte[] finish() {
+        if (!gzip) {
+            return new byte[0];
+        }
+        try {
+            out.close();
+            return drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private byte[] drain() {
+        byte[] bytes = buffer.toByteArray();
+        buffer.reset();
+        return bytes;
+    }
+    
+    /**
+     * 按 RFC 4180 转义字段：包含逗号、引号或换行时加引号，内部引号加倍
+     */
+    public static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        boolean needsQuoting = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuoting = true;
+                break;
+            }
+        }
+        if (!needsQuoting) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
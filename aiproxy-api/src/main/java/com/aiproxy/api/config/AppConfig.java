@@ -1,5 +1,7 @@
 package com.aiproxy.api.config;
 
+import com.aiproxy.common.constants.ApiConstants;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -21,7 +23,8 @@ import java.time.Duration;
 public class AppConfig {
     
     @Bean
-    public WebClient claudeWebClient() {
+    public WebClient claudeWebClient(
+            @Value("${relay.claude.base-url:" + ApiConstants.CLAUDE_BASE_URL + "}") String claudeBaseUrl) {
         ConnectionProvider connectionProvider = ConnectionProvider.builder("claude-http")
                 .maxConnections(100)
                 .maxIdleTime(Duration.ofSeconds(30))
@@ -35,7 +38,7 @@ public class AppConfig {
                 .keepAlive(true);
         
         return WebClient.builder()
-                .baseUrl("https://api.anthropic.com")
+                .baseUrl(claudeBaseUrl)
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader("Content-Type", "application/json")
                 .codecs(configurer -> configurer
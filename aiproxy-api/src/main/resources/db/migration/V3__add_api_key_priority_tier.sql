@@ -0,0 +1,2 @@
+-- Add priority_tier column to api_keys table for admission control
+ALTER TABLE api_keys ADD COLUMN priority_tier VARCHAR(20) NOT NULL DEFAULT 'STANDARD' COMMENT '优先级等级（INTERACTIVE/STANDARD/BATCH）' AFTER daily_token_limit;
@@ -0,0 +1,2 @@
+-- Add scheduling_weight column to api_keys table for fair queueing between API keys
+ALTER TABLE api_keys ADD COLUMN scheduling_weight INT NOT NULL DEFAULT 1 COMMENT '公平调度权重（同一优先级内按权重分配并发）' AFTER priority_tier;
@@ -0,0 +1,5 @@
+-- Indexes backing the request log search: each filter column is paired with created_at
+-- so that "filter + ORDER BY created_at DESC LIMIT n" reads only the rows it returns
+CREATE INDEX idx_status_code_created_at ON request_logs (status_code, created_at);
+CREATE INDEX idx_api_key_created_at ON request_logs (api_key_id, created_at);
+CREATE INDEX idx_account_created_at ON request_logs (account_id, created_at);
@@ -0,0 +1,2 @@
+-- Composite index for keyset pagination over request logs: ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_created_at_id ON request_logs (created_at, id);
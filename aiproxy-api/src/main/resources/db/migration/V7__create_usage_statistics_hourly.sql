@@ -0,0 +1,20 @@
+-- 创建小时级使用统计表：由内存中的分钟级聚合定期 upsert
+-- 维度列使用 NOT NULL DEFAULT ''，避免 NULL 使唯一键失效导致 ON DUPLICATE KEY UPDATE 无法合并
+CREATE TABLE IF NOT EXISTS usage_statistics_hourly (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '统计ID',
+    bucket_start DATETIME NOT NULL COMMENT '小时起始时间',
+    api_key_id VARCHAR(36) NOT NULL DEFAULT '' COMMENT 'API密钥ID',
+    account_id VARCHAR(36) NOT NULL DEFAULT '' COMMENT '账户ID',
+    provider VARCHAR(20) NOT NULL DEFAULT '' COMMENT 'AI提供商',
+    model VARCHAR(100) NOT NULL DEFAULT '' COMMENT '模型名称',
+    total_requests BIGINT NOT NULL DEFAULT 0 COMMENT '总请求次数',
+    total_errors BIGINT NOT NULL DEFAULT 0 COMMENT '总错误次数',
+    request_tokens BIGINT NOT NULL DEFAULT 0 COMMENT '请求token数',
+    response_tokens BIGINT NOT NULL DEFAULT 0 COMMENT '响应token数',
+    total_tokens BIGINT NOT NULL DEFAULT 0 COMMENT '总消耗token数',
+    latency_sum_ms BIGINT NOT NULL DEFAULT 0 COMMENT '延迟总和（毫秒），除以请求数得到平均延迟',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_hourly_stats (bucket_start, api_key_id, account_id, provider, model) COMMENT '小时统计唯一约束',
+    INDEX idx_bucket_start (bucket_start) COMMENT '时间索引'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='使用情况统计表（按小时汇总）';
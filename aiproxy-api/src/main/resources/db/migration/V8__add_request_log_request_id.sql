@@ -0,0 +1,17 @@
+-- request_id links a request log row to the X-Request-Id response header, the access log and the trace file.
+-- Older databases may already have the column from the entity mapping, so add it only when missing.
+SET @has_column := (SELECT COUNT(*) FROM information_schema.columns
+                    WHERE table_schema = DATABASE() AND table_name = 'request_logs' AND column_name = 'request_id');
+SET @ddl := IF(@has_column = 0,
+               'ALTER TABLE request_logs ADD COLUMN request_id VARCHAR(50) NULL COMMENT ''请求追踪ID''',
+               'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_index := (SELECT COUNT(*) FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = 'request_logs' AND index_name = 'idx_request_id');
+SET @ddl := IF(@has_index = 0, 'CREATE INDEX idx_request_id ON request_logs (request_id)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,14 @@
+-- 记录汇总表是否已从 request_logs 回填过；用标记而不是"表是否为空"判断，
+-- 否则启动后第一次 flush 先提交时回填会被跳过，历史数据永远不会汇总
+CREATE TABLE IF NOT EXISTS usage_rollup_backfill (
+    table_name VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '已回填的汇总表',
+    cutoff DATETIME NULL COMMENT '回填截止时间，之后的日志由内存聚合写入',
+    backfilled_rows INT NOT NULL DEFAULT 0 COMMENT '回填写入的行数',
+    completed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '回填完成时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='使用量汇总回填标记';
+
+-- 已有汇总数据的库视为回填完成，避免升级后重复回填
+INSERT IGNORE INTO usage_rollup_backfill (table_name)
+SELECT 'usage_statistics_hourly' FROM DUAL WHERE EXISTS (SELECT 1 FROM usage_statistics_hourly);
+INSERT IGNORE INTO usage_rollup_backfill (table_name)
+SELECT 'usage_statistics' FROM DUAL WHERE EXISTS (SELECT 1 FROM usage_statistics);
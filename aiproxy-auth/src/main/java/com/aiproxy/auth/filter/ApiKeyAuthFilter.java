@@ -6,7 +6,9 @@ import com.aiproxy.auth.service.ApiKeyService;
 import com.aiproxy.common.constants.ApiConstants;
 import com.aiproxy.common.exception.AuthenticationException;
 import com.aiproxy.common.model.ApiKey;
+import com.aiproxy.common.tracing.RelayTracing;
 import com.aiproxy.common.utils.JsonUtil;
+import com.aiproxy.common.utils.LogRedactor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
@@ -31,10 +33,13 @@ public class ApiKeyAuthFilter implements WebFilter {
     
     private final ApiKeyService apiKeyService;
     private final AdminAuthService adminAuthService;
+    private final RelayTracing relayTracing;
     
-    public ApiKeyAuthFilter(ApiKeyService apiKeyService, AdminAuthService adminAuthService) {
+    public ApiKeyAuthFilter(ApiKeyService apiKeyService, AdminAuthService adminAuthService,
+                            RelayTracing relayTracing) {
         this.apiKeyService = apiKeyService;
         this.adminAuthService = adminAuthService;
+        this.relayTracing = relayTracing;
     }
     
     @Override
@@ -56,8 +61,7 @@ public class ApiKeyAuthFilter implements WebFilter {
         
         // For admin endpoints, require Bearer token (admin login token)
         if (path.startsWith("/admin/")) {
-            log.info("Processing admin endpoint: {}, Auth header: {}", path, 
-                authHeader != null ? authHeader.substring(0, Math.min(authHeader.length(), 20)) + "..." : "null");
+            log.debug("Processing admin endpoint: {}, auth header present: {}", path, authHeader != null);
             
             if (authHeader == null || !authHeader.startsWith(ApiConstants.BEARER_PREFIX)) {
                 log.warn("Missing or invalid auth header for admin endpoint: {}", path);
@@ -65,7 +69,7 @@ public class ApiKeyAuthFilter implements WebFilter {
             }
             
             String token = authHeader.substring(ApiConstants.BEARER_PREFIX.length()).trim();
-            log.info("Extracted token for validation: {}...", token.substring(0, Math.min(token.length(), 8)));
+            log.debug("Extracted admin token for validation: {}", LogRedactor.mask(token));
             
             // 检查是否已经验证过（避免重复验证）
             if (exchange.getAttributes().containsKey("isAdmin")) {
@@ -75,10 +79,10 @@ public class ApiKeyAuthFilter implements WebFilter {
             
             // 验证是否是有效的管理员 token
             return adminAuthService.validateToken(token)
-                .doOnNext(valid -> log.info("Token validation result: {}", valid))
+                .doOnNext(valid -> log.debug("Token validation result: {}", valid))
                 .flatMap(valid -> {
                     if (Boolean.TRUE.equals(valid)) {
-                        log.info("Admin token validated successfully for path: {}", path);
+                        log.debug("Admin token validated successfully for path: {}", path);
                         exchange.getAttributes().put("isAdmin", true);
                         
                         // 设置认证信息，让 Spring Security 知道用户已认证
@@ -114,6 +118,9 @@ public class ApiKeyAuthFilter implements WebFilter {
                 apiKey = authHeader.substring(ApiConstants.BEARER_PREFIX.length()).trim();
             } else if (apiKeyHeader != null) {
                 apiKey = apiKeyHeader.trim();
+            } else if (request.getHeaders().getFirst(ApiConstants.GOOGLE_API_KEY_HEADER) != null) {
+                // Gemini 客户端使用 x-goog-api-key 传递 Key
+                apiKey = request.getHeaders().getFirst(ApiConstants.GOOGLE_API_KEY_HEADER).trim();
             }
             
             if (apiKey == null) {
@@ -159,7 +166,9 @@ public class ApiKeyAuthFilter implements WebFilter {
     }
     
     private Mono<Void> authenticateWithApiKey(String apiKey, ServerWebExchange exchange, WebFilterChain chain) {
-        return apiKeyService.validateApiKey(apiKey)
+        // 只追踪 Key 校验（Redis / MySQL），不包含后续的过滤器链
+        return relayTracing.span("relay.auth")
+            .trace(apiKeyService.validateApiKey(apiKey))
             .flatMap(keyInfo -> {
                 if (!keyInfo.isValid()) {
                     return handleAuthError(exchange.getResponse(), "API Key 无效或已过期");
@@ -226,7 +235,7 @@ public class ApiKeyAuthFilter implements WebFilter {
             return Mono.empty();
         }
         
-        log.error("!!! Setting 401 response: {} !!!", message);
+        log.warn("Authentication failed: {}", message);
         response.setStatusCode(HttpStatus.UNAUTHORIZED);
         response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
         
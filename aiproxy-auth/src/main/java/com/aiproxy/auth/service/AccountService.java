@@ -2,14 +2,15 @@ package com.aiproxy.auth.service;
 
 import com.aiproxy.common.entity.AccountEntity;
 import com.aiproxy.common.model.ClaudeAccount;
+import com.aiproxy.common.persistence.PersistenceScheduler;
 import com.aiproxy.common.repository.AccountRepository;
+import com.aiproxy.common.store.AccountStore;
 import com.aiproxy.common.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -26,13 +27,19 @@ public class AccountService {
     private final ReactiveRedisTemplate<String, String> redisTemplate;
     private final ClaudeOAuthService oauthService;
     private final AccountRepository accountRepository;
+    private final PersistenceScheduler persistenceScheduler;
+    private final AccountStore accountStore;
     
     public AccountService(ReactiveRedisTemplate<String, String> redisTemplate,
                          ClaudeOAuthService oauthService,
-                         AccountRepository accountRepository) {
+                         AccountRepository accountRepository,
+                         PersistenceScheduler persistenceScheduler,
+                         AccountStore accountStore) {
         this.redisTemplate = redisTemplate;
         this.oauthService = oauthService;
         this.accountRepository = accountRepository;
+        this.persistenceScheduler = persistenceScheduler;
+        this.accountStore = accountStore;
     }
     
     public Mono<ClaudeAccount> createAccountFromAuthCode(String code, String codeVerifier, String email) {
@@ -68,29 +75,24 @@ public class AccountService {
         }
         
         // Save to database only (no Redis cache)
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             AccountEntity entity = convertToEntity(account);
             return accountRepository.save(entity);
         })
-        .subscribeOn(Schedulers.boundedElastic())
         .map(this::convertToModel)
         .doOnSuccess(acc -> log.info("Saved Claude account: {}", acc.getEmail()));
     }
     
     public Mono<ClaudeAccount> getAccount(String accountId) {
         // Get directly from database (no cache)
-        return Mono.fromCallable(() -> accountRepository.findById(accountId).orElse(null))
-            .subscribeOn(Schedulers.boundedElastic())
+        return persistenceScheduler.mono(() -> accountRepository.findById(accountId).orElse(null))
             .map(this::convertToModel);
     }
     
     public Flux<ClaudeAccount> getAllActiveAccounts() {
         // Get from database instead of just cache
-        return Flux.fromIterable(
-            accountRepository.findByEnabledTrueAndStatus("ACTIVE")
-        )
-        .subscribeOn(Schedulers.boundedElastic())
-        .map(this::convertToModel);
+        return accountStore.findActive()
+            .map(this::convertToModel);
     }
     
     public Mono<ClaudeAccount> refreshAccountToken(ClaudeAccount account) {
@@ -118,23 +120,19 @@ public class AccountService {
     
     public Mono<Boolean> deleteAccount(String accountId) {
         // Delete from database only (no cache to clean)
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             if (accountRepository.existsById(accountId)) {
                 accountRepository.deleteById(accountId);
                 return true;
             }
             return false;
-        })
-        .subscribeOn(Schedulers.boundedElastic());
+        });
     }
     
     public Flux<ClaudeAccount> getAllAccounts() {
-        // Get all from database - use defer to ensure fresh data
-        return Flux.defer(() -> 
-            Flux.fromIterable(accountRepository.findAll())
-                .subscribeOn(Schedulers.boundedElastic())
-                .map(this::convertToModel)
-        );
+        // Get all from database on every subscription to ensure fresh data
+        return persistenceScheduler.flux(accountRepository::findAll)
+            .map(this::convertToModel);
     }
     
     public Mono<ClaudeAccount> getAccountById(String id) {
@@ -166,7 +164,8 @@ public class AccountService {
         AccountEntity entity = new AccountEntity();
         entity.setId(model.getId());
         entity.setEmail(model.getEmail());
-        entity.setProvider("CLAUDE");
+        // 保留已有账号的服务商，避免回写时把 Gemini 账号改成 Claude
+        entity.setProvider(model.getProvider() != null ? model.getProvider() : "CLAUDE");
         entity.setAccessToken(model.getAccessToken());
         entity.setRefreshToken(model.getRefreshToken());
         entity.setTokenExpiresAt(model.getTokenExpiresAt());
@@ -187,6 +186,7 @@ public class AccountService {
         return ClaudeAccount.builder()
             .id(entity.getId())
             .email(entity.getEmail())
+            .provider(entity.getProvider())
             .accessToken(entity.getAccessToken())
             .refreshToken(entity.getRefreshToken())
             .tokenExpiresAt(entity.getTokenExpiresAt())
@@ -1,6 +1,7 @@
 package com.aiproxy.auth.service;
 
 import com.aiproxy.common.entity.AdminUserEntity;
+import com.aiproxy.common.persistence.PersistenceScheduler;
 import com.aiproxy.common.repository.AdminUserRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,7 +9,6 @@ import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -25,6 +25,7 @@ public class AdminAuthService {
     private final ReactiveRedisTemplate<String, String> redisTemplate;
     private final PasswordEncoder passwordEncoder;
     private final AdminUserRepository adminUserRepository;
+    private final PersistenceScheduler persistenceScheduler;
     
     @Value("${relay.admin.username:admin}")
     private String adminUsername;
@@ -34,16 +35,17 @@ public class AdminAuthService {
     
     public AdminAuthService(ReactiveRedisTemplate<String, String> redisTemplate,
                            PasswordEncoder passwordEncoder,
-                           AdminUserRepository adminUserRepository) {
+                           AdminUserRepository adminUserRepository,
+                           PersistenceScheduler persistenceScheduler) {
         this.redisTemplate = redisTemplate;
         this.passwordEncoder = passwordEncoder;
         this.adminUserRepository = adminUserRepository;
+        this.persistenceScheduler = persistenceScheduler;
     }
     
     public Mono<String> login(String username, String password) {
         // 从数据库验证用户
-        return Mono.fromCallable(() -> adminUserRepository.findByUsernameAndIsActiveTrue(username))
-            .subscribeOn(Schedulers.boundedElastic())
+        return persistenceScheduler.mono(() -> adminUserRepository.findByUsernameAndIsActiveTrue(username))
             .flatMap(optionalUser -> {
                 if (optionalUser.isEmpty()) {
                     return Mono.empty();
@@ -58,8 +60,7 @@ public class AdminAuthService {
                 
                 // 更新最后登录时间
                 user.setLastLoginAt(LocalDateTime.now());
-                return Mono.fromCallable(() -> adminUserRepository.save(user))
-                    .subscribeOn(Schedulers.boundedElastic())
+                return persistenceScheduler.mono(() -> adminUserRepository.save(user))
                     .then(Mono.defer(() -> {
                         // 生成 token
                         String token = UUID.randomUUID().toString();
@@ -89,7 +90,7 @@ public class AdminAuthService {
     
     // 创建管理员用户（由AdminInitializer调用）
     public Mono<Void> createAdminUser(String username, String password) {
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             // 检查用户是否已存在
             if (adminUserRepository.existsByUsername(username)) {
                 log.info("管理员用户 {} 已存在", username);
@@ -108,7 +109,6 @@ public class AdminAuthService {
             log.info("管理员用户 {} 已创建并保存到数据库", username);
             return true;
         })
-        .subscribeOn(Schedulers.boundedElastic())
         .doOnNext(created -> {
             if (created) {
                 displayAdminCredentials(username, password);
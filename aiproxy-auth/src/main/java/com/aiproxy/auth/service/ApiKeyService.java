@@ -1,16 +1,18 @@
 package com.aiproxy.auth.service;
 
 import com.aiproxy.common.entity.ApiKeyEntity;
+import com.aiproxy.common.enums.PriorityTier;
 import com.aiproxy.common.model.ApiKey;
 import com.aiproxy.common.model.RateLimitRule;
+import com.aiproxy.common.persistence.PersistenceScheduler;
 import com.aiproxy.common.repository.ApiKeyRepository;
+import com.aiproxy.common.store.ApiKeyStore;
 import com.aiproxy.common.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -26,12 +28,18 @@ public class ApiKeyService {
     
     private final ReactiveRedisTemplate<String, String> redisTemplate;
     private final ApiKeyRepository apiKeyRepository;
+    private final PersistenceScheduler persistenceScheduler;
+    private final ApiKeyStore apiKeyStore;
     private static final String KEY_PREFIX = "apikey:";
     
     public ApiKeyService(ReactiveRedisTemplate<String, String> redisTemplate,
-                        ApiKeyRepository apiKeyRepository) {
+                        ApiKeyRepository apiKeyRepository,
+                        PersistenceScheduler persistenceScheduler,
+                        ApiKeyStore apiKeyStore) {
         this.redisTemplate = redisTemplate;
         this.apiKeyRepository = apiKeyRepository;
+        this.persistenceScheduler = persistenceScheduler;
+        this.apiKeyStore = apiKeyStore;
     }
     
     public Mono<ApiKey> validateApiKey(String key) {
@@ -50,8 +58,7 @@ public class ApiKeyService {
             .map(json -> JsonUtil.fromJson(json, ApiKey.class))
             .switchIfEmpty(
                 // If not in cache, get from database
-                Mono.fromCallable(() -> apiKeyRepository.findByKeyHash(keyHash).orElse(null))
-                    .subscribeOn(Schedulers.boundedElastic())
+                apiKeyStore.findByKeyHash(keyHash)
                     .map(this::convertToModel)
                     .flatMap(apiKey -> {
                         if (apiKey != null) {
@@ -68,6 +75,10 @@ public class ApiKeyService {
     }
     
     public Mono<ApiKey> createApiKey(String name, String description) {
+        return createApiKey(name, description, PriorityTier.STANDARD);
+    }
+    
+    public Mono<ApiKey> createApiKey(String name, String description, PriorityTier priorityTier) {
         // 生成新的API Key
         String generatedKey = generateApiKey();
         
@@ -79,6 +90,7 @@ public class ApiKeyService {
             .enabled(true)
             .createdAt(LocalDateTime.now())
             .rateLimitRule(RateLimitRule.defaultRule())
+            .priorityTier(priorityTier)
             .totalRequests(0L)
             .totalTokens(0L)
             .build();
@@ -93,11 +105,10 @@ public class ApiKeyService {
         }
         
         // Save to database first
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             ApiKeyEntity entity = convertToEntity(apiKey);
             return apiKeyRepository.save(entity);
         })
-        .subscribeOn(Schedulers.boundedElastic())
         .map(this::convertToModel)
         .flatMap(savedKey -> {
             // Then update Redis cache
@@ -115,7 +126,7 @@ public class ApiKeyService {
         String keyHash = hashApiKey(key);
         
         // Delete from database first
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             var entity = apiKeyRepository.findByKeyHash(keyHash);
             if (entity.isPresent()) {
                 apiKeyRepository.delete(entity.get());
@@ -123,7 +134,6 @@ public class ApiKeyService {
             }
             return false;
         })
-        .subscribeOn(Schedulers.boundedElastic())
         .flatMap(deleted -> {
             if (deleted) {
                 // Then remove from cache
@@ -136,7 +146,7 @@ public class ApiKeyService {
     
     public Mono<Boolean> deleteApiKeyById(String id) {
         // Delete from database first by ID
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             var entity = apiKeyRepository.findById(id);
             if (entity.isPresent()) {
                 // Get the actual key for cache deletion
@@ -146,7 +156,6 @@ public class ApiKeyService {
             }
             return null;
         })
-        .subscribeOn(Schedulers.boundedElastic())
         .flatMap(entity -> {
             if (entity != null) {
                 // Clear all possible cache entries (we don't have the actual key, so clear by pattern)
@@ -159,15 +168,44 @@ public class ApiKeyService {
         });
     }
     
+    /**
+     * 更新调度参数，传 null 的字段保持不变
+     */
+    public Mono<Boolean> updateScheduling(String id, PriorityTier priorityTier, Integer schedulingWeight) {
+        return persistenceScheduler.mono(() -> {
+            var entity = apiKeyRepository.findById(id);
+            if (entity.isPresent()) {
+                ApiKeyEntity apiKeyEntity = entity.get();
+                if (priorityTier != null) {
+                    apiKeyEntity.setPriorityTier(priorityTier);
+                }
+                if (schedulingWeight != null) {
+                    apiKeyEntity.setSchedulingWeight(Math.max(1, schedulingWeight));
+                }
+                apiKeyRepository.save(apiKeyEntity);
+                return true;
+            }
+            return false;
+        })
+        .flatMap(updated -> {
+            if (updated) {
+                // 缓存中保存的是明文key，无法按ID定位，清空全部缓存让下次请求重新加载
+                return redisTemplate.keys(KEY_PREFIX + "*")
+                    .flatMap(keys -> redisTemplate.delete(keys))
+                    .then(Mono.just(true));
+            }
+            return Mono.just(false);
+        });
+    }
+    
     private void updateLastUsed(ApiKey apiKey) {
         apiKey.setLastUsedAt(LocalDateTime.now());
         apiKey.setTotalRequests(apiKey.getTotalRequests() + 1);
         
         // Update database asynchronously
-        Mono.fromRunnable(() -> {
+        persistenceScheduler.run(() -> {
             apiKeyRepository.updateUsageStatistics(apiKey.getId(), 0L);
         })
-        .subscribeOn(Schedulers.boundedElastic())
         .subscribe();
         
         // Update cache
@@ -187,11 +225,10 @@ public class ApiKeyService {
         String originalKey = apiKey.getKey(); // 保存原始key
         
         // Save to database first
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             ApiKeyEntity entity = convertToEntityWithOriginalKey(apiKey);
             return apiKeyRepository.save(entity);
         })
-        .subscribeOn(Schedulers.boundedElastic())
         .map(savedEntity -> {
             // 返回时使用原始key
             ApiKey savedKey = convertToModel(savedEntity);
@@ -210,12 +247,9 @@ public class ApiKeyService {
     }
     
     public Flux<ApiKey> getAllApiKeys() {
-        // Get all API keys from database - use defer to ensure fresh data
-        return Flux.defer(() -> 
-            Flux.fromIterable(apiKeyRepository.findAll())
-                .subscribeOn(Schedulers.boundedElastic())
-                .map(this::convertToModel)
-        );
+        // Get all API keys from database on every subscription to ensure fresh data
+        return persistenceScheduler.flux(apiKeyRepository::findAll)
+            .map(this::convertToModel);
     }
     
     
@@ -239,7 +273,10 @@ public class ApiKeyService {
             .build();
     }
     
-    private String hashApiKey(String key) {
+    /**
+     * API Key 的 SHA-256 十六进制摘要，数据库和缓存中只保存摘要
+     */
+    public static String hashApiKey(String key) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
             byte[] hash = md.digest(key.getBytes(StandardCharsets.UTF_8));
@@ -266,6 +303,8 @@ public class ApiKeyService {
             model.getRateLimitRule().getRequestsPerMinute() : 1000);
         entity.setDailyTokenLimit(model.getRateLimitRule() != null ? 
             model.getRateLimitRule().getTokensPerDay() : 1000000L);
+        entity.setPriorityTier(model.getEffectivePriorityTier());
+        entity.setSchedulingWeight(model.getEffectiveSchedulingWeight());
         entity.setCreatedAt(model.getCreatedAt());
         entity.setUpdatedAt(LocalDateTime.now());
         entity.setLastUsedAt(model.getLastUsedAt());
@@ -302,6 +341,8 @@ public class ApiKeyService {
             .createdAt(entity.getCreatedAt())
             .lastUsedAt(entity.getLastUsedAt())
             .rateLimitRule(rateLimitRule)
+            .priorityTier(entity.getPriorityTier())
+            .schedulingWeight(entity.getSchedulingWeight())
             .totalRequests(entity.getTotalRequests())
             .totalTokens(entity.getTotalTokens())
             .build();
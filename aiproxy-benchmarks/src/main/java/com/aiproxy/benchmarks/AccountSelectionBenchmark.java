@@ -0,0 +1,117 @@
+package com.aiproxy.benchmarks;
+
+import com.aiproxy.auth.service.AccountService;
+import com.aiproxy.common.model.Account;
+import com.aiproxy.common.model.ClaudeAccount;
+import com.aiproxy.common.tracing.RelayTracing;
+import com.aiproxy.common.tracing.TracingConfig;
+import com.aiproxy.core.config.AccountPoolConfig;
+import com.aiproxy.core.config.ClusterConfig;
+import com.aiproxy.core.routing.PromptPrefixHasher;
+import com.aiproxy.core.routing.RoutingHint;
+import com.aiproxy.core.service.AccountPoolService;
+import com.aiproxy.core.service.SessionAffinityService;
+import com.aiproxy.core.service.SharedAccountStateService;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 账号选择：账号列表走内存桩（不连 Redis/MySQL），测量过滤、前缀亲和与额度加权的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountSelectionBenchmark {
+    
+    @Param({"5", "50"})
+    private int accountCount;
+    
+    private AccountPoolService accountPoolService;
+    private RoutingHint prefixHint;
+    private Set<String> excluded;
+    
+    @Setup
+    public void setup() {
+        List<ClaudeAccount> accounts = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(ClaudeAccount.builder()
+                .id("account-" + i)
+                .email("relay" + i + "@example.com")
+                .accessToken("sk-ant-oat01-benchmark-" + i)
+                .tokenExpiresAt(LocalDateTime.now().plusDays(1))
+                .createdAt(LocalDateTime.now().minusDays(30))
+                .lastUsedAt(LocalDateTime.now().minusSeconds(i))
+                .enabled(true)
+                .status("ACTIVE")
+                .totalRequests((long) i * 100)
+                .build());
+        }
+        
+        AccountPoolConfig poolConfig = new AccountPoolConfig();
+        accountPoolService = new AccountPoolService(
+            new InMemoryAccountService(accounts),
+            poolConfig,
+            new SessionAffinityService(null, poolConfig),
+            new SharedAccountStateService(null, new ClusterConfig()),
+            new RelayTracing(ObservationRegistry.NOOP, new TracingConfig()));
+        
+        prefixHint = RoutingHint.builder()
+            .prefixHash(PromptPrefixHasher.hash(Payloads.requestBody("messages-request.json"),
+                poolConfig.getPrefixAffinity().getMessageBlocks()))
+            .build();
+        excluded = Set.of("account-0");
+    }
+    
+    @Benchmark
+    public Account selectByTokenBudget() {
+        return accountPoolService.selectAccountWithExclusions(Set.of(), RoutingHint.NONE).block();
+    }
+    
+    @Benchmark
+    public Account selectByPrefixAffinity() {
+        return accountPoolService.selectAccountWithExclusions(Set.of(), prefixHint).block();
+    }
+    
+    @Benchmark
+    public Account selectForRetry() {
+        return accountPoolService.selectAccountWithExclusions(excluded, prefixHint).block();
+    }
+    
+    /**
+     * 账号列表直接从内存返回，不依赖 Redis 和数据库
+     */
+    static class InMemoryAccountService extends AccountService {
+        
+        private final List<ClaudeAccount> accounts;
+        
+        InMemoryAccountService(List<ClaudeAccount> accounts) {
+            super(null, null, null, null, null);
+            this.accounts = accounts;
+        }
+        
+        @Override
+        public Flux<ClaudeAccount> getAllActiveAccounts() {
+            return Flux.fromIterable(accounts);
+        }
+    }
+}
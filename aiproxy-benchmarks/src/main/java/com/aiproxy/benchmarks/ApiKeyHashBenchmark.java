@@ -0,0 +1,33 @@
+package com.aiproxy.benchmarks;
+
+import com.aiproxy.auth.service.ApiKeyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API Key 哈希：每个中转请求在鉴权阶段都会执行一次
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiKeyHashBenchmark {
+    
+    private String apiKey = "cr_7f3a9c1e5b2d48e6a0f4c8b1d9e2a6f3c5b7d1e9a2f4c6b8d0e3a5f7c9b1d2e4";
+    
+    @Benchmark
+    public String hashApiKey() {
+        return ApiKeyService.hashApiKey(apiKey);
+    }
+}
@@ -0,0 +1,62 @@
+package com.aiproxy.benchmarks;
+
+import com.aiproxy.common.utils.ErrorClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 上游错误分类：按线上常见的错误分布混合各类状态码和网络异常
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorClassifierBenchmark {
+    
+    private static final int[] STATUS_MIX = {429, 429, 429, 529, 529, 500, 502, 401, 403, 400, 404, 413};
+    
+    private Throwable[] errors;
+    
+    @Setup
+    public void setup() {
+        errors = new Throwable[STATUS_MIX.length + 2];
+        for (int i = 0; i < STATUS_MIX.length; i++) {
+            errors[i] = WebClientResponseException.create(STATUS_MIX[i], "HTTP " + STATUS_MIX[i], null,
+                "{\"type\":\"error\",\"error\":{\"type\":\"rate_limit_error\"}}".getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8);
+        }
+        errors[STATUS_MIX.length] = new IOException("Connection reset by peer");
+        errors[STATUS_MIX.length + 1] = new TimeoutException("Did not observe any item within 60000ms");
+    }
+    
+    @Benchmark
+    public void isRetryableError(Blackhole bh) {
+        for (Throwable error : errors) {
+            bh.consume(ErrorClassifier.isRetryableError(error));
+        }
+    }
+    
+    @Benchmark
+    public void getErrorDescription(Blackhole bh) {
+        for (Throwable error : errors) {
+            bh.consume(ErrorClassifier.getErrorDescription(error));
+        }
+    }
+}
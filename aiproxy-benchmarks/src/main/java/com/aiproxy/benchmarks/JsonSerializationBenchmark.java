@@ -0,0 +1,58 @@
+package com.aiproxy.benchmarks;
+
+import com.aiproxy.common.utils.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonUtil 序列化/解析：请求体转发与响应 usage 提取都会经过这里
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    
+    @Param({"messages-request.json", "messages-request-string-system.json"})
+    private String payload;
+    
+    private Map<String, Object> request;
+    private String json;
+    
+    @Setup
+    public void setup() {
+        request = Payloads.requestBody(payload);
+        json = Payloads.read(payload);
+    }
+    
+    @Benchmark
+    public String toJson() {
+        return JsonUtil.toJson(request);
+    }
+    
+    @Benchmark
+    public JsonNode parseJson() {
+        return JsonUtil.parseJson(json);
+    }
+    
+    @Benchmark
+    @SuppressWarnings("rawtypes")
+    public Map fromJson() {
+        return JsonUtil.fromJson(json, Map.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.aiproxy.benchmarks;
+
+import com.aiproxy.common.utils.JsonUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试用的请求/响应样本，位于 classpath:payloads/ 下（已脱敏的真实请求）
+ */
+final class Payloads {
+    
+    private Payloads() {
+    }
+    
+    static String read(String name) {
+        try (InputStream in = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Payload not found: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    static Map<String, Object> requestBody(String name) {
+        try {
+            return JsonUtil.getObjectMapper().readValue(read(name), new TypeReference<>() {});
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * SSE 样本按行拆分，空行保留（与上游 bodyToFlux(String) 的输出一致）
+     */
+    static String[] sseLines(String name) {
+        return read(name).split("\n", -1);
+    }
+    
+    /**
+     * 深拷贝请求体：被测方法会原地修改嵌套的 cache_control
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T deepCopy(T node) {
+        if (node instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>(map.size() * 2);
+            map.forEach((key, value) -> copy.put((String) key, deepCopy(value)));
+            return (T) copy;
+        }
+        if (node instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(value -> copy.add(deepCopy(value)));
+            return (T) copy;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,66 @@
+package com.aiproxy.benchmarks;
+
+import com.aiproxy.core.transform.ClaudeCodePromptInjector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OAuth 账号请求预处理：系统提示词注入与 cache_control 清理
+ * 
+ * 被测方法会修改嵌套对象，每次调用都基于深拷贝执行；copyOnly 给出拷贝本身的开销，
+ * 对比时应扣除。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptInjectionBenchmark {
+    
+    @Param({"messages-request.json", "messages-request-string-system.json"})
+    private String payload;
+    
+    private Map<String, Object> request;
+    
+    @Setup
+    public void setup() {
+        request = Payloads.requestBody(payload);
+    }
+    
+    @Benchmark
+    public Map<String, Object> copyOnly() {
+        return Payloads.deepCopy(request);
+    }
+    
+    @Benchmark
+    public Map<String, Object> injectClaudeCodeSystemPrompt() {
+        return ClaudeCodePromptInjector.inject(Payloads.deepCopy(request));
+    }
+    
+    @Benchmark
+    public Map<String, Object> stripTtlFromCacheControl() {
+        Map<String, Object> copy = Payloads.deepCopy(request);
+        ClaudeCodePromptInjector.stripTtlFromCacheControl(copy);
+        return copy;
+    }
+    
+    @Benchmark
+    public Map<String, Object> limitCacheControlCount() {
+        Map<String, Object> copy = Payloads.deepCopy(request);
+        ClaudeCodePromptInjector.limitCacheControlCount(copy, 3);
+        return copy;
+    }
+}
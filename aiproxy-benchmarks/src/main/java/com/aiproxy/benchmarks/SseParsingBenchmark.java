@@ -0,0 +1,57 @@
+package com.aiproxy.benchmarks;
+
+import com.aiproxy.core.transform.SseEventParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式响应逐行处理：每次调用处理一条完整的录制响应（约 30 行）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseParsingBenchmark {
+    
+    private String[] lines;
+    private String[] dataLines;
+    
+    @Setup
+    public void setup() {
+        lines = Payloads.sseLines("stream-events.txt");
+        dataLines = Arrays.stream(lines)
+            .filter(line -> line.startsWith("data: "))
+            .map(SseEventParser::parseData)
+            .filter(Objects::nonNull)
+            .toArray(String[]::new);
+    }
+    
+    @Benchmark
+    public void parseData(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(SseEventParser.parseData(line));
+        }
+    }
+    
+    @Benchmark
+    public void eventType(Blackhole bh) {
+        for (String data : dataLines) {
+            bh.consume(SseEventParser.eventType(data));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.aiproxy.benchmarks.loadtest;
+
+import com.aiproxy.common.constants.ApiConstants;
+import com.aiproxy.common.utils.JsonUtil;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测客户端：以固定并发向中转服务的 /api/v1/messages 发请求，统计吞吐与延迟分位数
+ */
+@Slf4j
+public class LoadGenerator {
+    
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    
+    private final Settings settings;
+    private final HttpClient httpClient;
+    
+    public LoadGenerator(Settings settings) {
+        this.settings = settings;
+        ConnectionProvider provider = ConnectionProvider.builder("load-generator")
+            .maxConnections(settings.getConcurrency())
+            .pendingAcquireMaxCount(-1)
+            .build();
+        this.httpClient = HttpClient.create(provider)
+            .baseUrl(settings.getTargetUrl())
+            .responseTimeout(Duration.ofMinutes(5))
+            .headers(headers -> headers
+                .set(ApiConstants.API_KEY_HEADER, settings.getApiKey())
+                .set("content-type", ApiConstants.CONTENT_TYPE_JSON));
+    }
+    
+    public LoadReport run() {
+        if (settings.getWarmupRequests() > 0) {
+            log.info("Warming up with {} requests", settings.getWarmupRequests());
+            execute(settings.getWarmupRequests(), new Recorder());
+        }
+        
+        Recorder recorder = new Recorder();
+        log.info("Running {} requests (concurrency {}, stream ratio {})", 
+            settings.getRequests(), settings.getConcurrency(), settings.getStreamRatio());
+        long startNanos = System.nanoTime();
+        execute(settings.getRequests(), recorder);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        return recorder.toReport(elapsed);
+    }
+    
+    private void execute(int requests, Recorder recorder) {
+        Flux.range(0, requests)
+            .flatMap(i -> send(recorder), settings.getConcurrency())
+            .blockLast();
+    }
+    
+    private Mono<Void> send(Recorder recorder) {
+        boolean stream = ThreadLocalRandom.current().nextDouble() < settings.getStreamRatio();
+        String body = requestBody(stream);
+        long startNanos = System.nanoTime();
+        AtomicBoolean firstByte = new AtomicBoolean();
+        AtomicLong status = new AtomicLong();
+        
+        return httpClient.post()
+            .uri("/api/v1/messages")
+            .send((request, outbound) -> outbound.sendString(Mono.just(body)))
+            .response((response, content) -> {
+                status.set(response.status().code());
+                return content.doOnNext(buf -> {
+                    if (firstByte.compareAndSet(false, true)) {
+                        recorder.recordTtfb(stream, System.nanoTime() - startNanos);
+                    }
+                    recorder.bytes.add(buf.readableBytes());
+                });
+            })
+            .then(Mono.fromRunnable(() -> 
+                recorder.recordCompletion((int) status.get(), System.nanoTime() - startNanos)))
+            .onErrorResume(error -> {
+                recorder.recordFailure(error);
+                return Mono.empty();
+            })
+            .then();
+    }
+    
+    private String requestBody(boolean stream) {
+        return JsonUtil.getObjectMapper().valueToTree(Map.of(
+            "model", settings.getModel(),
+            "max_tokens", settings.getMaxTokens(),
+            "stream", stream,
+            "messages", List.of(Map.of("role", "user", "content", settings.getPrompt())))).toString();
+    }
+    
+    /**
+     * 压测参数
+     */
+    @Data
+    @Builder
+    public static class Settings {
+        private String targetUrl;
+        private String apiKey;
+        @Builder.Default
+        private int concurrency = 50;
+        @Builder.Default
+        private int requests = 2000;
+        @Builder.Default
+        private int warmupRequests = 200;
+        @Builder.Default
+        private double streamRatio = 0.8;
+        @Builder.Default
+        private String model = "claude-sonnet-4-20250514";
+        @Builder.Default
+        private int maxTokens = 1024;
+        @Builder.Default
+        private String prompt = "Summarize the trade-offs between consistent hashing and rendezvous hashing.";
+        
+        public static Settings fromArgs(Map<String, String> args, String targetUrl, String apiKey) {
+            Settings defaults = builder().build();
+            return builder()
+                .targetUrl(targetUrl)
+                .apiKey(apiKey)
+                .concurrency(Integer.parseInt(args.getOrDefault("concurrency", String.valueOf(defaults.concurrency))))
+                .requests(Integer.parseInt(args.getOrDefault("requests", String.valueOf(defaults.requests))))
+                .warmupRequests(Integer.parseInt(args.getOrDefault("warmup", String.valueOf(defaults.warmupRequests))))
+                .streamRatio(Double.parseDouble(args.getOrDefault("stream-ratio", String.valueOf(defaults.streamRatio))))
+                .model(args.getOrDefault("model", defaults.model))
+                .maxTokens(Integer.parseInt(args.getOrDefault("max-tokens", String.valueOf(defaults.maxTokens))))
+                .build();
+        }
+    }
+    
+    private static class Recorder {
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Histogram streamTtfb = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+        private final LongAdder bytes = new LongAdder();
+        
+        void recordTtfb(boolean stream, long nanos) {
+            if (stream) {
+                streamTtfb.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+            }
+        }
+        
+        void recordCompletion(int status, long nanos) {
+            statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+            latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+        }
+        
+        void recordFailure(Throwable error) {
+            failures.computeIfAbsent(error.getClass().getSimpleName(), k -> new LongAdder()).increment();
+        }
+        
+        LoadReport toReport(Duration elapsed) {
+            Map<Integer, Long> statusCounts = new java.util.TreeMap<>();
+            statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+            Map<String, Long> failureCounts = new java.util.TreeMap<>();
+            failures.forEach((type, count) -> failureCounts.put(type, count.sum()));
+            return new LoadReport(elapsed, statusCounts, failureCounts, bytes.sum(), 
+                latency.copy(), streamTtfb.copy());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.aiproxy.benchmarks.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 压测结果：吞吐、状态码分布与延迟分位数（微秒记录，毫秒输出）
+ */
+public record LoadReport(Duration elapsed,
+                         Map<Integer, Long> statusCounts,
+                         Map<String, Long> failureCounts,
+                         long responseBytes,
+                         Histogram latency,
+                         Histogram streamTtfb) {
+    
+    public long completed() {
+        return statusCounts.values().stream().mapToLong(Long::longValue).sum();
+    }
+    
+    public long succeeded() {
+        return statusCounts.getOrDefault(200, 0L);
+    }
+    
+    public double throughput() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? completed() / seconds : 0;
+    }
+    
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Requests:    %d completed, %d succeeded, %d transport failures%n",
+            completed(), succeeded(), failureCounts.values().stream().mapToLong(Long::longValue).sum()));
+        out.append(String.format("Duration:    %.1f s%n", elapsed.toMillis() / 1000.0));
+        out.append(String.format("Throughput:  %.1f req/s, %.1f KiB/s%n",
+            throughput(), responseBytes / 1024.0 / Math.max(elapsed.toMillis() / 1000.0, 0.001)));
+        out.append("Status:      ").append(statusCounts).append('\n');
+        if (!failureCounts.isEmpty()) {
+            out.append("Failures:    ").append(failureCounts).append('\n');
+        }
+        appendPercentiles(out, "Latency", latency);
+        appendPercentiles(out, "Stream TTFB", streamTtfb);
+        return out.toString();
+    }
+    
+    private static void appendPercentiles(StringBuilder out, String label, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        out.append(String.format("%-12s p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms (n=%d)%n",
+            label + ":",
+            histogram.getValueAtPercentile(50) / 1000.0,
+            histogram.getValueAtPercentile(90) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0,
+            histogram.getValueAtPercentile(99.9) / 1000.0,
+            histogram.getMaxValue() / 1000.0,
+            histogram.getTotalCount()));
+    }
+}
@@ -0,0 +1,10 @@
+package com.aiproxy.benchmarks.loadtest;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * 压测用的应用入口：与 aiproxy-api 扫描相同的组件，由 {@link LoadTestHarness} 以内嵌数据库启动
+ */
+@SpringBootApplication(scanBasePackages = "com.aiproxy")
+public class LoadTestApplication {
+}
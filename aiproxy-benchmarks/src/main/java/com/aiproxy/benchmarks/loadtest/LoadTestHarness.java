@@ -0,0 +1,148 @@
+package com.aiproxy.benchmarks.loadtest;
+
+import com.aiproxy.auth.service.AccountService;
+import com.aiproxy.auth.service.ApiKeyService;
+import com.aiproxy.common.model.ClaudeAccount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 端到端压测：模拟上游 + 完整中转服务（内嵌 H2/Redis）+ 压测客户端
+ * 
+ * 用法（参数均为 key=value）：
+ * <pre>
+ * java -cp aiproxy-benchmarks/target/benchmarks.jar com.aiproxy.benchmarks.loadtest.LoadTestHarness \
+ *     concurrency=100 requests=5000 stream-ratio=0.8 accounts=3 \
+ *     mock.ttfb-ms=300 mock.tokens-per-second=100 mock.rate-429=0.02 mock.rate-529=0.01
+ * </pre>
+ * 指定 target=http://host:8080 api-key=cr_xxx 时不启动内置服务，直接压测已有的中转服务
+ * （其 relay.claude.base-url 需指向本进程打印的 mock 地址）。
+ */
+@Slf4j
+public class LoadTestHarness {
+    
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = parseArgs(argv);
+        
+        try (MockClaudeServer upstream = new MockClaudeServer(MockUpstreamSettings.fromArgs(args)).start()) {
+            LoadReport report;
+            if (args.containsKey("target")) {
+                report = new LoadGenerator(LoadGenerator.Settings.fromArgs(
+                    args, args.get("target"), args.get("api-key"))).run();
+            } else {
+                report = runEmbedded(args, upstream);
+            }
+            
+            System.out.println();
+            System.out.print(report.format());
+            System.out.printf("Upstream:    %d requests, %d injected errors%n",
+                upstream.getRequests(), upstream.getInjectedErrors());
+        }
+        System.exit(0);
+    }
+    
+    private static LoadReport runEmbedded(Map<String, String> args, MockClaudeServer upstream) throws IOException {
+        int redisPort = freePort();
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+        
+        ConfigurableApplicationContext context = null;
+        try {
+            context = new SpringApplicationBuilder(LoadTestApplication.class)
+                .run(applicationArgs(redisPort, upstream.baseUrl(), args));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            
+            seedAccounts(context.getBean(AccountService.class), 
+                Integer.parseInt(args.getOrDefault("accounts", "3")));
+            String apiKey = context.getBean(ApiKeyService.class)
+                .createApiKey("load-test", "Created by LoadTestHarness")
+                .block()
+                .getKey();
+            
+            return new LoadGenerator(LoadGenerator.Settings.fromArgs(
+                args, "http://localhost:" + port, apiKey)).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            redis.stop();
+        }
+    }
+    
+    /**
+     * 以命令行参数覆盖 application.yml：H2（MySQL 兼容模式）代替 MySQL，Hibernate 建表代替 Flyway
+     */
+    private static String[] applicationArgs(int redisPort, String upstreamUrl, Map<String, String> args) {
+        List<String> overrides = new java.util.ArrayList<>(List.of(
+            "--server.port=0",
+            "--spring.profiles.active=loadtest",
+            "--spring.datasource.url=jdbc:h2:mem:aiproxy;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "--spring.flyway.enabled=false",
+            "--spring.data.redis.host=localhost",
+            "--spring.data.redis.port=" + redisPort,
+            "--spring.data.redis.password=",
+            "--relay.claude.base-url=" + upstreamUrl,
+            // 汇总表的写入使用 MySQL 专有语法，压测时关闭
+            "--relay.rollup.enabled=false",
+            "--relay.tracing.export-file=",
+            "--logging.level.root=WARN",
+            "--logging.level.com.aiproxy.benchmarks=INFO"));
+        // app.* 参数原样传给中转服务，例如 app.relay.admission.enabled=false
+        args.forEach((key, value) -> {
+            if (key.startsWith("app.")) {
+                overrides.add("--" + key.substring(4) + "=" + value);
+            }
+        });
+        return overrides.toArray(String[]::new);
+    }
+    
+    private static void seedAccounts(AccountService accountService, int count) {
+        for (int i = 0; i < count; i++) {
+            accountService.saveAccount(ClaudeAccount.builder()
+                .email("load-test-" + i + "@example.com")
+                .accessToken("sk-ant-oat01-load-test-" + i)
+                .refreshToken("sk-ant-ort01-load-test-" + i)
+                .tokenExpiresAt(LocalDateTime.now().plusDays(1))
+                .enabled(true)
+                .status("ACTIVE")
+                .totalRequests(0L)
+                .totalTokens(0L)
+                .build())
+                .block();
+        }
+        log.info("Seeded {} mock accounts", count);
+    }
+    
+    private static Map<String, String> parseArgs(String[] argv) {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            String trimmed = arg.startsWith("--") ? arg.substring(2) : arg;
+            int eq = trimmed.indexOf('=');
+            if (eq > 0) {
+                args.put(trimmed.substring(0, eq), trimmed.substring(eq + 1));
+            }
+        }
+        return args;
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.aiproxy.benchmarks.loadtest;
+
+import com.aiproxy.common.utils.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的 Anthropic 上游（Reactor Netty），用于压测时不消耗真实账号额度
+ * 
+ * 支持 POST /v1/messages（流式与非流式）和 GET /v1/models，
+ * 可配置首字节延迟、输出速率以及 429/529/500 错误注入。
+ */
+@Slf4j
+public class MockClaudeServer implements AutoCloseable {
+    
+    private static final String CONTENT_TYPE = "content-type";
+    
+    private final MockUpstreamSettings settings;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private DisposableServer server;
+    
+    public MockClaudeServer(MockUpstreamSettings settings) {
+        this.settings = settings;
+    }
+    
+    public MockClaudeServer start() {
+        server = HttpServer.create()
+            .port(settings.getPort())
+            .route(routes -> routes
+                .post("/v1/messages", this::messages)
+                .get("/v1/models", this::models))
+            .bindNow();
+        log.info("Mock Claude upstream listening on {}", baseUrl());
+        return this;
+    }
+    
+    public String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+    
+    public long getRequests() {
+        return requests.get();
+    }
+    
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+    
+    @Override
+    public void close() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+    
+    private Mono<Void> messages(HttpServerRequest request, HttpServerResponse response) {
+        requests.incrementAndGet();
+        return request.receive().aggregate().asString()
+            .defaultIfEmpty("{}")
+            .flatMap(body -> {
+                Mono<Void> error = injectError(response);
+                if (error != null) {
+                    return error;
+                }
+                JsonNode json = JsonUtil.parseJson(body);
+                String model = json.path("model").asText("claude-sonnet-4-20250514");
+                return json.path("stream").asBoolean(false)
+                    ? stream(response, model)
+                    : complete(response, model);
+            });
+    }
+    
+    private Mono<Void> injectError(HttpServerResponse response) {
+        double draw = ThreadLocalRandom.current().nextDouble();
+        if (draw < settings.getRate429()) {
+            injectedErrors.incrementAndGet();
+            Instant reset = Instant.now().plusSeconds(settings.getRetryAfterSeconds());
+            return response.status(429)
+                .header(CONTENT_TYPE, "application/json")
+                .header("retry-after", String.valueOf(settings.getRetryAfterSeconds()))
+                .header("anthropic-ratelimit-requests-remaining", "0")
+                .header("anthropic-ratelimit-requests-reset", reset.toString())
+                .header("anthropic-ratelimit-tokens-reset", reset.toString())
+                .sendString(Mono.just(error("rate_limit_error", "Number of request tokens has exceeded your rate limit.")))
+                .then();
+        }
+        draw -= settings.getRate429();
+        if (draw < settings.getRate529()) {
+            injectedErrors.incrementAndGet();
+            return response.status(529)
+                .header(CONTENT_TYPE, "application/json")
+                .sendString(Mono.just(error("overloaded_error", "Overloaded")))
+                .then();
+        }
+        draw -= settings.getRate529();
+        if (draw < settings.getRate5xx()) {
+            injectedErrors.incrementAndGet();
+            return response.status(500)
+                .header(CONTENT_TYPE, "application/json")
+                .sendString(Mono.just(error("api_error", "Internal server error")))
+                .then();
+        }
+        return null;
+    }
+    
+    private Mono<Void> complete(HttpServerResponse response, String model) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < settings.getOutputTokens(); i++) {
+            text.append(token(i));
+        }
+        Map<String, Object> message = Map.of(
+            "id", messageId(),
+            "type", "message",
+            "role", "assistant",
+            "model", model,
+            "content", List.of(Map.of("type", "text", "text", text.toString())),
+            "stop_reason", "end_turn",
+            "usage", Map.of(
+                "input_tokens", settings.getInputTokens(),
+                "output_tokens", settings.getOutputTokens()));
+        return Mono.delay(settings.getLatency())
+            .then(response.status(200)
+                .header(CONTENT_TYPE, "application/json")
+                .sendString(Mono.just(JsonUtil.toJson(message)))
+                .then());
+    }
+    
+    private Mono<Void> stream(HttpServerResponse response, String model) {
+        Flux<String> head = Flux.just(
+            event("message_start", Map.of("type", "message_start", "message", Map.of(
+                "id", messageId(),
+                "type", "message",
+                "role", "assistant",
+                "model", model,
+                "content", List.of(),
+                "usage", Map.of("input_tokens", settings.getInputTokens(), "output_tokens", 1)))),
+            event("content_block_start", Map.of("type", "content_block_start", "index", 0,
+                "content_block", Map.of("type", "text", "text", ""))),
+            event("ping", Map.of("type", "ping")));
+        
+        Flux<String> deltas = Flux.range(0, settings.getOutputTokens())
+            .map(i -> event("content_block_delta", Map.of("type", "content_block_delta", "index", 0,
+                "delta", Map.of("type", "text_delta", "text", token(i)))));
+        if (settings.getTokensPerSecond() > 0) {
+            deltas = deltas.delayElements(Duration.ofNanos(1_000_000_000L / settings.getTokensPerSecond()));
+        }
+        
+        Flux<String> tail = Flux.just(
+            event("content_block_stop", Map.of("type", "content_block_stop", "index", 0)),
+            event("message_delta", Map.of("type", "message_delta",
+                "delta", Map.of("stop_reason", "end_turn"),
+                "usage", Map.of("output_tokens", settings.getOutputTokens()))),
+            event("message_stop", Map.of("type", "message_stop")));
+        
+        return response.status(200)
+            .header(CONTENT_TYPE, "text/event-stream")
+            .header("cache-control", "no-cache")
+            .sendString(Flux.concat(head, deltas, tail).delaySubscription(settings.getTtfb()))
+            .then();
+    }
+    
+    private Mono<Void> models(HttpServerRequest request, HttpServerResponse response) {
+        Map<String, Object> models = Map.of("data", List.of(
+            Map.of("type", "model", "id", "claude-sonnet-4-20250514"),
+            Map.of("type", "model", "id", "claude-3-5-haiku-20241022")));
+        return response.status(200)
+            .header(CONTENT_TYPE, "application/json")
+            .sendString(Mono.just(JsonUtil.toJson(models)))
+            .then();
+    }
+    
+    private static String event(String type, Map<String, Object> data) {
+        return "event: " + type + "\ndata: " + JsonUtil.getObjectMapper().valueToTree(data) + "\n\n";
+    }
+    
+    private static String error(String type, String message) {
+        return JsonUtil.getObjectMapper().valueToTree(Map.of(
+            "type", "error",
+            "error", Map.of("type", type, "message", message))).toString();
+    }
+    
+    private static String token(int index) {
+        return index == 0 ? "Lorem" : " ipsum";
+    }
+    
+    private static String messageId() {
+        return "msg_mock_" + UUID.randomUUID().toString().replace("-", "");
+    }
+}
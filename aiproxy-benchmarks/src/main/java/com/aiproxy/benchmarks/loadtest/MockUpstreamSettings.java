@@ -0,0 +1,88 @@
+package com.aiproxy.benchmarks.loadtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 模拟上游的行为参数
+ */
+@Data
+@Builder
+public class MockUpstreamSettings {
+    
+    /**
+     * 监听端口，0 表示随机端口
+     */
+    @Builder.Default
+    private int port = 0;
+    
+    /**
+     * 流式请求的首字节延迟
+     */
+    @Builder.Default
+    private Duration ttfb = Duration.ofMillis(300);
+    
+    /**
+     * 非流式请求的整体响应延迟
+     */
+    @Builder.Default
+    private Duration latency = Duration.ofSeconds(2);
+    
+    /**
+     * 流式输出速率（token/秒），0 表示不限速
+     */
+    @Builder.Default
+    private int tokensPerSecond = 100;
+    
+    @Builder.Default
+    private int inputTokens = 1200;
+    
+    @Builder.Default
+    private int outputTokens = 200;
+    
+    /**
+     * 错误注入比例（0-1），依次判定 429、529、500
+     */
+    @Builder.Default
+    private double rate429 = 0.0;
+    
+    @Builder.Default
+    private double rate529 = 0.0;
+    
+    @Builder.Default
+    private double rate5xx = 0.0;
+    
+    /**
+     * 429 响应携带的 retry-after（秒）
+     */
+    @Builder.Default
+    private int retryAfterSeconds = 5;
+    
+    /**
+     * 从 mock.* 参数构建，例如 mock.ttfb-ms=500 mock.rate-429=0.02
+     */
+    public static MockUpstreamSettings fromArgs(Map<String, String> args) {
+        MockUpstreamSettings defaults = builder().build();
+        return builder()
+            .port(Integer.parseInt(args.getOrDefault("mock.port", String.valueOf(defaults.port))))
+            .ttfb(Duration.ofMillis(Long.parseLong(
+                args.getOrDefault("mock.ttfb-ms", String.valueOf(defaults.ttfb.toMillis())))))
+            .latency(Duration.ofMillis(Long.parseLong(
+                args.getOrDefault("mock.latency-ms", String.valueOf(defaults.latency.toMillis())))))
+            .tokensPerSecond(Integer.parseInt(
+                args.getOrDefault("mock.tokens-per-second", String.valueOf(defaults.tokensPerSecond))))
+            .inputTokens(Integer.parseInt(
+                args.getOrDefault("mock.input-tokens", String.valueOf(defaults.inputTokens))))
+            .outputTokens(Integer.parseInt(
+                args.getOrDefault("mock.output-tokens", String.valueOf(defaults.outputTokens))))
+            .rate429(Double.parseDouble(args.getOrDefault("mock.rate-429", "0")))
+            .rate529(Double.parseDouble(args.getOrDefault("mock.rate-529", "0")))
+            .rate5xx(Double.parseDouble(args.getOrDefault("mock.rate-5xx", "0")))
+            .retryAfterSeconds(Integer.parseInt(
+                args.getOrDefault("mock.retry-after", String.valueOf(defaults.retryAfterSeconds))))
+            .build();
+    }
+}
@@ -11,6 +11,7 @@ public class ApiConstants {
     public static final String AUTH_HEADER = "Authorization";
     public static final String API_KEY_HEADER = "X-API-Key";
     public static final String BEARER_PREFIX = "Bearer ";
+    public static final String GOOGLE_API_KEY_HEADER = "x-goog-api-key";
     
     public static final String CONTENT_TYPE_SSE = "text/event-stream";
     public static final String CONTENT_TYPE_JSON = "application/json";
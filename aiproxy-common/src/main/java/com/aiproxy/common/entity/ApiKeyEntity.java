@@ -1,5 +1,6 @@
 package com.aiproxy.common.entity;
 
+import com.aiproxy.common.enums.PriorityTier;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -46,6 +47,15 @@ public class ApiKeyEntity {
     @Builder.Default
     private Long dailyTokenLimit = 1000000L;
     
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private PriorityTier priorityTier = PriorityTier.STANDARD;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer schedulingWeight = 1;
+    
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -12,9 +12,14 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "request_logs", indexes = {
     @Index(name = "idx_created_at", columnList = "createdAt"),
+    @Index(name = "idx_created_at_id", columnList = "createdAt, id"),
     @Index(name = "idx_api_key", columnList = "apiKeyId"),
     @Index(name = "idx_account", columnList = "accountId"),
-    @Index(name = "idx_status_code", columnList = "statusCode")
+    @Index(name = "idx_status_code", columnList = "statusCode"),
+    @Index(name = "idx_status_code_created_at", columnList = "statusCode, createdAt"),
+    @Index(name = "idx_api_key_created_at", columnList = "apiKeyId, createdAt"),
+    @Index(name = "idx_account_created_at", columnList = "accountId, createdAt"),
+    @Index(name = "idx_request_id", columnList = "requestId")
 })
 @Data
 @Builder
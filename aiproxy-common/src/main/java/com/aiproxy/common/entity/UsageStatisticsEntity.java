@@ -0,0 +1,69 @@
+package com.aiproxy.common.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 按日汇总的使用统计（维度：API Key / 账号 / 提供商 / 模型）
+ */
+@Entity
+@Table(name = "usage_statistics", indexes = {
+    @Index(name = "uk_daily_stats", columnList = "date, apiKeyId, accountId, provider, model", unique = true),
+    @Index(name = "idx_date", columnList = "date"),
+    @Index(name = "idx_api_key_date", columnList = "apiKeyId, date")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsageStatisticsEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private LocalDate date;
+    
+    @Column(length = 36)
+    private String apiKeyId;
+    
+    @Column(length = 36)
+    private String accountId;
+    
+    @Column(length = 20)
+    private String provider;
+    
+    @Column(length = 100)
+    private String model;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer totalRequests = 0;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long totalTokens = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer totalErrors = 0;
+    
+    private Integer avgLatencyMs;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
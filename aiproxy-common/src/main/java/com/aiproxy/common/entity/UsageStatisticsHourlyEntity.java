@@ -0,0 +1,81 @@
+package com.aiproxy.common.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按小时汇总的使用统计；维度列为空时存空字符串，保证唯一键可用于 upsert
+ */
+@Entity
+@Table(name = "usage_statistics_hourly", indexes = {
+    @Index(name = "uk_hourly_stats", columnList = "bucketStart, apiKeyId, accountId, provider, model", unique = true),
+    @Index(name = "idx_bucket_start", columnList = "bucketStart")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsageStatisticsHourlyEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Column(nullable = false, length = 36)
+    @Builder.Default
+    private String apiKeyId = "";
+    
+    @Column(nullable = false, length = 36)
+    @Builder.Default
+    private String accountId = "";
+    
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String provider = "";
+    
+    @Column(nullable = false, length = 100)
+    @Builder.Default
+    private String model = "";
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long totalRequests = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long totalErrors = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long requestTokens = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long responseTokens = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long totalTokens = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long latencySumMs = 0L;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
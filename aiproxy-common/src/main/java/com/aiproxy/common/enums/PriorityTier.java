@@ -0,0 +1,31 @@
+package com.aiproxy.common.enums;
+
+/**
+ * API Key 的优先级等级，过载时低优先级请求先被拒绝
+ */
+public enum PriorityTier {
+    INTERACTIVE("Interactive"),
+    STANDARD("Standard"),
+    BATCH("Batch");
+    
+    private final String description;
+    
+    PriorityTier(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public static PriorityTier fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return STANDARD;
+        }
+        try {
+            return PriorityTier.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return STANDARD;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.aiproxy.common.model;
 
+import com.aiproxy.common.enums.AIProvider;
 import com.aiproxy.common.enums.AccountStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,6 +19,7 @@ public class Account implements Serializable {
     private String id;
     private String name;
     private String email;
+    private AIProvider provider;
     private String accessToken;
     private String refreshToken;
     private AccountStatus status;
@@ -39,6 +41,13 @@ public class Account implements Serializable {
         return status == AccountStatus.ACTIVE && !isExpired();
     }
     
+    /**
+     * 账号是否属于指定服务商，未设置服务商的历史账号视为 Claude
+     */
+    public boolean isProvider(AIProvider target) {
+        return (provider != null ? provider : AIProvider.CLAUDE) == target;
+    }
+    
     public boolean isDisabled() {
         return status == AccountStatus.DISABLED || status == AccountStatus.INACTIVE;
     }
@@ -1,5 +1,6 @@
 package com.aiproxy.common.model;
 
+import com.aiproxy.common.enums.PriorityTier;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -25,6 +26,8 @@ public class ApiKey implements Serializable {
     private LocalDateTime expiresAt;
     private List<String> allowedClients;
     private RateLimitRule rateLimitRule;
+    private PriorityTier priorityTier;
+    private Integer schedulingWeight;
     private Long totalRequests;
     private Long totalTokens;
     
@@ -36,6 +39,14 @@ public class ApiKey implements Serializable {
         return enabled && !isExpired();
     }
     
+    public PriorityTier getEffectivePriorityTier() {
+        return priorityTier != null ? priorityTier : PriorityTier.STANDARD;
+    }
+    
+    public int getEffectiveSchedulingWeight() {
+        return schedulingWeight != null && schedulingWeight > 0 ? schedulingWeight : 1;
+    }
+    
     public boolean hasClientRestriction() {
         return allowedClients != null && !allowedClients.isEmpty();
     }
@@ -15,6 +15,7 @@ public class ClaudeAccount {
     
     private String id;
     private String email;
+    private String provider; // CLAUDE, OPENAI, GEMINI
     private String accessToken;
     private String refreshToken;
     private LocalDateTime tokenExpiresAt;
@@ -0,0 +1,41 @@
+package com.aiproxy.common.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 请求日志游标：最后一条记录的 (createdAt, id)，对外编码为不透明字符串
+ */
+public record RequestLogCursor(LocalDateTime createdAt, Long id) {
+    
+    private static final char SEPARATOR = '|';
+    
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 解析游标，空字符串返回 null（从第一页开始）
+     *
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static RequestLogCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            if (index <= 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new RequestLogCursor(LocalDateTime.parse(raw.substring(0, index)),
+                                        Long.parseLong(raw.substring(index + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.aiproxy.common.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 请求日志查询条件，字符串条件按前缀匹配以便使用索引
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequestLogFilter {
+    
+    private String requestId; // 精确匹配，对应响应头 X-Request-Id
+    private String apiKeyId;
+    private String accountId;
+    private String status; // success, failed, pending
+    private String endpoint;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer minLatencyMs; // 只查询响应时间超过该值的请求
+    private boolean failedOrUnknown; // 导出 type=failed：状态码为空或 >= 400，与旧版导出一致
+    
+    public boolean isEmpty() {
+        return isBlank(requestId) && isBlank(apiKeyId) && isBlank(accountId) && isBlank(status) && isBlank(endpoint)
+            && startTime == null && endTime == null && minLatencyMs == null && !failedOrUnknown;
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
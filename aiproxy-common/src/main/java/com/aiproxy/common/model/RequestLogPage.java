@@ -0,0 +1,11 @@
+package com.aiproxy.common.model;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+
+import java.util.List;
+
+/**
+ * 请求日志分页结果；无过滤条件时 total 来自数据库统计信息，为估算值
+ */
+public record RequestLogPage(List<RequestLogEntity> content, long total, boolean totalExact) {
+}
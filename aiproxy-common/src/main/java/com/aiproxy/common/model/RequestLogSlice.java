@@ -0,0 +1,15 @@
+package com.aiproxy.common.model;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+
+import java.util.List;
+
+/**
+ * 游标分页结果，nextCursor 为 null 表示没有更多数据
+ */
+public record RequestLogSlice(List<RequestLogEntity> content, String nextCursor) {
+    
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.aiproxy.common.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一个时间桶内某个维度值的使用量汇总；dimension 为 null 表示未分组
+ */
+public record UsageBucket(LocalDateTime bucket,
+                          String dimension,
+                          long requests,
+                          long errors,
+                          long requestTokens,
+                          long responseTokens,
+                          long totalTokens,
+                          long latencySumMs) {
+}
@@ -0,0 +1,19 @@
+package com.aiproxy.common.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待写入汇总表的一行累加值；bucket 为小时或日的起点
+ */
+public record UsageCounterRow(LocalDateTime bucket,
+                              String apiKeyId,
+                              String accountId,
+                              String provider,
+                              String model,
+                              long requests,
+                              long errors,
+                              long requestTokens,
+                              long responseTokens,
+                              long totalTokens,
+                              long latencySumMs) {
+}
@@ -0,0 +1,39 @@
+package com.aiproxy.common.persistence;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Execution settings for blocking persistence (JPA) calls
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.persistence")
+public class PersistenceConfig {
+    
+    /**
+     * Where blocking repository calls run: virtual-threads or bounded-elastic (Reactor's shared pool)
+     * Default: virtual-threads
+     */
+    private Mode scheduler = Mode.VIRTUAL_THREADS;
+    
+    /**
+     * Maximum concurrent repository calls in virtual-thread mode; 0 matches the Hikari maximum pool size
+     * Default: 0
+     */
+    private int maxConcurrency = 0;
+    
+    /**
+     * How long a call waits for a free slot before failing
+     * Default: 30s
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+    
+    public enum Mode {
+        VIRTUAL_THREADS,
+        BOUNDED_ELASTIC
+    }
+}
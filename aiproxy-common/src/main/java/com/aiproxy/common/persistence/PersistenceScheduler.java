@@ -0,0 +1,109 @@
+package com.aiproxy.common.persistence;
+
+import com.aiproxy.common.exception.RelayException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阻塞式持久化调用（JPA 仓库）的统一执行入口
+ * <p>
+ * 虚拟线程模式下每个调用一个虚拟线程，并用与连接池大小一致的信号量限流：
+ * 超出的调用以挂起的虚拟线程排队，而不是占满平台线程或在 Hikari 中等待超时。
+ * bounded-elastic 模式保持原先 Schedulers.boundedElastic() 的行为。
+ */
+@Component
+@Slf4j
+public class PersistenceScheduler implements DisposableBean {
+    
+    private final Scheduler scheduler;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+    private final int maxConcurrency;
+    
+    public PersistenceScheduler(PersistenceConfig config,
+                                @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.acquireTimeoutMillis = config.getAcquireTimeout().toMillis();
+        if (config.getScheduler() == PersistenceConfig.Mode.VIRTUAL_THREADS) {
+            this.maxConcurrency = config.getMaxConcurrency() > 0 ? config.getMaxConcurrency() : poolSize;
+            this.permits = new Semaphore(maxConcurrency, true);
+            this.scheduler = Schedulers.fromExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("persistence-", 0).factory()),
+                "persistence");
+        } else {
+            this.maxConcurrency = 0;
+            this.permits = null;
+            this.scheduler = Schedulers.boundedElastic();
+        }
+        log.info("Blocking persistence calls run on {} (max concurrency {})", 
+            config.getScheduler(), maxConcurrency > 0 ? maxConcurrency : "unbounded");
+    }
+    
+    /**
+     * 在持久化调度器上执行，返回 null 时为空 Mono
+     */
+    public <T> Mono<T> mono(Callable<T> task) {
+        return Mono.fromCallable(() -> call(task)).subscribeOn(scheduler);
+    }
+    
+    public Mono<Void> run(Runnable task) {
+        return mono(() -> {
+            task.run();
+            return null;
+        }).then();
+    }
+    
+    /**
+     * 查询结果整体取回后再逐条发出
+     */
+    public <T> Flux<T> flux(Callable<? extends Iterable<T>> task) {
+        return Mono.<Iterable<T>>fromCallable(() -> call(task))
+            .subscribeOn(scheduler)
+            .flatMapIterable(items -> items);
+    }
+    
+    /**
+     * 当前正在执行的调用数（仅虚拟线程模式）
+     */
+    public int getActive() {
+        return permits != null ? maxConcurrency - permits.availablePermits() : 0;
+    }
+    
+    /**
+     * 等待执行槽位的调用数（仅虚拟线程模式）
+     */
+    public int getWaiting() {
+        return permits != null ? permits.getQueueLength() : 0;
+    }
+    
+    private <T> T call(Callable<T> task) throws Exception {
+        if (permits == null) {
+            return task.call();
+        }
+        if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new RelayException("Timed out waiting for a database slot");
+        }
+        try {
+            return task.call();
+        } finally {
+            permits.release();
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        if (permits != null) {
+            scheduler.dispose();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.aiproxy.common.entity.RequestLogEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,7 +13,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface RequestLogRepository extends JpaRepository<RequestLogEntity, Long> {
+public interface RequestLogRepository extends JpaRepository<RequestLogEntity, Long>,
+                                              JpaSpecificationExecutor<RequestLogEntity>,
+                                              RequestLogSearchRepository {
     
     Page<RequestLogEntity> findByApiKeyIdOrderByCreatedAtDesc(String apiKeyId, Pageable pageable);
     
@@ -0,0 +1,22 @@
+package com.aiproxy.common.repository;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * 请求日志的分页查询，不执行 COUNT，避免大表全表计数
+ */
+public interface RequestLogSearchRepository {
+    
+    /**
+     * 按 createdAt、id 倒序取一页数据；offset 超出 int 范围时返回空列表
+     */
+    List<RequestLogEntity> findPage(Specification<RequestLogEntity> spec, long offset, int limit);
+    
+    /**
+     * 根据数据库统计信息估算表行数，数据库不支持时返回 null
+     */
+    Long estimateRowCount();
+}
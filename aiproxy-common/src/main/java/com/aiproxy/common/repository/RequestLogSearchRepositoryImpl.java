@@ -0,0 +1,55 @@
+package com.aiproxy.common.repository;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+@Slf4j
+public class RequestLogSearchRepositoryImpl implements RequestLogSearchRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<RequestLogEntity> findPage(Specification<RequestLogEntity> spec, long offset, int limit) {
+        if (offset > Integer.MAX_VALUE) {
+            // JPA 的 firstResult 是 int，这么深的页不可能有数据
+            return List.of();
+        }
+        
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RequestLogEntity> query = cb.createQuery(RequestLogEntity.class);
+        Root<RequestLogEntity> root = query.from(RequestLogEntity.class);
+        
+        query.select(root)
+            .where(spec.toPredicate(root, query, cb))
+            .orderBy(cb.desc(root.get("createdAt")), cb.desc(root.get("id")));
+        
+        return entityManager.createQuery(query)
+            .setFirstResult((int) offset)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+    
+    @Override
+    public Long estimateRowCount() {
+        try {
+            Object rows = entityManager.createNativeQuery(
+                    "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'request_logs'")
+                .getSingleResult();
+            return rows instanceof Number number ? number.longValue() : null;
+        } catch (PersistenceException e) {
+            log.debug("Row count estimate not available: {}", e.getMessage());
+            return null;
+        }
+    }
+}
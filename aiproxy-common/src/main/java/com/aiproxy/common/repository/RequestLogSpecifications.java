@@ -0,0 +1,95 @@
+package com.aiproxy.common.repository;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+import com.aiproxy.common.model.RequestLogCursor;
+import com.aiproxy.common.model.RequestLogFilter;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将 RequestLogFilter 转换为 JPA Specification，所有条件都在数据库端执行
+ */
+public final class RequestLogSpecifications {
+    
+    private RequestLogSpecifications() {
+    }
+    
+    public static Specification<RequestLogEntity> matching(RequestLogFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter == null) {
+                return cb.and();
+            }
+            
+            if (hasText(filter.getRequestId())) {
+                predicates.add(cb.equal(root.get("requestId"), filter.getRequestId().trim()));
+            }
+            if (hasText(filter.getApiKeyId())) {
+                predicates.add(startsWith(cb, root.get("apiKeyId"), filter.getApiKeyId()));
+            }
+            if (hasText(filter.getAccountId())) {
+                predicates.add(startsWith(cb, root.get("accountId"), filter.getAccountId()));
+            }
+            if (hasText(filter.getStatus())) {
+                Expression<Integer> statusCode = root.get("statusCode");
+                switch (filter.getStatus().trim().toLowerCase()) {
+                    case "success" -> predicates.add(cb.between(statusCode, 200, 299));
+                    case "failed" -> predicates.add(cb.or(cb.lessThan(statusCode, 200), cb.greaterThan(statusCode, 299)));
+                    case "pending" -> predicates.add(cb.isNull(statusCode));
+                    default -> predicates.add(cb.disjunction());
+                }
+            }
+            if (filter.isFailedOrUnknown()) {
+                Expression<Integer> statusCode = root.get("statusCode");
+                predicates.add(cb.or(cb.isNull(statusCode), cb.greaterThanOrEqualTo(statusCode, 400)));
+            }
+            if (hasText(filter.getEndpoint())) {
+                // 旧数据没有 endpoint 字段，回退到 requestPath
+                predicates.add(cb.or(
+                    startsWith(cb, root.get("endpoint"), filter.getEndpoint()),
+                    cb.and(cb.isNull(root.get("endpoint")),
+                           startsWith(cb, root.get("requestPath"), filter.getEndpoint()))
+                ));
+            }
+            if (filter.getStartTime() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.getStartTime()));
+            }
+            if (filter.getEndTime() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), filter.getEndTime()));
+            }
+            if (filter.getMinLatencyMs() != null) {
+                predicates.add(cb.greaterThan(root.get("latencyMs"), filter.getMinLatencyMs()));
+            }
+            
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+    
+    /**
+     * 游标之后（按 createdAt、id 倒序）的记录：createdAt < c OR (createdAt = c AND id < i)
+     */
+    public static Specification<RequestLogEntity> before(RequestLogCursor cursor) {
+        return (root, query, cb) -> cb.or(
+            cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+            cb.and(cb.equal(root.get("createdAt"), cursor.createdAt()),
+                   cb.lessThan(root.get("id"), cursor.id()))
+        );
+    }
+    
+    private static Predicate startsWith(CriteriaBuilder cb, Expression<String> field, String value) {
+        return cb.like(field, escapeLike(value.trim()) + "%", '\\');
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,19 @@
+package com.aiproxy.common.repository;
+
+import com.aiproxy.common.model.UsageBucket;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 小时汇总表的时间序列查询
+ */
+public interface UsageSeriesRepository {
+    
+    /**
+     * 查询 [from, to) 内的小时桶，按 bucketStart 和可选的维度字段分组
+     *
+     * @param dimension 分组字段（model、apiKeyId、accountId、provider），为 null 时只按时间分组
+     */
+    List<UsageBucket> findHourlySeries(LocalDateTime from, LocalDateTime to, String dimension);
+}
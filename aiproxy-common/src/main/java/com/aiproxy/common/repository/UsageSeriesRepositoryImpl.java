@@ -0,0 +1,76 @@
+package com.aiproxy.common.repository;
+
+import com.aiproxy.common.entity.UsageStatisticsHourlyEntity;
+import com.aiproxy.common.model.UsageBucket;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class UsageSeriesRepositoryImpl implements UsageSeriesRepository {
+    
+    private static final Set<String> DIMENSIONS = Set.of("model", "apiKeyId", "accountId", "provider");
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<UsageBucket> findHourlySeries(LocalDateTime from, LocalDateTime to, String dimension) {
+        if (dimension != null && !DIMENSIONS.contains(dimension)) {
+            throw new IllegalArgumentException("Unsupported dimension: " + dimension);
+        }
+        
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<UsageStatisticsHourlyEntity> root = query.from(UsageStatisticsHourlyEntity.class);
+        
+        Path<LocalDateTime> bucket = root.get("bucketStart");
+        List<Selection<?>> selections = new ArrayList<>(List.of(
+            bucket,
+            cb.sum(root.<Long>get("totalRequests")),
+            cb.sum(root.<Long>get("totalErrors")),
+            cb.sum(root.<Long>get("requestTokens")),
+            cb.sum(root.<Long>get("responseTokens")),
+            cb.sum(root.<Long>get("totalTokens")),
+            cb.sum(root.<Long>get("latencySumMs"))));
+        List<Expression<?>> groupBy = new ArrayList<>(List.of(bucket));
+        if (dimension != null) {
+            Path<String> dimensionPath = root.get(dimension);
+            selections.add(dimensionPath);
+            groupBy.add(dimensionPath);
+        }
+        
+        query.multiselect(selections)
+            .where(cb.greaterThanOrEqualTo(bucket, from), cb.lessThan(bucket, to))
+            .groupBy(groupBy)
+            .orderBy(cb.asc(bucket));
+        
+        List<UsageBucket> result = new ArrayList<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            result.add(new UsageBucket(
+                row.get(0, LocalDateTime.class),
+                dimension != null ? row.get(7, String.class) : null,
+                longValue(row.get(1)),
+                longValue(row.get(2)),
+                longValue(row.get(3)),
+                longValue(row.get(4)),
+                longValue(row.get(5)),
+                longValue(row.get(6))));
+        }
+        return result;
+    }
+    
+    private static long longValue(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
@@ -0,0 +1,89 @@
+package com.aiproxy.common.repository;
+
+import com.aiproxy.common.entity.UsageStatisticsHourlyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface UsageStatisticsHourlyRepository extends JpaRepository<UsageStatisticsHourlyEntity, Long>,
+                                                         UsageSeriesRepository {
+    
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usage_statistics_hourly " +
+        "(bucket_start, api_key_id, account_id, provider, model, total_requests, total_errors, " +
+        "request_tokens, response_tokens, total_tokens, latency_sum_ms) " +
+        "VALUES (:bucketStart, :apiKeyId, :accountId, :provider, :model, :requests, :errors, " +
+        ":requestTokens, :responseTokens, :tokens, :latencySum) " +
+        "ON DUPLICATE KEY UPDATE " +
+        "total_requests = total_requests + VALUES(total_requests), " +
+        "total_errors = total_errors + VALUES(total_errors), " +
+        "request_tokens = request_tokens + VALUES(request_tokens), " +
+        "response_tokens = response_tokens + VALUES(response_tokens), " +
+        "total_tokens = total_tokens + VALUES(total_tokens), " +
+        "latency_sum_ms = latency_sum_ms + VALUES(latency_sum_ms)", nativeQuery = true)
+    void upsert(@Param("bucketStart") LocalDateTime bucketStart,
+                @Param("apiKeyId") String apiKeyId,
+                @Param("accountId") String accountId,
+                @Param("provider") String provider,
+                @Param("model") String model,
+                @Param("requests") long requests,
+                @Param("errors") long errors,
+                @Param("requestTokens") long requestTokens,
+                @Param("responseTokens") long responseTokens,
+                @Param("tokens") long tokens,
+                @Param("latencySum") long latencySum);
+    
+    @Query("SELECT COALESCE(SUM(h.totalRequests), 0) AS requests, COALESCE(SUM(h.totalErrors), 0) AS errors, " +
+           "COALESCE(SUM(h.totalTokens), 0) AS tokens FROM UsageStatisticsHourlyEntity h WHERE h.bucketStart >= :since")
+    UsageTotals sumSince(@Param("since") LocalDateTime since);
+    
+    /**
+     * 从 request_logs 重建截止时间之前的小时统计，每个库只执行一次（见 usage_rollup_backfill）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usage_statistics_hourly " +
+        "(bucket_start, api_key_id, account_id, provider, model, total_requests, total_errors, " +
+        "request_tokens, response_tokens, total_tokens, latency_sum_ms) " +
+        "SELECT TIMESTAMP(DATE(created_at), MAKETIME(HOUR(created_at), 0, 0)), " +
+        "COALESCE(api_key_id, ''), COALESCE(account_id, ''), COALESCE(provider, ''), COALESCE(model, ''), " +
+        "COUNT(*), SUM(CASE WHEN status_code >= 400 THEN 1 ELSE 0 END), " +
+        "COALESCE(SUM(request_tokens), 0), COALESCE(SUM(response_tokens), 0), " +
+        "COALESCE(SUM(total_tokens), 0), COALESCE(SUM(latency_ms), 0) " +
+        "FROM request_logs WHERE created_at < :cutoff " +
+        "GROUP BY 1, 2, 3, 4, 5", nativeQuery = true)
+    int backfillFromRequestLogs(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * 汇总表是否已经回填过（usage_rollup_backfill 中有标记）
+     */
+    @Query(value = "SELECT COUNT(*) FROM usage_rollup_backfill WHERE table_name = :tableName", nativeQuery = true)
+    long countBackfillMarker(@Param("tableName") String tableName);
+    
+    /**
+     * 回填完成后写入标记，与回填在同一个事务内提交
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usage_rollup_backfill (table_name, cutoff, backfilled_rows) " +
+        "VALUES (:tableName, :cutoff, :rows)", nativeQuery = true)
+    void markBackfilled(@Param("tableName") String tableName,
+                        @Param("cutoff") LocalDateTime cutoff,
+                        @Param("rows") int rows);
+    
+    /**
+     * MySQL 命名锁，多个节点同时启动时只有一个执行回填；锁属于连接，必须在同一个事务内释放
+     */
+    @Query(value = "SELECT GET_LOCK(:name, 0)", nativeQuery = true)
+    Integer tryLock(@Param("name") String name);
+    
+    @Query(value = "SELECT RELEASE_LOCK(:name)", nativeQuery = true)
+    Integer releaseLock(@Param("name") String name);
+}
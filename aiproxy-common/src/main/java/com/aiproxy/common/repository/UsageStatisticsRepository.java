@@ -0,0 +1,73 @@
+package com.aiproxy.common.repository;
+
+import com.aiproxy.common.entity.UsageStatisticsEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Repository
+public interface UsageStatisticsRepository extends JpaRepository<UsageStatisticsEntity, Long> {
+    
+    /**
+     * 累加到已有的日统计行；维度列可能为 NULL，使用 <=> 做 NULL 安全比较。
+     * avg_latency_ms 必须在 total_requests 之前赋值（MySQL 按顺序使用已更新的值）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE usage_statistics SET " +
+        "avg_latency_ms = ROUND((COALESCE(avg_latency_ms, 0) * total_requests + :latencySum) / (total_requests + :requests)), " +
+        "total_requests = total_requests + :requests, " +
+        "total_errors = total_errors + :errors, " +
+        "total_tokens = total_tokens + :tokens " +
+        "WHERE date = :date AND api_key_id <=> :apiKeyId AND account_id <=> :accountId " +
+        "AND provider <=> :provider AND model <=> :model", nativeQuery = true)
+    int incrementDaily(@Param("date") LocalDate date,
+                       @Param("apiKeyId") String apiKeyId,
+                       @Param("accountId") String accountId,
+                       @Param("provider") String provider,
+                       @Param("model") String model,
+                       @Param("requests") long requests,
+                       @Param("errors") long errors,
+                       @Param("tokens") long tokens,
+                       @Param("latencySum") long latencySum);
+    
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usage_statistics " +
+        "(date, api_key_id, account_id, provider, model, total_requests, total_tokens, total_errors, avg_latency_ms) " +
+        "VALUES (:date, :apiKeyId, :accountId, :provider, :model, :requests, :tokens, :errors, ROUND(:latencySum / :requests))",
+        nativeQuery = true)
+    void insertDaily(@Param("date") LocalDate date,
+                     @Param("apiKeyId") String apiKeyId,
+                     @Param("accountId") String accountId,
+                     @Param("provider") String provider,
+                     @Param("model") String model,
+                     @Param("requests") long requests,
+                     @Param("errors") long errors,
+                     @Param("tokens") long tokens,
+                     @Param("latencySum") long latencySum);
+    
+    @Query("SELECT COALESCE(SUM(u.totalRequests), 0) AS requests, COALESCE(SUM(u.totalErrors), 0) AS errors, " +
+           "COALESCE(SUM(u.totalTokens), 0) AS tokens FROM UsageStatisticsEntity u")
+    UsageTotals sumAll();
+    
+    /**
+     * 从 request_logs 重建截止时间之前的日统计，每个库只执行一次（见 usage_rollup_backfill）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usage_statistics " +
+        "(date, api_key_id, account_id, provider, model, total_requests, total_tokens, total_errors, avg_latency_ms) " +
+        "SELECT DATE(created_at), api_key_id, account_id, provider, model, COUNT(*), " +
+        "COALESCE(SUM(total_tokens), 0), SUM(CASE WHEN status_code >= 400 THEN 1 ELSE 0 END), " +
+        "ROUND(AVG(COALESCE(latency_ms, 0))) " +
+        "FROM request_logs WHERE created_at < :cutoff " +
+        "GROUP BY DATE(created_at), api_key_id, account_id, provider, model", nativeQuery = true)
+    int backfillFromRequestLogs(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,13 @@
+package com.aiproxy.common.repository;
+
+/**
+ * 汇总查询的投影结果
+ */
+public interface UsageTotals {
+    
+    Long getRequests();
+    
+    Long getErrors();
+    
+    Long getTokens();
+}
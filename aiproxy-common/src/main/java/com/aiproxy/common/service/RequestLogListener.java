@@ -0,0 +1,11 @@
+package com.aiproxy.common.service;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+
+/**
+ * 请求日志保存成功后的回调，用于增量统计等旁路处理；实现必须是非阻塞的
+ */
+public interface RequestLogListener {
+    
+    void onRequestLogged(RequestLogEntity logEntity);
+}
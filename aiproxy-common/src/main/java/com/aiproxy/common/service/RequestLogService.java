@@ -1,16 +1,24 @@
 package com.aiproxy.common.service;
 
 import com.aiproxy.common.entity.RequestLogEntity;
+import com.aiproxy.common.model.RequestLogCursor;
+import com.aiproxy.common.model.RequestLogFilter;
+import com.aiproxy.common.model.RequestLogPage;
+import com.aiproxy.common.model.RequestLogSlice;
+import com.aiproxy.common.persistence.PersistenceScheduler;
 import com.aiproxy.common.repository.RequestLogRepository;
+import com.aiproxy.common.repository.RequestLogSpecifications;
+import com.aiproxy.common.store.RequestLogStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,47 +28,55 @@ import java.util.UUID;
 @Slf4j
 public class RequestLogService {
     
+    // 与管理端接口的上限一致，防止调用方绕过控制器传入超大分页
+    private static final int MAX_SEARCH_PAGE_SIZE = 500;
+    
     private final RequestLogRepository requestLogRepository;
+    private final ObjectProvider<RequestLogListener> listeners;
+    private final PersistenceScheduler persistenceScheduler;
+    private final RequestLogStore requestLogStore;
     
-    public RequestLogService(RequestLogRepository requestLogRepository) {
+    public RequestLogService(RequestLogRepository requestLogRepository,
+                             ObjectProvider<RequestLogListener> listeners,
+                             PersistenceScheduler persistenceScheduler,
+                             RequestLogStore requestLogStore) {
         this.requestLogRepository = requestLogRepository;
+        this.listeners = listeners;
+        this.persistenceScheduler = persistenceScheduler;
+        this.requestLogStore = requestLogStore;
     }
     
     /**
      * 记录请求日志（新版本，支持更多字段）
      */
     public Mono<Void> logRequestV2(RequestLogEntity logEntity) {
-        return Mono.fromRunnable(() -> {
-            try {
-                // 生成请求ID
-                if (logEntity.getRequestId() == null) {
-                    logEntity.setRequestId(UUID.randomUUID().toString().substring(0, 8));
-                }
-                
-                // 设置状态
-                if (logEntity.getStatus() == null) {
-                    logEntity.setStatus(determineStatus(logEntity.getStatusCode()));
-                }
-                
-                // 设置错误类型
-                if (logEntity.getStatusCode() != null && logEntity.getStatusCode() >= 400) {
-                    logEntity.setErrorType(mapErrorType(logEntity.getStatusCode()));
-                }
-                
-                // 计算总tokens
-                if (logEntity.getRequestTokens() != null && logEntity.getResponseTokens() != null) {
-                    logEntity.setTotalTokens(logEntity.getRequestTokens() + logEntity.getResponseTokens());
-                }
-                
-                requestLogRepository.save(logEntity);
-                log.debug("Request log saved: requestId={}, status={}, latency={}ms", 
-                    logEntity.getRequestId(), logEntity.getStatus(), logEntity.getLatencyMs());
-            } catch (Exception e) {
-                log.error("Failed to save request log", e);
-            }
-        })
-        .subscribeOn(Schedulers.boundedElastic())
-        .then();
+        // 生成请求ID
+        if (logEntity.getRequestId() == null) {
+            logEntity.setRequestId(UUID.randomUUID().toString().substring(0, 8));
+        }
+        
+        // 设置状态
+        if (logEntity.getStatus() == null) {
+            logEntity.setStatus(determineStatus(logEntity.getStatusCode()));
+        }
+        
+        // 设置错误类型
+        if (logEntity.getStatusCode() != null && logEntity.getStatusCode() >= 400) {
+            logEntity.setErrorType(mapErrorType(logEntity.getStatusCode()));
+        }
+        
+        // 计算总tokens
+        if (logEntity.getRequestTokens() != null && logEntity.getResponseTokens() != null) {
+            logEntity.setTotalTokens(logEntity.getRequestTokens() + logEntity.getResponseTokens());
+        }
+        
+        return requestLogStore.insert(logEntity)
+            .map(this::notifyListeners)
+            .doOnNext(saved -> log.debug("Request log saved: requestId={}, status={}, latency={}ms", 
+                saved.getRequestId(), saved.getStatus(), saved.getLatencyMs()))
+            .doOnError(error -> log.error("Failed to save request log", error))
+            .onErrorResume(error -> Mono.empty())
+            .then();
     }
     
     public Mono<RequestLogEntity> logRequest(String apiKeyId, 
@@ -91,9 +107,29 @@ public class RequestLogService {
                                             String errorMessage,
                                             String requestPath,
                                             String requestBody) {
-        return logRequestWithRetry(apiKeyId, accountId, accountEmail, provider, model,
-                                   requestTokens, responseTokens, latencyMs, statusCode,
-                                   errorMessage, requestPath, null, null, null, null, requestBody);
+        return logRequest(null, apiKeyId, accountId, accountEmail, provider, model, requestTokens,
+                          responseTokens, latencyMs, statusCode, errorMessage, requestPath, requestBody);
+    }
+    
+    /**
+     * 记录请求日志，并关联请求入口分配的 requestId（与响应头 X-Request-Id、访问日志和 trace 一致）
+     */
+    public Mono<RequestLogEntity> logRequest(String requestId,
+                                            String apiKeyId, 
+                                            String accountId,
+                                            String accountEmail,
+                                            String provider,
+                                            String model,
+                                            Integer requestTokens,
+                                            Integer responseTokens,
+                                            Integer latencyMs,
+                                            Integer statusCode,
+                                            String errorMessage,
+                                            String requestPath,
+                                            String requestBody) {
+        return saveRequestLog(requestId, apiKeyId, accountId, accountEmail, provider, model,
+                              requestTokens, responseTokens, latencyMs, statusCode,
+                              errorMessage, requestPath, null, null, null, null, requestBody);
     }
     
     public Mono<RequestLogEntity> logRequestWithRetry(String apiKeyId, 
@@ -112,9 +148,32 @@ public class RequestLogService {
                                             String failedAccounts,
                                             String finalAccount,
                                             String requestBody) {
+        return saveRequestLog(null, apiKeyId, accountId, accountEmail, provider, model,
+                              requestTokens, responseTokens, latencyMs, statusCode, errorMessage,
+                              requestPath, clientIp, retryCount, failedAccounts, finalAccount, requestBody);
+    }
+    
+    private Mono<RequestLogEntity> saveRequestLog(String requestId,
+                                                  String apiKeyId, 
+                                                  String accountId,
+                                                  String accountEmail,
+                                                  String provider,
+                                                  String model,
+                                                  Integer requestTokens,
+                                                  Integer responseTokens,
+                                                  Integer latencyMs,
+                                                  Integer statusCode,
+                                                  String errorMessage,
+                                                  String requestPath,
+                                                  String clientIp,
+                                                  Integer retryCount,
+                                                  String failedAccounts,
+                                                  String finalAccount,
+                                                  String requestBody) {
         
         return Mono.fromCallable(() -> {
             RequestLogEntity log = new RequestLogEntity();
+            log.setRequestId(requestId);
             log.setApiKeyId(apiKeyId);
             log.setAccountId(accountId);
             log.setAccountEmail(accountEmail);
@@ -150,15 +209,27 @@ public class RequestLogService {
                 log.setRequestBody(truncatedBody);
             }
             
-            return requestLogRepository.save(log);
+            return log;
         })
-        .subscribeOn(Schedulers.boundedElastic())
+        .flatMap(requestLogStore::insert)
+        .map(this::notifyListeners)
         .doOnSuccess(savedLog -> log.debug("Request logged: apiKey={}, account={}, model={}, tokens={}", 
             apiKeyId, accountId, model, savedLog.getTotalTokens()))
         .doOnError(error -> log.error("Failed to log request: ", error))
         .onErrorResume(error -> Mono.empty()); // Don't fail the main request if logging fails
     }
     
+    private RequestLogEntity notifyListeners(RequestLogEntity saved) {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onRequestLogged(saved);
+            } catch (Exception e) {
+                log.warn("Request log listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        });
+        return saved;
+    }
+    
     /**
      * 根据状态码判断请求状态
      */
@@ -193,27 +264,82 @@ public class RequestLogService {
      * 查询请求日志
      */
     public Mono<Page<RequestLogEntity>> queryLogs(int page, int size) {
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
             return requestLogRepository.findAll(pageable);
-        })
-        .subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+    
+    /**
+     * 按 (createdAt, id) 游标查询请求日志，翻页深度不影响查询耗时
+     *
+     * @param cursor 上一页返回的 nextCursor，为空时从最新记录开始
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public Mono<RequestLogSlice> queryLogs(RequestLogFilter filter, String cursor, int size) {
+        RequestLogCursor position = RequestLogCursor.decode(cursor);
+        return persistenceScheduler.mono(() -> {
+            Specification<RequestLogEntity> spec = RequestLogSpecifications.matching(filter);
+            if (position != null) {
+                spec = spec.and(RequestLogSpecifications.before(position));
+            }
+            // 多取一条用于判断是否还有下一页
+            List<RequestLogEntity> rows = requestLogRepository.findPage(spec, 0, size + 1);
+            if (rows.size() <= size) {
+                return new RequestLogSlice(rows, null);
+            }
+            List<RequestLogEntity> content = rows.subList(0, size);
+            RequestLogEntity last = content.get(size - 1);
+            return new RequestLogSlice(content, new RequestLogCursor(last.getCreatedAt(), last.getId()).encode());
+        });
+    }
+    
+    /**
+     * 按游标逐批读取符合条件的全部日志，用于导出；下游消费完一批才会查询下一批
+     */
+    public Flux<List<RequestLogEntity>> streamLogs(RequestLogFilter filter, int batchSize) {
+        return queryLogs(filter, null, batchSize)
+            .expand(slice -> slice.hasMore()
+                ? queryLogs(filter, slice.nextCursor(), batchSize)
+                : Mono.empty())
+            .map(RequestLogSlice::content)
+            .filter(batch -> !batch.isEmpty());
+    }
+    
+    /**
+     * 按条件分页查询请求日志，过滤和分页都在数据库端完成
+     */
+    public Mono<RequestLogPage> searchLogs(RequestLogFilter filter, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        long offset = (long) Math.max(page, 0) * pageSize;
+        return persistenceScheduler.mono(() -> {
+            Specification<RequestLogEntity> spec = RequestLogSpecifications.matching(filter);
+            List<RequestLogEntity> content = requestLogRepository.findPage(spec, offset, pageSize);
+            
+            if (filter == null || filter.isEmpty()) {
+                // 无过滤条件时避免对整表 COUNT(*)，使用统计信息估算
+                Long estimate = requestLogRepository.estimateRowCount();
+                if (estimate != null) {
+                    return new RequestLogPage(content, Math.max(estimate, offset + content.size()), false);
+                }
+            }
+            return new RequestLogPage(content, requestLogRepository.count(spec), true);
+        });
     }
     
     /**
      * 获取所有请求日志（Flux）
      */
     public Flux<RequestLogEntity> getAllLogs() {
-        return Flux.fromIterable(requestLogRepository.findAll(
-            Sort.by(Sort.Direction.DESC, "createdAt")))
-            .subscribeOn(Schedulers.boundedElastic());
+        return persistenceScheduler.flux(() -> requestLogRepository.findAll(
+            Sort.by(Sort.Direction.DESC, "createdAt")));
     }
     
     /**
      * 获取所有请求日志并加载关联的账户信息
      */
     public Flux<RequestLogEntity> getAllLogsWithAccounts() {
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             // 使用@Transactional确保在同一个Session中执行
             List<RequestLogEntity> logs = requestLogRepository.findAll(
                 Sort.by(Sort.Direction.DESC, "createdAt"));
@@ -222,25 +348,22 @@ public class RequestLogService {
             // 账户邮箱已经存储在account_email字段中
             return logs;
         })
-        .flatMapMany(Flux::fromIterable)
-        .subscribeOn(Schedulers.boundedElastic());
+        .flatMapMany(Flux::fromIterable);
     }
     
     public Mono<Long> getTotalTokensForApiKeyToday(String apiKeyId) {
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
             Long tokens = requestLogRepository.getTotalTokensByApiKeySince(apiKeyId, startOfDay);
             return tokens != null ? tokens : 0L;
-        })
-        .subscribeOn(Schedulers.boundedElastic());
+        });
     }
     
     public Mono<Long> getTotalRequestsForApiKeyLastHour(String apiKeyId) {
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
             Long requests = requestLogRepository.getTotalRequestsByApiKeySince(apiKeyId, oneHourAgo);
             return requests != null ? requests : 0L;
-        })
-        .subscribeOn(Schedulers.boundedElastic());
+        });
     }
 }
\ No newline at end of file
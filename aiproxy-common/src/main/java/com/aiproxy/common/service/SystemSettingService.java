@@ -1,12 +1,12 @@
 package com.aiproxy.common.service;
 
 import com.aiproxy.common.entity.SystemSettingEntity;
+import com.aiproxy.common.persistence.PersistenceScheduler;
 import com.aiproxy.common.repository.SystemSettingRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.util.HashMap;
 import java.util.List;
@@ -17,12 +17,15 @@ import java.util.Map;
 public class SystemSettingService {
     
     private final SystemSettingRepository settingRepository;
+    private final PersistenceScheduler persistenceScheduler;
     
     // 缓存系统设置
     private Map<String, String> settingsCache = new HashMap<>();
     
-    public SystemSettingService(SystemSettingRepository settingRepository) {
+    public SystemSettingService(SystemSettingRepository settingRepository,
+                                PersistenceScheduler persistenceScheduler) {
         this.settingRepository = settingRepository;
+        this.persistenceScheduler = persistenceScheduler;
         loadSettingsToCache();
     }
     
@@ -57,7 +60,7 @@ public class SystemSettingService {
     
     @Transactional
     public Mono<Map<String, Object>> saveSettings(String group, Map<String, Object> settings) {
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             for (Map.Entry<String, Object> entry : settings.entrySet()) {
                 String key = convertToKey(group, entry.getKey());
                 String value = String.valueOf(entry.getValue());
@@ -81,11 +84,11 @@ public class SystemSettingService {
             response.put("data", settings);
             
             return response;
-        }).subscribeOn(Schedulers.boundedElastic());
+        });
     }
     
     public Mono<Map<String, Object>> getSettings(String group) {
-        return Mono.fromCallable(() -> {
+        return persistenceScheduler.mono(() -> {
             Map<String, Object> result = new HashMap<>();
             
             // 从缓存获取设置
@@ -114,7 +117,7 @@ public class SystemSettingService {
             }
             
             return result;
-        }).subscribeOn(Schedulers.boundedElastic());
+        });
     }
     
     private void addToResultIfExists(Map<String, Object> result, String key, String fieldName) {
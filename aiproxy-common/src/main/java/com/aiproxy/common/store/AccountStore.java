@@ -0,0 +1,18 @@
+package com.aiproxy.common.store;
+
+import com.aiproxy.common.entity.AccountEntity;
+import reactor.core.publisher.Flux;
+
+/**
+ * 中转热路径上的账号读取（账号快照）
+ * <p>
+ * 默认由 JPA 实现；relay.r2dbc.enabled=true 且引入 aiproxy-r2dbc 模块时换成非阻塞的 R2DBC 实现。
+ * 管理后台的增删改仍直接使用 JPA 仓库。
+ */
+public interface AccountStore {
+    
+    /**
+     * 所有启用且状态为 ACTIVE 的账号
+     */
+    Flux<AccountEntity> findActive();
+}
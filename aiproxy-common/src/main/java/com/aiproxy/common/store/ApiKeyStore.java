@@ -0,0 +1,12 @@
+package com.aiproxy.common.store;
+
+import com.aiproxy.common.entity.ApiKeyEntity;
+import reactor.core.publisher.Mono;
+
+/**
+ * 鉴权时按哈希查找 API Key（Redis 缓存未命中时）
+ */
+public interface ApiKeyStore {
+    
+    Mono<ApiKeyEntity> findByKeyHash(String keyHash);
+}
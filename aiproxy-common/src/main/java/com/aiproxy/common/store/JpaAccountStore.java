@@ -0,0 +1,26 @@
+package com.aiproxy.common.store;
+
+import com.aiproxy.common.entity.AccountEntity;
+import com.aiproxy.common.persistence.PersistenceScheduler;
+import com.aiproxy.common.repository.AccountRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+@Component
+@ConditionalOnProperty(prefix = "relay.r2dbc", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class JpaAccountStore implements AccountStore {
+    
+    private final AccountRepository accountRepository;
+    private final PersistenceScheduler persistenceScheduler;
+    
+    public JpaAccountStore(AccountRepository accountRepository, PersistenceScheduler persistenceScheduler) {
+        this.accountRepository = accountRepository;
+        this.persistenceScheduler = persistenceScheduler;
+    }
+    
+    @Override
+    public Flux<AccountEntity> findActive() {
+        return persistenceScheduler.flux(() -> accountRepository.findByEnabledTrueAndStatus("ACTIVE"));
+    }
+}
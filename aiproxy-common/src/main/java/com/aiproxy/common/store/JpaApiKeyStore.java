@@ -0,0 +1,26 @@
+package com.aiproxy.common.store;
+
+import com.aiproxy.common.entity.ApiKeyEntity;
+import com.aiproxy.common.persistence.PersistenceScheduler;
+import com.aiproxy.common.repository.ApiKeyRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(prefix = "relay.r2dbc", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class JpaApiKeyStore implements ApiKeyStore {
+    
+    private final ApiKeyRepository apiKeyRepository;
+    private final PersistenceScheduler persistenceScheduler;
+    
+    public JpaApiKeyStore(ApiKeyRepository apiKeyRepository, PersistenceScheduler persistenceScheduler) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.persistenceScheduler = persistenceScheduler;
+    }
+    
+    @Override
+    public Mono<ApiKeyEntity> findByKeyHash(String keyHash) {
+        return persistenceScheduler.mono(() -> apiKeyRepository.findByKeyHash(keyHash).orElse(null));
+    }
+}
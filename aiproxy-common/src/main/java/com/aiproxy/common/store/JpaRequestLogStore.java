@@ -0,0 +1,26 @@
+package com.aiproxy.common.store;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+import com.aiproxy.common.persistence.PersistenceScheduler;
+import com.aiproxy.common.repository.RequestLogRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(prefix = "relay.r2dbc", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class JpaRequestLogStore implements RequestLogStore {
+    
+    private final RequestLogRepository requestLogRepository;
+    private final PersistenceScheduler persistenceScheduler;
+    
+    public JpaRequestLogStore(RequestLogRepository requestLogRepository, PersistenceScheduler persistenceScheduler) {
+        this.requestLogRepository = requestLogRepository;
+        this.persistenceScheduler = persistenceScheduler;
+    }
+    
+    @Override
+    public Mono<RequestLogEntity> insert(RequestLogEntity log) {
+        return persistenceScheduler.mono(() -> requestLogRepository.save(log));
+    }
+}
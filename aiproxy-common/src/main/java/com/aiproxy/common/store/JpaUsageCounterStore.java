@@ -0,0 +1,53 @@
+package com.aiproxy.common.store;
+
+import com.aiproxy.common.model.UsageCounterRow;
+import com.aiproxy.common.persistence.PersistenceScheduler;
+import com.aiproxy.common.repository.UsageStatisticsHourlyRepository;
+import com.aiproxy.common.repository.UsageStatisticsRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(prefix = "relay.r2dbc", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class JpaUsageCounterStore implements UsageCounterStore {
+    
+    private final UsageStatisticsRepository dailyRepository;
+    private final UsageStatisticsHourlyRepository hourlyRepository;
+    private final PersistenceScheduler persistenceScheduler;
+    private final TransactionTemplate transactionTemplate;
+    
+    public JpaUsageCounterStore(UsageStatisticsRepository dailyRepository,
+                                UsageStatisticsHourlyRepository hourlyRepository,
+                                PersistenceScheduler persistenceScheduler,
+                                PlatformTransactionManager transactionManager) {
+        this.dailyRepository = dailyRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.persistenceScheduler = persistenceScheduler;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @Override
+    public Mono<Void> flush(List<UsageCounterRow> hourly, List<UsageCounterRow> daily) {
+        // 仓库方法的 @Transactional 加入同一个事务，任何一行失败都整体回滚
+        return persistenceScheduler.run(() -> transactionTemplate.executeWithoutResult(status -> {
+            hourly.forEach(row -> hourlyRepository.upsert(row.bucket(), row.apiKeyId(), row.accountId(),
+                row.provider(), row.model(), row.requests(), row.errors(), row.requestTokens(),
+                row.responseTokens(), row.totalTokens(), row.latencySumMs()));
+            daily.forEach(row -> {
+                int updated = dailyRepository.incrementDaily(row.bucket().toLocalDate(), row.apiKeyId(),
+                    row.accountId(), row.provider(), row.model(), row.requests(), row.errors(),
+                    row.totalTokens(), row.latencySumMs());
+                if (updated == 0) {
+                    dailyRepository.insertDaily(row.bucket().toLocalDate(), row.apiKeyId(), row.accountId(),
+                        row.provider(), row.model(), row.requests(), row.errors(),
+                        row.totalTokens(), row.latencySumMs());
+                }
+            });
+        }));
+    }
+}
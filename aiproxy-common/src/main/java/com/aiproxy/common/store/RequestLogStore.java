@@ -0,0 +1,15 @@
+package com.aiproxy.common.store;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+import reactor.core.publisher.Mono;
+
+/**
+ * 请求日志写入；实现可以把多条日志合并成一次批量插入
+ */
+public interface RequestLogStore {
+    
+    /**
+     * 写入一条日志，完成时返回已保存的实体
+     */
+    Mono<RequestLogEntity> insert(RequestLogEntity log);
+}
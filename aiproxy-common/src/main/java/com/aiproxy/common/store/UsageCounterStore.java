@@ -0,0 +1,20 @@
+package com.aiproxy.common.store;
+
+import com.aiproxy.common.model.UsageCounterRow;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 汇总表（usage_statistics_hourly / usage_statistics）的累加写入
+ */
+public interface UsageCounterStore {
+    
+    /**
+     * 把内存中聚合好的计数累加到汇总表；所有行在一个事务内写入，失败时不会留下部分结果
+     * 
+     * @param hourly 小时桶，维度为空时用空字符串
+     * @param daily 日桶，维度为空时用 NULL（该表维度列有外键约束）
+     */
+    Mono<Void> flush(List<UsageCounterRow> hourly, List<UsageCounterRow> daily);
+}
@@ -0,0 +1,72 @@
+package com.aiproxy.common.tracing;
+
+import io.micrometer.observation.Observation;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 中转链路的 span 上下文，只有这种上下文会被 {@link SpanFileExporter} 导出
+ */
+public class RelaySpanContext extends Observation.Context {
+    
+    private String traceId;
+    private String spanId;
+    private String parentSpanId;
+    private long startEpochNanos;
+    private long startNanos;
+    private final List<SpanEvent> events = new CopyOnWriteArrayList<>();
+    
+    public String getTraceId() {
+        return traceId;
+    }
+    
+    void setTraceId(String traceId) {
+        this.traceId = traceId;
+    }
+    
+    public String getSpanId() {
+        return spanId;
+    }
+    
+    void setSpanId(String spanId) {
+        this.spanId = spanId;
+    }
+    
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+    
+    void setParentSpanId(String parentSpanId) {
+        this.parentSpanId = parentSpanId;
+    }
+    
+    long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+    
+    long getStartNanos() {
+        return startNanos;
+    }
+    
+    void markStarted() {
+        this.startNanos = System.nanoTime();
+        Instant now = Instant.now();
+        this.startEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+    
+    /**
+     * 当前时刻对应的 Unix 纳秒时间（以 span 开始时间为基准，避免多次读取系统时钟）
+     */
+    long nowEpochNanos() {
+        return startEpochNanos + (System.nanoTime() - startNanos);
+    }
+    
+    List<SpanEvent> getEvents() {
+        return events;
+    }
+    
+    record SpanEvent(String name, long timeUnixNano) {
+    }
+}
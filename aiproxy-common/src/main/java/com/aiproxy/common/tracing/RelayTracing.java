@@ -0,0 +1,165 @@
+package com.aiproxy.common.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 轻量级请求追踪：基于 Micrometer Observation，span 通过 Reactor Context 传递父子关系
+ * <p>
+ * 根 span 由请求入口创建，traceId 随机生成、requestId 记为 request.id 属性；下游只在存在父 span 时才创建子 span，
+ * 未采样的请求不产生任何 span。
+ */
+@Component
+public class RelayTracing {
+    
+    /**
+     * Reactor Context / exchange attribute 中的请求 ID
+     */
+    public static final String REQUEST_ID_KEY = "requestId";
+    
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    
+    private static final String SPAN_KEY = "relay.span";
+    
+    private final ObservationRegistry observationRegistry;
+    private final TracingConfig config;
+    
+    public RelayTracing(ObservationRegistry observationRegistry, TracingConfig config) {
+        this.observationRegistry = observationRegistry;
+        this.config = config;
+    }
+    
+    /**
+     * 开始一个根 span，未启用或未被采样时返回 null
+     */
+    public Observation startRoot(String name, String requestId) {
+        if (!config.isEnabled() || !sampled()) {
+            return null;
+        }
+        // traceId 由 SpanFileExporter 按 W3C 格式生成，requestId 不满足 32 位十六进制的要求
+        return Observation.createNotStarted(name, RelaySpanContext::new, observationRegistry)
+            .parentObservation(null)
+            .highCardinalityKeyValue("request.id", requestId)
+            .start();
+    }
+    
+    /**
+     * 把根 span 和请求 ID 写入 Reactor Context
+     */
+    public static Context withRoot(Context context, String requestId, Observation root) {
+        Context updated = context.put(REQUEST_ID_KEY, requestId);
+        return root != null ? updated.put(SPAN_KEY, root) : updated;
+    }
+    
+    public static String requestId(ContextView context) {
+        return context.getOrDefault(REQUEST_ID_KEY, null);
+    }
+    
+    /**
+     * 创建一个子 span，订阅被追踪的 Mono / Flux 时才真正开始
+     */
+    public Span span(String name) {
+        return new Span(name);
+    }
+    
+    private boolean sampled() {
+        double rate = config.getSampleRate();
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+    
+    /**
+     * 结束 span，并按 Reactor 信号记录 outcome
+     */
+    public static void stop(Observation observation, SignalType signal) {
+        observation.lowCardinalityKeyValue("outcome", switch (signal) {
+            case ON_ERROR -> "error";
+            case CANCEL -> "cancelled";
+            default -> "success";
+        });
+        observation.stop();
+    }
+    
+    public final class Span {
+        
+        private final String name;
+        private final List<String[]> lowCardinality = new ArrayList<>();
+        private final List<String[]> highCardinality = new ArrayList<>();
+        private volatile Observation observation = Observation.NOOP;
+        
+        private Span(String name) {
+            this.name = name;
+        }
+        
+        /**
+         * 取值有限的标签（同时用于 Observation 产生的计时指标）
+         */
+        public Span tag(String key, String value) {
+            lowCardinality.add(new String[]{key, value != null ? value : "unknown"});
+            return this;
+        }
+        
+        /**
+         * 只写入 span 的属性，例如账号 ID；span 开始后调用会直接写到当前 span 上
+         */
+        public Span attribute(String key, Object value) {
+            if (value != null) {
+                highCardinality.add(new String[]{key, String.valueOf(value)});
+                observation.highCardinalityKeyValue(key, String.valueOf(value));
+            }
+            return this;
+        }
+        
+        public void event(String eventName) {
+            observation.event(Observation.Event.of(eventName));
+        }
+        
+        public <T> Mono<T> trace(Mono<T> mono) {
+            return Mono.deferContextual(context -> {
+                Observation started = start(context);
+                if (started == null) {
+                    return mono;
+                }
+                return mono
+                    .doOnError(started::error)
+                    .doFinally(signal -> stop(started, signal))
+                    .contextWrite(ctx -> ctx.put(SPAN_KEY, started));
+            });
+        }
+        
+        public <T> Flux<T> trace(Flux<T> flux) {
+            return Flux.deferContextual(context -> {
+                Observation started = start(context);
+                if (started == null) {
+                    return flux;
+                }
+                return flux
+                    .doOnError(started::error)
+                    .doFinally(signal -> stop(started, signal))
+                    .contextWrite(ctx -> ctx.put(SPAN_KEY, started));
+            });
+        }
+        
+        private Observation start(ContextView context) {
+            Observation parent = context.getOrDefault(SPAN_KEY, null);
+            if (parent == null) {
+                return null;
+            }
+            Observation child = Observation.createNotStarted(name, RelaySpanContext::new, observationRegistry)
+                .parentObservation(parent);
+            lowCardinality.forEach(kv -> child.lowCardinalityKeyValue(kv[0], kv[1]));
+            highCardinality.forEach(kv -> child.highCardinalityKeyValue(kv[0], kv[1]));
+            observation = child.start();
+            return observation;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.aiproxy.common.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 为中转 span 分配 W3C 格式的 traceId（32 位十六进制）/ spanId（16 位），并在结束时以 OTLP JSON 追加写入本地文件
+ * <p>
+ * 每行是一个 ExportTraceServiceRequest（resourceSpans / scopeSpans / spans），与 OpenTelemetry Collector
+ * file exporter 的输出格式相同，可以用 otlpjsonfile receiver 导入。requestId 作为 request.id 属性保存。
+ * 写文件在独立线程完成，队列满时丢弃。
+ */
+@Component
+@Slf4j
+public class SpanFileExporter implements ObservationHandler<RelaySpanContext> {
+    
+    private static final int BATCH_SIZE = 256;
+    private static final String SCOPE_NAME = "com.aiproxy.relay";
+    private static final String UPSTREAM_SPAN = "relay.upstream.attempt";
+    // OTLP 枚举值：SpanKind INTERNAL / SERVER / CLIENT，StatusCode OK / ERROR
+    private static final int KIND_INTERNAL = 1;
+    private static final int KIND_SERVER = 2;
+    private static final int KIND_CLIENT = 3;
+    private static final int STATUS_OK = 1;
+    private static final int STATUS_ERROR = 2;
+    
+    private final TracingConfig config;
+    private final Map<String, Object> resource;
+    private final BlockingQueue<Map<String, Object>> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Thread writer;
+    private volatile boolean running = true;
+    
+    public SpanFileExporter(TracingConfig config,
+                            @Value("${spring.application.name:aiproxy}") String serviceName) {
+        this.config = config;
+        this.resource = Map.of("attributes", List.of(attribute("service.name", serviceName)));
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+        this.writer = new Thread(this::writeLoop, "span-exporter");
+        this.writer.setDaemon(true);
+        if (isExportEnabled()) {
+            this.writer.start();
+        }
+    }
+    
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof RelaySpanContext;
+    }
+    
+    @Override
+    public void onStart(RelaySpanContext context) {
+        ObservationView parent = context.getParentObservation();
+        if (parent != null && parent.getContextView() instanceof RelaySpanContext parentContext) {
+            context.setTraceId(parentContext.getTraceId());
+            context.setParentSpanId(parentContext.getSpanId());
+        } else if (context.getTraceId() == null) {
+            context.setTraceId(randomHex(16));
+        }
+        context.setSpanId(randomHex(8));
+        context.markStarted();
+    }
+    
+    @Override
+    public void onEvent(Observation.Event event, RelaySpanContext context) {
+        context.getEvents().add(new RelaySpanContext.SpanEvent(event.getName(), context.nowEpochNanos()));
+    }
+    
+    @Override
+    public void onStop(RelaySpanContext context) {
+        if (!isExportEnabled() || context.getSpanId() == null) {
+            return;
+        }
+        long end = context.nowEpochNanos();
+        
+        Map<String, Object> span = new LinkedHashMap<>();
+        span.put("traceId", context.getTraceId());
+        span.put("spanId", context.getSpanId());
+        if (context.getParentSpanId() != null) {
+            span.put("parentSpanId", context.getParentSpanId());
+        }
+        span.put("name", context.getName());
+        span.put("kind", context.getParentSpanId() == null ? KIND_SERVER
+            : UPSTREAM_SPAN.equals(context.getName()) ? KIND_CLIENT : KIND_INTERNAL);
+        // OTLP JSON 中 64 位整数编码为字符串
+        span.put("startTimeUnixNano", String.valueOf(context.getStartEpochNanos()));
+        span.put("endTimeUnixNano", String.valueOf(end));
+        
+        List<Map<String, Object>> attributes = new ArrayList<>();
+        for (KeyValue keyValue : context.getAllKeyValues()) {
+            attributes.add(attribute(keyValue.getKey(), keyValue.getValue()));
+        }
+        span.put("attributes", attributes);
+        
+        if (!context.getEvents().isEmpty()) {
+            List<Map<String, Object>> events = new ArrayList<>();
+            for (RelaySpanContext.SpanEvent event : context.getEvents()) {
+                events.add(Map.of("name", event.name(), "timeUnixNano", String.valueOf(event.timeUnixNano())));
+            }
+            span.put("events", events);
+        }
+        
+        Throwable error = context.getError();
+        span.put("status", error != null
+            ? Map.of("code", STATUS_ERROR, "message", String.valueOf(error.getMessage()))
+            : Map.of("code", STATUS_OK));
+        
+        if (!queue.offer(span)) {
+            dropped.incrementAndGet();
+        }
+    }
+    
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private boolean isExportEnabled() {
+        return config.isEnabled() && config.getExportFile() != null && !config.getExportFile().isBlank();
+    }
+    
+    private void writeLoop() {
+        Path path = Path.of(config.getExportFile());
+        List<Map<String, Object>> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+        } catch (IOException e) {
+            log.warn("Cannot create trace export directory for {}: {}", path, e.getMessage());
+        }
+        
+        while (running || !queue.isEmpty()) {
+            try {
+                Map<String, Object> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(path, batch);
+            } catch (InterruptedException e) {
+                // 关闭时把剩余的 span 写完
+                queue.drainTo(batch);
+                write(path, batch);
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * 一批 span 写成一行 ExportTraceServiceRequest
+     */
+    private void write(Path path, List<Map<String, Object>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, Object> scopeSpans = Map.of("scope", Map.of("name", SCOPE_NAME), "spans", batch);
+        Map<String, Object> request = Map.of("resourceSpans",
+            List.of(Map.of("resource", resource, "scopeSpans", List.of(scopeSpans))));
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(objectMapper.writeValueAsString(request));
+            out.newLine();
+        } catch (IOException e) {
+            log.warn("Failed to export {} spans to {}: {}", batch.size(), path, e.getMessage());
+        }
+    }
+    
+    private static Map<String, Object> attribute(String key, String value) {
+        return Map.of("key", key, "value", Map.of("stringValue", String.valueOf(value)));
+    }
+    
+    private static String randomHex(int bytes) {
+        byte[] buffer = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(buffer);
+        return HexFormat.of().formatHex(buffer);
+    }
+}
@@ -0,0 +1,38 @@
+package com.aiproxy.common.tracing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Request tracing configuration
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.tracing")
+public class TracingConfig {
+    
+    /**
+     * Whether to record per-stage spans for relayed requests
+     * Default: true
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Fraction of requests to trace (0.0 - 1.0); request ids are assigned to every request regardless
+     * Default: 1.0
+     */
+    private double sampleRate = 1.0;
+    
+    /**
+     * File that finished spans are appended to as OTLP JSON (one ExportTraceServiceRequest per line); empty disables the file export
+     * Default: logs/traces.jsonl
+     */
+    private String exportFile = "logs/traces.jsonl";
+    
+    /**
+     * Capacity of the in-memory queue in front of the exporter thread; spans are dropped when full
+     * Default: 10000
+     */
+    private int queueCapacity = 10000;
+}
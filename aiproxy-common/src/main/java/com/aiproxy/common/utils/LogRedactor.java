@@ -0,0 +1,57 @@
+package com.aiproxy.common.utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * 日志脱敏与截断：隐藏 Claude / OAuth token、Bearer 凭证和常见的密钥字段
+ */
+public class LogRedactor {
+    
+    private static final String MASK = "***";
+    
+    // 前缀锚定在单词边界上，"risk-free"、"disk-cache" 这类普通文本不会被误遮
+    private static final Pattern TOKEN = Pattern.compile(
+        "\\b(sk-ant-[a-z]{2,4}\\d{0,2}-|oauth_|sk-|cr_)[A-Za-z0-9_\\-]{4,}");
+    private static final Pattern BEARER = Pattern.compile(
+        "(?i)(bearer\\s+)[A-Za-z0-9._~+/=\\-]+");
+    private static final Pattern SECRET_FIELD = Pattern.compile(
+        "(?i)(\"(?:access_?token|refresh_?token|api_?key|x-api-key|authorization|password|secret)\"\\s*:\\s*\")[^\"]*(\")");
+    
+    private LogRedactor() {
+    }
+    
+    /**
+     * 脱敏并截断到 maxLength 个字符，maxLength <= 0 表示不截断。
+     * 先脱敏再截断：截断点落在凭证中间时，剩下的半截不够匹配长度会原样留在日志里
+     */
+    public static String redact(String text, int maxLength) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        String redacted = SECRET_FIELD.matcher(text).replaceAll("$1" + MASK + "$2");
+        redacted = BEARER.matcher(redacted).replaceAll("$1" + MASK);
+        redacted = TOKEN.matcher(redacted).replaceAll("$1" + MASK);
+        return truncate(redacted, maxLength);
+    }
+    
+    public static String redact(String text) {
+        return redact(text, 0);
+    }
+    
+    /**
+     * 只保留凭证前缀，用于日志中区分不同的 key
+     */
+    public static String mask(String credential) {
+        if (credential == null) {
+            return null;
+        }
+        return credential.length() <= 8 ? MASK : credential.substring(0, 6) + MASK;
+    }
+    
+    public static String truncate(String text, int maxLength) {
+        if (text == null || maxLength <= 0 || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength) + "...(" + text.length() + " chars)";
+    }
+}
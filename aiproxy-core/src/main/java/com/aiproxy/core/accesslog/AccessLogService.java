@@ -0,0 +1,167 @@
+package com.aiproxy.core.accesslog;
+
+import com.aiproxy.common.utils.LogRedactor;
+import com.aiproxy.core.config.AccessLogConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.SignalType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 结构化访问日志：每个中转请求一行紧凑 JSON，写入 relay.access logger
+ * <p>
+ * 中转线程只做采样判断和入队，格式化与输出在独立线程完成；队列满时丢弃并计数，保证日志开销有上限。
+ */
+@Service
+@Slf4j
+public class AccessLogService {
+    
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("relay.access");
+    private static final int BATCH_SIZE = 256;
+    
+    private final AccessLogConfig config;
+    private final BlockingQueue<RelayAccessLog.AccessLogEntry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Thread writer;
+    private volatile boolean running = true;
+    
+    public AccessLogService(AccessLogConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+        
+        FunctionCounter.builder("relay.accesslog.dropped", dropped, AtomicLong::get)
+            .description("Access log entries dropped because the queue was full")
+            .register(meterRegistry);
+        Gauge.builder("relay.accesslog.queue", queue, BlockingQueue::size)
+            .register(meterRegistry);
+        
+        this.writer = new Thread(this::writeLoop, "access-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    public RelayAccessLog start(String requestId, String apiKeyId, String model, boolean stream) {
+        return new RelayAccessLog(requestId, apiKeyId, model, stream);
+    }
+    
+    /**
+     * 请求结束时调用；失败、取消和故障转移的请求总是记录，成功请求按采样率记录
+     */
+    public void finish(RelayAccessLog accessLog, SignalType signal) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        boolean failed = accessLog.isFailed();
+        boolean failedOver = accessLog.isFailedOver();
+        if (!failed && !failedOver && !sampled()) {
+            return;
+        }
+        String outcome = signal == SignalType.CANCEL ? "cancelled"
+            : failedOver ? "failover" : failed ? "error" : "success";
+        if (!queue.offer(accessLog.toEntry(outcome))) {
+            dropped.incrementAndGet();
+        }
+    }
+    
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 写完关闭前剩余的日志
+        List<RelayAccessLog.AccessLogEntry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(this::write);
+    }
+    
+    private boolean sampled() {
+        double rate = config.getSampleRate();
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+    
+    private void writeLoop() {
+        List<RelayAccessLog.AccessLogEntry> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                RelayAccessLog.AccessLogEntry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                batch.forEach(this::write);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Failed to write access log: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void write(RelayAccessLog.AccessLogEntry entry) {
+        if (!ACCESS_LOG.isInfoEnabled()) {
+            return;
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("ts", Instant.ofEpochMilli(entry.timestamp()).toString());
+        line.put("requestId", entry.requestId());
+        line.put("apiKey", entry.apiKeyId());
+        line.put("account", entry.accountId());
+        line.put("model", entry.model());
+        line.put("stream", entry.stream());
+        line.put("attempts", entry.attempts());
+        line.put("status", entry.status());
+        line.put("outcome", entry.outcome());
+        if (entry.ttfbMs() >= 0) {
+            line.put("ttfbMs", entry.ttfbMs());
+        }
+        line.put("durationMs", entry.durationMs());
+        if (entry.inputTokens() != null) {
+            line.put("inputTokens", entry.inputTokens());
+        }
+        if (entry.outputTokens() != null) {
+            line.put("outputTokens", entry.outputTokens());
+        }
+        if (entry.failoverProvider() != null) {
+            line.put("failover", entry.failoverProvider());
+        }
+        if (entry.error() != null) {
+            line.put("error", LogRedactor.redact(entry.error(), config.getMaxFieldLength()));
+        }
+        try {
+            ACCESS_LOG.info(objectMapper.writeValueAsString(line));
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize access log entry: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.aiproxy.core.accesslog;
+
+/**
+ * 单个中转请求的访问日志上下文，在重试链中逐步填充，请求结束时由 {@link AccessLogService} 输出一行
+ */
+public class RelayAccessLog {
+    
+    private final long startMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final String requestId;
+    private final String apiKeyId;
+    private final String model;
+    private final boolean stream;
+    
+    private volatile String accountId;
+    private volatile int attempts;
+    private volatile int status;
+    private volatile long firstByteNanos;
+    private volatile Integer inputTokens;
+    private volatile Integer outputTokens;
+    private volatile String error;
+    private volatile String failoverProvider;
+    
+    RelayAccessLog(String requestId, String apiKeyId, String model, boolean stream) {
+        this.requestId = requestId;
+        this.apiKeyId = apiKeyId;
+        this.model = model;
+        this.stream = stream;
+    }
+    
+    public String getRequestId() {
+        return requestId;
+    }
+    
+    public void onAttempt(String accountId) {
+        this.accountId = accountId;
+        this.attempts++;
+    }
+    
+    public void onFirstByte() {
+        if (firstByteNanos == 0) {
+            firstByteNanos = System.nanoTime();
+        }
+    }
+    
+    public void onSuccess(int status, Integer inputTokens, Integer outputTokens) {
+        this.status = status;
+        this.inputTokens = inputTokens;
+        this.outputTokens = outputTokens;
+        this.error = null;
+    }
+    
+    public void onError(int status, String error) {
+        this.status = status;
+        this.error = error;
+    }
+    
+    /**
+     * 请求已转交其他服务商，不算失败；结果由目标服务商的访问日志记录
+     */
+    public void onFailover(String provider) {
+        this.failoverProvider = provider;
+        this.status = 0;
+        this.error = null;
+    }
+    
+    boolean isFailedOver() {
+        return failoverProvider != null;
+    }
+    
+    boolean isFailed() {
+        return failoverProvider == null && (status == 0 || status >= 400 || error != null);
+    }
+    
+    AccessLogEntry toEntry(String outcome) {
+        long now = System.nanoTime();
+        return new AccessLogEntry(
+            startMillis,
+            requestId,
+            apiKeyId,
+            accountId,
+            model,
+            stream,
+            attempts,
+            status,
+            outcome,
+            firstByteNanos != 0 ? (firstByteNanos - startNanos) / 1_000_000 : -1,
+            (now - startNanos) / 1_000_000,
+            inputTokens,
+            outputTokens,
+            error,
+            failoverProvider
+        );
+    }
+    
+    record AccessLogEntry(
+        long timestamp,
+        String requestId,
+        String apiKeyId,
+        String accountId,
+        String model,
+        boolean stream,
+        int attempts,
+        int status,
+        String outcome,
+        long ttfbMs,
+        long durationMs,
+        Integer inputTokens,
+        Integer outputTokens,
+        String error,
+        String failoverProvider
+    ) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.aiproxy.core.admission;
+
+import com.aiproxy.core.config.AdmissionConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发限制器（AIMD + 延迟梯度）
+ * <p>
+ * - 在并发被充分利用且延迟正常时，每个窗口加 1（limit += 1/limit）
+ * - 延迟超过长期基线 * tolerance 时，按梯度 baseline*tolerance/latency 收缩
+ * - 收到过载信号（账号池耗尽、上游 429/529）时按 backoffRatio 乘性收缩
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    private static final double BASELINE_SMOOTHING = 0.05;
+    private static final double MIN_GRADIENT = 0.5;
+    
+    private final AdmissionConfig config;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double baselineLatencyNanos;
+    private long lastDecreaseNanos;
+    
+    public AdaptiveConcurrencyLimiter(AdmissionConfig config) {
+        this.config = config;
+        this.limit = clamp(config.getInitialLimit());
+    }
+    
+    /**
+     * 尝试占用一个并发名额，share 为该优先级可使用的限额比例
+     */
+    public boolean tryAcquire(double share) {
+        int cap = Math.max(1, (int) Math.floor(limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+    
+    /**
+     * 记录一次成功响应的延迟（流式请求为首字节时间）；错误响应不计入
+     */
+    public synchronized void onSample(long latencyNanos, int inFlightAtStart) {
+        if (baselineLatencyNanos == 0) {
+            baselineLatencyNanos = latencyNanos;
+        } else {
+            baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) * BASELINE_SMOOTHING;
+        }
+        
+        double threshold = baselineLatencyNanos * config.getLatencyTolerance();
+        if (latencyNanos > threshold) {
+            decrease(Math.max(MIN_GRADIENT, threshold / latencyNanos));
+        } else if (inFlightAtStart * 2 >= limit) {
+            // 只有在限额被实际用到一半以上时才增长，避免空闲时无限膨胀
+            limit = clamp(limit + 1.0 / limit);
+        }
+    }
+    
+    /**
+     * 过载信号：乘性减小限额
+     */
+    public synchronized void onOverload() {
+        decrease(config.getBackoffRatio());
+    }
+    
+    private void decrease(double factor) {
+        long now = System.nanoTime();
+        if (lastDecreaseNanos != 0 && now - lastDecreaseNanos < config.getBackoffInterval() * 1_000_000L) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        limit = clamp(limit * factor);
+    }
+    
+    private double clamp(double value) {
+        return Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), value));
+    }
+    
+    public int getLimit() {
+        return (int) limit;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public long getBaselineLatencyMillis() {
+        return (long) (baselineLatencyNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,296 @@
+package com.aiproxy.core.admission;
+
+import com.aiproxy.common.enums.PriorityTier;
+import com.aiproxy.common.model.ApiKey;
+import com.aiproxy.core.config.AdmissionConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 入口准入控制：在请求进入 ProxyService 之前按自适应并发限额调度请求
+ * <p>
+ * 限额未满时直接放行；已满时按优先级排队，高优先级先出队，
+ * 同一优先级内按 API Key 做加权 Deficit Round-Robin，避免单个 Key 用大量请求占满账号容量。
+ * 队列已满或等待超时的请求以 529 拒绝。
+ */
+@Service
+@Slf4j
+public class AdmissionControlService {
+    
+    private static final String ANONYMOUS_FLOW = "anonymous";
+    
+    private final AdmissionConfig config;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Map<PriorityTier, DeficitRoundRobinQueue<Waiter>> queues = new EnumMap<>(PriorityTier.class);
+    private final Map<PriorityTier, AtomicLong> shedCounters = new EnumMap<>(PriorityTier.class);
+    private final Map<PriorityTier, Timer> waitTimers = new EnumMap<>(PriorityTier.class);
+    
+    public AdmissionControlService(AdmissionConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.limiter = new AdaptiveConcurrencyLimiter(config);
+        
+        for (PriorityTier tier : PriorityTier.values()) {
+            String tag = tier.name().toLowerCase();
+            queues.put(tier, new DeficitRoundRobinQueue<>());
+            shedCounters.put(tier, new AtomicLong());
+            
+            Gauge.builder("relay.admission.queue.depth", this, service -> service.getQueueDepth(tier))
+                .description("Requests waiting for admission")
+                .tag("tier", tag)
+                .register(meterRegistry);
+            waitTimers.put(tier, Timer.builder("relay.admission.queue.wait")
+                .description("Time spent waiting for admission")
+                .tag("tier", tag)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
+            FunctionCounter.builder("relay.admission.shed", shedCounters.get(tier), AtomicLong::get)
+                .description("Requests rejected with 529")
+                .tag("tier", tag)
+                .register(meterRegistry);
+        }
+        Gauge.builder("relay.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+            .register(meterRegistry);
+        Gauge.builder("relay.admission.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+            .register(meterRegistry);
+    }
+    
+    /**
+     * 申请准入名额；返回空 Mono 表示请求应以 529 拒绝
+     */
+    public Mono<Permit> acquire(ApiKey apiKey) {
+        if (!config.isEnabled()) {
+            return Mono.just(Permit.NOOP);
+        }
+        
+        PriorityTier tier = apiKey != null ? apiKey.getEffectivePriorityTier() : PriorityTier.STANDARD;
+        String flowId = apiKey != null ? apiKey.getId() : ANONYMOUS_FLOW;
+        int weight = apiKey != null ? apiKey.getEffectiveSchedulingWeight() : 1;
+        
+        Permit permit = tryAcquireImmediately(tier);
+        if (permit != null) {
+            waitTimers.get(tier).record(0, TimeUnit.NANOSECONDS);
+            return Mono.just(permit);
+        }
+        if (!config.getQueue().isEnabled()) {
+            shed(tier, "limit reached");
+            return Mono.empty();
+        }
+        
+        return Mono.<Permit>create(sink -> enqueue(new Waiter(tier, flowId, weight, sink)))
+            .timeout(config.getQueue().getMaxWait(), Mono.defer(() -> {
+                shed(tier, "queue timeout");
+                return Mono.empty();
+            }));
+    }
+    
+    /**
+     * 上游过载或账号池耗尽时调用，用于收缩并发限额
+     */
+    public void onOverload() {
+        if (config.isEnabled()) {
+            limiter.onOverload();
+        }
+    }
+    
+    public int getRetryAfterSeconds() {
+        return config.getRetryAfterSeconds();
+    }
+    
+    public synchronized int getQueueDepth(PriorityTier tier) {
+        return queues.get(tier).size();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", config.isEnabled());
+        status.put("limit", limiter.getLimit());
+        status.put("inFlight", limiter.getInFlight());
+        status.put("baselineLatencyMs", limiter.getBaselineLatencyMillis());
+        Map<String, Integer> queued = new LinkedHashMap<>();
+        Map<String, Long> shed = new LinkedHashMap<>();
+        for (PriorityTier tier : PriorityTier.values()) {
+            queued.put(tier.name(), getQueueDepth(tier));
+            shed.put(tier.name(), shedCounters.get(tier).get());
+        }
+        status.put("queued", queued);
+        status.put("shed", shed);
+        return status;
+    }
+    
+    private synchronized Permit tryAcquireImmediately(PriorityTier tier) {
+        // 同级或更高优先级已有排队请求时不能插队
+        for (PriorityTier higher : PriorityTier.values()) {
+            if (!queues.get(higher).isEmpty()) {
+                return null;
+            }
+            if (higher == tier) {
+                break;
+            }
+        }
+        int inFlightAtStart = limiter.getInFlight();
+        return limiter.tryAcquire(shareOf(tier)) ? newPermit(inFlightAtStart) : null;
+    }
+    
+    private void enqueue(Waiter waiter) {
+        boolean accepted;
+        synchronized (this) {
+            DeficitRoundRobinQueue<Waiter> queue = queues.get(waiter.tier);
+            accepted = queue.size() < config.getQueue().getMaxSize();
+            if (accepted) {
+                queue.offer(waiter.flowId, waiter.weight, waiter);
+            }
+        }
+        if (!accepted) {
+            shed(waiter.tier, "queue full");
+            waiter.sink.success();
+            return;
+        }
+        waiter.sink.onCancel(() -> cancel(waiter));
+        // 入队期间可能已有名额释放
+        drain();
+    }
+    
+    private void cancel(Waiter waiter) {
+        if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+            synchronized (this) {
+                queues.get(waiter.tier).remove(waiter.flowId, waiter);
+            }
+        } else if (waiter.permit != null) {
+            // 名额已分配但订阅方已取消
+            waiter.permit.release();
+        }
+    }
+    
+    /**
+     * 按优先级从高到低分配空闲名额，在锁外完成 sink 以免下游逻辑在锁内执行
+     */
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            boolean progressed = true;
+            while (progressed) {
+                progressed = false;
+                for (PriorityTier tier : PriorityTier.values()) {
+                    DeficitRoundRobinQueue<Waiter> queue = queues.get(tier);
+                    if (queue.isEmpty()) {
+                        continue;
+                    }
+                    int inFlightAtStart = limiter.getInFlight();
+                    if (!limiter.tryAcquire(shareOf(tier))) {
+                        // 低优先级的可用比例更小，同样无法获得名额
+                        break;
+                    }
+                    Waiter waiter = queue.poll();
+                    waiter.permit = newPermit(inFlightAtStart);
+                    if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                        granted.add(waiter);
+                    } else {
+                        limiter.release();
+                    }
+                    progressed = true;
+                    break;
+                }
+            }
+        }
+        
+        long now = System.nanoTime();
+        for (Waiter waiter : granted) {
+            waitTimers.get(waiter.tier).record(now - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+            waiter.sink.success(waiter.permit);
+        }
+    }
+    
+    private Permit newPermit(int inFlightAtStart) {
+        return new Permit(limiter, inFlightAtStart, this::drain);
+    }
+    
+    private void shed(PriorityTier tier, String reason) {
+        long shed = shedCounters.get(tier).incrementAndGet();
+        log.debug("Shedding {} request: {} (inFlight: {}, limit: {}, total shed for tier: {})",
+            tier, reason, limiter.getInFlight(), limiter.getLimit(), shed);
+    }
+    
+    private double shareOf(PriorityTier tier) {
+        AdmissionConfig.TierShares shares = config.getTierShares();
+        return switch (tier) {
+            case INTERACTIVE -> shares.getInteractive();
+            case STANDARD -> shares.getStandard();
+            case BATCH -> shares.getBatch();
+        };
+    }
+    
+    private static class Waiter {
+        static final int WAITING = 0;
+        static final int GRANTED = 1;
+        static final int CANCELLED = 2;
+        
+        private final PriorityTier tier;
+        private final String flowId;
+        private final int weight;
+        private final MonoSink<Permit> sink;
+        private final long enqueuedNanos = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile Permit permit;
+        
+        private Waiter(PriorityTier tier, String flowId, int weight, MonoSink<Permit> sink) {
+            this.tier = tier;
+            this.flowId = flowId;
+            this.weight = weight;
+            this.sink = sink;
+        }
+    }
+    
+    /**
+     * 已准入请求持有的名额，必须在请求结束时 release
+     */
+    public static class Permit {
+        
+        static final Permit NOOP = new Permit(null, 0, null);
+        
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final int inFlightAtStart;
+        private final Runnable onRelease;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean sampled = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        private Permit(AdaptiveConcurrencyLimiter limiter, int inFlightAtStart, Runnable onRelease) {
+            this.limiter = limiter;
+            this.inFlightAtStart = inFlightAtStart;
+            this.onRelease = onRelease;
+        }
+        
+        /**
+         * 收到首个响应数据时调用，只记录第一次；只有成功响应（非 error 事件、2xx 响应体）计入延迟样本，
+         * 快速失败会拉低基线延迟，让限额在上游过载时反而增长
+         */
+        public void onResponse(boolean success) {
+            if (limiter != null && sampled.compareAndSet(false, true) && success) {
+                limiter.onSample(System.nanoTime() - startNanos, inFlightAtStart);
+            }
+        }
+        
+        public void release() {
+            if (limiter != null && released.compareAndSet(false, true)) {
+                limiter.release();
+                onRelease.run();
+            }
+        }
+    }
+}
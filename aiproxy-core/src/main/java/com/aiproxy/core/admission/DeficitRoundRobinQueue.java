@@ -0,0 +1,87 @@
+package com.aiproxy.core.admission;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按 flow（API Key）做加权 Deficit Round-Robin 的队列，每个元素的代价为 1
+ * <p>
+ * 每轮访问到的 flow 获得 weight 的额度，额度用完后排到队尾，
+ * 因此权重为 3 的 Key 在竞争时获得的出队次数约为权重为 1 的 Key 的 3 倍。
+ * 非线程安全，由调用方加锁。
+ */
+class DeficitRoundRobinQueue<T> {
+    
+    private final Map<String, Flow<T>> flows = new HashMap<>();
+    private final Deque<Flow<T>> activeFlows = new ArrayDeque<>();
+    private int size;
+    
+    void offer(String flowId, int weight, T item) {
+        Flow<T> flow = flows.get(flowId);
+        if (flow == null) {
+            flow = new Flow<>(flowId);
+            flows.put(flowId, flow);
+            activeFlows.addLast(flow);
+        }
+        // 以最近一次入队时的权重为准，权重变更无需重启即可生效
+        flow.weight = Math.max(1, weight);
+        flow.items.addLast(item);
+        size++;
+    }
+    
+    T poll() {
+        Flow<T> flow = activeFlows.peekFirst();
+        if (flow == null) {
+            return null;
+        }
+        if (flow.deficit < 1) {
+            flow.deficit += flow.weight;
+        }
+        T item = flow.items.pollFirst();
+        flow.deficit--;
+        size--;
+        
+        if (flow.items.isEmpty()) {
+            activeFlows.pollFirst();
+            flows.remove(flow.id);
+        } else if (flow.deficit < 1) {
+            activeFlows.pollFirst();
+            activeFlows.addLast(flow);
+        }
+        return item;
+    }
+    
+    boolean remove(String flowId, T item) {
+        Flow<T> flow = flows.get(flowId);
+        if (flow == null || !flow.items.remove(item)) {
+            return false;
+        }
+        size--;
+        if (flow.items.isEmpty()) {
+            activeFlows.remove(flow);
+            flows.remove(flowId);
+        }
+        return true;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    private static class Flow<T> {
+        private final String id;
+        private final Deque<T> items = new ArrayDeque<>();
+        private int weight = 1;
+        private int deficit;
+        
+        private Flow(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.aiproxy.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Structured relay access log configuration
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.access-log")
+public class AccessLogConfig {
+    
+    /**
+     * Whether to write one structured line per relayed request to the "relay.access" logger
+     * Default: true
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Fraction of successful requests to log (0.0 - 1.0); failed requests are always logged
+     * Default: 1.0
+     */
+    private double sampleRate = 1.0;
+    
+    /**
+     * Maximum length of free-text fields such as error messages
+     * Default: 512
+     */
+    private int maxFieldLength = 512;
+    
+    /**
+     * Capacity of the in-memory queue in front of the writer thread; entries are dropped when full
+     * Default: 10000
+     */
+    private int queueCapacity = 10000;
+}
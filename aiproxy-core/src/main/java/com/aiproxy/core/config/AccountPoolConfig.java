@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * Account pool configuration
  */
@@ -56,6 +58,22 @@ public class AccountPoolConfig {
      */
     private int healthThreshold = 3;
     
+    /**
+     * How long an unhealthy account is kept out of rotation before it is probed again
+     * Default: 60s
+     */
+    private Duration failureCooldown = Duration.ofSeconds(60);
+    
+    /**
+     * Prompt-prefix affinity routing
+     */
+    private PrefixAffinity prefixAffinity = new PrefixAffinity();
+    
+    /**
+     * Sticky session routing based on client-provided session IDs
+     */
+    private SessionAffinity sessionAffinity = new SessionAffinity();
+    
     /**
      * Get effective max retries based on configuration
      */
@@ -65,4 +83,68 @@ public class AccountPoolConfig {
         }
         return Math.max(0, maxRetryAttempts);
     }
+    
+    @Data
+    public static class PrefixAffinity {
+        
+        /**
+         * Whether to route requests sharing a prompt prefix to the same account,
+         * so the upstream prompt cache stays warm across conversation turns
+         * Default: true
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Number of leading message blocks hashed together with the system prompt
+         * Default: 1
+         */
+        private int messageBlocks = 1;
+        
+        /**
+         * Bounded-load factor: an account may carry at most
+         * loadFactor × average in-flight requests before overflowing to the next account on the ring
+         * Default: 1.25
+         */
+        private double loadFactor = 1.25;
+        
+        /**
+         * Virtual nodes per account on the hash ring
+         * Default: 100
+         */
+        private int virtualNodes = 100;
+    }
+    
+    @Data
+    public static class SessionAffinity {
+        
+        /**
+         * Whether to pin client sessions to accounts
+         * Default: false
+         */
+        private boolean enabled = false;
+        
+        /**
+         * Request header carrying the session/conversation ID
+         * Default: x-session-id
+         */
+        private String header = "x-session-id";
+        
+        /**
+         * Fall back to metadata.user_id from the request body when the header is absent
+         * Default: true
+         */
+        private boolean useMetadataUserId = true;
+        
+        /**
+         * Maximum sessions kept in the local LRU table
+         * Default: 10000
+         */
+        private int maxEntries = 10000;
+        
+        /**
+         * Idle time after which a session binding expires
+         * Default: 1h
+         */
+        private Duration ttl = Duration.ofHours(1);
+    }
 }
\ No newline at end of file
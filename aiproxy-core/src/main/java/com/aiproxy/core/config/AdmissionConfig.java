@@ -0,0 +1,115 @@
+package com.aiproxy.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Admission control configuration for the relay entry point
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.admission")
+public class AdmissionConfig {
+    
+    /**
+     * Whether to shed load with 529 responses once the concurrency limit is reached
+     * Default: true
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Concurrency limit used on startup
+     * Default: 50
+     */
+    private int initialLimit = 50;
+    
+    /**
+     * Lower bound of the adaptive limit
+     * Default: 5
+     */
+    private int minLimit = 5;
+    
+    /**
+     * Upper bound of the adaptive limit
+     * Default: 500
+     */
+    private int maxLimit = 500;
+    
+    /**
+     * Factor the limit is multiplied by when an overload signal is observed
+     * Default: 0.9
+     */
+    private double backoffRatio = 0.9;
+    
+    /**
+     * Minimum time in milliseconds between two multiplicative decreases
+     * Default: 1000
+     */
+    private long backoffInterval = 1000;
+    
+    /**
+     * Latency tolerance: a completion slower than tolerance * baseline latency is not counted as headroom
+     * Default: 2.0
+     */
+    private double latencyTolerance = 2.0;
+    
+    /**
+     * Retry-After value in seconds returned with shed requests
+     * Default: 1
+     */
+    private int retryAfterSeconds = 1;
+    
+    /**
+     * Share of the limit each priority tier may fill before it is shed
+     */
+    private TierShares tierShares = new TierShares();
+    
+    /**
+     * Fair queue used when the limit is reached, instead of shedding immediately
+     */
+    private Queue queue = new Queue();
+    
+    @Data
+    public static class TierShares {
+        
+        /**
+         * Default: 1.0
+         */
+        private double interactive = 1.0;
+        
+        /**
+         * Default: 0.9
+         */
+        private double standard = 0.9;
+        
+        /**
+         * Default: 0.7
+         */
+        private double batch = 0.7;
+    }
+    
+    @Data
+    public static class Queue {
+        
+        /**
+         * Whether to queue requests over the limit (deficit round-robin across API keys)
+         * Default: true
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Maximum number of waiting requests per priority tier
+         * Default: 200
+         */
+        private int maxSize = 200;
+        
+        /**
+         * Maximum time a request may wait in the queue before it is shed
+         * Default: 10s
+         */
+        private Duration maxWait = Duration.ofSeconds(10);
+    }
+}
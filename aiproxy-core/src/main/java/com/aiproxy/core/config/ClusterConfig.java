@@ -0,0 +1,37 @@
+package com.aiproxy.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Multi-node coordination configuration
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.cluster")
+public class ClusterConfig {
+    
+    /**
+     * Whether to share account health, cooldowns and in-flight counts through Redis
+     * Default: true
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Identifier of this node; generated on startup when empty
+     */
+    private String nodeId;
+    
+    /**
+     * In-flight counter sync interval in milliseconds
+     * Default: 500
+     */
+    private long syncInterval = 500;
+    
+    /**
+     * Time in milliseconds after which a silent node's in-flight counters are ignored
+     * Default: 3000
+     */
+    private long nodeTtl = 3000;
+}
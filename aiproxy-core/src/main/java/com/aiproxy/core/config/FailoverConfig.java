@@ -0,0 +1,43 @@
+package com.aiproxy.core.config;
+
+import com.aiproxy.common.enums.AIProvider;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cross-provider failover: when no Claude account can be selected (all cooling down, rate limited
+ * or already tried), Claude Messages requests are translated and relayed to another provider
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.failover")
+public class FailoverConfig {
+    
+    /**
+     * Enable failover when the Claude account pool is exhausted
+     * Default: false
+     */
+    private boolean enabled = false;
+    
+    /**
+     * Provider that takes over the request; only GEMINI has a translator
+     * Default: GEMINI
+     */
+    private AIProvider provider = AIProvider.GEMINI;
+    
+    /**
+     * Target model by Claude model prefix (longest prefix wins)
+     * Default: none
+     */
+    private Map<String, String> models = new LinkedHashMap<>();
+    
+    /**
+     * Target model when no prefix in models matches
+     * Default: gemini-2.5-flash
+     */
+    private String defaultModel = "gemini-2.5-flash";
+}
@@ -0,0 +1,52 @@
+package com.aiproxy.core.config;
+
+import com.aiproxy.common.constants.ApiConstants;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Gemini relay settings. Gemini accounts are pooled from the accounts table (provider = GEMINI,
+ * access_token holds the API key); api-key is used only when no pooled Gemini account is available
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.gemini")
+public class GeminiConfig {
+    
+    /**
+     * Upstream base URL
+     * Default: https://generativelanguage.googleapis.com
+     */
+    private String baseUrl = ApiConstants.GEMINI_BASE_URL;
+    
+    /**
+     * API version segment of the generateContent endpoints
+     * Default: v1beta
+     */
+    private String apiVersion = "v1beta";
+    
+    /**
+     * Fallback API key used when the account pool has no Gemini account
+     * Default: none
+     */
+    private String apiKey;
+    
+    /**
+     * Maximum pooled upstream connections
+     * Default: 100
+     */
+    private int maxConnections = 100;
+    
+    /**
+     * Upstream response timeout
+     * Default: 5m
+     */
+    private Duration responseTimeout = Duration.ofMinutes(5);
+    
+    public boolean hasApiKey() {
+        return apiKey != null && !apiKey.isBlank();
+    }
+}
@@ -0,0 +1,59 @@
+package com.aiproxy.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claude model routing table: aliases, per-model account pools and concurrency caps
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.claude")
+public class ModelRoutingConfig {
+    
+    /**
+     * Routes keyed by a short name (e.g. opus, haiku); models that match no route may use any account
+     * Default: none
+     */
+    private Map<String, ModelRule> models = new LinkedHashMap<>();
+    
+    @Data
+    public static class ModelRule {
+        
+        /**
+         * Concrete upstream model ID that the aliases resolve to
+         * Default: none
+         */
+        private String id;
+        
+        /**
+         * Client-facing names rewritten to the concrete ID
+         * Default: none
+         */
+        private List<String> aliases = new ArrayList<>();
+        
+        /**
+         * Model ID prefixes served by this route, so dated snapshots share one pool; the ID itself always matches
+         * Default: none
+         */
+        private List<String> match = new ArrayList<>();
+        
+        /**
+         * Account IDs or emails allowed to serve this route; empty means every account
+         * Default: none
+         */
+        private List<String> accounts = new ArrayList<>();
+        
+        /**
+         * Maximum in-flight requests on this route per node; 0 means unlimited
+         * Default: 0
+         */
+        private int maxConcurrency = 0;
+    }
+}
@@ -0,0 +1,80 @@
+package com.aiproxy.core.config;
+
+import com.aiproxy.core.transform.ClaudeCodePromptInjector;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * System-prompt injection rules, keyed by upstream account type (e.g. claude-oauth)
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.prompt-injection")
+public class PromptInjectionConfig {
+    
+    /**
+     * Account type used by the Claude OAuth relay path
+     */
+    public static final String CLAUDE_OAUTH = "claude-oauth";
+    
+    /**
+     * Rules per account type; account types without a rule are relayed unchanged
+     * Default: claude-oauth injects the Claude Code prompt first with an ephemeral cache_control
+     */
+    private Map<String, Rule> rules = new LinkedHashMap<>(Map.of(CLAUDE_OAUTH, claudeCodeRule()));
+    
+    private static Rule claudeCodeRule() {
+        Rule rule = new Rule();
+        rule.setText(ClaudeCodePromptInjector.CLAUDE_CODE_PROMPT);
+        return rule;
+    }
+    
+    @Data
+    public static class Rule {
+        
+        /**
+         * Whether the rule is applied at all
+         * Default: true
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Prompt text injected as a system block; blank only cleans up cache_control
+         * Default: none
+         */
+        private String text;
+        
+        /**
+         * Where the block goes in the system list: first or last
+         * Default: first
+         */
+        private Position position = Position.FIRST;
+        
+        /**
+         * cache_control type attached to the injected block; blank for none
+         * Default: ephemeral
+         */
+        private String cacheControl = "ephemeral";
+        
+        /**
+         * Upper bound of cache_control blocks per request, including the injected one; 0 disables the limit
+         * Default: 4 (the Anthropic API limit)
+         */
+        private int maxCacheControlBlocks = 4;
+        
+        /**
+         * Whether to strip ttl from client cache_control blocks
+         * Default: true
+         */
+        private boolean stripCacheControlTtl = true;
+    }
+    
+    public enum Position {
+        FIRST,
+        LAST
+    }
+}
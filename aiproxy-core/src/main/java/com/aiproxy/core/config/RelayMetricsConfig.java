@@ -0,0 +1,50 @@
+package com.aiproxy.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Relay hot-path Micrometer instrumentation configuration
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.metrics")
+public class RelayMetricsConfig {
+    
+    /**
+     * Whether to record relay timers and distribution summaries
+     * Default: true
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Publish percentile histogram buckets so Prometheus can compute latency quantiles
+     * Default: true
+     */
+    private boolean percentileHistogram = true;
+    
+    /**
+     * Whether to tag counters and in-flight gauges with the API key id; histogram timers never carry it
+     * Default: false
+     */
+    private boolean tagApiKey = false;
+    
+    /**
+     * Maximum distinct API key tag values, further keys are reported as "other"
+     * Default: 100
+     */
+    private int maxApiKeyTags = 100;
+    
+    /**
+     * Maximum distinct account tag values, further accounts are reported as "other"
+     * Default: 100
+     */
+    private int maxAccountTags = 100;
+    
+    /**
+     * Maximum distinct model tag values, further models are reported as "other"
+     * Default: 50
+     */
+    private int maxModelTags = 50;
+}
@@ -0,0 +1,38 @@
+package com.aiproxy.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request rewrites applied before relaying, compiled once into a single-pass pipeline
+ * (system-prompt injection and cache_control cleanup come from relay.prompt-injection)
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.transform")
+public class RequestTransformConfig {
+    
+    /**
+     * Top-level request fields removed before relaying
+     * Default: none
+     */
+    private List<String> stripFields = new ArrayList<>();
+    
+    /**
+     * Model aliases rewritten to the upstream model name (alias -> model)
+     * Default: none
+     */
+    private Map<String, String> modelAliases = new LinkedHashMap<>();
+    
+    /**
+     * Upper bound for max_tokens; larger values are clamped, 0 disables clamping
+     * Default: 0
+     */
+    private int maxTokens = 0;
+}
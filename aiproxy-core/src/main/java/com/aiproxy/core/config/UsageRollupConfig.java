@@ -0,0 +1,32 @@
+package com.aiproxy.core.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Usage rollup configuration (usage_statistics / usage_statistics_hourly)
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.rollup")
+public class UsageRollupConfig {
+    
+    /**
+     * Whether to aggregate request logs in memory and upsert them into the rollup tables
+     * Default: true
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Interval in milliseconds between flushes of closed minute buckets
+     * Default: 60000
+     */
+    private long flushInterval = 60000;
+    
+    /**
+     * Rebuild the rollup tables from request_logs on startup, once per database (tracked in usage_rollup_backfill)
+     * Default: true
+     */
+    private boolean backfillOnStartup = true;
+}
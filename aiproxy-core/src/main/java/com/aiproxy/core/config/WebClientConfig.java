@@ -34,6 +34,9 @@ public class WebClientConfig {
     @Value("${relay.proxy.port:1080}")
     private int proxyPort;
     
+    @Value("${relay.claude.base-url:" + ApiConstants.CLAUDE_BASE_URL + "}")
+    private String claudeBaseUrl;
+    
     @Bean
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
@@ -58,7 +61,7 @@ public class WebClientConfig {
             );
         
         return WebClient.builder()
-            .baseUrl(ApiConstants.CLAUDE_BASE_URL)
+            .baseUrl(claudeBaseUrl)
             .clientConnector(new ReactorClientHttpConnector(httpClient))
             .defaultHeader(ApiConstants.CLAUDE_VERSION_HEADER, ApiConstants.CLAUDE_VERSION)
             .codecs(configurer -> configurer
@@ -70,13 +73,24 @@ public class WebClientConfig {
     }
     
     @Bean
-    public WebClient geminiWebClient() {
-        HttpClient httpClient = HttpClient.create()
+    public WebClient geminiWebClient(GeminiConfig geminiConfig) {
+        ConnectionProvider provider = ConnectionProvider.builder("gemini-pool")
+            .maxConnections(geminiConfig.getMaxConnections())
+            .maxIdleTime(Duration.ofSeconds(20))
+            .maxLifeTime(Duration.ofMinutes(5))
+            .pendingAcquireTimeout(Duration.ofSeconds(60))
+            .evictInBackground(Duration.ofSeconds(120))
+            .build();
+        
+        HttpClient httpClient = HttpClient.create(provider)
             .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000)
-            .responseTimeout(Duration.ofMinutes(5));
+            .responseTimeout(geminiConfig.getResponseTimeout())
+            .doOnConnected(conn ->
+                conn.addHandlerLast(new WriteTimeoutHandler(60, TimeUnit.SECONDS))
+            );
         
         return WebClient.builder()
-            .baseUrl(ApiConstants.GEMINI_BASE_URL)
+            .baseUrl(geminiConfig.getBaseUrl())
             .clientConnector(new ReactorClientHttpConnector(httpClient))
             .codecs(configurer -> configurer
                 .defaultCodecs()
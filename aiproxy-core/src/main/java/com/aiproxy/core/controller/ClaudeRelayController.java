@@ -1,8 +1,14 @@
 package com.aiproxy.core.controller;
 
 import com.aiproxy.common.model.ApiKey;
+import com.aiproxy.core.admission.AdmissionControlService;
+import com.aiproxy.core.config.AccountPoolConfig;
+import com.aiproxy.core.metrics.RealtimeMetricsService;
+import com.aiproxy.core.relay.ClaudeToOpenAIResponse;
 import com.aiproxy.core.service.ProxyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
@@ -12,6 +18,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -19,9 +26,19 @@ import java.util.Map;
 public class ClaudeRelayController {
     
     private final ProxyService proxyService;
+    private final AccountPoolConfig accountPoolConfig;
+    private final AdmissionControlService admissionControlService;
+    private final RealtimeMetricsService realtimeMetricsService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
     
-    public ClaudeRelayController(ProxyService proxyService) {
+    public ClaudeRelayController(ProxyService proxyService, 
+                                AccountPoolConfig accountPoolConfig,
+                                AdmissionControlService admissionControlService,
+                                RealtimeMetricsService realtimeMetricsService) {
         this.proxyService = proxyService;
+        this.accountPoolConfig = accountPoolConfig;
+        this.admissionControlService = admissionControlService;
+        this.realtimeMetricsService = realtimeMetricsService;
     }
     
     @PostMapping(value = "/messages")
@@ -31,30 +48,64 @@ public class ClaudeRelayController {
         
         ApiKey apiKey = exchange.getAttribute("apiKey");
         boolean stream = (boolean) request.getOrDefault("stream", false);
+        String sessionId = exchange.getRequest().getHeaders()
+            .getFirst(accountPoolConfig.getSessionAffinity().getHeader());
         
-        log.info("Relaying message request - Stream: {}, Model: {}", 
+        log.debug("Relaying message request - Stream: {}, Model: {}", 
             stream, request.get("model"));
         
+        // 超过并发限额时按优先级/API Key 公平排队，队列满或等待超时直接返回 529，避免选号、重试堆积连接
+        return admissionControlService.acquire(apiKey)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(permit -> permit
+                        .map(p -> relay(request, apiKey, sessionId, stream, p))
+                        .orElseGet(() -> Mono.just(overloadedResponse())));
+    }
+    
+    private Mono<ResponseEntity<?>> relay(Map<String, Object> request, ApiKey apiKey, String sessionId,
+                                          boolean stream, AdmissionControlService.Permit permit) {
         if (stream) {
-            Flux<ServerSentEvent<String>> eventStream = proxyService.relayStreamRequest(request, apiKey);
+            Flux<ServerSentEvent<String>> eventStream = proxyService.relayStreamRequest(request, apiKey, sessionId)
+                    .doOnSubscribe(subscription -> realtimeMetricsService.streamStarted())
+                    .doOnNext(event -> permit.onResponse(!"error".equals(event.event())))
+                    .doFinally(signal -> {
+                        realtimeMetricsService.streamFinished();
+                        permit.release();
+                    });
             return Mono.just(ResponseEntity.ok()
                     .contentType(MediaType.TEXT_EVENT_STREAM)
                     .body(eventStream));
         } else {
-            return proxyService.relayNormalRequest(request, apiKey)
+            return proxyService.relayNormalRequest(request, apiKey, sessionId)
+                    .doOnNext(result -> permit.onResponse(ClaudeToOpenAIResponse.httpStatus(result, objectMapper) < 400))
+                    .doFinally(signal -> permit.release())
                     .map(result -> ResponseEntity.ok()
                             .contentType(MediaType.APPLICATION_JSON)
                             .body(result));
         }
     }
     
+    private ResponseEntity<?> overloadedResponse() {
+        return ResponseEntity.status(529)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControlService.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of(
+                    "type", "error",
+                    "error", Map.of(
+                        "type", "overloaded_error",
+                        "message", "Relay is overloaded, please retry later"
+                    )
+                ));
+    }
+    
     @PostMapping("/complete")
     public Mono<Map<String, Object>> relayComplete(
             @RequestBody Map<String, Object> request,
             ServerWebExchange exchange) {
         
         ApiKey apiKey = exchange.getAttribute("apiKey");
-        log.info("Relaying complete request - Model: {}", request.get("model"));
+        log.debug("Relaying complete request - Model: {}", request.get("model"));
         
         return proxyService.relayCompleteRequest(request, apiKey);
     }
@@ -0,0 +1,133 @@
+package com.aiproxy.core.controller;
+
+import com.aiproxy.common.model.ApiKey;
+import com.aiproxy.core.admission.AdmissionControlService;
+import com.aiproxy.core.config.AccountPoolConfig;
+import com.aiproxy.core.metrics.RealtimeMetricsService;
+import com.aiproxy.core.service.GeminiRelayService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Gemini 原生接口中转，客户端（如 gemini-cli）把 base URL 指向 {relay}/api 即可
+ */
+@RestController
+@RequestMapping("/api/v1beta")
+@Slf4j
+public class GeminiRelayController {
+    
+    private static final String GENERATE_CONTENT = "generateContent";
+    private static final String STREAM_GENERATE_CONTENT = "streamGenerateContent";
+    
+    private final GeminiRelayService geminiRelayService;
+    private final AccountPoolConfig accountPoolConfig;
+    private final AdmissionControlService admissionControlService;
+    private final RealtimeMetricsService realtimeMetricsService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public GeminiRelayController(GeminiRelayService geminiRelayService,
+                                 AccountPoolConfig accountPoolConfig,
+                                 AdmissionControlService admissionControlService,
+                                 RealtimeMetricsService realtimeMetricsService) {
+        this.geminiRelayService = geminiRelayService;
+        this.accountPoolConfig = accountPoolConfig;
+        this.admissionControlService = admissionControlService;
+        this.realtimeMetricsService = realtimeMetricsService;
+    }
+    
+    /**
+     * POST /api/v1beta/models/{model}:generateContent 和 :streamGenerateContent
+     */
+    @PostMapping("/models/{target}")
+    public Mono<ResponseEntity<?>> relayGenerateContent(
+            @PathVariable String target,
+            @RequestBody Map<String, Object> request,
+            ServerWebExchange exchange) {
+        
+        int separator = target.lastIndexOf(':');
+        String model = separator > 0 ? target.substring(0, separator) : null;
+        String method = separator > 0 ? target.substring(separator + 1) : target;
+        if (model == null || !(GENERATE_CONTENT.equals(method) || STREAM_GENERATE_CONTENT.equals(method))) {
+            return Mono.just(errorResponse(HttpStatus.NOT_FOUND, "Unsupported Gemini method: " + target));
+        }
+        
+        ApiKey apiKey = exchange.getAttribute("apiKey");
+        boolean stream = STREAM_GENERATE_CONTENT.equals(method);
+        String sessionId = exchange.getRequest().getHeaders()
+            .getFirst(accountPoolConfig.getSessionAffinity().getHeader());
+        
+        // 模型在 URL 上，按 ProviderRelay 约定放进请求体
+        Map<String, Object> relayRequest = new LinkedHashMap<>(request);
+        relayRequest.put("model", model);
+        
+        log.debug("Relaying Gemini request - Stream: {}, Model: {}", stream, model);
+        
+        // 与 Claude 中转共用准入控制，过载时返回 503
+        return admissionControlService.acquire(apiKey)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(permit -> permit
+                        .map(p -> relay(relayRequest, apiKey, sessionId, stream, p))
+                        .orElseGet(() -> Mono.just(overloadedResponse())));
+    }
+    
+    private Mono<ResponseEntity<?>> relay(Map<String, Object> request, ApiKey apiKey, String sessionId,
+                                          boolean stream, AdmissionControlService.Permit permit) {
+        if (stream) {
+            Flux<ServerSentEvent<String>> eventStream = geminiRelayService.relayStreamRequest(request, apiKey, sessionId)
+                    .doOnSubscribe(subscription -> realtimeMetricsService.streamStarted())
+                    .doOnNext(event -> permit.onResponse(!"error".equals(event.event())))
+                    .doFinally(signal -> {
+                        realtimeMetricsService.streamFinished();
+                        permit.release();
+                    });
+            return Mono.just(ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(eventStream));
+        } else {
+            return geminiRelayService.relayNormalRequest(request, apiKey, sessionId)
+                    .doOnNext(result -> permit.onResponse(GeminiRelayService.httpStatus(result, objectMapper) < 400))
+                    .doFinally(signal -> permit.release())
+                    // 错误体按 error.code 返回对应的 HTTP 状态码，原生 Gemini 客户端据此判断失败和重试
+                    .map(result -> ResponseEntity.status(GeminiRelayService.httpStatus(result, objectMapper))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(result));
+        }
+    }
+    
+    private ResponseEntity<?> overloadedResponse() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControlService.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorBody(HttpStatus.SERVICE_UNAVAILABLE, "Relay is overloaded, please retry later"));
+    }
+    
+    private ResponseEntity<?> errorResponse(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorBody(status, message));
+    }
+    
+    private Map<String, Object> errorBody(HttpStatus status, String message) {
+        return Map.of(
+            "error", Map.of(
+                "code", status.value(),
+                "message", message,
+                "status", status == HttpStatus.NOT_FOUND ? "NOT_FOUND" : "UNAVAILABLE"
+            )
+        );
+    }
+}
@@ -0,0 +1,117 @@
+package com.aiproxy.core.controller;
+
+import com.aiproxy.common.model.ApiKey;
+import com.aiproxy.core.admission.AdmissionControlService;
+import com.aiproxy.core.config.AccountPoolConfig;
+import com.aiproxy.core.metrics.RealtimeMetricsService;
+import com.aiproxy.core.relay.ClaudeToOpenAIResponse;
+import com.aiproxy.core.relay.OpenAIToClaudeRequest;
+import com.aiproxy.core.service.ProxyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * OpenAI Chat Completions 兼容接口
+ * <p>
+ * 请求转换为 Claude Messages 后交给 ProxyService，与 /api/v1/messages 共用账号池、重试和故障转移；
+ * 流式响应逐个事件转换为 chat.completion.chunk。
+ */
+@RestController
+@RequestMapping("/api/v1")
+@Slf4j
+public class OpenAIRelayController {
+    
+    private final ProxyService proxyService;
+    private final AccountPoolConfig accountPoolConfig;
+    private final AdmissionControlService admissionControlService;
+    private final RealtimeMetricsService realtimeMetricsService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public OpenAIRelayController(ProxyService proxyService,
+                                 AccountPoolConfig accountPoolConfig,
+                                 AdmissionControlService admissionControlService,
+                                 RealtimeMetricsService realtimeMetricsService) {
+        this.proxyService = proxyService;
+        this.accountPoolConfig = accountPoolConfig;
+        this.admissionControlService = admissionControlService;
+        this.realtimeMetricsService = realtimeMetricsService;
+    }
+    
+    @PostMapping("/chat/completions")
+    public Mono<ResponseEntity<?>> chatCompletions(
+            @RequestBody Map<String, Object> request,
+            ServerWebExchange exchange) {
+        
+        ApiKey apiKey = exchange.getAttribute("apiKey");
+        boolean stream = Boolean.TRUE.equals(request.get("stream"));
+        boolean includeUsage = request.get("stream_options") instanceof Map<?, ?> options
+            && Boolean.TRUE.equals(options.get("include_usage"));
+        String sessionId = exchange.getRequest().getHeaders()
+            .getFirst(accountPoolConfig.getSessionAffinity().getHeader());
+        Map<String, Object> claudeRequest = OpenAIToClaudeRequest.translate(request);
+        
+        log.debug("Relaying chat completion request - Stream: {}, Model: {}", stream, request.get("model"));
+        
+        // 与 /api/v1/messages 共用准入控制，过载时返回 503（OpenAI SDK 会自动重试）
+        return admissionControlService.acquire(apiKey)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(permit -> permit
+                        .map(p -> relay(claudeRequest, apiKey, sessionId, stream, includeUsage, p))
+                        .orElseGet(() -> Mono.just(overloadedResponse())));
+    }
+    
+    private Mono<ResponseEntity<?>> relay(Map<String, Object> request, ApiKey apiKey, String sessionId,
+                                          boolean stream, boolean includeUsage, AdmissionControlService.Permit permit) {
+        String model = (String) request.get("model");
+        if (stream) {
+            // 每个请求一个转换器，逐个事件转换，不缓存完整响应
+            ClaudeToOpenAIResponse translator = new ClaudeToOpenAIResponse(model, includeUsage, objectMapper);
+            Flux<ServerSentEvent<String>> eventStream = proxyService.relayStreamRequest(request, apiKey, sessionId)
+                    // 转换前判断，error 事件不计入准入控制的延迟样本
+                    .doOnNext(event -> permit.onResponse(!"error".equals(event.event())))
+                    .concatMapIterable(translator::onEvent)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(translator.finish())))
+                    .doOnSubscribe(subscription -> realtimeMetricsService.streamStarted())
+                    .doFinally(signal -> {
+                        realtimeMetricsService.streamFinished();
+                        permit.release();
+                    });
+            return Mono.just(ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(eventStream));
+        } else {
+            return proxyService.relayNormalRequest(request, apiKey, sessionId)
+                    .doOnNext(result -> permit.onResponse(ClaudeToOpenAIResponse.httpStatus(result, objectMapper) < 400))
+                    .doFinally(signal -> permit.release())
+                    // 中转错误体按上游状态码（没有时按错误类型）返回 4xx/5xx，OpenAI SDK 据此抛出异常或重试
+                    .map(result -> ResponseEntity.status(ClaudeToOpenAIResponse.httpStatus(result, objectMapper))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(ClaudeToOpenAIResponse.translate(result, model, objectMapper)));
+        }
+    }
+    
+    private ResponseEntity<?> overloadedResponse() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControlService.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of(
+                    "error", Map.of(
+                        "type", "overloaded_error",
+                        "message", "Relay is overloaded, please retry later"
+                    )
+                ));
+    }
+}
@@ -1,11 +1,21 @@
 package com.aiproxy.core.controller;
 
+import com.aiproxy.core.metrics.RealtimeMetricsService;
 import com.aiproxy.core.service.StatsService;
+import com.aiproxy.core.service.UsageTimeSeriesService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +27,8 @@ import java.util.Map;
 public class StatsController {
     
     private final StatsService statsService;
+    private final RealtimeMetricsService realtimeMetricsService;
+    private final UsageTimeSeriesService usageTimeSeriesService;
     
     @GetMapping("/overview")
     public Mono<Map<String, Object>> getOverviewStats() {
@@ -28,10 +40,53 @@ public class StatsController {
     public Mono<List<Map<String, Object>>> getTokenUsageTrend(
         @RequestParam(defaultValue = "7") int days
     ) {
-        return statsService.getTokenUsageTrend()
+        return statsService.getTokenUsageTrend(days)
             .doOnSuccess(trend -> log.debug("获取Token使用趋势: {} 天", days));
     }
     
+    /**
+     * 使用量时间序列
+     *
+     * @param from        起始时间（毫秒时间戳），默认 24 小时前
+     * @param to          结束时间（毫秒时间戳），默认当前时间
+     * @param granularity hour / day / week / month
+     * @param groupBy     none / model / apiKey / account / provider
+     */
+    @GetMapping("/usage-series")
+    public Mono<List<Map<String, Object>>> getUsageSeries(
+        @RequestParam(required = false) Long from,
+        @RequestParam(required = false) Long to,
+        @RequestParam(defaultValue = "hour") String granularity,
+        @RequestParam(defaultValue = "none") String groupBy
+    ) {
+        LocalDateTime end = to != null ? toLocalDateTime(to) : LocalDateTime.now().plusMinutes(1);
+        LocalDateTime start = from != null ? toLocalDateTime(from) : end.minusHours(24);
+        
+        return Mono.defer(() -> usageTimeSeriesService.getSeries(start, end,
+                UsageTimeSeriesService.Granularity.fromString(granularity),
+                UsageTimeSeriesService.GroupBy.fromString(groupBy)))
+            .onErrorMap(IllegalArgumentException.class,
+                error -> new ResponseStatusException(HttpStatus.BAD_REQUEST, error.getMessage()));
+    }
+    
+    /**
+     * 按维度汇总某个时间范围内的使用量
+     */
+    @GetMapping("/usage-breakdown")
+    public Mono<List<Map<String, Object>>> getUsageBreakdown(
+        @RequestParam(required = false) Long from,
+        @RequestParam(required = false) Long to,
+        @RequestParam(defaultValue = "model") String groupBy
+    ) {
+        LocalDateTime end = to != null ? toLocalDateTime(to) : LocalDateTime.now().plusMinutes(1);
+        LocalDateTime start = from != null ? toLocalDateTime(from) : end.minusDays(7);
+        
+        return Mono.defer(() -> usageTimeSeriesService.getBreakdown(start, end,
+                UsageTimeSeriesService.GroupBy.fromString(groupBy)))
+            .onErrorMap(IllegalArgumentException.class,
+                error -> new ResponseStatusException(HttpStatus.BAD_REQUEST, error.getMessage()));
+    }
+    
     @GetMapping("/model-distribution")
     public Mono<List<Map<String, Object>>> getModelUsageDistribution() {
         return statsService.getModelUsageDistribution()
@@ -46,17 +101,19 @@ public class StatsController {
     
     @GetMapping("/realtime")
     public Mono<Map<String, Object>> getRealtimeMetrics() {
-        return Mono.fromCallable(() -> {
-            Map<String, Object> metrics = new HashMap<>();
-            
-            // 实时数据（实际应该从监控系统获取）
-            metrics.put("rpm", 0); // 每分钟请求数
-            metrics.put("tpm", 0); // 每分钟Token数
-            metrics.put("activeConnections", 0); // 活跃连接数
-            metrics.put("queueSize", 0); // 队列大小
-            
-            return metrics;
-        });
+        return Mono.fromCallable(realtimeMetricsService::snapshot);
+    }
+    
+    /**
+     * 实时指标推送（SSE），每秒一帧
+     */
+    @GetMapping(value = "/realtime/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> streamRealtimeMetrics() {
+        return realtimeMetricsService.snapshots()
+            .map(metrics -> ServerSentEvent.<Map<String, Object>>builder()
+                .event("realtime")
+                .data(metrics)
+                .build());
     }
     
     @GetMapping("/dashboard")
@@ -75,4 +132,8 @@ public class StatsController {
             return dashboard;
         });
     }
-}
\ No newline at end of file
+    
+    private LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,68 @@
+package com.aiproxy.core.filter;
+
+import com.aiproxy.common.tracing.RelayTracing;
+import io.micrometer.observation.Observation;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 为每个请求分配 requestId（沿用合法的 X-Request-Id），写入响应头、exchange 属性和 Reactor Context；
+ * 中转接口额外开启根 span，后续鉴权、选号、上游请求的 span 都挂在它下面
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTracingFilter implements WebFilter {
+    
+    // 上限与 request_logs.request_id 的 VARCHAR(50) 一致，超长的客户端 ID 会导致日志写入失败
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._\\-]{8,50}");
+    
+    private final RelayTracing relayTracing;
+    
+    public RequestTracingFilter(RelayTracing relayTracing) {
+        this.relayTracing = relayTracing;
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String incoming = exchange.getRequest().getHeaders().getFirst(RelayTracing.REQUEST_ID_HEADER);
+        String requestId = incoming != null && VALID_REQUEST_ID.matcher(incoming).matches()
+            ? incoming
+            : UUID.randomUUID().toString().replace("-", "");
+        exchange.getAttributes().put(RelayTracing.REQUEST_ID_KEY, requestId);
+        exchange.getResponse().getHeaders().set(RelayTracing.REQUEST_ID_HEADER, requestId);
+        
+        String path = exchange.getRequest().getPath().value();
+        Observation root = isTraced(path) ? relayTracing.startRoot("relay.request", requestId) : null;
+        if (root == null) {
+            return chain.filter(exchange)
+                .contextWrite(context -> RelayTracing.withRoot(context, requestId, null));
+        }
+        
+        root.lowCardinalityKeyValue("http.method", exchange.getRequest().getMethod().name())
+            .highCardinalityKeyValue("http.path", path);
+        return chain.filter(exchange)
+            .doOnError(root::error)
+            .doFinally(signal -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                root.lowCardinalityKeyValue("http.status", status != null ? String.valueOf(status.value()) : "none");
+                RelayTracing.stop(root, signal);
+            })
+            .contextWrite(context -> RelayTracing.withRoot(context, requestId, root));
+    }
+    
+    /**
+     * 只追踪中转接口；统计推送等长连接不追踪
+     */
+    private boolean isTraced(String path) {
+        return path.startsWith("/api/") && !path.startsWith("/api/stats/");
+    }
+}
@@ -22,14 +22,11 @@ public class ResponseLoggingFilter implements WebFilter {
         ServerHttpResponse response = exchange.getResponse();
         String path = request.getPath().value();
         
+        // 中转请求由 AccessLogService 输出结构化访问日志，这里只在 DEBUG 下记录状态码
         return chain.filter(exchange)
             .doOnSuccess(aVoid -> {
-                log.info(">>> Response Status for [{}]: {} <<<", 
-                    path, response.getStatusCode());
-                
-                if (path.contains("/admin/accounts/authorize-url")) {
-                    log.warn("!!! Special logging for authorize-url - Status: {} !!!", 
-                        response.getStatusCode());
+                if (log.isDebugEnabled()) {
+                    log.debug("Response status for [{}]: {}", path, response.getStatusCode());
                 }
             })
             .doOnError(error -> {
@@ -0,0 +1,237 @@
+package com.aiproxy.core.metrics;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+import com.aiproxy.common.service.RequestLogListener;
+import com.aiproxy.core.admission.AdmissionControlService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 实时指标：按秒滑动窗口统计请求数、token、错误数，以及进行中的上游请求数（流式/非流式），
+ * 全局以及按 API Key / 账号 / 模型维度，供 /api/stats/realtime 和 SSE 推送使用
+ */
+@Service
+@Slf4j
+public class RealtimeMetricsService implements RequestLogListener {
+    
+    private static final int WINDOW_SECONDS = 60;
+    private static final int RATE_WINDOW_SECONDS = 10;
+    private static final int MAX_TRACKED_PER_DIMENSION = 1000;
+    private static final int TOP_N = 10;
+    private static final String OTHER = "other";
+    
+    private final AdmissionControlService admissionControlService;
+    private final WindowSet global = new WindowSet();
+    private final Map<String, WindowSet> byApiKey = new ConcurrentHashMap<>();
+    private final Map<String, WindowSet> byAccount = new ConcurrentHashMap<>();
+    private final Map<String, WindowSet> byModel = new ConcurrentHashMap<>();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicInteger inFlightStreams = new AtomicInteger();
+    private final Flux<Map<String, Object>> snapshots;
+    
+    public RealtimeMetricsService(AdmissionControlService admissionControlService) {
+        this.admissionControlService = admissionControlService;
+        // 所有 SSE 订阅者共享同一个定时快照
+        this.snapshots = Flux.interval(Duration.ZERO, Duration.ofSeconds(1))
+            .onBackpressureDrop()
+            .map(tick -> snapshot())
+            .share();
+    }
+    
+    @Override
+    public void onRequestLogged(RequestLogEntity logEntity) {
+        long now = currentSecond();
+        long tokens = logEntity.getTotalTokens() != null ? logEntity.getTotalTokens() : 0L;
+        boolean error = logEntity.getStatusCode() != null && logEntity.getStatusCode() >= 400;
+        
+        global.record(now, tokens, error);
+        dimension(byApiKey, logEntity.getApiKeyId()).record(now, tokens, error);
+        dimension(byAccount, logEntity.getAccountId()).record(now, tokens, error);
+        dimension(byModel, logEntity.getModel()).record(now, tokens, error);
+    }
+    
+    public void streamStarted() {
+        activeStreams.incrementAndGet();
+    }
+    
+    public void streamFinished() {
+        activeStreams.decrementAndGet();
+    }
+    
+    /**
+     * 一次上游请求开始（每次重试单独计数），返回的句柄在请求结束时调用 finish
+     */
+    public InFlight upstreamStarted(String apiKeyId, String accountId, String model, boolean stream) {
+        List<WindowSet> dimensions = List.of(
+            dimension(byApiKey, apiKeyId), dimension(byAccount, accountId), dimension(byModel, model));
+        inFlightRequests.incrementAndGet();
+        if (stream) {
+            inFlightStreams.incrementAndGet();
+        }
+        dimensions.forEach(windows -> windows.inFlightStarted(stream));
+        return new InFlight(dimensions, stream);
+    }
+    
+    public Flux<Map<String, Object>> snapshots() {
+        return snapshots;
+    }
+    
+    public long getRequestsPerMinute() {
+        return global.requests.sum(currentSecond(), WINDOW_SECONDS);
+    }
+    
+    public long getTokensPerMinute() {
+        return global.tokens.sum(currentSecond(), WINDOW_SECONDS);
+    }
+    
+    public Map<String, Object> snapshot() {
+        long now = currentSecond();
+        Map<String, Object> admission = admissionControlService.getStatus();
+        
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("timestamp", now * 1000);
+        metrics.put("rpm", global.requests.sum(now, WINDOW_SECONDS)); // 每分钟请求数
+        metrics.put("tpm", global.tokens.sum(now, WINDOW_SECONDS)); // 每分钟Token数
+        metrics.put("errorsPerMinute", global.errors.sum(now, WINDOW_SECONDS));
+        metrics.put("rps", global.requests.sum(now, RATE_WINDOW_SECONDS) / (double) RATE_WINDOW_SECONDS);
+        metrics.put("activeConnections", admission.get("inFlight")); // 活跃连接数
+        metrics.put("activeStreams", activeStreams.get());
+        metrics.put("inFlightRequests", inFlightRequests.get()); // 进行中的上游请求（含流式）
+        metrics.put("inFlightStreams", inFlightStreams.get());
+        metrics.put("queueSize", queueSize(admission)); // 队列大小
+        metrics.put("admission", admission); // 准入控制状态
+        metrics.put("topApiKeys", top(byApiKey, now));
+        metrics.put("topAccounts", top(byAccount, now));
+        metrics.put("topModels", top(byModel, now));
+        return metrics;
+    }
+    
+    /**
+     * 清理一个窗口内没有流量的维度，控制内存占用
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long cutoff = currentSecond() - WINDOW_SECONDS;
+        for (Map<String, WindowSet> map : List.of(byApiKey, byAccount, byModel)) {
+            map.entrySet().removeIf(entry -> entry.getValue().requests.lastActiveSecond() < cutoff
+                && entry.getValue().inFlight.get() == 0);
+        }
+    }
+    
+    private WindowSet dimension(Map<String, WindowSet> map, String value) {
+        String key = value != null && !value.isEmpty() ? value : "unknown";
+        WindowSet existing = map.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        // 维度值过多时归入 other，防止异常流量撑爆内存
+        if (map.size() >= MAX_TRACKED_PER_DIMENSION) {
+            key = OTHER;
+        }
+        return map.computeIfAbsent(key, k -> new WindowSet());
+    }
+    
+    private List<Map<String, Object>> top(Map<String, WindowSet> map, long now) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        map.forEach((key, windows) -> {
+            long rpm = windows.requests.sum(now, WINDOW_SECONDS);
+            int inFlight = windows.inFlight.get();
+            if (rpm == 0 && inFlight == 0) {
+                return;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", key);
+            entry.put("rpm", rpm);
+            entry.put("tpm", windows.tokens.sum(now, WINDOW_SECONDS));
+            entry.put("errorsPerMinute", windows.errors.sum(now, WINDOW_SECONDS));
+            entry.put("inFlight", inFlight);
+            entry.put("inFlightStreams", windows.inFlightStreams.get());
+            entries.add(entry);
+        });
+        entries.sort(Comparator.comparingLong((Map<String, Object> entry) -> (Long) entry.get("rpm")).reversed());
+        return entries.size() > TOP_N ? entries.subList(0, TOP_N) : entries;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static int queueSize(Map<String, Object> admission) {
+        Object queued = admission.get("queued");
+        if (!(queued instanceof Map<?, ?> map)) {
+            return 0;
+        }
+        return ((Map<String, Integer>) map).values().stream().mapToInt(Integer::intValue).sum();
+    }
+    
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+    
+    /**
+     * 进行中的上游请求，finish 可重复调用
+     */
+    public final class InFlight {
+        private final List<WindowSet> dimensions;
+        private final boolean stream;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        
+        private InFlight(List<WindowSet> dimensions, boolean stream) {
+            this.dimensions = dimensions;
+            this.stream = stream;
+        }
+        
+        public void finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            inFlightRequests.decrementAndGet();
+            if (stream) {
+                inFlightStreams.decrementAndGet();
+            }
+            dimensions.forEach(windows -> windows.inFlightFinished(stream));
+        }
+    }
+    
+    private static class WindowSet {
+        private final SlidingWindowCounter requests = new SlidingWindowCounter(WINDOW_SECONDS);
+        private final SlidingWindowCounter tokens = new SlidingWindowCounter(WINDOW_SECONDS);
+        private final SlidingWindowCounter errors = new SlidingWindowCounter(WINDOW_SECONDS);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger inFlightStreams = new AtomicInteger();
+        
+        void record(long second, long tokenCount, boolean error) {
+            requests.add(second, 1);
+            if (tokenCount > 0) {
+                tokens.add(second, tokenCount);
+            }
+            if (error) {
+                errors.add(second, 1);
+            }
+        }
+        
+        void inFlightStarted(boolean stream) {
+            inFlight.incrementAndGet();
+            if (stream) {
+                inFlightStreams.incrementAndGet();
+            }
+        }
+        
+        void inFlightFinished(boolean stream) {
+            inFlight.decrementAndGet();
+            if (stream) {
+                inFlightStreams.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.aiproxy.core.metrics;
+
+import com.aiproxy.core.config.RelayMetricsConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 中转热路径的 Micrometer 指标：首字节时间、总耗时、上游状态码、重试次数、选号耗时、
+ * 请求/响应字节数、输出速率和进行中的请求数，按模型 / 账号 / API Key 打标签并限制标签取值个数。
+ * <p>
+ * 带直方图的 Timer / DistributionSummary 只按模型和 stream 打标签，每个标签组合都要乘上几十个桶；
+ * 账号和 API Key 维度只放在计数器和 Gauge 上
+ */
+@Component
+public class RelayMetrics {
+    
+    private static final String TAG_MODEL = "model";
+    private static final String TAG_ACCOUNT = "account";
+    private static final String TAG_API_KEY = "apiKey";
+    private static final String TAG_STREAM = "stream";
+    
+    private final RelayMetricsConfig config;
+    private final MeterRegistry meterRegistry;
+    private final RealtimeMetricsService realtimeMetricsService;
+    private final TagValueLimiter models;
+    private final TagValueLimiter accounts;
+    private final TagValueLimiter apiKeys;
+    
+    private final Meter.MeterProvider<Timer> ttfb;
+    private final Meter.MeterProvider<Timer> duration;
+    private final Meter.MeterProvider<Counter> responses;
+    private final Meter.MeterProvider<Counter> attempts;
+    private final Meter.MeterProvider<Counter> tokens;
+    private final Meter.MeterProvider<Timer> accountSelection;
+    private final Meter.MeterProvider<DistributionSummary> retries;
+    private final Meter.MeterProvider<DistributionSummary> requestBytes;
+    private final Meter.MeterProvider<DistributionSummary> responseBytes;
+    private final Meter.MeterProvider<DistributionSummary> tokensPerSecond;
+    // 进行中请求数的 Gauge 状态，按（指标名, 标签值, stream）缓存，标签值已经过 TagValueLimiter
+    private final Map<List<String>, AtomicInteger> inFlightGauges = new ConcurrentHashMap<>();
+    
+    public RelayMetrics(RelayMetricsConfig config, MeterRegistry meterRegistry,
+                        RealtimeMetricsService realtimeMetricsService) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.realtimeMetricsService = realtimeMetricsService;
+        this.models = new TagValueLimiter(config.getMaxModelTags());
+        this.accounts = new TagValueLimiter(config.getMaxAccountTags());
+        this.apiKeys = new TagValueLimiter(config.getMaxApiKeyTags());
+        boolean histogram = config.isPercentileHistogram();
+        
+        this.ttfb = Timer.builder("relay.upstream.ttfb")
+            .description("Time from sending the upstream request to the first streamed event")
+            .publishPercentileHistogram(histogram)
+            .maximumExpectedValue(Duration.ofMinutes(2))
+            .withRegistry(meterRegistry);
+        this.duration = Timer.builder("relay.upstream.duration")
+            .description("Total duration of one upstream attempt, including the full stream")
+            .publishPercentileHistogram(histogram)
+            .maximumExpectedValue(Duration.ofMinutes(10))
+            .withRegistry(meterRegistry);
+        this.responses = Counter.builder("relay.upstream.responses")
+            .description("Upstream responses by status code")
+            .withRegistry(meterRegistry);
+        this.attempts = Counter.builder("relay.upstream.attempts")
+            .description("Upstream attempts by outcome")
+            .withRegistry(meterRegistry);
+        this.tokens = Counter.builder("relay.tokens")
+            .description("Tokens reported by upstream usage")
+            .baseUnit("tokens")
+            .withRegistry(meterRegistry);
+        this.accountSelection = Timer.builder("relay.account.selection")
+            .description("Time spent selecting an upstream account")
+            .publishPercentileHistogram(histogram)
+            .withRegistry(meterRegistry);
+        this.retries = DistributionSummary.builder("relay.request.retries")
+            .description("Retries needed per client request")
+            .withRegistry(meterRegistry);
+        this.requestBytes = DistributionSummary.builder("relay.request.bytes")
+            .description("Serialized upstream request body size")
+            .baseUnit("bytes")
+            .publishPercentileHistogram(histogram)
+            .withRegistry(meterRegistry);
+        this.responseBytes = DistributionSummary.builder("relay.response.bytes")
+            .description("Upstream response body size")
+            .baseUnit("bytes")
+            .publishPercentileHistogram(histogram)
+            .withRegistry(meterRegistry);
+        this.tokensPerSecond = DistributionSummary.builder("relay.tokens.per.second")
+            .description("Output tokens per second after the first byte")
+            .publishPercentileHistogram(histogram)
+            .withRegistry(meterRegistry);
+    }
+    
+    /**
+     * 开始一次上游请求（每次重试都是一次新的 attempt）
+     */
+    public Attempt startAttempt(String model, String accountId, String apiKeyId, boolean stream) {
+        return new Attempt(models.limit(model), accounts.limit(accountId),
+            config.isTagApiKey() ? apiKeys.limit(apiKeyId) : TagValueLimiter.OTHER, stream,
+            realtimeMetricsService.upstreamStarted(apiKeyId, accountId, model, stream));
+    }
+    
+    private List<AtomicInteger> inFlightGauges(String model, String account, String apiKey, String stream) {
+        if (!config.isEnabled()) {
+            return List.of();
+        }
+        // Prometheus 要求同名指标的标签键一致，各维度分别使用一个指标名
+        List<AtomicInteger> gauges = new ArrayList<>(3);
+        gauges.add(inFlightGauge("relay.inflight.by.model", TAG_MODEL, model, stream));
+        gauges.add(inFlightGauge("relay.inflight.by.account", TAG_ACCOUNT, account, stream));
+        if (config.isTagApiKey()) {
+            gauges.add(inFlightGauge("relay.inflight.by.api.key", TAG_API_KEY, apiKey, stream));
+        }
+        return gauges;
+    }
+    
+    private AtomicInteger inFlightGauge(String name, String tag, String value, String stream) {
+        return inFlightGauges.computeIfAbsent(List.of(name, value, stream), key -> {
+            AtomicInteger inFlight = new AtomicInteger();
+            Gauge.builder(name, inFlight, AtomicInteger::get)
+                .description("Upstream requests currently in flight")
+                .tags(tag, value, TAG_STREAM, stream)
+                .register(meterRegistry);
+            return inFlight;
+        });
+    }
+    
+    /**
+     * 记录选号耗时，订阅时开始计时
+     */
+    public <T> Mono<T> timeAccountSelection(Mono<T> selection) {
+        if (!config.isEnabled()) {
+            return selection;
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return selection
+                .doOnSuccess(value -> recordSelection(start, value != null ? "selected" : "unavailable"))
+                .doOnError(error -> recordSelection(start, "unavailable"));
+        });
+    }
+    
+    private void recordSelection(long start, String outcome) {
+        accountSelection.withTags("outcome", outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * 记录一个客户端请求最终用了几次重试
+     */
+    public void recordRetries(int attempts, boolean stream) {
+        if (config.isEnabled()) {
+            retries.withTags(TAG_STREAM, String.valueOf(stream)).record(Math.max(0, attempts - 1));
+        }
+    }
+    
+    /**
+     * 不分配内存地计算字符串的 UTF-8 字节数
+     */
+    static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+    
+    public final class Attempt {
+        
+        private final String model;
+        private final String account;
+        private final String apiKey;
+        private final String stream;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final RealtimeMetricsService.InFlight realtimeInFlight;
+        private final List<AtomicInteger> inFlight;
+        private volatile long firstByteNanos;
+        private volatile int upstreamStatus;
+        private long bytes;
+        
+        private Attempt(String model, String account, String apiKey, boolean stream,
+                        RealtimeMetricsService.InFlight realtimeInFlight) {
+            this.model = model;
+            this.account = account;
+            this.apiKey = apiKey;
+            this.stream = String.valueOf(stream);
+            this.realtimeInFlight = realtimeInFlight;
+            this.inFlight = inFlightGauges(model, account, apiKey, this.stream);
+            inFlight.forEach(AtomicInteger::incrementAndGet);
+        }
+        
+        public void onRequestBody(String body) {
+            if (config.isEnabled() && body != null) {
+                requestBytes.withTags(TAG_MODEL, model, TAG_STREAM, stream).record(utf8Length(body));
+            }
+        }
+        
+        public void onUpstreamStatus(int status) {
+            this.upstreamStatus = status;
+        }
+        
+        /**
+         * 流式事件到达时调用，第一次调用记录首字节时间；同一个流的事件是串行的
+         */
+        public void onData(String data) {
+            if (!config.isEnabled()) {
+                return;
+            }
+            if (firstByteNanos == 0) {
+                firstByteNanos = System.nanoTime();
+                ttfb.withTags(TAG_MODEL, model, TAG_STREAM, stream)
+                    .record(firstByteNanos - startNanos, TimeUnit.NANOSECONDS);
+            }
+            bytes += utf8Length(data);
+        }
+        
+        /**
+         * 非流式请求的完整响应体
+         */
+        public void onResponseBody(String body) {
+            if (config.isEnabled() && body != null) {
+                bytes += utf8Length(body);
+            }
+        }
+        
+        public void success(Integer inputTokens, Integer outputTokens) {
+            if (!finish() || !config.isEnabled()) {
+                return;
+            }
+            long end = System.nanoTime();
+            record("success", end);
+            countResponse(upstreamStatus != 0 ? upstreamStatus : 200);
+            responseBytes.withTags(TAG_MODEL, model, TAG_STREAM, stream).record(bytes);
+            
+            if (inputTokens != null) {
+                tokens.withTags(TAG_MODEL, model, TAG_API_KEY, apiKey, "type", "input").increment(inputTokens);
+            }
+            if (outputTokens != null && outputTokens > 0) {
+                tokens.withTags(TAG_MODEL, model, TAG_API_KEY, apiKey, "type", "output").increment(outputTokens);
+                // 流式请求从首字节开始算生成速度，非流式只能用总耗时
+                long generationNanos = end - (firstByteNanos != 0 ? firstByteNanos : startNanos);
+                if (generationNanos > 0) {
+                    tokensPerSecond.withTags(TAG_MODEL, model, TAG_STREAM, stream)
+                        .record(outputTokens * 1_000_000_000d / generationNanos);
+                }
+            }
+        }
+        
+        public void failure() {
+            if (finish() && config.isEnabled()) {
+                record("error", System.nanoTime());
+                countResponse(upstreamStatus);
+            }
+        }
+        
+        /**
+         * 客户端断开等情况下未走到 success / failure 时收尾
+         */
+        public void cancel() {
+            if (finish() && config.isEnabled()) {
+                record("cancelled", System.nanoTime());
+            }
+        }
+        
+        /**
+         * 只有第一次结束生效，同时释放进行中计数
+         */
+        private boolean finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            inFlight.forEach(AtomicInteger::decrementAndGet);
+            realtimeInFlight.finish();
+            return true;
+        }
+        
+        private void record(String outcome, long end) {
+            duration.withTags(TAG_MODEL, model, TAG_STREAM, stream, "outcome", outcome)
+                .record(end - startNanos, TimeUnit.NANOSECONDS);
+            attempts.withTags(TAG_MODEL, model, TAG_ACCOUNT, account, TAG_API_KEY, apiKey,
+                    TAG_STREAM, stream, "outcome", outcome)
+                .increment();
+        }
+        
+        /**
+         * status 为 0 表示没有拿到上游响应（连接失败、超时等）
+         */
+        private void countResponse(int status) {
+            responses.withTags("status", status != 0 ? String.valueOf(status) : "none",
+                    TAG_MODEL, model, TAG_ACCOUNT, account)
+                .increment();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.aiproxy.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按秒分桶的环形滑动窗口计数器
+ * <p>
+ * 每个槽位记录所属的秒和一个 LongAdder，写入是 O(1) 且无锁；
+ * 槽位轮转时由 CAS 成功的线程清零，与清零并发的少量写入可能丢失，对实时指标可以接受。
+ */
+public class SlidingWindowCounter {
+    
+    private final int size;
+    private final AtomicLongArray seconds;
+    private final LongAdder[] buckets;
+    
+    /**
+     * @param windowSeconds 可查询的最大窗口（秒）
+     */
+    public SlidingWindowCounter(int windowSeconds) {
+        // 多留一个槽位给正在写入的当前秒
+        this.size = windowSeconds + 1;
+        this.seconds = new AtomicLongArray(size);
+        this.buckets = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            seconds.set(i, -1);
+            buckets[i] = new LongAdder();
+        }
+    }
+    
+    public void add(long epochSecond, long delta) {
+        int index = (int) (epochSecond % size);
+        long current = seconds.get(index);
+        if (current != epochSecond) {
+            if (current < epochSecond && seconds.compareAndSet(index, current, epochSecond)) {
+                buckets[index].reset();
+            } else if (seconds.get(index) != epochSecond) {
+                // 槽位已被更新的秒占用，过期写入直接丢弃
+                return;
+            }
+        }
+        buckets[index].add(delta);
+    }
+    
+    /**
+     * 最近 windowSeconds 秒（含当前秒）的累计值
+     */
+    public long sum(long nowSecond, int windowSeconds) {
+        int window = Math.min(windowSeconds, size);
+        long total = 0;
+        for (int k = 0; k < window; k++) {
+            long second = nowSecond - k;
+            int index = (int) (second % size);
+            if (seconds.get(index) == second) {
+                total += buckets[index].sum();
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * 最近一次写入所在的秒，从未写入时返回 -1
+     */
+    public long lastActiveSecond() {
+        long latest = -1;
+        for (int i = 0; i < size; i++) {
+            latest = Math.max(latest, seconds.get(i));
+        }
+        return latest;
+    }
+}
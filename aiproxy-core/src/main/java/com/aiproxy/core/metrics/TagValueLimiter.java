@@ -0,0 +1,34 @@
+package com.aiproxy.core.metrics;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 限制某个标签的取值个数，超出上限的值统一记为 other，防止 Prometheus 时间序列爆炸
+ */
+class TagValueLimiter {
+    
+    static final String OTHER = "other";
+    static final String UNKNOWN = "unknown";
+    
+    private final int maxValues;
+    private final Set<String> accepted = ConcurrentHashMap.newKeySet();
+    
+    TagValueLimiter(int maxValues) {
+        this.maxValues = maxValues;
+    }
+    
+    String limit(String value) {
+        if (value == null || value.isEmpty()) {
+            return UNKNOWN;
+        }
+        if (accepted.contains(value)) {
+            return value;
+        }
+        // 并发时可能略微超出上限，对标签数量控制没有影响
+        if (accepted.size() < maxValues && accepted.add(value)) {
+            return value;
+        }
+        return accepted.contains(value) ? value : OTHER;
+    }
+}
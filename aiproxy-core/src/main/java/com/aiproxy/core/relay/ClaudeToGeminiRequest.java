@@ -0,0 +1,288 @@
+package com.aiproxy.core.relay;
+
+import com.aiproxy.core.transform.SystemPromptBlock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Claude Messages 请求转换为 Gemini generateContent 请求
+ * <p>
+ * 按 ProviderRelay 约定，目标模型写在结果的 model 字段中。中转注入的 {@link SystemPromptBlock}
+ * 只对 Claude 有意义，转换时跳过；thinking 块不会发给 Gemini。
+ */
+public final class ClaudeToGeminiRequest {
+    
+    /**
+     * Gemini function 参数 schema 支持的 OpenAPI 字段，其余 JSON Schema 字段（$schema、additionalProperties 等）会被上游拒绝
+     */
+    private static final Set<String> SCHEMA_FIELDS = Set.of(
+        "type", "format", "title", "description", "nullable", "enum", "items", "minItems", "maxItems",
+        "properties", "required", "minProperties", "maxProperties", "minLength", "maxLength", "pattern",
+        "minimum", "maximum", "default", "example", "anyOf", "propertyOrdering");
+    
+    private ClaudeToGeminiRequest() {
+    }
+    
+    public static Map<String, Object> translate(Map<String, Object> request, String targetModel) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("model", targetModel);
+        
+        List<Map<String, Object>> systemParts = systemParts(request.get("system"));
+        if (!systemParts.isEmpty()) {
+            result.put("systemInstruction", Map.of("parts", systemParts));
+        }
+        
+        result.put("contents", contents(request.get("messages")));
+        
+        if (request.get("tools") instanceof List<?> tools && !tools.isEmpty()) {
+            List<Map<String, Object>> declarations = new ArrayList<>();
+            for (Object tool : tools) {
+                // 服务端工具（web_search 等）没有 input_schema，Gemini 无法执行
+                if (tool instanceof Map<?, ?> definition && definition.get("input_schema") != null) {
+                    Map<String, Object> declaration = new LinkedHashMap<>();
+                    declaration.put("name", definition.get("name"));
+                    if (definition.get("description") != null) {
+                        declaration.put("description", definition.get("description"));
+                    }
+                    declaration.put("parameters", schema(definition.get("input_schema")));
+                    declarations.add(declaration);
+                }
+            }
+            if (!declarations.isEmpty()) {
+                result.put("tools", List.of(Map.of("functionDeclarations", declarations)));
+            }
+        }
+        
+        if (request.get("tool_choice") instanceof Map<?, ?> toolChoice) {
+            Map<String, Object> functionCalling = new LinkedHashMap<>();
+            switch (String.valueOf(toolChoice.get("type"))) {
+                case "any" -> functionCalling.put("mode", "ANY");
+                case "none" -> functionCalling.put("mode", "NONE");
+                case "tool" -> {
+                    functionCalling.put("mode", "ANY");
+                    functionCalling.put("allowedFunctionNames", List.of(toolChoice.get("name")));
+                }
+                default -> functionCalling.put("mode", "AUTO");
+            }
+            result.put("toolConfig", Map.of("functionCallingConfig", functionCalling));
+        }
+        
+        Map<String, Object> generationConfig = generationConfig(request);
+        if (!generationConfig.isEmpty()) {
+            result.put("generationConfig", generationConfig);
+        }
+        return result;
+    }
+    
+    private static List<Map<String, Object>> systemParts(Object system) {
+        List<Map<String, Object>> parts = new ArrayList<>();
+        if (system instanceof String text) {
+            if (!text.isBlank()) {
+                parts.add(Map.of("text", text));
+            }
+        } else if (system instanceof List<?> blocks) {
+            for (Object block : blocks) {
+                if (block instanceof SystemPromptBlock) {
+                    continue;
+                }
+                if (block instanceof Map<?, ?> map && map.get("text") instanceof String text) {
+                    parts.add(Map.of("text", text));
+                }
+            }
+        }
+        return parts;
+    }
+    
+    private static List<Map<String, Object>> contents(Object messages) {
+        List<Map<String, Object>> contents = new ArrayList<>();
+        if (!(messages instanceof List<?> list)) {
+            return contents;
+        }
+        // tool_result 只带 tool_use_id，Gemini 的 functionResponse 需要函数名
+        Map<String, String> toolNames = new HashMap<>();
+        Map<String, Object> previous = null;
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> message)) {
+                continue;
+            }
+            String role = "assistant".equals(message.get("role")) ? "model" : "user";
+            List<Map<String, Object>> parts = parts(message.get("content"), toolNames);
+            if (parts.isEmpty()) {
+                continue;
+            }
+            // Gemini 要求 user/model 交替，连续的同角色消息合并
+            if (previous != null && role.equals(previous.get("role"))) {
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> previousParts = (List<Map<String, Object>>) previous.get("parts");
+                previousParts.addAll(parts);
+                continue;
+            }
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("role", role);
+            content.put("parts", parts);
+            contents.add(content);
+            previous = content;
+        }
+        return contents;
+    }
+    
+    private static List<Map<String, Object>> parts(Object content, Map<String, String> toolNames) {
+        List<Map<String, Object>> parts = new ArrayList<>();
+        if (content instanceof String text) {
+            if (!text.isEmpty()) {
+                parts.add(Map.of("text", text));
+            }
+            return parts;
+        }
+        if (!(content instanceof List<?> blocks)) {
+            return parts;
+        }
+        for (Object item : blocks) {
+            if (!(item instanceof Map<?, ?> block)) {
+                continue;
+            }
+            switch (String.valueOf(block.get("type"))) {
+                case "text" -> {
+                    if (block.get("text") instanceof String text && !text.isEmpty()) {
+                        parts.add(Map.of("text", text));
+                    }
+                }
+                case "image", "document" -> {
+                    Map<String, Object> media = media(block.get("source"));
+                    if (media != null) {
+                        parts.add(media);
+                    }
+                }
+                case "tool_use" -> {
+                    String name = String.valueOf(block.get("name"));
+                    toolNames.put(String.valueOf(block.get("id")), name);
+                    Map<String, Object> call = new LinkedHashMap<>();
+                    call.put("name", name);
+                    call.put("args", block.get("input") != null ? block.get("input") : Map.of());
+                    parts.add(Map.of("functionCall", call));
+                }
+                case "tool_result" -> {
+                    String id = String.valueOf(block.get("tool_use_id"));
+                    String output = resultText(block.get("content"));
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("name", toolNames.getOrDefault(id, id));
+                    response.put("response", Map.of(Boolean.TRUE.equals(block.get("is_error")) ? "error" : "content", output));
+                    parts.add(Map.of("functionResponse", response));
+                }
+                default -> {
+                    // thinking / redacted_thinking 等 Claude 专有块不转发
+                }
+            }
+        }
+        return parts;
+    }
+    
+    private static Map<String, Object> media(Object source) {
+        if (!(source instanceof Map<?, ?> map)) {
+            return null;
+        }
+        if ("base64".equals(map.get("type")) && map.get("data") != null) {
+            Map<String, Object> inline = new LinkedHashMap<>();
+            inline.put("mimeType", map.get("media_type"));
+            inline.put("data", map.get("data"));
+            return Map.of("inlineData", inline);
+        }
+        if ("url".equals(map.get("type")) && map.get("url") != null) {
+            return Map.of("fileData", Map.of("fileUri", map.get("url")));
+        }
+        return null;
+    }
+    
+    private static String resultText(Object content) {
+        if (content instanceof String text) {
+            return text;
+        }
+        StringBuilder text = new StringBuilder();
+        if (content instanceof List<?> blocks) {
+            for (Object block : blocks) {
+                if (block instanceof Map<?, ?> map && map.get("text") instanceof String value) {
+                    if (!text.isEmpty()) {
+                        text.append('\n');
+                    }
+                    text.append(value);
+                }
+            }
+        }
+        return text.toString();
+    }
+    
+    /**
+     * JSON Schema 转为 Gemini 支持的子集：去掉不支持的字段，["string", "null"] 形式的 type 改为 nullable
+     */
+    @SuppressWarnings("unchecked")
+    static Object schema(Object schema) {
+        if (!(schema instanceof Map<?, ?> map)) {
+            return schema;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Object value = entry.getValue();
+            if (!SCHEMA_FIELDS.contains(key)) {
+                continue;
+            }
+            switch (key) {
+                case "type" -> {
+                    if (value instanceof List<?> types) {
+                        Object nonNull = "string";
+                        for (Object type : types) {
+                            if (!"null".equals(type)) {
+                                nonNull = type;
+                                break;
+                            }
+                        }
+                        result.put("type", nonNull);
+                        if (types.contains("null")) {
+                            result.put("nullable", true);
+                        }
+                    } else {
+                        result.put("type", value);
+                    }
+                }
+                case "properties" -> {
+                    Map<String, Object> properties = new LinkedHashMap<>();
+                    if (value instanceof Map<?, ?> props) {
+                        props.forEach((name, property) -> properties.put(String.valueOf(name), schema(property)));
+                    }
+                    result.put("properties", properties);
+                }
+                case "items" -> result.put("items", schema(value));
+                case "anyOf" -> result.put("anyOf", value instanceof List<?> options
+                    ? options.stream().map(ClaudeToGeminiRequest::schema).toList()
+                    : value);
+                default -> result.put(key, value);
+            }
+        }
+        return result;
+    }
+    
+    private static Map<String, Object> generationConfig(Map<String, Object> request) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        putIfPresent(config, "maxOutputTokens", request.get("max_tokens"));
+        putIfPresent(config, "temperature", request.get("temperature"));
+        putIfPresent(config, "topP", request.get("top_p"));
+        putIfPresent(config, "topK", request.get("top_k"));
+        putIfPresent(config, "stopSequences", request.get("stop_sequences"));
+        if (request.get("thinking") instanceof Map<?, ?> thinking && "enabled".equals(thinking.get("type"))
+                && thinking.get("budget_tokens") != null) {
+            config.put("thinkingConfig", Map.of("thinkingBudget", thinking.get("budget_tokens")));
+        }
+        return config;
+    }
+    
+    private static void putIfPresent(Map<String, Object> target, String key, Object value) {
+        if (value != null) {
+            target.put(key, value);
+        }
+    }
+}
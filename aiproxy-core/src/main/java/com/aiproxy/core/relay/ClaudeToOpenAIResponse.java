@@ -0,0 +1,290 @@
+package com.aiproxy.core.relay;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claude Messages 响应转换为 OpenAI Chat Completions 响应
+ * <p>
+ * 流式转换逐个事件进行、不缓存完整响应：text_delta 转为 content 增量，tool_use 块转为 tool_calls 增量，
+ * message_delta 携带 finish_reason，message_stop 之后发送 [DONE]。一个实例对应一次流式响应，不可复用。
+ */
+@Slf4j
+public final class ClaudeToOpenAIResponse {
+    
+    private static final String DONE = "[DONE]";
+    
+    private final String requestedModel;
+    private final boolean includeUsage;
+    private final ObjectMapper objectMapper;
+    private final long created = System.currentTimeMillis() / 1000;
+    
+    private String id = "chatcmpl-relay";
+    private String model;
+    private int toolCallIndex = -1;
+    private boolean toolBlockOpen;
+    private boolean done;
+    private JsonNode inputUsage;
+    private int outputTokens;
+    
+    public ClaudeToOpenAIResponse(String requestedModel, boolean includeUsage, ObjectMapper objectMapper) {
+        this.requestedModel = requestedModel;
+        this.model = requestedModel;
+        this.includeUsage = includeUsage;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * 转换一个 Claude SSE 事件；ping、thinking 等没有对应格式的事件不输出
+     */
+    public List<ServerSentEvent<String>> onEvent(ServerSentEvent<String> event) {
+        List<ServerSentEvent<String>> chunks = new ArrayList<>();
+        if (done || event.data() == null) {
+            return chunks;
+        }
+        
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(event.data());
+        } catch (JsonProcessingException e) {
+            log.debug("Skipping unparsable Claude event: {}", e.getMessage());
+            return chunks;
+        }
+        String type = "error".equals(event.event()) ? "error" : node.path("type").asText();
+        
+        switch (type) {
+            case "message_start" -> {
+                JsonNode message = node.path("message");
+                if (message.hasNonNull("id")) {
+                    id = "chatcmpl-" + message.get("id").asText();
+                }
+                if (message.hasNonNull("model")) {
+                    model = message.get("model").asText();
+                }
+                inputUsage = message.path("usage");
+                chunks.add(chunk(fields("role", "assistant", "content", ""), null));
+            }
+            case "content_block_start" -> {
+                JsonNode block = node.path("content_block");
+                toolBlockOpen = "tool_use".equals(block.path("type").asText());
+                if (toolBlockOpen) {
+                    toolCallIndex++;
+                    Map<String, Object> toolCall = fields(
+                        "index", toolCallIndex,
+                        "id", block.path("id").asText(),
+                        "type", "function",
+                        "function", fields("name", block.path("name").asText(), "arguments", ""));
+                    chunks.add(chunk(fields("tool_calls", List.of(toolCall)), null));
+                }
+            }
+            case "content_block_delta" -> {
+                JsonNode delta = node.path("delta");
+                String deltaType = delta.path("type").asText();
+                if ("text_delta".equals(deltaType)) {
+                    chunks.add(chunk(fields("content", delta.path("text").asText()), null));
+                } else if ("input_json_delta".equals(deltaType) && toolBlockOpen) {
+                    Map<String, Object> toolCall = fields(
+                        "index", toolCallIndex,
+                        "function", fields("arguments", delta.path("partial_json").asText()));
+                    chunks.add(chunk(fields("tool_calls", List.of(toolCall)), null));
+                }
+            }
+            case "content_block_stop" -> toolBlockOpen = false;
+            case "message_delta" -> {
+                if (node.path("usage").has("output_tokens")) {
+                    outputTokens = node.path("usage").get("output_tokens").asInt();
+                }
+                String stopReason = node.path("delta").path("stop_reason").asText(null);
+                if (stopReason != null) {
+                    chunks.add(chunk(fields(), finishReason(stopReason)));
+                }
+            }
+            case "message_stop" -> {
+                if (includeUsage) {
+                    Map<String, Object> usageChunk = chunkEnvelope();
+                    usageChunk.put("choices", List.of());
+                    usageChunk.put("usage", usage(inputUsage, outputTokens));
+                    chunks.add(data(toJson(usageChunk)));
+                }
+                done = true;
+                chunks.add(data(DONE));
+            }
+            case "error" -> {
+                done = true;
+                chunks.add(data(toJson(errorBody(node))));
+                chunks.add(data(DONE));
+            }
+            default -> {
+                // ping 等事件忽略
+            }
+        }
+        return chunks;
+    }
+    
+    /**
+     * 上游未发送 message_stop（中途断开等）时补发 [DONE]
+     */
+    public List<ServerSentEvent<String>> finish() {
+        if (done) {
+            return List.of();
+        }
+        done = true;
+        return List.of(data(DONE));
+    }
+    
+    /**
+     * 非流式响应对应的 HTTP 状态码：正常响应为 200；错误体带有上游状态码时沿用，否则按错误类型映射
+     */
+    public static int httpStatus(String body, ObjectMapper objectMapper) {
+        if (!body.contains("\"error\"")) {
+            return 200;
+        }
+        try {
+            JsonNode error = objectMapper.readTree(body).path("error");
+            if (!error.isObject()) {
+                return 200;
+            }
+            int status = error.path("status").asInt();
+            if (status >= 400 && status < 600) {
+                return status;
+            }
+            return switch (error.path("type").asText()) {
+                case "invalid_request_error" -> 400;
+                case "authentication_error" -> 401;
+                case "permission_error" -> 403;
+                case "not_found_error" -> 404;
+                case "request_too_large" -> 413;
+                case "rate_limit_error" -> 429;
+                case "overloaded_error" -> 503;
+                default -> 502;
+            };
+        } catch (JsonProcessingException e) {
+            return 502;
+        }
+    }
+    
+    /**
+     * 非流式响应整体转换；中转错误体原样返回
+     */
+    public static String translate(String body, String requestedModel, ObjectMapper objectMapper) {
+        try {
+            JsonNode response = objectMapper.readTree(body);
+            if (response.has("error")) {
+                return objectMapper.writeValueAsString(errorBody(response));
+            }
+            
+            StringBuilder text = new StringBuilder();
+            List<Map<String, Object>> toolCalls = new ArrayList<>();
+            for (JsonNode block : response.path("content")) {
+                String type = block.path("type").asText();
+                if ("text".equals(type)) {
+                    text.append(block.path("text").asText());
+                } else if ("tool_use".equals(type)) {
+                    toolCalls.add(fields(
+                        "id", block.path("id").asText(),
+                        "type", "function",
+                        "function", fields(
+                            "name", block.path("name").asText(),
+                            "arguments", objectMapper.writeValueAsString(block.path("input")))));
+                }
+            }
+            
+            Map<String, Object> message = fields("role", "assistant", "content", text.isEmpty() && !toolCalls.isEmpty() ? null : text.toString());
+            if (!toolCalls.isEmpty()) {
+                message.put("tool_calls", toolCalls);
+            }
+            String stopReason = response.path("stop_reason").asText(null);
+            Map<String, Object> choice = fields(
+                "index", 0,
+                "message", message,
+                "finish_reason", stopReason != null ? finishReason(stopReason) : "stop");
+            
+            Map<String, Object> completion = fields(
+                "id", response.hasNonNull("id") ? "chatcmpl-" + response.get("id").asText() : "chatcmpl-relay",
+                "object", "chat.completion",
+                "created", System.currentTimeMillis() / 1000,
+                "model", response.hasNonNull("model") ? response.get("model").asText() : requestedModel,
+                "choices", List.of(choice),
+                "usage", usage(response.path("usage"), response.path("usage").path("output_tokens").asInt()));
+            return objectMapper.writeValueAsString(completion);
+        } catch (JsonProcessingException e) {
+            return "{\"error\":{\"message\":\"Invalid response from upstream\",\"type\":\"relay_error\"}}";
+        }
+    }
+    
+    private ServerSentEvent<String> chunk(Map<String, Object> delta, String finishReason) {
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put("index", 0);
+        choice.put("delta", delta);
+        choice.put("finish_reason", finishReason);
+        Map<String, Object> chunk = chunkEnvelope();
+        chunk.put("choices", List.of(choice));
+        return data(toJson(chunk));
+    }
+    
+    private Map<String, Object> chunkEnvelope() {
+        return fields(
+            "id", id,
+            "object", "chat.completion.chunk",
+            "created", created,
+            "model", model != null ? model : requestedModel);
+    }
+    
+    /**
+     * Claude 的 input_tokens 不含缓存部分，OpenAI 的 prompt_tokens 包含
+     */
+    private static Map<String, Object> usage(JsonNode inputUsage, int outputTokens) {
+        int cacheRead = inputUsage == null ? 0 : inputUsage.path("cache_read_input_tokens").asInt();
+        int promptTokens = inputUsage == null ? 0 : inputUsage.path("input_tokens").asInt()
+            + inputUsage.path("cache_creation_input_tokens").asInt() + cacheRead;
+        return fields(
+            "prompt_tokens", promptTokens,
+            "completion_tokens", outputTokens,
+            "total_tokens", promptTokens + outputTokens,
+            "prompt_tokens_details", fields("cached_tokens", cacheRead));
+    }
+    
+    private static String finishReason(String stopReason) {
+        return switch (stopReason) {
+            case "max_tokens" -> "length";
+            case "tool_use" -> "tool_calls";
+            case "refusal" -> "content_filter";
+            default -> "stop";
+        };
+    }
+    
+    private static Map<String, Object> errorBody(JsonNode node) {
+        JsonNode error = node.path("error");
+        return fields("error", fields(
+            "message", error.path("message").asText("Upstream error"),
+            "type", error.path("type").asText("relay_error")));
+    }
+    
+    private static Map<String, Object> fields(Object... keyValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+    
+    private static ServerSentEvent<String> data(String data) {
+        return ServerSentEvent.<String>builder().data(data).build();
+    }
+    
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize OpenAI chunk", e);
+        }
+    }
+}
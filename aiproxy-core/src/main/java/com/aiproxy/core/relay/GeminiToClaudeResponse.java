@@ -0,0 +1,288 @@
+package com.aiproxy.core.relay;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Gemini 响应转换为 Claude Messages 响应
+ * <p>
+ * 流式转换逐个分片进行、不缓存完整响应：每个 Gemini 分片立即转换成对应的
+ * content_block_start / content_block_delta 事件，message_delta 和 message_stop 在上游结束时补发。
+ * 一个实例对应一次流式响应，不可复用。
+ */
+@Slf4j
+public final class GeminiToClaudeResponse {
+    
+    private final String model;
+    private final ObjectMapper objectMapper;
+    private final String messageId = newId("msg_");
+    
+    private boolean started;
+    private boolean failed;
+    private int blockIndex = -1;
+    private boolean textBlockOpen;
+    private boolean toolUsed;
+    private String stopReason;
+    private int inputTokens;
+    private int outputTokens;
+    
+    public GeminiToClaudeResponse(String model, ObjectMapper objectMapper) {
+        this.model = model;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * 转换一个 Gemini SSE 事件；error 事件转换为 Claude 的 error 事件，之后不再补发结束事件
+     */
+    public List<ServerSentEvent<String>> onEvent(ServerSentEvent<String> event) {
+        List<ServerSentEvent<String>> events = new ArrayList<>();
+        if (failed || event.data() == null) {
+            return events;
+        }
+        if ("error".equals(event.event())) {
+            failed = true;
+            events.add(event("error", errorBody(event.data())));
+            return events;
+        }
+        
+        JsonNode chunk;
+        try {
+            chunk = objectMapper.readTree(event.data());
+        } catch (JsonProcessingException e) {
+            log.debug("Skipping unparsable Gemini chunk: {}", e.getMessage());
+            return events;
+        }
+        readUsage(chunk);
+        if (!started) {
+            events.add(messageStart());
+        }
+        
+        JsonNode candidate = chunk.path("candidates").path(0);
+        for (JsonNode part : candidate.path("content").path("parts")) {
+            // 思考内容没有 Claude 要求的签名，不转发
+            if (part.path("thought").asBoolean(false)) {
+                continue;
+            }
+            if (part.hasNonNull("functionCall")) {
+                closeTextBlock(events);
+                addToolUse(events, part.get("functionCall"));
+            } else if (part.hasNonNull("text") && !part.get("text").asText().isEmpty()) {
+                if (!textBlockOpen) {
+                    blockIndex++;
+                    textBlockOpen = true;
+                    events.add(event("content_block_start", fields(
+                        "type", "content_block_start",
+                        "index", blockIndex,
+                        "content_block", fields("type", "text", "text", ""))));
+                }
+                events.add(event("content_block_delta", fields(
+                    "type", "content_block_delta",
+                    "index", blockIndex,
+                    "delta", fields("type", "text_delta", "text", part.get("text").asText()))));
+            }
+        }
+        if (candidate.hasNonNull("finishReason")) {
+            stopReason = stopReason(candidate.get("finishReason").asText());
+        }
+        return events;
+    }
+    
+    /**
+     * 上游正常结束时补发的事件
+     */
+    public List<ServerSentEvent<String>> finish() {
+        List<ServerSentEvent<String>> events = new ArrayList<>();
+        if (failed) {
+            return events;
+        }
+        if (!started) {
+            events.add(messageStart());
+        }
+        closeTextBlock(events);
+        
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("stop_reason", finalStopReason());
+        delta.put("stop_sequence", null);
+        events.add(event("message_delta", fields(
+            "type", "message_delta",
+            "delta", delta,
+            "usage", fields("output_tokens", outputTokens))));
+        events.add(event("message_stop", fields("type", "message_stop")));
+        return events;
+    }
+    
+    /**
+     * 非流式响应整体转换；Gemini 错误体转换为中转的错误格式
+     */
+    public static String translate(String body, String model, ObjectMapper objectMapper) {
+        try {
+            JsonNode response = objectMapper.readTree(body);
+            if (response.has("error")) {
+                return objectMapper.writeValueAsString(errorBody(response));
+            }
+            
+            GeminiToClaudeResponse translator = new GeminiToClaudeResponse(model, objectMapper);
+            translator.readUsage(response);
+            List<Map<String, Object>> content = new ArrayList<>();
+            JsonNode candidate = response.path("candidates").path(0);
+            for (JsonNode part : candidate.path("content").path("parts")) {
+                if (part.path("thought").asBoolean(false)) {
+                    continue;
+                }
+                if (part.hasNonNull("functionCall")) {
+                    translator.toolUsed = true;
+                    content.add(toolUseBlock(part.get("functionCall"), objectMapper));
+                } else if (part.hasNonNull("text")) {
+                    content.add(fields("type", "text", "text", part.get("text").asText()));
+                }
+            }
+            if (candidate.hasNonNull("finishReason")) {
+                translator.stopReason = stopReason(candidate.get("finishReason").asText());
+            }
+            
+            Map<String, Object> message = translator.message(content);
+            message.put("stop_reason", translator.finalStopReason());
+            message.put("usage", fields("input_tokens", translator.inputTokens, "output_tokens", translator.outputTokens));
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            return "{\"error\":{\"message\":\"Invalid response from failover provider\",\"type\":\"relay_error\"}}";
+        }
+    }
+    
+    private void addToolUse(List<ServerSentEvent<String>> events, JsonNode functionCall) {
+        toolUsed = true;
+        blockIndex++;
+        Map<String, Object> block = toolUseBlock(functionCall, objectMapper);
+        // 参数在 start 中为空对象，完整 JSON 通过一次 input_json_delta 发送
+        Map<String, Object> start = new LinkedHashMap<>(block);
+        start.put("input", Map.of());
+        events.add(event("content_block_start", fields(
+            "type", "content_block_start",
+            "index", blockIndex,
+            "content_block", start)));
+        events.add(event("content_block_delta", fields(
+            "type", "content_block_delta",
+            "index", blockIndex,
+            "delta", fields("type", "input_json_delta", "partial_json", toJson(block.get("input"))))));
+        events.add(event("content_block_stop", fields("type", "content_block_stop", "index", blockIndex)));
+    }
+    
+    private static Map<String, Object> toolUseBlock(JsonNode functionCall, ObjectMapper objectMapper) {
+        Map<String, Object> block = new LinkedHashMap<>();
+        block.put("type", "tool_use");
+        block.put("id", functionCall.hasNonNull("id") ? "toolu_" + functionCall.get("id").asText() : newId("toolu_"));
+        block.put("name", functionCall.path("name").asText());
+        block.put("input", functionCall.has("args")
+            ? objectMapper.convertValue(functionCall.get("args"), Map.class)
+            : Map.of());
+        return block;
+    }
+    
+    private void closeTextBlock(List<ServerSentEvent<String>> events) {
+        if (textBlockOpen) {
+            textBlockOpen = false;
+            events.add(event("content_block_stop", fields("type", "content_block_stop", "index", blockIndex)));
+        }
+    }
+    
+    private ServerSentEvent<String> messageStart() {
+        started = true;
+        Map<String, Object> message = message(List.of());
+        message.put("usage", fields("input_tokens", inputTokens, "output_tokens", 0));
+        return event("message_start", fields("type", "message_start", "message", message));
+    }
+    
+    private Map<String, Object> message(List<Map<String, Object>> content) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("id", messageId);
+        message.put("type", "message");
+        message.put("role", "assistant");
+        message.put("model", model);
+        message.put("content", content);
+        message.put("stop_reason", null);
+        message.put("stop_sequence", null);
+        return message;
+    }
+    
+    private void readUsage(JsonNode chunk) {
+        JsonNode usage = chunk.path("usageMetadata");
+        if (usage.has("promptTokenCount")) {
+            inputTokens = usage.get("promptTokenCount").asInt();
+        }
+        if (usage.has("candidatesTokenCount") || usage.has("thoughtsTokenCount")) {
+            outputTokens = usage.path("candidatesTokenCount").asInt() + usage.path("thoughtsTokenCount").asInt();
+        }
+    }
+    
+    private String finalStopReason() {
+        if (toolUsed && (stopReason == null || "end_turn".equals(stopReason))) {
+            return "tool_use";
+        }
+        return stopReason != null ? stopReason : "end_turn";
+    }
+    
+    private static String stopReason(String finishReason) {
+        return switch (finishReason) {
+            case "MAX_TOKENS" -> "max_tokens";
+            case "SAFETY", "RECITATION", "BLOCKLIST", "PROHIBITED_CONTENT", "SPII" -> "refusal";
+            default -> "end_turn";
+        };
+    }
+    
+    private Map<String, Object> errorBody(String data) {
+        try {
+            return errorBody(objectMapper.readTree(data));
+        } catch (JsonProcessingException e) {
+            return fields("error", fields("message", data, "type", "relay_error"));
+        }
+    }
+    
+    private static Map<String, Object> errorBody(JsonNode error) {
+        String message = error.path("error").path("message").asText("Failover provider error");
+        Map<String, Object> body = fields("message", message, "type", "relay_error");
+        // 保留目标服务商的状态码，与 Claude 中转的错误体一致
+        if (error.path("error").path("code").isInt()) {
+            body.put("status", error.path("error").path("code").intValue());
+        }
+        return fields("error", body);
+    }
+    
+    /**
+     * 按书写顺序组装字段，type 排在最前，与 Claude 原生事件一致
+     */
+    private static Map<String, Object> fields(Object... keyValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+    
+    private ServerSentEvent<String> event(String type, Map<String, Object> data) {
+        return ServerSentEvent.<String>builder()
+            .event(type)
+            .data(toJson(data))
+            .build();
+    }
+    
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize Claude event", e);
+        }
+    }
+    
+    private static String newId(String prefix) {
+        return prefix + UUID.randomUUID().toString().replace("-", "");
+    }
+}
@@ -0,0 +1,235 @@
+package com.aiproxy.core.relay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI Chat Completions 请求转换为 Claude Messages 请求
+ * <p>
+ * system / developer 消息合并为顶层 system，tool 消息转换为 user 消息中的 tool_result，
+ * 连续的同角色消息合并（Claude 要求 user / assistant 交替）。
+ */
+public final class OpenAIToClaudeRequest {
+    
+    /**
+     * OpenAI 的 max_tokens 可选，Claude 必填
+     */
+    static final int DEFAULT_MAX_TOKENS = 4096;
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private OpenAIToClaudeRequest() {
+    }
+    
+    public static Map<String, Object> translate(Map<String, Object> request) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("model", request.get("model"));
+        
+        Object maxTokens = request.get("max_completion_tokens") != null
+            ? request.get("max_completion_tokens")
+            : request.get("max_tokens");
+        result.put("max_tokens", maxTokens != null ? maxTokens : DEFAULT_MAX_TOKENS);
+        
+        StringBuilder system = new StringBuilder();
+        List<Map<String, Object>> messages = new ArrayList<>();
+        if (request.get("messages") instanceof List<?> list) {
+            for (Object item : list) {
+                if (item instanceof Map<?, ?> message) {
+                    addMessage(message, system, messages);
+                }
+            }
+        }
+        if (!system.isEmpty()) {
+            result.put("system", system.toString());
+        }
+        result.put("messages", messages);
+        
+        // OpenAI 的 temperature 范围是 0-2，Claude 是 0-1
+        if (request.get("temperature") instanceof Number temperature) {
+            result.put("temperature", Math.min(1.0, temperature.doubleValue()));
+        }
+        if (request.get("top_p") != null) {
+            result.put("top_p", request.get("top_p"));
+        }
+        if (request.get("stop") instanceof String stop) {
+            result.put("stop_sequences", List.of(stop));
+        } else if (request.get("stop") instanceof List<?> stops && !stops.isEmpty()) {
+            result.put("stop_sequences", stops);
+        }
+        
+        if (request.get("tools") instanceof List<?> tools && !tools.isEmpty()) {
+            List<Map<String, Object>> claudeTools = new ArrayList<>();
+            for (Object tool : tools) {
+                if (tool instanceof Map<?, ?> definition && definition.get("function") instanceof Map<?, ?> function) {
+                    Map<String, Object> claudeTool = new LinkedHashMap<>();
+                    claudeTool.put("name", function.get("name"));
+                    if (function.get("description") != null) {
+                        claudeTool.put("description", function.get("description"));
+                    }
+                    claudeTool.put("input_schema", function.get("parameters") != null
+                        ? function.get("parameters")
+                        : Map.of("type", "object", "properties", Map.of()));
+                    claudeTools.add(claudeTool);
+                }
+            }
+            if (!claudeTools.isEmpty()) {
+                result.put("tools", claudeTools);
+            }
+        }
+        
+        Object toolChoice = request.get("tool_choice");
+        if ("none".equals(toolChoice)) {
+            result.put("tool_choice", Map.of("type", "none"));
+        } else if ("required".equals(toolChoice)) {
+            result.put("tool_choice", Map.of("type", "any"));
+        } else if (toolChoice instanceof Map<?, ?> choice && choice.get("function") instanceof Map<?, ?> function) {
+            result.put("tool_choice", Map.of("type", "tool", "name", function.get("name")));
+        }
+        
+        if (request.get("user") instanceof String user && !user.isBlank()) {
+            result.put("metadata", Map.of("user_id", user));
+        }
+        result.put("stream", Boolean.TRUE.equals(request.get("stream")));
+        return result;
+    }
+    
+    private static void addMessage(Map<?, ?> message, StringBuilder system, List<Map<String, Object>> messages) {
+        String role = String.valueOf(message.get("role"));
+        switch (role) {
+            case "system", "developer" -> {
+                String text = text(message.get("content"));
+                if (!text.isEmpty()) {
+                    if (!system.isEmpty()) {
+                        system.append("\n\n");
+                    }
+                    system.append(text);
+                }
+            }
+            case "tool" -> {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("type", "tool_result");
+                result.put("tool_use_id", message.get("tool_call_id"));
+                result.put("content", text(message.get("content")));
+                append(messages, "user", List.of(result));
+            }
+            case "assistant" -> {
+                List<Map<String, Object>> blocks = contentBlocks(message.get("content"));
+                if (message.get("tool_calls") instanceof List<?> toolCalls) {
+                    for (Object call : toolCalls) {
+                        if (call instanceof Map<?, ?> toolCall && toolCall.get("function") instanceof Map<?, ?> function) {
+                            Map<String, Object> toolUse = new LinkedHashMap<>();
+                            toolUse.put("type", "tool_use");
+                            toolUse.put("id", toolCall.get("id"));
+                            toolUse.put("name", function.get("name"));
+                            toolUse.put("input", arguments(function.get("arguments")));
+                            blocks.add(toolUse);
+                        }
+                    }
+                }
+                append(messages, "assistant", blocks);
+            }
+            default -> append(messages, "user", contentBlocks(message.get("content")));
+        }
+    }
+    
+    private static void append(List<Map<String, Object>> messages, String role, List<Map<String, Object>> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        if (!messages.isEmpty()) {
+            Map<String, Object> last = messages.get(messages.size() - 1);
+            if (role.equals(last.get("role"))) {
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> content = (List<Map<String, Object>>) last.get("content");
+                content.addAll(blocks);
+                return;
+            }
+        }
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("role", role);
+        message.put("content", new ArrayList<>(blocks));
+        messages.add(message);
+    }
+    
+    private static List<Map<String, Object>> contentBlocks(Object content) {
+        List<Map<String, Object>> blocks = new ArrayList<>();
+        if (content instanceof String text) {
+            if (!text.isEmpty()) {
+                blocks.add(textBlock(text));
+            }
+        } else if (content instanceof List<?> parts) {
+            for (Object item : parts) {
+                if (!(item instanceof Map<?, ?> part)) {
+                    continue;
+                }
+                if ("text".equals(part.get("type")) && part.get("text") instanceof String text && !text.isEmpty()) {
+                    blocks.add(textBlock(text));
+                } else if ("image_url".equals(part.get("type")) && part.get("image_url") instanceof Map<?, ?> image
+                        && image.get("url") instanceof String url) {
+                    blocks.add(imageBlock(url));
+                }
+            }
+        }
+        return blocks;
+    }
+    
+    private static Map<String, Object> textBlock(String text) {
+        Map<String, Object> block = new LinkedHashMap<>();
+        block.put("type", "text");
+        block.put("text", text);
+        return block;
+    }
+    
+    /**
+     * data:image/png;base64,... 转为 base64 图片，其他地址作为 url 图片
+     */
+    private static Map<String, Object> imageBlock(String url) {
+        Map<String, Object> source = new LinkedHashMap<>();
+        int comma = url.indexOf(',');
+        if (url.startsWith("data:") && comma > 0 && url.substring(0, comma).endsWith(";base64")) {
+            source.put("type", "base64");
+            source.put("media_type", url.substring(5, comma - ";base64".length()));
+            source.put("data", url.substring(comma + 1));
+        } else {
+            source.put("type", "url");
+            source.put("url", url);
+        }
+        Map<String, Object> block = new LinkedHashMap<>();
+        block.put("type", "image");
+        block.put("source", source);
+        return block;
+    }
+    
+    private static String text(Object content) {
+        if (content instanceof String text) {
+            return text;
+        }
+        StringBuilder text = new StringBuilder();
+        if (content instanceof List<?> parts) {
+            for (Object part : parts) {
+                if (part instanceof Map<?, ?> map && map.get("text") instanceof String value) {
+                    text.append(value);
+                }
+            }
+        }
+        return text.toString();
+    }
+    
+    /**
+     * tool_calls 的参数是 JSON 字符串，Claude 的 tool_use.input 需要对象
+     */
+    private static Object arguments(Object arguments) {
+        if (arguments instanceof String json && !json.isBlank()) {
+            try {
+                return OBJECT_MAPPER.readValue(json, Map.class);
+            } catch (Exception e) {
+                return Map.of();
+            }
+        }
+        return arguments instanceof Map<?, ?> ? arguments : Map.of();
+    }
+}
@@ -0,0 +1,24 @@
+package com.aiproxy.core.relay;
+
+import com.aiproxy.common.enums.AIProvider;
+import com.aiproxy.common.model.ApiKey;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * 上游服务商中转
+ * <p>
+ * 实现方共用账号池（按服务商分池）、重试、RelayMetrics、访问日志和请求日志；
+ * 请求体为该服务商的原生格式，上游模型取自请求体的 model 字段。
+ */
+public interface ProviderRelay {
+    
+    AIProvider getProvider();
+    
+    Flux<ServerSentEvent<String>> relayStreamRequest(Map<String, Object> request, ApiKey apiKey, String sessionId);
+    
+    Mono<String> relayNormalRequest(Map<String, Object> request, ApiKey apiKey, String sessionId);
+}
@@ -0,0 +1,43 @@
+package com.aiproxy.core.relay;
+
+import com.aiproxy.common.enums.AIProvider;
+import com.aiproxy.common.exception.RelayException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按服务商查找中转实现
+ */
+@Component
+@Slf4j
+public class ProviderRelays {
+    
+    private final Map<AIProvider, ProviderRelay> relays = new EnumMap<>(AIProvider.class);
+    
+    public ProviderRelays(List<ProviderRelay> providerRelays) {
+        for (ProviderRelay relay : providerRelays) {
+            ProviderRelay previous = relays.put(relay.getProvider(), relay);
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate relay for provider " + relay.getProvider() + ": "
+                    + previous.getClass().getSimpleName() + ", " + relay.getClass().getSimpleName());
+            }
+        }
+        log.info("Provider relays: {}", relays.keySet());
+    }
+    
+    public boolean supports(AIProvider provider) {
+        return relays.containsKey(provider);
+    }
+    
+    public ProviderRelay get(AIProvider provider) {
+        ProviderRelay relay = relays.get(provider);
+        if (relay == null) {
+            throw new RelayException("Provider " + provider + " is not supported");
+        }
+        return relay;
+    }
+}
@@ -0,0 +1,76 @@
+package com.aiproxy.core.routing;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * 带虚拟节点的一致性哈希环
+ * 
+ * 环本身是不可变的，账号集合变化时整体重建。
+ */
+public class ConsistentHashRing {
+    
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> members;
+    
+    public ConsistentHashRing(Collection<String> memberIds, int virtualNodes) {
+        this.members = Set.copyOf(memberIds);
+        int replicas = Math.max(1, virtualNodes);
+        for (String id : members) {
+            for (int i = 0; i < replicas; i++) {
+                byte[] key = (id + "#" + i).getBytes(StandardCharsets.UTF_8);
+                ring.put(MurmurHash3.hash128x64(key)[0], id);
+            }
+        }
+    }
+    
+    public boolean hasSameMembers(Collection<String> memberIds) {
+        return members.size() == memberIds.size() && members.containsAll(memberIds);
+    }
+    
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+    
+    /**
+     * 从哈希位置顺时针遍历环，返回第一个满足条件的成员
+     */
+    public String locate(long hash, Predicate<String> acceptable) {
+        for (String id : walk(hash)) {
+            if (acceptable.test(id)) {
+                return id;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 从哈希位置顺时针遍历环，按首次出现顺序返回去重后的成员
+     */
+    public List<String> walk(long hash) {
+        Set<String> ordered = new LinkedHashSet<>();
+        collect(ring.tailMap(hash, true), ordered);
+        if (ordered.size() < members.size()) {
+            collect(ring.headMap(hash, false), ordered);
+        }
+        return new ArrayList<>(ordered);
+    }
+    
+    private void collect(Map<Long, String> segment, Set<String> ordered) {
+        for (String id : segment.values()) {
+            if (ordered.add(id) && ordered.size() == members.size()) {
+                return;
+            }
+        }
+    }
+}
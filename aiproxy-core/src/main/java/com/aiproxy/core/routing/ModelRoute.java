@@ -0,0 +1,68 @@
+package com.aiproxy.core.routing;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 路由表中的一条模型路由：允许的账号集合和本节点的并发上限
+ */
+public final class ModelRoute {
+    
+    /**
+     * 未匹配任何路由的模型：所有账号可用，不限并发
+     */
+    public static final ModelRoute UNRESTRICTED = new ModelRoute("default", Set.of(), 0);
+    
+    private final String name;
+    private final Set<String> accounts;
+    private final int maxConcurrency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    public ModelRoute(String name, Set<String> accounts, int maxConcurrency) {
+        this.name = name;
+        this.accounts = Set.copyOf(accounts);
+        this.maxConcurrency = maxConcurrency;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+    
+    /**
+     * 账号是否属于该路由的账号池（按账号ID或邮箱匹配）
+     */
+    public boolean allows(String accountId, String email) {
+        return accounts.isEmpty() || accounts.contains(accountId) || (email != null && accounts.contains(email));
+    }
+    
+    /**
+     * 占用一个并发名额，达到上限时返回 false；成功后必须调用 {@link #release()}
+     */
+    public boolean tryAcquire() {
+        if (maxConcurrency <= 0) {
+            inFlight.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxConcurrency) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+}
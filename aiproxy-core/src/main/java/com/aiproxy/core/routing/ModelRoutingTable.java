@@ -0,0 +1,77 @@
+package com.aiproxy.core.routing;
+
+import com.aiproxy.core.config.ModelRoutingConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 模型路由表（relay.claude.models），在选号之前查询
+ * <p>
+ * 别名在请求改写流水线中替换为具体模型ID；这里按具体ID精确匹配，其次按最长前缀匹配，
+ * 得到该模型可用的账号池和并发上限，避免 Opus 大流量占满为 Haiku 预留的账号。
+ */
+@Component
+@Slf4j
+public class ModelRoutingTable {
+    
+    private final Map<String, String> aliases = new LinkedHashMap<>();
+    private final Map<String, ModelRoute> byModel = new HashMap<>();
+    private final List<Map.Entry<String, ModelRoute>> byPrefix = new ArrayList<>();
+    
+    public ModelRoutingTable(ModelRoutingConfig config, MeterRegistry meterRegistry) {
+        config.getModels().forEach((name, rule) -> {
+            ModelRoute route = new ModelRoute(name, Set.copyOf(rule.getAccounts()), rule.getMaxConcurrency());
+            if (rule.getId() != null && !rule.getId().isBlank()) {
+                byModel.put(rule.getId(), route);
+                rule.getAliases().forEach(alias -> aliases.put(alias, rule.getId()));
+            }
+            rule.getMatch().forEach(prefix -> byPrefix.add(Map.entry(prefix, route)));
+            
+            Gauge.builder("relay.model.inflight", route, ModelRoute::getInFlight)
+                .description("In-flight requests per model route on this node")
+                .tag("route", name)
+                .register(meterRegistry);
+            log.info("Model route {}: id={}, aliases={}, match={}, accounts={}, maxConcurrency={}", 
+                name, rule.getId(), rule.getAliases(), rule.getMatch(), 
+                rule.getAccounts().isEmpty() ? "all" : rule.getAccounts(), rule.getMaxConcurrency());
+        });
+        // 最长前缀优先
+        byPrefix.sort(Comparator.comparingInt((Map.Entry<String, ModelRoute> entry) -> entry.getKey().length()).reversed());
+    }
+    
+    /**
+     * 别名 -> 具体模型ID，供请求改写流水线使用
+     */
+    public Map<String, String> getAliases() {
+        return aliases;
+    }
+    
+    /**
+     * 查找模型所属路由，未配置时返回 {@link ModelRoute#UNRESTRICTED}
+     */
+    public ModelRoute resolve(String model) {
+        if (model == null) {
+            return ModelRoute.UNRESTRICTED;
+        }
+        ModelRoute route = byModel.get(model);
+        if (route != null) {
+            return route;
+        }
+        for (Map.Entry<String, ModelRoute> entry : byPrefix) {
+            if (model.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return ModelRoute.UNRESTRICTED;
+    }
+}
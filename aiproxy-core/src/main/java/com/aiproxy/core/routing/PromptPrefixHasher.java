@@ -0,0 +1,80 @@
+package com.aiproxy.core.routing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 计算请求提示词前缀的哈希值
+ * 
+ * 哈希内容为 system 字段 + 前 N 条 messages，忽略 cache_control，
+ * 因为客户端会在多轮对话中移动缓存断点，而上游缓存命中只取决于内容本身。
+ */
+public class PromptPrefixHasher {
+    
+    private static final String CACHE_CONTROL = "cache_control";
+    
+    private PromptPrefixHasher() {}
+    
+    /**
+     * @return 64位前缀哈希；请求中没有 system 和 messages 时返回 null
+     */
+    public static Long hash(Map<String, Object> request, int messageBlocks) {
+        Object system = request.get("system");
+        Object messages = request.get("messages");
+        if (system == null && !(messages instanceof List<?> list && !list.isEmpty())) {
+            return null;
+        }
+        
+        MessageDigest digest = newDigest();
+        feed(digest, system);
+        digest.update((byte) 0x1e);
+        if (messages instanceof List<?> list) {
+            int limit = Math.min(Math.max(0, messageBlocks), list.size());
+            for (int i = 0; i < limit; i++) {
+                feed(digest, list.get(i));
+            }
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+    
+    private static void feed(MessageDigest digest, Object node) {
+        if (node instanceof Map<?, ?> map) {
+            digest.update((byte) '{');
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (CACHE_CONTROL.equals(entry.getKey())) {
+                    continue;
+                }
+                feedString(digest, String.valueOf(entry.getKey()));
+                feed(digest, entry.getValue());
+            }
+            digest.update((byte) '}');
+        } else if (node instanceof List<?> list) {
+            digest.update((byte) '[');
+            for (Object item : list) {
+                feed(digest, item);
+            }
+            digest.update((byte) ']');
+        } else if (node != null) {
+            feedString(digest, node.toString());
+        } else {
+            digest.update((byte) 0);
+        }
+    }
+    
+    private static void feedString(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0x1f);
+    }
+    
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not found", e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.aiproxy.core.routing;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 上游响应头中的限流信息（retry-after 与 anthropic-ratelimit-*）
+ * 
+ * @param retryAfter 上游要求的等待时间，没有则为 null
+ */
+public record RateLimitSnapshot(
+        Long requestsLimit,
+        Long requestsRemaining,
+        Instant requestsReset,
+        Long tokensLimit,
+        Long tokensRemaining,
+        Instant tokensReset,
+        Duration retryAfter,
+        Instant observedAt) {
+    
+    private static final String PREFIX = "anthropic-ratelimit-";
+    
+    public static RateLimitSnapshot fromHeaders(HttpHeaders headers) {
+        return new RateLimitSnapshot(
+            parseLong(headers.getFirst(PREFIX + "requests-limit")),
+            parseLong(headers.getFirst(PREFIX + "requests-remaining")),
+            parseInstant(headers.getFirst(PREFIX + "requests-reset")),
+            parseLong(firstPresent(headers, "tokens-limit", "input-tokens-limit")),
+            parseLong(firstPresent(headers, "tokens-remaining", "input-tokens-remaining")),
+            parseInstant(firstPresent(headers, "tokens-reset", "input-tokens-reset")),
+            parseRetryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER)),
+            Instant.now()
+        );
+    }
+    
+    public boolean hasTokenBudget() {
+        return tokensLimit != null && tokensRemaining != null && tokensLimit > 0;
+    }
+    
+    /**
+     * 剩余 token 额度比例（0~1），重置时间已过视为额度已恢复；未知返回 1
+     */
+    public double remainingTokenRatio(Instant now) {
+        if (!hasTokenBudget() || (tokensReset != null && !now.isBefore(tokensReset))) {
+            return 1.0;
+        }
+        return Math.max(0.0, Math.min(1.0, (double) tokensRemaining / tokensLimit));
+    }
+    
+    /**
+     * 根据响应计算账号应冷却到的时间点，不需要冷却返回 null
+     */
+    public Instant cooldownUntil(int statusCode) {
+        Instant until = null;
+        if (retryAfter != null && (statusCode == 429 || statusCode == 529 || statusCode == 503)) {
+            until = observedAt.plus(retryAfter);
+        }
+        if (requestsRemaining != null && requestsRemaining <= 0 && requestsReset != null) {
+            until = later(until, requestsReset);
+        }
+        if (tokensRemaining != null && tokensRemaining <= 0 && tokensReset != null) {
+            until = later(until, tokensReset);
+        }
+        if (until == null && statusCode == 429) {
+            // 429 但没有任何时间信息，取最早的重置时间
+            until = earlier(requestsReset, tokensReset);
+        }
+        return until != null && until.isAfter(observedAt) ? until : null;
+    }
+    
+    private static String firstPresent(HttpHeaders headers, String... suffixes) {
+        for (String suffix : suffixes) {
+            String value = headers.getFirst(PREFIX + suffix);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+    
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static Instant parseInstant(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    private static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return Duration.ofMillis((long) (Double.parseDouble(trimmed) * 1000));
+        } catch (NumberFormatException e) {
+            // HTTP-date 格式
+            try {
+                Instant at = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                Duration wait = Duration.between(Instant.now(), at);
+                return wait.isNegative() ? Duration.ZERO : wait;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+    
+    private static Instant later(Instant a, Instant b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isAfter(b) ? a : b;
+    }
+    
+    private static Instant earlier(Instant a, Instant b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isBefore(b) ? a : b;
+    }
+}
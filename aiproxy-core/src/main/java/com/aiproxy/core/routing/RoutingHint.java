@@ -0,0 +1,54 @@
+package com.aiproxy.core.routing;
+
+import com.aiproxy.common.enums.AIProvider;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 账号选择提示信息，用于亲和性路由；不可变，NONE 在所有请求间共享
+ */
+@Value
+@Builder
+public class RoutingHint {
+    
+    public static final RoutingHint NONE = RoutingHint.builder().build();
+    
+    /**
+     * 系统提示词 + 前 N 条消息的哈希值，为空表示不使用前缀亲和
+     */
+    private Long prefixHash;
+    
+    /**
+     * 会话粘滞键（API Key ID + 客户端会话ID），为空表示不使用会话粘滞
+     */
+    private String sessionKey;
+    
+    /**
+     * 请求模型所属的路由，为空表示不限制账号池
+     */
+    private ModelRoute modelRoute;
+    
+    /**
+     * 请求的上游服务商，为空表示 Claude
+     */
+    private AIProvider provider;
+    
+    public AIProvider getTargetProvider() {
+        return provider != null ? provider : AIProvider.CLAUDE;
+    }
+    
+    public boolean hasPrefixHash() {
+        return prefixHash != null;
+    }
+    
+    public boolean hasSessionKey() {
+        return sessionKey != null;
+    }
+    
+    /**
+     * 账号是否可以服务该请求的模型
+     */
+    public boolean allows(String accountId, String email) {
+        return modelRoute == null || modelRoute.allows(accountId, email);
+    }
+}
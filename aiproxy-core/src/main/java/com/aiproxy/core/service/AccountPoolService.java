@@ -1,10 +1,16 @@
 package com.aiproxy.core.service;
 
 import com.aiproxy.auth.service.AccountService;
+import com.aiproxy.common.enums.AIProvider;
 import com.aiproxy.common.enums.AccountStatus;
 import com.aiproxy.common.exception.RelayException;
 import com.aiproxy.common.model.Account;
 import com.aiproxy.common.model.ClaudeAccount;
+import com.aiproxy.common.tracing.RelayTracing;
+import com.aiproxy.core.config.AccountPoolConfig;
+import com.aiproxy.core.routing.ConsistentHashRing;
+import com.aiproxy.core.routing.RateLimitSnapshot;
+import com.aiproxy.core.routing.RoutingHint;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -12,57 +18,236 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
 public class AccountPoolService {
     
     private final AccountService accountService;
+    private final AccountPoolConfig accountPoolConfig;
+    private final SessionAffinityService sessionAffinityService;
+    private final SharedAccountStateService sharedAccountStateService;
+    private final RelayTracing relayTracing;
     private final Map<String, AccountHealth> healthMap = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlightMap = new ConcurrentHashMap<>();
+    private final Map<String, RateLimitSnapshot> capacityMap = new ConcurrentHashMap<>();
+    private volatile ConsistentHashRing affinityRing;
     
     @Autowired
-    public AccountPoolService(AccountService accountService) {
+    public AccountPoolService(AccountService accountService, 
+                              AccountPoolConfig accountPoolConfig,
+                              SessionAffinityService sessionAffinityService,
+                              SharedAccountStateService sharedAccountStateService,
+                              RelayTracing relayTracing) {
         this.accountService = accountService;
+        this.relayTracing = relayTracing;
+        this.accountPoolConfig = accountPoolConfig;
+        this.sessionAffinityService = sessionAffinityService;
+        this.sharedAccountStateService = sharedAccountStateService;
+        this.sharedAccountStateService.registerInFlightSource(this::getLocalInFlightSnapshot);
     }
     
     public Mono<Account> selectAccount() {
         return selectAccountWithExclusions(new java.util.HashSet<>());
     }
     
-    public Mono<Account> selectAccountWithExclusions(java.util.Set<String> excludedIds) {
-        return getAvailableAccounts()
-            .filter(account -> !excludedIds.contains(account.getId()))
+    public Mono<Account> selectAccountWithExclusions(Set<String> excludedIds) {
+        return selectAccountWithExclusions(excludedIds, RoutingHint.NONE);
+    }
+    
+    public Mono<Account> selectAccountWithExclusions(Set<String> excludedIds, RoutingHint hint) {
+        RelayTracing.Span span = relayTracing.span("relay.account.select")
+            .attribute("excluded", excludedIds.size());
+        // 不同服务商的账号各自成池，哈希环和候选集合都只包含请求服务商的账号
+        Mono<Account> selection = getAvailableAccounts()
+            .filter(account -> account.isProvider(hint.getTargetProvider()))
             .collectList()
-            .flatMap(accounts -> {
+            .flatMap(available -> {
+                // 哈希环仍按全部可用账号构建，模型账号池只收窄候选集合
+                List<Account> accounts = available.stream()
+                    .filter(account -> !excludedIds.contains(account.getId()))
+                    .filter(account -> hint.allows(account.getId(), account.getEmail()))
+                    .toList();
                 if (accounts.isEmpty()) {
                     return Mono.error(new RelayException("No available accounts"));
                 }
                 
-                // Random selection for better distribution
-                int randomIndex = new java.util.Random().nextInt(accounts.size());
-                Account selected = accounts.get(randomIndex);
-                
-                log.debug("Selected account: {} from {} available (excluded: {})", 
-                    selected.getId(), accounts.size(), excludedIds.size());
+                if (!hint.hasSessionKey() || !accountPoolConfig.getSessionAffinity().isEnabled()) {
+                    return Mono.just(chooseAccount(available, accounts, excludedIds, hint));
+                }
                 
-                return Mono.just(selected);
-            });
+                // 会话粘滞：绑定的账号仍可用则直接复用，否则重新选择并改绑
+                return sessionAffinityService.lookup(hint.getSessionKey())
+                    .flatMap(accountId -> Mono.justOrEmpty(accounts.stream()
+                        .filter(account -> account.getId().equals(accountId))
+                        .findFirst()))
+                    .doOnNext(account -> log.debug("Session {} sticks to account {}", 
+                        hint.getSessionKey(), account.getId()))
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        Account selected = chooseAccount(available, accounts, excludedIds, hint);
+                        sessionAffinityService.bind(hint.getSessionKey(), selected.getId());
+                        return selected;
+                    }));
+            })
+            .doOnNext(account -> span.attribute("account.id", account.getId()));
+        return span.trace(selection);
+    }
+    
+    private Account chooseAccount(List<Account> available, List<Account> accounts, 
+                                  Set<String> excludedIds, RoutingHint hint) {
+        Account selected = null;
+        if (hint.hasPrefixHash() && accountPoolConfig.getPrefixAffinity().isEnabled()) {
+            selected = selectByPrefixAffinity(available, accounts, hint.getPrefixHash());
+        }
+        
+        if (selected == null) {
+            selected = selectByTokenBudget(accounts);
+        }
+        
+        log.debug("Selected account: {} from {} available (excluded: {})", 
+            selected.getId(), accounts.size(), excludedIds.size());
+        return selected;
+    }
+    
+    /**
+     * 一致性哈希 + 有界负载：同一提示词前缀固定落到同一账号，
+     * 该账号过载时顺着哈希环溢出到下一个账号
+     */
+    private Account selectByPrefixAffinity(List<Account> available, List<Account> candidates, long prefixHash) {
+        AccountPoolConfig.PrefixAffinity settings = accountPoolConfig.getPrefixAffinity();
+        
+        // 环基于全部可用账号构建，避免重试时排除账号导致映射整体漂移
+        List<String> memberIds = available.stream().map(Account::getId).toList();
+        ConsistentHashRing ring = affinityRing;
+        if (ring == null || !ring.hasSameMembers(memberIds)) {
+            ring = new ConsistentHashRing(memberIds, settings.getVirtualNodes());
+            affinityRing = ring;
+        }
+        
+        Map<String, Account> candidateById = new java.util.HashMap<>();
+        long totalInFlight = 0;
+        for (Account account : candidates) {
+            candidateById.put(account.getId(), account);
+            totalInFlight += getInFlight(account.getId());
+        }
+        
+        // 有界负载容量：ceil(loadFactor × (当前总并发 + 本次请求) / 账号数)
+        long capacity = (long) Math.ceil(
+            settings.getLoadFactor() * (totalInFlight + 1) / candidates.size());
+        
+        String accountId = ring.locate(prefixHash, 
+            id -> candidateById.containsKey(id) && getInFlight(id) < capacity);
+        if (accountId == null) {
+            return null;
+        }
+        
+        log.debug("Prefix affinity routed to account {} (capacity {}, in-flight {})", 
+            accountId, capacity, getInFlight(accountId));
+        return candidateById.get(accountId);
+    }
+    
+    /**
+     * 按剩余 token 额度加权随机选择，额度未知的账号视为满额
+     */
+    private Account selectByTokenBudget(List<Account> accounts) {
+        Instant now = Instant.now();
+        double[] weights = new double[accounts.size()];
+        double total = 0;
+        for (int i = 0; i < accounts.size(); i++) {
+            RateLimitSnapshot snapshot = capacityMap.get(accounts.get(i).getId());
+            double ratio = snapshot != null ? snapshot.remainingTokenRatio(now) : 1.0;
+            // 保留最小权重，避免额度统计滞后时账号被完全饿死
+            weights[i] = Math.max(ratio, 0.01);
+            total += weights[i];
+        }
+        
+        double point = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < weights.length; i++) {
+            point -= weights[i];
+            if (point < 0) {
+                return accounts.get(i);
+            }
+        }
+        return accounts.get(accounts.size() - 1);
+    }
+    
+    /**
+     * 记录上游返回的限流信息，必要时让账号精确冷却到重置时间
+     */
+    public void recordRateLimit(String accountId, int statusCode, RateLimitSnapshot snapshot) {
+        if (snapshot.hasTokenBudget()) {
+            capacityMap.put(accountId, snapshot);
+        }
+        
+        Instant cooldownUntil = snapshot.cooldownUntil(statusCode);
+        if (cooldownUntil == null) {
+            return;
+        }
+        
+        long until = cooldownUntil.toEpochMilli();
+        healthMap.computeIfAbsent(accountId, k -> new AccountHealth()).extendCooldown(until);
+        sharedAccountStateService.publishCooldown(accountId, until);
+        log.warn("Account {} rate limited (status {}), cooling down until {}", 
+            accountId, statusCode, cooldownUntil);
+    }
+    
+    public RateLimitSnapshot getCapacity(String accountId) {
+        return capacityMap.get(accountId);
+    }
+    
+    /**
+     * 标记账号开始处理一个请求
+     */
+    public void markAccountInFlight(String accountId) {
+        inFlightMap.computeIfAbsent(accountId, k -> new AtomicInteger()).incrementAndGet();
+    }
+    
+    /**
+     * 释放账号上的一个在途请求
+     */
+    public void releaseAccount(String accountId) {
+        AtomicInteger counter = inFlightMap.get(accountId);
+        if (counter != null) {
+            counter.updateAndGet(value -> Math.max(0, value - 1));
+        }
+    }
+    
+    /**
+     * 账号在途请求数（本节点 + 其他节点）
+     */
+    public int getInFlight(String accountId) {
+        AtomicInteger counter = inFlightMap.get(accountId);
+        int local = counter != null ? counter.get() : 0;
+        return local + sharedAccountStateService.getRemoteInFlight(accountId);
+    }
+    
+    private Map<String, Integer> getLocalInFlightSnapshot() {
+        Map<String, Integer> snapshot = new java.util.HashMap<>();
+        inFlightMap.forEach((accountId, counter) -> snapshot.put(accountId, counter.get()));
+        return snapshot;
     }
     
     private Flux<Account> getAvailableAccounts() {
         // 直接从数据库获取账号，并检查token是否需要刷新
         return accountService.getAllActiveAccounts()
             .flatMap(claudeAccount -> {
-                // 检查token是否需要刷新（提前30分钟）
-                if (claudeAccount.getTokenExpiresAt() != null) {
+                // 检查token是否需要刷新（提前30分钟），只有 Claude OAuth 账号有过期时间
+                if (claudeAccount.getTokenExpiresAt() != null && parseProvider(claudeAccount) == AIProvider.CLAUDE) {
                     LocalDateTime refreshThreshold = LocalDateTime.now().plusMinutes(30);
                     if (claudeAccount.getTokenExpiresAt().isBefore(refreshThreshold)) {
                         log.info("Token for account {} will expire soon, refreshing...", claudeAccount.getEmail());
-                        return accountService.refreshAccountToken(claudeAccount)
+                        return relayTracing.span("relay.token.refresh")
+                            .attribute("account.id", claudeAccount.getId())
+                            .trace(accountService.refreshAccountToken(claudeAccount))
                             .map(this::convertToAccount)
                             .onErrorResume(error -> {
                                 log.error("Failed to refresh token for account {}: {}", 
@@ -95,6 +280,7 @@ public class AccountPoolService {
             .id(claudeAccount.getId())
             .name(claudeAccount.getEmail())
             .email(claudeAccount.getEmail())
+            .provider(parseProvider(claudeAccount))
             .accessToken(claudeAccount.getAccessToken())
             .refreshToken(claudeAccount.getRefreshToken())
             .status(accountStatus)
@@ -111,6 +297,19 @@ public class AccountPoolService {
             .build();
     }
     
+    private AIProvider parseProvider(ClaudeAccount claudeAccount) {
+        String provider = claudeAccount.getProvider();
+        if (provider == null || provider.isBlank()) {
+            return AIProvider.CLAUDE;
+        }
+        try {
+            return AIProvider.valueOf(provider.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown provider {} for account {}, treating as CLAUDE", provider, claudeAccount.getId());
+            return AIProvider.CLAUDE;
+        }
+    }
+    
     private boolean isAccountAvailable(Account account) {
         // Check account status
         if (!account.isActive()) {
@@ -123,12 +322,19 @@ public class AccountPoolService {
             return false;
         }
         
+        // Check cooldowns reported by other nodes
+        if (sharedAccountStateService.getRemoteCooldownUntil(account.getId()) > System.currentTimeMillis()) {
+            return false;
+        }
+        
         return true;
     }
     
     public void markAccountSuccess(String accountId) {
         AccountHealth health = healthMap.computeIfAbsent(accountId, k -> new AccountHealth());
-        health.recordSuccess();
+        if (health.recordSuccess()) {
+            sharedAccountStateService.publishRecovered(accountId);
+        }
         
         // 更新数据库中的最后使用时间
         accountService.getAccountById(accountId)
@@ -146,9 +352,15 @@ public class AccountPoolService {
     
     public void markAccountFailed(String accountId, Throwable error) {
         AccountHealth health = healthMap.computeIfAbsent(accountId, k -> new AccountHealth());
-        health.recordFailure(error);
+        long cooldownUntil = health.recordFailure(error, 
+            accountPoolConfig.getHealthThreshold(), accountPoolConfig.getFailureCooldown().toMillis());
+        if (cooldownUntil > 0) {
+            log.warn("Account {} cooling down for {}ms after {} consecutive failures", 
+                accountId, accountPoolConfig.getFailureCooldown().toMillis(), health.getConsecutiveFailures());
+            sharedAccountStateService.publishCooldown(accountId, cooldownUntil);
+        }
         
-        if (health.getConsecutiveFailures() > 5) {
+        if (health.getConsecutiveFailures() > accountPoolConfig.getMaxConsecutiveFailures()) {
             // 禁用账号
             accountService.getAccountById(accountId)
                 .flatMap(account -> {
@@ -157,7 +369,8 @@ public class AccountPoolService {
                     return accountService.saveAccount(account);
                 })
                 .subscribe(
-                    success -> log.warn("Account {} disabled after 5 consecutive failures", accountId),
+                    success -> log.warn("Account {} disabled after {} consecutive failures", 
+                        accountId, health.getConsecutiveFailures()),
                     err -> log.error("Failed to disable account {}: {}", accountId, err.getMessage())
                 );
         }
@@ -206,35 +419,65 @@ public class AccountPoolService {
         private int consecutiveSuccesses = 0;
         private LocalDateTime lastCheckTime;
         private Throwable lastError;
+        private long cooldownUntil = 0;
         
-        public void recordSuccess() {
+        /**
+         * @return true 如果账号此前处于冷却/不健康状态
+         */
+        public synchronized boolean recordSuccess() {
+            // 本次请求中由限流响应头设置的冷却（截止时间在未来）需要保留
+            boolean coolingDown = cooldownUntil > System.currentTimeMillis();
+            boolean recovered = cooldownUntil > 0 && !coolingDown;
             consecutiveSuccesses++;
             consecutiveFailures = 0;
+            if (!coolingDown) {
+                cooldownUntil = 0;
+            }
             lastCheckTime = LocalDateTime.now();
+            return recovered;
         }
         
-        public void recordFailure(Throwable error) {
+        public synchronized void extendCooldown(long until) {
+            cooldownUntil = Math.max(cooldownUntil, until);
+            lastCheckTime = LocalDateTime.now();
+        }
+        
+        /**
+         * @return 新的冷却截止时间（epoch 毫秒），未进入冷却返回 0
+         */
+        public synchronized long recordFailure(Throwable error, int threshold, long cooldownMillis) {
             consecutiveFailures++;
             consecutiveSuccesses = 0;
             lastError = error;
             lastCheckTime = LocalDateTime.now();
+            if (cooldownUntil > System.currentTimeMillis()) {
+                // 已有更精确的冷却时间（来自 retry-after / 限流重置时间）
+                return 0;
+            }
+            if (consecutiveFailures >= threshold) {
+                // 冷却结束后允许一次探测，再次失败会立即重新进入冷却
+                cooldownUntil = System.currentTimeMillis() + cooldownMillis;
+                return cooldownUntil;
+            }
+            return 0;
         }
         
-        public boolean isHealthy() {
-            return consecutiveFailures < 3;
+        public synchronized boolean isHealthy() {
+            return System.currentTimeMillis() >= cooldownUntil;
         }
         
-        public void reset() {
+        public synchronized void reset() {
             consecutiveFailures = 0;
             consecutiveSuccesses = 0;
+            cooldownUntil = 0;
             lastError = null;
         }
         
-        public int getConsecutiveFailures() {
+        public synchronized int getConsecutiveFailures() {
             return consecutiveFailures;
         }
         
-        public LocalDateTime getLastCheckTime() {
+        public synchronized LocalDateTime getLastCheckTime() {
             return lastCheckTime;
         }
     }
@@ -0,0 +1,287 @@
+package com.aiproxy.core.service;
+
+import com.aiproxy.common.constants.ApiConstants;
+import com.aiproxy.common.enums.AIProvider;
+import com.aiproxy.common.enums.AccountStatus;
+import com.aiproxy.common.exception.RelayException;
+import com.aiproxy.common.model.Account;
+import com.aiproxy.common.model.ApiKey;
+import com.aiproxy.common.utils.JsonUtil;
+import com.aiproxy.core.config.AccountPoolConfig;
+import com.aiproxy.core.config.GeminiConfig;
+import com.aiproxy.core.relay.ProviderRelay;
+import com.aiproxy.core.routing.RoutingHint;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gemini 中转（generateContent / streamGenerateContent）
+ * <p>
+ * 账号取自账号池中 provider = GEMINI 的账号（access_token 即 API Key），池中没有可用账号时
+ * 使用 relay.gemini.api-key 兜底；选号、重试、健康状态、指标和日志与 Claude 中转共用 {@link RelayAttemptExecutor}。
+ */
+@Service
+@Slf4j
+public class GeminiRelayService implements ProviderRelay {
+    
+    /**
+     * relay.gemini.api-key 兜底账号的ID，参与健康状态和在途统计
+     */
+    static final String CONFIG_ACCOUNT_ID = "gemini-config";
+    
+    private final WebClient geminiWebClient;
+    private final GeminiConfig geminiConfig;
+    private final AccountPoolService accountPoolService;
+    private final AccountPoolConfig accountPoolConfig;
+    private final RelayAttemptExecutor attemptExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public GeminiRelayService(WebClient geminiWebClient,
+                              GeminiConfig geminiConfig,
+                              AccountPoolService accountPoolService,
+                              AccountPoolConfig accountPoolConfig,
+                              RelayAttemptExecutor attemptExecutor) {
+        this.geminiWebClient = geminiWebClient;
+        this.geminiConfig = geminiConfig;
+        this.accountPoolService = accountPoolService;
+        this.accountPoolConfig = accountPoolConfig;
+        this.attemptExecutor = attemptExecutor;
+    }
+    
+    @Override
+    public AIProvider getProvider() {
+        return AIProvider.GEMINI;
+    }
+    
+    @Override
+    public Flux<ServerSentEvent<String>> relayStreamRequest(Map<String, Object> request, ApiKey apiKey, String sessionId) {
+        if (!(request.get("model") instanceof String model) || model.isBlank()) {
+            return Flux.just(errorEvent(400, "model is required"));
+        }
+        RoutingHint hint = buildRoutingHint(apiKey, sessionId);
+        // model 在 URL 上，只序列化一次请求体供所有重试共用
+        return Flux.defer(() -> attemptExecutor.relayStream(new GeminiUpstream(model, hint), apiKey, model, toUpstreamJson(request)));
+    }
+    
+    @Override
+    public Mono<String> relayNormalRequest(Map<String, Object> request, ApiKey apiKey, String sessionId) {
+        if (!(request.get("model") instanceof String model) || model.isBlank()) {
+            return Mono.just(buildErrorResponse(400, "model is required"));
+        }
+        RoutingHint hint = buildRoutingHint(apiKey, sessionId);
+        return Mono.defer(() -> attemptExecutor.relayNormal(new GeminiUpstream(model, hint), apiKey, model, toUpstreamJson(request)));
+    }
+    
+    /**
+     * Gemini 上游：账号池中的 GEMINI 账号，池中没有可用账号时回落到 relay.gemini.api-key
+     */
+    private final class GeminiUpstream implements RelayAttemptExecutor.Upstream {
+        
+        private final String model;
+        private final RoutingHint hint;
+        
+        GeminiUpstream(String model, RoutingHint hint) {
+            this.model = model;
+            this.hint = hint;
+        }
+        
+        @Override
+        public AIProvider provider() {
+            return AIProvider.GEMINI;
+        }
+        
+        @Override
+        public String endpoint(boolean stream) {
+            return "/" + geminiConfig.getApiVersion() + "/models/" + model + ":" + (stream ? "streamGenerateContent" : "generateContent");
+        }
+        
+        @Override
+        public Mono<Account> selectAccount(Set<String> triedAccounts) {
+            return accountPoolService.selectAccountWithExclusions(triedAccounts, hint)
+                .onErrorResume(RelayException.class, error -> {
+                    if (geminiConfig.hasApiKey() && !triedAccounts.contains(CONFIG_ACCOUNT_ID)) {
+                        log.debug("No pooled Gemini account available, using relay.gemini.api-key");
+                        return Mono.just(configAccount());
+                    }
+                    return Mono.error(error);
+                });
+        }
+        
+        @Override
+        public WebClient.RequestHeadersSpec<?> request(Account account, String requestBodyJson, boolean stream) {
+            return geminiWebClient.post()
+                .uri(uriBuilder -> stream
+                    ? uriBuilder.path("/{version}/models/{model}:streamGenerateContent")
+                        .queryParam("alt", "sse")
+                        .build(geminiConfig.getApiVersion(), model)
+                    : uriBuilder.path("/{version}/models/{model}:generateContent")
+                        .build(geminiConfig.getApiVersion(), model))
+                .headers(headers -> setupHeaders(headers, account))
+                .bodyValue(requestBodyJson);
+        }
+        
+        @Override
+        public UsageCollector usageCollector() {
+            return new GeminiUsageCollector(objectMapper);
+        }
+        
+        @Override
+        public ServerSentEvent<String> toEvent(String data) {
+            // Gemini 的 SSE 只有 data 行
+            return ServerSentEvent.<String>builder().data(data).build();
+        }
+        
+        @Override
+        public String describeError(int statusCode, String body, String requestBodyJson) {
+            return "Gemini 上游错误 " + statusCode + ": " + errorMessage(statusCode, body);
+        }
+        
+        @Override
+        public String errorMessage(int statusCode, String body) {
+            // Gemini 错误格式：{"error": {"code": 429, "message": "...", "status": "RESOURCE_EXHAUSTED"}}
+            try {
+                String message = objectMapper.readTree(body).path("error").path("message").asText(null);
+                if (message != null) {
+                    return message;
+                }
+            } catch (Exception e) {
+                // 非 JSON 错误体，原样记录
+            }
+            return body;
+        }
+        
+        @Override
+        public String errorBody(Throwable error) {
+            return buildErrorResponse(error);
+        }
+        
+        @Override
+        public String errorBody(int statusCode, String message) {
+            return buildErrorResponse(statusCode, message);
+        }
+        
+        @Override
+        public String loggedAccountId(Account account) {
+            return CONFIG_ACCOUNT_ID.equals(account.getId()) ? null : account.getId();
+        }
+    }
+    
+    private Account configAccount() {
+        return Account.builder()
+            .id(CONFIG_ACCOUNT_ID)
+            .name("relay.gemini.api-key")
+            .provider(AIProvider.GEMINI)
+            .accessToken(geminiConfig.getApiKey())
+            .status(AccountStatus.ACTIVE)
+            .build();
+    }
+    
+    /**
+     * 会话粘滞键加上服务商前缀，避免与同一会话的 Claude 绑定互相覆盖
+     */
+    private RoutingHint buildRoutingHint(ApiKey apiKey, String sessionId) {
+        String sessionKey = null;
+        if (accountPoolConfig.getSessionAffinity().isEnabled() && sessionId != null && !sessionId.isBlank()) {
+            String trimmed = sessionId.trim();
+            sessionKey = "gemini:" + apiKey.getId() + ":" + trimmed.substring(0, Math.min(trimmed.length(), 200));
+        }
+        return RoutingHint.builder()
+            .provider(AIProvider.GEMINI)
+            .sessionKey(sessionKey)
+            .build();
+    }
+    
+    private void setupHeaders(HttpHeaders headers, Account account) {
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.add(ApiConstants.GOOGLE_API_KEY_HEADER, account.getAccessToken());
+    }
+    
+    /**
+     * 上游请求体：去掉 model 字段（Gemini 的模型在 URL 上），紧凑 JSON
+     */
+    private String toUpstreamJson(Map<String, Object> request) {
+        Map<String, Object> body = new LinkedHashMap<>(request);
+        body.remove("model");
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RelayException("Failed to serialize request body", e);
+        }
+    }
+    
+    private ServerSentEvent<String> errorEvent(int code, String message) {
+        return ServerSentEvent.<String>builder()
+            .event("error")
+            .data(buildErrorResponse(code, message))
+            .build();
+    }
+    
+    /**
+     * 上游返回的 Gemini 错误体原样透传，其他错误按 Gemini 格式包装
+     */
+    private String buildErrorResponse(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            String body = responseException.getResponseBodyAsString();
+            if (body.contains("\"error\"")) {
+                return body;
+            }
+            return buildErrorResponse(responseException.getStatusCode().value(), error.getMessage());
+        }
+        return buildErrorResponse(500, error.getMessage());
+    }
+    
+    /**
+     * 非流式响应对应的 HTTP 状态码：正常响应为 200，错误体按 error.code 返回，没有有效状态码时为 502
+     */
+    public static int httpStatus(String body, ObjectMapper objectMapper) {
+        if (body == null || !body.contains("\"error\"")) {
+            return 200;
+        }
+        try {
+            JsonNode error = objectMapper.readTree(body).path("error");
+            if (!error.isObject()) {
+                return 200;
+            }
+            int code = error.path("code").asInt();
+            return code >= 400 && code < 600 ? code : 502;
+        } catch (JsonProcessingException e) {
+            return 502;
+        }
+    }
+    
+    static String buildErrorResponse(int code, String message) {
+        return JsonUtil.toJson(Map.of(
+            "error", Map.of(
+                "code", code,
+                "message", message != null ? message : "Relay error",
+                "status", errorStatus(code)
+            )
+        ));
+    }
+    
+    private static String errorStatus(int code) {
+        return switch (code) {
+            case 400 -> "INVALID_ARGUMENT";
+            case 401 -> "UNAUTHENTICATED";
+            case 403 -> "PERMISSION_DENIED";
+            case 404 -> "NOT_FOUND";
+            case 429 -> "RESOURCE_EXHAUSTED";
+            case 503 -> "UNAVAILABLE";
+            default -> "INTERNAL";
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.aiproxy.core.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 从 Gemini 响应中收集 token 用量：
+ * 流式响应每个分片都可能带 usageMetadata（累计值），以最后一次为准；思考 token 计入输出
+ */
+@Slf4j
+class GeminiUsageCollector implements UsageCollector {
+    
+    private final ObjectMapper objectMapper;
+    private volatile Integer inputTokens;
+    private volatile Integer outputTokens;
+    
+    GeminiUsageCollector(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    public void accept(String data) {
+        // 不含 usageMetadata 的分片跳过 JSON 解析
+        if (data == null || !data.contains("\"usageMetadata\"")) {
+            return;
+        }
+        try {
+            JsonNode usage = objectMapper.readTree(data).path("usageMetadata");
+            if (usage.has("promptTokenCount")) {
+                inputTokens = usage.get("promptTokenCount").asInt();
+            }
+            if (usage.has("candidatesTokenCount") || usage.has("thoughtsTokenCount")) {
+                outputTokens = usage.path("candidatesTokenCount").asInt() + usage.path("thoughtsTokenCount").asInt();
+            }
+        } catch (Exception e) {
+            log.debug("Failed to parse usage from Gemini response", e);
+        }
+    }
+    
+    @Override
+    public Integer getInputTokens() {
+        return inputTokens;
+    }
+    
+    @Override
+    public Integer getOutputTokens() {
+        return outputTokens;
+    }
+}
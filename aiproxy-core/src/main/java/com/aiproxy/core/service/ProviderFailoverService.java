@@ -0,0 +1,106 @@
+package com.aiproxy.core.service;
+
+import com.aiproxy.common.enums.AIProvider;
+import com.aiproxy.common.model.ApiKey;
+import com.aiproxy.core.config.FailoverConfig;
+import com.aiproxy.core.relay.ClaudeToGeminiRequest;
+import com.aiproxy.core.relay.GeminiToClaudeResponse;
+import com.aiproxy.core.relay.ProviderRelays;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Claude 账号池耗尽时的跨服务商故障转移
+ * <p>
+ * Claude Messages 请求转换为目标服务商的格式后交给对应的 ProviderRelay（共用其选号、重试、指标和日志），
+ * 响应再逐个事件转换回 Claude 格式，客户端无感知。
+ */
+@Service
+@Slf4j
+public class ProviderFailoverService {
+    
+    private final FailoverConfig config;
+    // ProxyService 本身也是 ProviderRelay，延迟获取避免循环依赖
+    private final ObjectProvider<ProviderRelays> providerRelays;
+    private final Counter streamFailovers;
+    private final Counter normalFailovers;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public ProviderFailoverService(FailoverConfig config, ObjectProvider<ProviderRelays> providerRelays,
+                                   MeterRegistry meterRegistry) {
+        if (config.isEnabled() && config.getProvider() != AIProvider.GEMINI) {
+            throw new IllegalStateException("relay.failover.provider " + config.getProvider() + " has no request translator");
+        }
+        this.config = config;
+        this.providerRelays = providerRelays;
+        this.streamFailovers = failoverCounter(meterRegistry, config.getProvider(), true);
+        this.normalFailovers = failoverCounter(meterRegistry, config.getProvider(), false);
+    }
+    
+    private static Counter failoverCounter(MeterRegistry meterRegistry, AIProvider provider, boolean stream) {
+        return Counter.builder("relay.failover.requests")
+            .description("Claude requests relayed to another provider because the account pool was exhausted")
+            .tag("provider", provider.name())
+            .tag("stream", String.valueOf(stream))
+            .register(meterRegistry);
+    }
+    
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+    
+    public AIProvider getProvider() {
+        return config.getProvider();
+    }
+    
+    public Flux<ServerSentEvent<String>> relayStreamRequest(Map<String, Object> request, ApiKey apiKey) {
+        String targetModel = targetModel((String) request.get("model"));
+        log.warn("Claude account pool exhausted, failing over stream request for {} to {} {}",
+            request.get("model"), config.getProvider(), targetModel);
+        streamFailovers.increment();
+        
+        // 每个请求一个转换器，逐个事件转换，上游结束后补发 message_delta / message_stop
+        GeminiToClaudeResponse translator = new GeminiToClaudeResponse(targetModel, objectMapper);
+        return providerRelays.getObject().get(config.getProvider())
+            .relayStreamRequest(ClaudeToGeminiRequest.translate(request, targetModel), apiKey, null)
+            .concatMapIterable(translator::onEvent)
+            .concatWith(Flux.defer(() -> Flux.fromIterable(translator.finish())));
+    }
+    
+    public Mono<String> relayNormalRequest(Map<String, Object> request, ApiKey apiKey) {
+        String targetModel = targetModel((String) request.get("model"));
+        log.warn("Claude account pool exhausted, failing over request for {} to {} {}",
+            request.get("model"), config.getProvider(), targetModel);
+        normalFailovers.increment();
+        
+        return providerRelays.getObject().get(config.getProvider())
+            .relayNormalRequest(ClaudeToGeminiRequest.translate(request, targetModel), apiKey, null)
+            .map(response -> GeminiToClaudeResponse.translate(response, targetModel, objectMapper));
+    }
+    
+    /**
+     * 按 Claude 模型前缀映射目标模型，最长前缀优先
+     */
+    String targetModel(String model) {
+        String target = config.getDefaultModel();
+        int matched = -1;
+        if (model != null) {
+            for (Map.Entry<String, String> entry : config.getModels().entrySet()) {
+                if (model.startsWith(entry.getKey()) && entry.getKey().length() > matched) {
+                    target = entry.getValue();
+                    matched = entry.getKey().length();
+                }
+            }
+        }
+        return target;
+    }
+}
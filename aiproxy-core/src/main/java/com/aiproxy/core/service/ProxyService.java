@@ -2,13 +2,24 @@ package com.aiproxy.core.service;
 
 import com.aiproxy.common.constants.ApiConstants;
 import com.aiproxy.common.constants.ClaudeErrorCode;
+import com.aiproxy.common.enums.AIProvider;
 import com.aiproxy.common.exception.RelayException;
 import com.aiproxy.common.model.Account;
 import com.aiproxy.common.model.ApiKey;
 import com.aiproxy.common.service.RequestLogService;
-import com.aiproxy.common.utils.ErrorClassifier;
 import com.aiproxy.common.utils.JsonUtil;
+import com.aiproxy.core.accesslog.RelayAccessLog;
 import com.aiproxy.core.config.AccountPoolConfig;
+import com.aiproxy.core.config.PromptInjectionConfig;
+import com.aiproxy.core.relay.ProviderRelay;
+import com.aiproxy.core.routing.ModelRoute;
+import com.aiproxy.core.routing.ModelRoutingTable;
+import com.aiproxy.core.routing.PromptPrefixHasher;
+import com.aiproxy.core.routing.RoutingHint;
+import com.aiproxy.core.transform.RequestTransformPipeline;
+import com.aiproxy.core.transform.RequestTransformers;
+import com.aiproxy.core.transform.SseEventParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -18,581 +29,264 @@ import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @Slf4j
-public class ProxyService {
+public class ProxyService implements ProviderRelay {
     
     private final WebClient claudeWebClient;
     private final AccountPoolService accountPoolService;
     private final AccountPoolConfig accountPoolConfig;
     private final RequestLogService requestLogService;
+    private final RelayAttemptExecutor attemptExecutor;
+    private final RequestTransformPipeline claudeOAuthTransform;
+    private final ModelRoutingTable modelRoutingTable;
+    private final ProviderFailoverService providerFailover;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     public ProxyService(WebClient claudeWebClient, 
                        AccountPoolService accountPoolService, 
                        AccountPoolConfig accountPoolConfig,
-                       RequestLogService requestLogService) {
+                       RequestLogService requestLogService,
+                       RelayAttemptExecutor attemptExecutor,
+                       RequestTransformers requestTransformers,
+                       ModelRoutingTable modelRoutingTable,
+                       ProviderFailoverService providerFailover) {
         this.claudeWebClient = claudeWebClient;
         this.accountPoolService = accountPoolService;
         this.accountPoolConfig = accountPoolConfig;
         this.requestLogService = requestLogService;
+        this.attemptExecutor = attemptExecutor;
+        this.claudeOAuthTransform = requestTransformers.forAccountType(PromptInjectionConfig.CLAUDE_OAUTH);
+        this.modelRoutingTable = modelRoutingTable;
+        this.providerFailover = providerFailover;
+    }
+    
+    @Override
+    public AIProvider getProvider() {
+        return AIProvider.CLAUDE;
     }
     
     public Flux<ServerSentEvent<String>> relayStreamRequest(Map<String, Object> request, ApiKey apiKey) {
-        // Inject Claude Code system prompt for OAuth tokens
-        Map<String, Object> modifiedRequest = injectClaudeCodeSystemPrompt(request);
-        return relayStreamRequestWithRetry(modifiedRequest, apiKey, new HashSet<>(), 0);
+        return relayStreamRequest(request, apiKey, null);
     }
     
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> injectClaudeCodeSystemPrompt(Map<String, Object> request) {
-        // Create a copy of the request to avoid modifying the original
-        Map<String, Object> modifiedRequest = new HashMap<>(request);
-        
-        // Claude Code system prompt - MUST be exact match!
-        String claudeCodePrompt = "You are Claude Code, Anthropic's official CLI for Claude.";
-        
-        // First, strip TTL from cache_control to avoid API errors
-        stripTtlFromCacheControl(modifiedRequest);
-        
-        // Then limit cache_control count to avoid exceeding API limit
-        limitCacheControlCount(modifiedRequest, 3); // Reserve 1 slot for Claude Code prompt
-        
-        // Check if there's already a system parameter
-        Object existingSystem = modifiedRequest.get("system");
+    @Override
+    public Flux<ServerSentEvent<String>> relayStreamRequest(Map<String, Object> request, ApiKey apiKey, String sessionId) {
+        // OAuth 账号的请求改写：模型别名、max_tokens 上限、cache_control 清理、注入 Claude Code 提示词
+        Map<String, Object> modifiedRequest = claudeOAuthTransform.apply(request);
+        String model = (String) modifiedRequest.get("model");
+        ModelRoute modelRoute = modelRoutingTable.resolve(model);
+        RoutingHint hint = buildRoutingHint(request, apiKey, sessionId, modelRoute);
+        return Flux.defer(() -> {
+            if (!modelRoute.tryAcquire()) {
+                return Flux.just(ServerSentEvent.<String>builder()
+                    .event("error")
+                    .data(buildErrorResponse(modelRouteBusy(modelRoute)))
+                    .build());
+            }
+            Runnable releaseRoute = releaseOnce(modelRoute);
+            // 只序列化一次，所有重试、日志和失败记录共用
+            return attemptExecutor.relayStream(new ClaudeUpstream(modifiedRequest, apiKey, hint, releaseRoute),
+                    apiKey, model, toCompactJson(modifiedRequest))
+                .doFinally(signal -> releaseRoute.run());
+        });
+    }
+    
+    /**
+     * 根据原始请求计算路由提示：会话粘滞键 + 提示词前缀哈希，用于提高上游 prompt cache 命中率；
+     * 模型路由限定可选的账号池
+     */
+    private RoutingHint buildRoutingHint(Map<String, Object> request, ApiKey apiKey, String sessionId, ModelRoute modelRoute) {
+        AccountPoolConfig.PrefixAffinity prefixAffinity = accountPoolConfig.getPrefixAffinity();
+        AccountPoolConfig.SessionAffinity sessionAffinity = accountPoolConfig.getSessionAffinity();
         
-        if (existingSystem != null) {
-            // Handle different system formats
-            if (existingSystem instanceof String) {
-                // Convert string to list format for consistency
-                List<Map<String, Object>> systemList = new ArrayList<>();
-                
-                // Add Claude Code prompt first
-                Map<String, Object> claudeCodeContent = new HashMap<>();
-                claudeCodeContent.put("type", "text");
-                claudeCodeContent.put("text", claudeCodePrompt);
-                Map<String, Object> cacheControl = new HashMap<>();
-                cacheControl.put("type", "ephemeral");
-                claudeCodeContent.put("cache_control", cacheControl);
-                systemList.add(claudeCodeContent);
-                
-                // Add user's system prompt (if different from Claude Code prompt)
-                if (!existingSystem.equals(claudeCodePrompt)) {
-                    Map<String, Object> userContent = new HashMap<>();
-                    userContent.put("type", "text");
-                    userContent.put("text", existingSystem);
-                    systemList.add(userContent);
-                }
-                
-                modifiedRequest.put("system", systemList);
-            } else if (existingSystem instanceof List) {
-                List<Map<String, Object>> systemList = new ArrayList<>((List<Map<String, Object>>) existingSystem);
-                
-                // Check if Claude Code prompt already exists
-                boolean hasClaudeCodePrompt = systemList.stream()
-                    .anyMatch(item -> {
-                        if (item instanceof Map) {
-                            Object text = item.get("text");
-                            return claudeCodePrompt.equals(text);
-                        }
-                        return false;
-                    });
-                
-                if (!hasClaudeCodePrompt) {
-                    // Add Claude Code prompt as first content item
-                    Map<String, Object> claudeCodeContent = new HashMap<>();
-                    claudeCodeContent.put("type", "text");
-                    claudeCodeContent.put("text", claudeCodePrompt);
-                    Map<String, Object> cacheControl = new HashMap<>();
-                    cacheControl.put("type", "ephemeral");
-                    claudeCodeContent.put("cache_control", cacheControl);
-                    systemList.add(0, claudeCodeContent);
-                }
-                
-                modifiedRequest.put("system", systemList);
+        String sessionKey = null;
+        if (sessionAffinity.isEnabled()) {
+            String session = sessionId;
+            if ((session == null || session.isBlank()) && sessionAffinity.isUseMetadataUserId()
+                    && request.get("metadata") instanceof Map<?, ?> metadata
+                    && metadata.get("user_id") instanceof String userId) {
+                session = userId;
+            }
+            if (session != null && !session.isBlank()) {
+                // 按 API Key 隔离，避免不同调用方的会话ID冲突
+                String trimmed = session.trim();
+                sessionKey = apiKey.getId() + ":" + trimmed.substring(0, Math.min(trimmed.length(), 200));
             }
-        } else {
-            // Add new system parameter with Claude Code prompt
-            List<Map<String, Object>> systemList = new ArrayList<>();
-            Map<String, Object> claudeCodeContent = new HashMap<>();
-            claudeCodeContent.put("type", "text");
-            claudeCodeContent.put("text", claudeCodePrompt);
-            Map<String, Object> cacheControl = new HashMap<>();
-            cacheControl.put("type", "ephemeral");
-            claudeCodeContent.put("cache_control", cacheControl);
-            systemList.add(claudeCodeContent);
-            modifiedRequest.put("system", systemList);
         }
         
-        return modifiedRequest;
+        return RoutingHint.builder()
+            .prefixHash(prefixAffinity.isEnabled() 
+                ? PromptPrefixHasher.hash(request, prefixAffinity.getMessageBlocks()) 
+                : null)
+            .sessionKey(sessionKey)
+            .modelRoute(modelRoute)
+            .build();
     }
     
     /**
-     * Strip TTL field from cache_control to avoid API errors
+     * 故障转移时提前释放模型路由名额，请求结束时不再重复释放
      */
-    @SuppressWarnings("unchecked")
-    private void stripTtlFromCacheControl(Map<String, Object> requestBody) {
-        // Process system field
-        Object system = requestBody.get("system");
-        if (system instanceof List) {
-            processContentArrayForTtl((List<Object>) system);
-        }
-        
-        // Process messages field
-        Object messages = requestBody.get("messages");
-        if (messages instanceof List) {
-            for (Object message : (List<Object>) messages) {
-                if (message instanceof Map) {
-                    Object content = ((Map<String, Object>) message).get("content");
-                    if (content instanceof List) {
-                        processContentArrayForTtl((List<Object>) content);
-                    }
-                }
+    private static Runnable releaseOnce(ModelRoute modelRoute) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                modelRoute.release();
             }
-        }
+        };
     }
     
-    @SuppressWarnings("unchecked")
-    private void processContentArrayForTtl(List<Object> contentArray) {
-        for (Object item : contentArray) {
-            if (item instanceof Map) {
-                Map<String, Object> itemMap = (Map<String, Object>) item;
-                Object cacheControl = itemMap.get("cache_control");
-                if (cacheControl instanceof Map) {
-                    Map<String, Object> cacheControlMap = (Map<String, Object>) cacheControl;
-                    if (cacheControlMap.containsKey("ttl")) {
-                        cacheControlMap.remove("ttl");
-                        log.debug("Removed ttl from cache_control");
-                    }
-                }
+    private RelayException modelRouteBusy(ModelRoute modelRoute) {
+        log.warn("Model route {} reached its concurrency limit ({})", modelRoute.getName(), modelRoute.getMaxConcurrency());
+        return new RelayException("Model " + modelRoute.getName() + " is at its concurrency limit, please retry later",
+            "MODEL_CONCURRENCY_LIMIT", 429);
+    }
+    
+    public Mono<String> relayNormalRequest(Map<String, Object> request, ApiKey apiKey) {
+        return relayNormalRequest(request, apiKey, null);
+    }
+    
+    @Override
+    public Mono<String> relayNormalRequest(Map<String, Object> request, ApiKey apiKey, String sessionId) {
+        // OAuth 账号的请求改写：模型别名、max_tokens 上限、cache_control 清理、注入 Claude Code 提示词
+        Map<String, Object> modifiedRequest = claudeOAuthTransform.apply(request);
+        String model = (String) modifiedRequest.get("model");
+        ModelRoute modelRoute = modelRoutingTable.resolve(model);
+        RoutingHint hint = buildRoutingHint(request, apiKey, sessionId, modelRoute);
+        return Mono.defer(() -> {
+            if (!modelRoute.tryAcquire()) {
+                return Mono.just(buildErrorResponse(modelRouteBusy(modelRoute)));
             }
-        }
+            Runnable releaseRoute = releaseOnce(modelRoute);
+            return attemptExecutor.relayNormal(new ClaudeUpstream(modifiedRequest, apiKey, hint, releaseRoute),
+                    apiKey, model, toCompactJson(modifiedRequest))
+                .doFinally(signal -> releaseRoute.run());
+        });
     }
     
     /**
-     * Limit the number of cache_control blocks to avoid exceeding API limit (max 4)
+     * Claude 上游：开启故障转移时，账号池耗尽或重试用尽后转交其他服务商
      */
-    @SuppressWarnings("unchecked")
-    private void limitCacheControlCount(Map<String, Object> requestBody, int maxCount) {
-        AtomicInteger currentCount = new AtomicInteger(0);
+    private final class ClaudeUpstream implements RelayAttemptExecutor.Upstream {
+        
+        private final Map<String, Object> request;
+        private final ApiKey apiKey;
+        private final RoutingHint hint;
+        private final Runnable releaseRoute;
         
-        // Count and potentially remove cache_control from system
-        Object system = requestBody.get("system");
-        if (system instanceof List) {
-            limitCacheControlInArray((List<Object>) system, currentCount, maxCount);
+        ClaudeUpstream(Map<String, Object> request, ApiKey apiKey, RoutingHint hint, Runnable releaseRoute) {
+            this.request = request;
+            this.apiKey = apiKey;
+            this.hint = hint;
+            this.releaseRoute = releaseRoute;
         }
         
-        // Count and potentially remove cache_control from messages
-        Object messages = requestBody.get("messages");
-        if (messages instanceof List) {
-            for (Object message : (List<Object>) messages) {
-                if (message instanceof Map) {
-                    Object content = ((Map<String, Object>) message).get("content");
-                    if (content instanceof List) {
-                        limitCacheControlInArray((List<Object>) content, currentCount, maxCount);
-                    }
-                }
-            }
+        @Override
+        public AIProvider provider() {
+            return AIProvider.CLAUDE;
         }
-    }
-    
-    @SuppressWarnings("unchecked")
-    private void limitCacheControlInArray(List<Object> array, AtomicInteger currentCount, int maxCount) {
-        for (Object item : array) {
-            if (item instanceof Map) {
-                Map<String, Object> itemMap = (Map<String, Object>) item;
-                if (itemMap.containsKey("cache_control")) {
-                    if (currentCount.incrementAndGet() > maxCount) {
-                        // Remove excess cache_control
-                        itemMap.remove("cache_control");
-                        log.debug("Removed excess cache_control to stay within API limit");
-                    }
+        
+        @Override
+        public String endpoint(boolean stream) {
+            return "/v1/messages";
+        }
+        
+        @Override
+        public Mono<Account> selectAccount(Set<String> triedAccounts) {
+            return accountPoolService.selectAccountWithExclusions(triedAccounts, hint);
+        }
+        
+        @Override
+        public WebClient.RequestHeadersSpec<?> request(Account account, String requestBodyJson, boolean stream) {
+            return claudeWebClient.post()
+                .uri("/v1/messages")
+                .headers(headers -> setupHeaders(headers, account))
+                .bodyValue(requestBodyJson);
+        }
+        
+        @Override
+        public UsageCollector usageCollector() {
+            return new StreamUsageCollector(objectMapper);
+        }
+        
+        @Override
+        public ServerSentEvent<String> toEvent(String data) {
+            return ServerSentEvent.<String>builder()
+                .id(UUID.randomUUID().toString())
+                .event(SseEventParser.eventType(data))
+                .data(data)
+                .build();
+        }
+        
+        @Override
+        public String describeError(int statusCode, String body, String requestBodyJson) {
+            String errorType = null;
+            String errorMessage = body;
+            
+            // 尝试解析错误响应
+            try {
+                JsonNode errorNode = objectMapper.readTree(body);
+                if (errorNode.has("error")) {
+                    JsonNode error = errorNode.get("error");
+                    errorType = error.has("type") ? error.get("type").asText() : null;
+                    errorMessage = error.has("message") ? error.get("message").asText() : body;
                 }
+            } catch (Exception e) {
+                // 非 JSON 错误体，原样记录
             }
+            
+            // 记录详细的错误日志（中文）
+            return ClaudeErrorCode.formatErrorMessage(statusCode, errorType, errorMessage, requestBodyJson);
         }
-    }
-    
-    private Flux<ServerSentEvent<String>> relayStreamRequestWithRetry(Map<String, Object> request, ApiKey apiKey, Set<String> triedAccounts, int attempt) {
-        final int maxRetries = accountPoolConfig.getEffectiveMaxRetries();
         
-        log.info("=== RELAY STREAM REQUEST START ===");
-        log.info("API Key ID: {}", apiKey.getId());
-        log.info("Request Model: {}", request.get("model"));
-        log.info("Request Messages: {}", JsonUtil.toJson(request.get("messages")));
-        log.info("Attempt: {}/{}, Tried accounts: {}", attempt + 1, maxRetries, triedAccounts.size());
+        @Override
+        public String errorMessage(int statusCode, String body) {
+            return ClaudeErrorCode.getDescription(String.valueOf(statusCode));
+        }
         
-        // If retry is disabled or we've reached max attempts
-        if (!accountPoolConfig.isEnableRetry() || attempt >= maxRetries) {
-            log.error("All {} accounts failed for stream request", triedAccounts.size());
-            return Flux.just(ServerSentEvent.<String>builder()
-                .event("error")
-                .data(buildErrorResponse(new RelayException("All available accounts failed")))
-                .build());
+        @Override
+        public String errorBody(Throwable error) {
+            return buildErrorResponse(error);
         }
         
-        return accountPoolService.selectAccountWithExclusions(triedAccounts)
-            .flatMapMany(account -> {
-                log.info("=== SELECTED ACCOUNT ===");
-                log.info("Attempt {}: Using account: {}", attempt + 1, account.getId());
-                log.info("Account email: {}", account.getEmail());
-                log.info("Account status: {}", account.getStatus());
-                triedAccounts.add(account.getId());
-                
-                Instant startTime = Instant.now();
-                String model = (String) request.get("model");
-                
-                log.info("=== SENDING REQUEST TO CLAUDE ===");
-                log.info("URL: {} {}", ApiConstants.CLAUDE_BASE_URL, "/v1/messages");
-                log.info("Request Body: {}", JsonUtil.toJson(request));
-                
-                return claudeWebClient.post()
-                    .uri("/v1/messages")
-                    .headers(headers -> setupHeaders(headers, account))
-                    .bodyValue(request)
-                    .retrieve()
-                    .onStatus(status -> !status.is2xxSuccessful(), clientResponse -> {
-                        int statusCode = clientResponse.statusCode().value();
-                        String requestBodyJson = JsonUtil.toJson(request);
-                        
-                        return clientResponse.bodyToMono(String.class)
-                            .flatMap(body -> {
-                                String errorType = null;
-                                String errorMessage = null;
-                                
-                                // 尝试解析错误响应
-                                try {
-                                    JsonNode errorNode = objectMapper.readTree(body);
-                                    if (errorNode.has("error")) {
-                                        JsonNode error = errorNode.get("error");
-                                        errorType = error.has("type") ? error.get("type").asText() : null;
-                                        errorMessage = error.has("message") ? error.get("message").asText() : body;
-                                    } else {
-                                        errorMessage = body;
-                                    }
-                                } catch (Exception e) {
-                                    errorMessage = body;
-                                }
-                                
-                                // 记录详细的错误日志（中文）
-                                String detailedError = ClaudeErrorCode.formatErrorMessage(
-                                    statusCode, errorType, errorMessage, requestBodyJson
-                                );
-                                log.error(detailedError);
-                                
-                                // 保存错误详情到请求日志
-                                requestLogService.logRequest(
-                                    apiKey.getId(),
-                                    account.getId(),
-                                    account.getEmail(),
-                                    "CLAUDE",
-                                    model,
-                                    null,
-                                    null,
-                                    0,
-                                    statusCode,
-                                    detailedError,
-                                    "/v1/messages",
-                                    requestBodyJson
-                                ).subscribe();
-                                
-                                return Mono.error(new RelayException(
-                                    statusCode + " " + ClaudeErrorCode.getDescription(String.valueOf(statusCode))
-                                ));
-                            });
-                    })
-                    .bodyToFlux(String.class)
-                    .map(this::parseSSEData)
-                    .filter(Objects::nonNull)
-                    .map(data -> ServerSentEvent.<String>builder()
-                        .id(UUID.randomUUID().toString())
-                        .event(getEventType(data))
-                        .data(data)
-                        .build())
-                    .doOnComplete(() -> {
-                        log.info("Stream completed successfully with account: {}", account.getId());
-                        accountPoolService.markAccountSuccess(account.getId());
-                        
-                        // Log successful request with retry information
-                        long latency = Duration.between(startTime, Instant.now()).toMillis();
-                        
-                        requestLogService.logRequest(
-                            apiKey.getId(),
-                            account.getId(),
-                            account.getEmail(),
-                            "CLAUDE",
-                            model,
-                            null, // Request tokens will be calculated from usage
-                            null, // Response tokens will be calculated from usage
-                            (int) latency,
-                            200,
-                            null,
-                            "/v1/messages",
-                            null // Client IP will be extracted from context
-                        ).subscribe();
-                    })
-                    .onErrorResume(error -> {
-                        accountPoolService.markAccountFailed(account.getId(), error);
-                        
-                        // Log failed request
-                        long latency = Duration.between(startTime, Instant.now()).toMillis();
-                        
-                        // Get status code from error if available
-                        int statusCode = 500;
-                        if (error instanceof org.springframework.web.reactive.function.client.WebClientResponseException) {
-                            statusCode = ((org.springframework.web.reactive.function.client.WebClientResponseException) error).getStatusCode().value();
-                        }
-                        
-                        // 记录失败请求时包含请求体
-                        String requestBodyJson = JsonUtil.toJson(request);
-                        requestLogService.logRequest(
-                            apiKey.getId(),
-                            account.getId(),
-                            account.getEmail(),
-                            "CLAUDE",
-                            model,
-                            null,
-                            null,
-                            (int) latency,
-                            statusCode,
-                            error.getMessage(),
-                            "/v1/messages",
-                            requestBodyJson  // 失败时记录请求体用于调试
-                        ).subscribe();
-                        
-                        // 判断是否应该重试
-                        boolean shouldRetry = ErrorClassifier.isRetryableError(error);
-                        String errorDesc = ErrorClassifier.getErrorDescription(error);
-                        
-                        if (!shouldRetry) {
-                            log.error("Account {} failed with non-retryable error: {} - {}", 
-                                account.getId(), statusCode, errorDesc);
-                            return Flux.just(ServerSentEvent.<String>builder()
-                                .event("error")
-                                .data(buildErrorResponse(error))
-                                .build());
-                        }
-                        
-                        // Check if retry is enabled and we haven't exceeded max attempts
-                        if (accountPoolConfig.isEnableRetry() && attempt + 1 < accountPoolConfig.getEffectiveMaxRetries()) {
-                            log.warn("Account {} failed with retryable error: {} - {}, trying next account... (attempt {}/{})", 
-                                account.getId(), statusCode, errorDesc, attempt + 1, accountPoolConfig.getEffectiveMaxRetries());
-                            return relayStreamRequestWithRetry(request, apiKey, triedAccounts, attempt + 1);
-                        } else {
-                            log.error("Account {} failed and no more retries allowed", account.getId());
-                            return Flux.just(ServerSentEvent.<String>builder()
-                                .event("error")
-                                .data(buildErrorResponse(error))
-                                .build());
-                        }
-                    });
-            })
-            .onErrorResume(error -> {
-                if (error.getMessage() != null && error.getMessage().contains("No available accounts")) {
-                    log.error("No more accounts available for retry");
-                    return Flux.just(ServerSentEvent.<String>builder()
-                        .event("error")
-                        .data(buildErrorResponse(error))
-                        .build());
-                }
-                return relayStreamRequestWithRetry(request, apiKey, triedAccounts, attempt + 1);
-            });
-    }
-    
-    public Mono<String> relayNormalRequest(Map<String, Object> request, ApiKey apiKey) {
-        // Inject Claude Code system prompt for OAuth tokens
-        Map<String, Object> modifiedRequest = injectClaudeCodeSystemPrompt(request);
-        return relayNormalRequestWithRetry(modifiedRequest, apiKey, new HashSet<>(), 0);
-    }
-    
-    private Mono<String> relayNormalRequestWithRetry(Map<String, Object> request, ApiKey apiKey, Set<String> triedAccounts, int attempt) {
-        final int maxRetries = accountPoolConfig.getEffectiveMaxRetries();
+        @Override
+        public String errorBody(int statusCode, String message) {
+            return buildErrorResponse(message, statusCode);
+        }
         
-        log.info("=== RELAY NORMAL REQUEST START ===");
-        log.info("API Key ID: {}", apiKey.getId());
-        log.info("Request Model: {}", request.get("model"));
-        log.info("Request Messages: {}", JsonUtil.toJson(request.get("messages")));
-        log.info("Attempt: {}/{}, Tried accounts: {}", attempt + 1, maxRetries, triedAccounts.size());
+        @Override
+        public boolean hasFallback() {
+            return providerFailover.isEnabled();
+        }
         
-        // If retry is disabled or we've reached max attempts
-        if (!accountPoolConfig.isEnableRetry() || attempt >= maxRetries) {
-            log.error("All {} accounts failed for normal request", triedAccounts.size());
-            return Mono.just(buildErrorResponse(new RelayException("All available accounts failed")));
+        /**
+         * 转交其他服务商：先释放 Claude 模型路由的并发名额；这里的访问日志只记录转移，
+         * 请求结果由目标服务商中转自己的访问日志记录
+         */
+        @Override
+        public Flux<ServerSentEvent<String>> fallbackStream(RelayAccessLog accessLog, Throwable error) {
+            log.debug("Failing over after Claude error: {}", error.getMessage());
+            accessLog.onFailover(providerFailover.getProvider().name());
+            releaseRoute.run();
+            return providerFailover.relayStreamRequest(request, apiKey);
         }
         
-        return accountPoolService.selectAccountWithExclusions(triedAccounts)
-            .flatMap(account -> {
-                log.info("=== SELECTED ACCOUNT (Normal) ===");
-                log.info("Attempt {}: Using account: {}", attempt + 1, account.getId());
-                log.info("Account email: {}", account.getEmail());
-                log.info("Account status: {}", account.getStatus());
-                triedAccounts.add(account.getId());
-                
-                Instant startTime = Instant.now();
-                String model = (String) request.get("model");
-                
-                log.info("=== SENDING NORMAL REQUEST TO CLAUDE ===");
-                log.info("URL: {} {}", ApiConstants.CLAUDE_BASE_URL, "/v1/messages");
-                log.info("Request Body: {}", JsonUtil.toJson(request));
-                
-                return claudeWebClient.post()
-                    .uri("/v1/messages")
-                    .headers(headers -> setupHeaders(headers, account))
-                    .bodyValue(request)
-                    .retrieve()
-                    .onStatus(status -> !status.is2xxSuccessful(), clientResponse -> {
-                        int statusCode = clientResponse.statusCode().value();
-                        String requestBodyJson = JsonUtil.toJson(request);
-                        
-                        return clientResponse.bodyToMono(String.class)
-                            .flatMap(body -> {
-                                String errorType = null;
-                                String errorMessage = null;
-                                
-                                // 尝试解析错误响应
-                                try {
-                                    JsonNode errorNode = objectMapper.readTree(body);
-                                    if (errorNode.has("error")) {
-                                        JsonNode error = errorNode.get("error");
-                                        errorType = error.has("type") ? error.get("type").asText() : null;
-                                        errorMessage = error.has("message") ? error.get("message").asText() : body;
-                                    } else {
-                                        errorMessage = body;
-                                    }
-                                } catch (Exception e) {
-                                    errorMessage = body;
-                                }
-                                
-                                // 记录详细的错误日志（中文）
-                                String detailedError = ClaudeErrorCode.formatErrorMessage(
-                                    statusCode, errorType, errorMessage, requestBodyJson
-                                );
-                                log.error(detailedError);
-                                
-                                // 保存错误详情到请求日志
-                                requestLogService.logRequest(
-                                    apiKey.getId(),
-                                    account.getId(),
-                                    account.getEmail(),
-                                    "CLAUDE",
-                                    model,
-                                    null,
-                                    null,
-                                    0,
-                                    statusCode,
-                                    detailedError,
-                                    "/v1/messages",
-                                    requestBodyJson
-                                ).subscribe();
-                                
-                                return Mono.error(new org.springframework.web.reactive.function.client.WebClientResponseException(
-                                    statusCode,
-                                    ClaudeErrorCode.getDescription(String.valueOf(statusCode)),
-                                    null, body.getBytes(), null
-                                ));
-                            });
-                    })
-                    .bodyToMono(String.class)
-                    .doOnSuccess(response -> {
-                        log.info("Request completed successfully with account: {}", account.getId());
-                        accountPoolService.markAccountSuccess(account.getId());
-                        
-                        // Log successful request with retry information
-                        long latency = Duration.between(startTime, Instant.now()).toMillis();
-                        
-                        // Extract token usage from response if available
-                        Integer requestTokens = null;
-                        Integer responseTokens = null;
-                        try {
-                            JsonNode responseNode = JsonUtil.parseJson(response);
-                            if (responseNode.has("usage")) {
-                                JsonNode usage = responseNode.get("usage");
-                                requestTokens = usage.has("input_tokens") ? usage.get("input_tokens").asInt() : null;
-                                responseTokens = usage.has("output_tokens") ? usage.get("output_tokens").asInt() : null;
-                            }
-                        } catch (Exception e) {
-                            log.debug("Failed to parse usage from response", e);
-                        }
-                        
-                        requestLogService.logRequest(
-                            apiKey.getId(),
-                            account.getId(),
-                            account.getEmail(),
-                            "CLAUDE",
-                            model,
-                            requestTokens,
-                            responseTokens,
-                            (int) latency,
-                            200,
-                            null,
-                            "/v1/messages",
-                            null  // 成功请求不记录请求体
-                        ).subscribe();
-                    })
-                    .onErrorResume(error -> {
-                        accountPoolService.markAccountFailed(account.getId(), error);
-                        
-                        // Log failed request
-                        long latency = Duration.between(startTime, Instant.now()).toMillis();
-                        
-                        // Get status code from error if available
-                        int statusCode = 500;
-                        if (error instanceof org.springframework.web.reactive.function.client.WebClientResponseException) {
-                            statusCode = ((org.springframework.web.reactive.function.client.WebClientResponseException) error).getStatusCode().value();
-                        }
-                        
-                        // 记录失败请求时包含请求体
-                        String requestBodyJson = JsonUtil.toJson(request);
-                        requestLogService.logRequest(
-                            apiKey.getId(),
-                            account.getId(),
-                            account.getEmail(),
-                            "CLAUDE",
-                            model,
-                            null,
-                            null,
-                            (int) latency,
-                            statusCode,
-                            error.getMessage(),
-                            "/v1/messages",
-                            requestBodyJson  // 失败时记录请求体用于调试
-                        ).subscribe();
-                        
-                        // 判断是否应该重试
-                        boolean shouldRetry = ErrorClassifier.isRetryableError(error);
-                        String errorDesc = ErrorClassifier.getErrorDescription(error);
-                        
-                        if (!shouldRetry) {
-                            log.error("Account {} failed with non-retryable error: {} - {}", 
-                                account.getId(), statusCode, errorDesc);
-                            return Mono.just(buildErrorResponse(error));
-                        }
-                        
-                        // Check if retry is enabled and we haven't exceeded max attempts
-                        if (accountPoolConfig.isEnableRetry() && attempt + 1 < accountPoolConfig.getEffectiveMaxRetries()) {
-                            log.warn("Account {} failed with retryable error: {} - {}, trying next account... (attempt {}/{})", 
-                                account.getId(), statusCode, errorDesc, attempt + 1, accountPoolConfig.getEffectiveMaxRetries());
-                            return relayNormalRequestWithRetry(request, apiKey, triedAccounts, attempt + 1);
-                        } else {
-                            log.error("Account {} failed and no more retries allowed", account.getId());
-                            return Mono.just(buildErrorResponse(error));
-                        }
-                    });
-            })
-            .onErrorResume(error -> {
-                if (error.getMessage() != null && error.getMessage().contains("No available accounts")) {
-                    log.error("No more accounts available for retry");
-                    return Mono.just(buildErrorResponse(error));
-                }
-                return relayNormalRequestWithRetry(request, apiKey, triedAccounts, attempt + 1);
-            });
+        @Override
+        public Mono<String> fallbackResponse(RelayAccessLog accessLog, Throwable error) {
+            log.debug("Failing over after Claude error: {}", error.getMessage());
+            accessLog.onFailover(providerFailover.getProvider().name());
+            releaseRoute.run();
+            return providerFailover.relayNormalRequest(request, apiKey);
+        }
     }
     
     public Mono<Map<String, Object>> relayCompleteRequest(Map<String, Object> request, ApiKey apiKey) {
@@ -667,31 +361,22 @@ public class ProxyService {
     }
     
     private void setupHeaders(HttpHeaders headers, Account account) {
-        log.info("=== Setting up headers for Claude API ===");
-        log.info("Account ID: {}", account.getId());
-        log.info("Account Email: {}", account.getEmail());
-        log.info("Access Token (first 30 chars): {}", 
-            account.getAccessToken().substring(0, Math.min(30, account.getAccessToken().length())) + "...");
-        
         // Check token type and use appropriate header
         String token = account.getAccessToken();
-        if (token.startsWith("oauth_") || token.startsWith("sk-ant-oat")) {
+        boolean oauth = token.startsWith("oauth_") || token.startsWith("sk-ant-oat");
+        if (oauth) {
             // OAuth token - use Bearer authorization
-            log.info("Using OAuth token with Bearer authorization");
             headers.setBearerAuth(token);
             
             // Add Claude Code specific beta headers for OAuth
             headers.add("anthropic-beta", "claude-code-20250219,oauth-2025-04-20,interleaved-thinking-2025-05-14,fine-grained-tool-streaming-2025-05-14");
             // OAuth tokens use the anthropic-version
             headers.add(ApiConstants.CLAUDE_VERSION_HEADER, "2023-06-01");
-        } else if (token.startsWith("sk-ant-api")) {
-            // Standard API key - use x-api-key header and anthropic-version
-            log.info("Using standard API key with x-api-key header");
-            headers.add("x-api-key", token);
-            headers.add(ApiConstants.CLAUDE_VERSION_HEADER, ApiConstants.CLAUDE_VERSION);
         } else {
-            // Unknown format, try x-api-key
-            log.warn("Unknown token format, trying x-api-key header");
+            // Standard API key (or unknown format) - use x-api-key header and anthropic-version
+            if (!token.startsWith("sk-ant-api")) {
+                log.debug("Unknown token format for account {}, trying x-api-key header", account.getId());
+            }
             headers.add("x-api-key", token);
             headers.add(ApiConstants.CLAUDE_VERSION_HEADER, ApiConstants.CLAUDE_VERSION);
         }
@@ -699,44 +384,38 @@ public class ProxyService {
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.add("User-Agent", "claude-cli/1.0.57 (external, cli)");
         
-        log.info("Headers set: {}, Content-Type={}, User-Agent={}", 
-            token.startsWith("oauth_") || token.startsWith("sk-ant-oat") ? "Authorization=Bearer with anthropic-beta" : "x-api-key with anthropic-version",
-            MediaType.APPLICATION_JSON,
-            "claude-cli/1.0.57 (external, cli)");
+        log.debug("Headers set for account {}: {}", account.getId(),
+            oauth ? "Authorization=Bearer with anthropic-beta" : "x-api-key with anthropic-version");
     }
     
-    private String parseSSEData(String raw) {
-        if (raw == null || raw.isEmpty()) {
-            return null;
-        }
-        
-        if (raw.startsWith("data: ")) {
-            String data = raw.substring(6).trim();
-            if (!"[DONE]".equals(data)) {
-                return data;
-            }
+    /**
+     * 上游请求体使用紧凑 JSON（JsonUtil 默认带缩进）
+     */
+    private String toCompactJson(Map<String, Object> request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new RelayException("Failed to serialize request body", e);
         }
-        return raw;
     }
     
-    private String getEventType(String data) {
-        try {
-            JsonNode node = JsonUtil.parseJson(data);
-            if (node.has("type")) {
-                return node.get("type").asText();
-            }
-        } catch (Exception e) {
-            // Ignore parsing errors
+    private String buildErrorResponse(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            return buildErrorResponse(error.getMessage(), responseException.getStatusCode().value());
         }
-        return "message";
+        return buildErrorResponse(error.getMessage(), error instanceof RelayException relayException ? relayException.getHttpStatus() : 0);
     }
     
-    private String buildErrorResponse(Throwable error) {
-        return JsonUtil.toJson(Map.of(
-            "error", Map.of(
-                "message", error.getMessage(),
-                "type", "relay_error"
-            )
-        ));
+    /**
+     * status 为上游或中转自身对应的 HTTP 状态码，非流式的兼容接口据此设置响应状态；0 表示未知，不输出
+     */
+    private String buildErrorResponse(String message, int status) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", message);
+        body.put("type", "relay_error");
+        if (status > 0) {
+            body.put("status", status);
+        }
+        return JsonUtil.toJson(Map.of("error", body));
     }
-}
\ No newline at end of file
+}
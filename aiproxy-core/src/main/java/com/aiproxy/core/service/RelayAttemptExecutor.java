@@ -0,0 +1,462 @@
+package com.aiproxy.core.service;
+
+import com.aiproxy.common.enums.AIProvider;
+import com.aiproxy.common.exception.RelayException;
+import com.aiproxy.common.model.Account;
+import com.aiproxy.common.model.ApiKey;
+import com.aiproxy.common.service.RequestLogService;
+import com.aiproxy.common.tracing.RelayTracing;
+import com.aiproxy.common.utils.ErrorClassifier;
+import com.aiproxy.common.utils.LogRedactor;
+import com.aiproxy.core.accesslog.AccessLogService;
+import com.aiproxy.core.accesslog.RelayAccessLog;
+import com.aiproxy.core.admission.AdmissionControlService;
+import com.aiproxy.core.config.AccountPoolConfig;
+import com.aiproxy.core.metrics.RelayMetrics;
+import com.aiproxy.core.routing.RateLimitSnapshot;
+import com.aiproxy.core.transform.SseEventParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Claude / Gemini 中转共用的尝试与换号重试骨架
+ * <p>
+ * 每次尝试：选号 → 调用上游 → 记录指标、账号健康状态、访问日志和请求日志；可重试的错误换下一个账号，
+ * 直到达到重试上限。服务商之间的差异（选号、请求构造、SSE 事件格式、用量解析、错误体格式、兜底）
+ * 由 {@link Upstream} 提供。
+ */
+@Component
+@Slf4j
+class RelayAttemptExecutor {
+    
+    // 调试日志和错误日志中请求体的最大长度
+    private static final int MAX_LOGGED_BODY_LENGTH = 2048;
+    
+    private final AccountPoolService accountPoolService;
+    private final AccountPoolConfig accountPoolConfig;
+    private final RequestLogService requestLogService;
+    private final AdmissionControlService admissionControlService;
+    private final RelayMetrics relayMetrics;
+    private final AccessLogService accessLogService;
+    private final RelayTracing relayTracing;
+    
+    RelayAttemptExecutor(AccountPoolService accountPoolService,
+                         AccountPoolConfig accountPoolConfig,
+                         RequestLogService requestLogService,
+                         AdmissionControlService admissionControlService,
+                         RelayMetrics relayMetrics,
+                         AccessLogService accessLogService,
+                         RelayTracing relayTracing) {
+        this.accountPoolService = accountPoolService;
+        this.accountPoolConfig = accountPoolConfig;
+        this.requestLogService = requestLogService;
+        this.admissionControlService = admissionControlService;
+        this.relayMetrics = relayMetrics;
+        this.accessLogService = accessLogService;
+        this.relayTracing = relayTracing;
+    }
+    
+    /**
+     * 一个服务商的一次中转请求，由各中转按请求创建
+     */
+    interface Upstream {
+        
+        AIProvider provider();
+        
+        /**
+         * 上游路径，记录到请求日志
+         */
+        String endpoint(boolean stream);
+        
+        /**
+         * 从账号池选择账号，排除已尝试过的账号；没有可用账号时以错误结束
+         */
+        Mono<Account> selectAccount(Set<String> triedAccounts);
+        
+        /**
+         * 构造发往上游的请求（URI、请求头、请求体）
+         */
+        WebClient.RequestHeadersSpec<?> request(Account account, String requestBodyJson, boolean stream);
+        
+        UsageCollector usageCollector();
+        
+        /**
+         * 把上游的一个 SSE data 转换为返回给客户端的事件
+         */
+        ServerSentEvent<String> toEvent(String data);
+        
+        /**
+         * 上游错误响应的详细描述，写入错误日志和请求日志
+         */
+        String describeError(int statusCode, String body, String requestBodyJson);
+        
+        /**
+         * 上游错误响应转换为异常时使用的简短描述
+         */
+        String errorMessage(int statusCode, String body);
+        
+        /**
+         * 返回给客户端的错误体
+         */
+        String errorBody(Throwable error);
+        
+        String errorBody(int statusCode, String message);
+        
+        /**
+         * request_logs.account_id 外键指向 accounts 表，不落库的账号返回 null
+         */
+        default String loggedAccountId(Account account) {
+            return account.getId();
+        }
+        
+        /**
+         * 账号池耗尽或重试用尽后是否转交其他服务商
+         */
+        default boolean hasFallback() {
+            return false;
+        }
+        
+        default Flux<ServerSentEvent<String>> fallbackStream(RelayAccessLog accessLog, Throwable error) {
+            throw new UnsupportedOperationException();
+        }
+        
+        default Mono<String> fallbackResponse(RelayAccessLog accessLog, Throwable error) {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    /**
+     * 单个请求在重试链中共享的状态
+     */
+    private record RelayCall(Upstream upstream, ApiKey apiKey, String model, String requestBodyJson,
+                             RelayAccessLog accessLog, Set<String> triedAccounts) {
+    }
+    
+    /**
+     * 关闭重试时仍然发起一次请求
+     */
+    int maxAttempts() {
+        return Math.max(1, accountPoolConfig.getEffectiveMaxRetries());
+    }
+    
+    Flux<ServerSentEvent<String>> relayStream(Upstream upstream, ApiKey apiKey, String model, String requestBodyJson) {
+        // requestId 由 RequestTracingFilter 写入 Reactor Context
+        return Flux.deferContextual(context -> {
+            RelayCall call = new RelayCall(upstream, apiKey, model, requestBodyJson,
+                accessLogService.start(RelayTracing.requestId(context), apiKey.getId(), model, true), new HashSet<>());
+            return streamAttempt(call, 0)
+                .doFinally(signal -> {
+                    relayMetrics.recordRetries(call.triedAccounts().size(), true);
+                    accessLogService.finish(call.accessLog(), signal);
+                });
+        });
+    }
+    
+    Mono<String> relayNormal(Upstream upstream, ApiKey apiKey, String model, String requestBodyJson) {
+        return Mono.deferContextual(context -> {
+            RelayCall call = new RelayCall(upstream, apiKey, model, requestBodyJson,
+                accessLogService.start(RelayTracing.requestId(context), apiKey.getId(), model, false), new HashSet<>());
+            return normalAttempt(call, 0)
+                .doFinally(signal -> {
+                    relayMetrics.recordRetries(call.triedAccounts().size(), false);
+                    accessLogService.finish(call.accessLog(), signal);
+                });
+        });
+    }
+    
+    private Flux<ServerSentEvent<String>> streamAttempt(RelayCall call, int attempt) {
+        Upstream upstream = call.upstream();
+        log.debug("Relay {} stream request - API Key: {}, model: {}, attempt: {}/{}, tried accounts: {}",
+            upstream.provider(), call.apiKey().getId(), call.model(), attempt + 1, maxAttempts(), call.triedAccounts().size());
+        
+        // 达到上限说明已有账号选择或请求失败过
+        if (attempt >= maxAttempts()) {
+            log.error("All {} {} accounts failed for stream request", call.triedAccounts().size(), upstream.provider());
+            return poolExhaustedStream(call, new RelayException("All available accounts failed"));
+        }
+        
+        String endpoint = upstream.endpoint(true);
+        AtomicBoolean selected = new AtomicBoolean();
+        return relayMetrics.timeAccountSelection(upstream.selectAccount(call.triedAccounts()))
+            .doOnNext(account -> selected.set(true))
+            .flatMapMany(account -> {
+                RelayMetrics.Attempt metrics = beginAttempt(call, account, attempt, true);
+                RelayTracing.Span span = upstreamSpan(upstream, account, call.model(), attempt, true);
+                Instant startTime = Instant.now();
+                UsageCollector usage = upstream.usageCollector();
+                AtomicBoolean firstByte = new AtomicBoolean();
+                
+                return upstream.request(account, call.requestBodyJson(), true)
+                    .retrieve()
+                    .onStatus(status -> !status.is2xxSuccessful(), clientResponse ->
+                        upstreamError(clientResponse, call, account, endpoint, metrics))
+                    .toEntityFlux(String.class)
+                    .flatMapMany(entity -> {
+                        span.event("response.headers");
+                        metrics.onUpstreamStatus(entity.getStatusCode().value());
+                        accountPoolService.recordRateLimit(account.getId(), entity.getStatusCode().value(),
+                            RateLimitSnapshot.fromHeaders(entity.getHeaders()));
+                        return entity.getBody();
+                    })
+                    .map(SseEventParser::parseData)
+                    .filter(Objects::nonNull)
+                    .doOnNext(usage::accept)
+                    .doOnNext(data -> {
+                        metrics.onData(data);
+                        call.accessLog().onFirstByte();
+                        if (firstByte.compareAndSet(false, true)) {
+                            span.event("first.byte");
+                        }
+                    })
+                    .map(upstream::toEvent)
+                    .doOnComplete(() -> {
+                        span.event("stream.complete");
+                        onAttemptSuccess(call, account, endpoint, startTime, metrics, usage);
+                    })
+                    .doFinally(signal -> {
+                        metrics.cancel();
+                        accountPoolService.releaseAccount(account.getId());
+                    })
+                    .transform(span::trace)
+                    .onErrorResume(error -> switch (onAttemptFailure(call, error, account, endpoint, startTime, metrics, attempt)) {
+                        case RETRY -> streamAttempt(call, attempt + 1);
+                        case FALLBACK -> upstream.fallbackStream(call.accessLog(), error);
+                        case FAIL -> Flux.just(errorEvent(upstream.errorBody(error)));
+                    });
+            })
+            // 选号失败：池中已没有可用账号；选号之后的错误已在上面处理，兜底服务商的错误原样传递
+            .onErrorResume(error -> !selected.get(), error -> poolExhaustedStream(call, error));
+    }
+    
+    private Mono<String> normalAttempt(RelayCall call, int attempt) {
+        Upstream upstream = call.upstream();
+        log.debug("Relay {} normal request - API Key: {}, model: {}, attempt: {}/{}, tried accounts: {}",
+            upstream.provider(), call.apiKey().getId(), call.model(), attempt + 1, maxAttempts(), call.triedAccounts().size());
+        
+        if (attempt >= maxAttempts()) {
+            log.error("All {} {} accounts failed for normal request", call.triedAccounts().size(), upstream.provider());
+            return poolExhaustedResponse(call, new RelayException("All available accounts failed"));
+        }
+        
+        String endpoint = upstream.endpoint(false);
+        AtomicBoolean selected = new AtomicBoolean();
+        return relayMetrics.timeAccountSelection(upstream.selectAccount(call.triedAccounts()))
+            .doOnNext(account -> selected.set(true))
+            .flatMap(account -> {
+                RelayMetrics.Attempt metrics = beginAttempt(call, account, attempt, false);
+                RelayTracing.Span span = upstreamSpan(upstream, account, call.model(), attempt, false);
+                Instant startTime = Instant.now();
+                
+                return upstream.request(account, call.requestBodyJson(), false)
+                    .retrieve()
+                    .onStatus(status -> !status.is2xxSuccessful(), clientResponse ->
+                        upstreamError(clientResponse, call, account, endpoint, metrics))
+                    .toEntity(String.class)
+                    .flatMap(entity -> {
+                        span.event("response.received");
+                        metrics.onUpstreamStatus(entity.getStatusCode().value());
+                        accountPoolService.recordRateLimit(account.getId(), entity.getStatusCode().value(),
+                            RateLimitSnapshot.fromHeaders(entity.getHeaders()));
+                        return Mono.justOrEmpty(entity.getBody());
+                    })
+                    .doOnSuccess(response -> {
+                        UsageCollector usage = upstream.usageCollector();
+                        usage.accept(response);
+                        metrics.onResponseBody(response);
+                        onAttemptSuccess(call, account, endpoint, startTime, metrics, usage);
+                    })
+                    .doFinally(signal -> {
+                        metrics.cancel();
+                        accountPoolService.releaseAccount(account.getId());
+                    })
+                    .transform(span::trace)
+                    .onErrorResume(error -> switch (onAttemptFailure(call, error, account, endpoint, startTime, metrics, attempt)) {
+                        case RETRY -> normalAttempt(call, attempt + 1);
+                        case FALLBACK -> upstream.fallbackResponse(call.accessLog(), error);
+                        case FAIL -> Mono.just(upstream.errorBody(error));
+                    });
+            })
+            .onErrorResume(error -> !selected.get(), error -> poolExhaustedResponse(call, error));
+    }
+    
+    private RelayMetrics.Attempt beginAttempt(RelayCall call, Account account, int attempt, boolean stream) {
+        log.debug("{} attempt {}: using account {}", call.upstream().provider(), attempt + 1, account.getId());
+        call.accessLog().onAttempt(account.getId());
+        call.triedAccounts().add(account.getId());
+        accountPoolService.markAccountInFlight(account.getId());
+        
+        RelayMetrics.Attempt metrics = relayMetrics.startAttempt(call.model(), account.getId(), call.apiKey().getId(), stream);
+        metrics.onRequestBody(call.requestBodyJson());
+        if (log.isDebugEnabled()) {
+            log.debug("Sending request to {}: {}", call.upstream().provider(),
+                LogRedactor.redact(call.requestBodyJson(), MAX_LOGGED_BODY_LENGTH));
+        }
+        return metrics;
+    }
+    
+    /**
+     * 没有可用账号：有兜底时转交其他服务商，否则收缩准入限额并返回 503
+     */
+    private Flux<ServerSentEvent<String>> poolExhaustedStream(RelayCall call, Throwable error) {
+        if (call.upstream().hasFallback()) {
+            return call.upstream().fallbackStream(call.accessLog(), error);
+        }
+        admissionControlService.onOverload();
+        call.accessLog().onError(0, error.getMessage());
+        return Flux.just(errorEvent(call.upstream().errorBody(503, error.getMessage())));
+    }
+    
+    private Mono<String> poolExhaustedResponse(RelayCall call, Throwable error) {
+        if (call.upstream().hasFallback()) {
+            return call.upstream().fallbackResponse(call.accessLog(), error);
+        }
+        admissionControlService.onOverload();
+        call.accessLog().onError(0, error.getMessage());
+        return Mono.just(call.upstream().errorBody(503, error.getMessage()));
+    }
+    
+    /**
+     * 上游非 2xx：记录状态码、限流信息、错误日志和请求日志，转换为保留状态码的异常，由 ErrorClassifier 判断是否换账号重试
+     */
+    private Mono<? extends Throwable> upstreamError(ClientResponse clientResponse, RelayCall call, Account account,
+                                                    String endpoint, RelayMetrics.Attempt metrics) {
+        int statusCode = clientResponse.statusCode().value();
+        metrics.onUpstreamStatus(statusCode);
+        accountPoolService.recordRateLimit(account.getId(), statusCode,
+            RateLimitSnapshot.fromHeaders(clientResponse.headers().asHttpHeaders()));
+        if (statusCode == 429 || statusCode == 529) {
+            // 上游限流或过载：收缩准入限额，不必等到账号池耗尽
+            admissionControlService.onOverload();
+        }
+        
+        return clientResponse.bodyToMono(String.class)
+            .defaultIfEmpty("")
+            .flatMap(body -> {
+                String detailedError = call.upstream().describeError(statusCode, body, call.requestBodyJson());
+                log.error(LogRedactor.redact(detailedError, MAX_LOGGED_BODY_LENGTH));
+                
+                // 保存错误详情到请求日志
+                requestLogService.logRequest(
+                    call.accessLog().getRequestId(),
+                    call.apiKey().getId(),
+                    call.upstream().loggedAccountId(account),
+                    account.getEmail(),
+                    call.upstream().provider().name(),
+                    call.model(),
+                    null,
+                    null,
+                    0,
+                    statusCode,
+                    detailedError,
+                    endpoint,
+                    call.requestBodyJson()
+                ).subscribe();
+                
+                return Mono.error(WebClientResponseException.create(statusCode, call.upstream().errorMessage(statusCode, body),
+                    clientResponse.headers().asHttpHeaders(), body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+            });
+    }
+    
+    private void onAttemptSuccess(RelayCall call, Account account, String endpoint, Instant startTime,
+                                  RelayMetrics.Attempt metrics, UsageCollector usage) {
+        log.debug("{} request completed successfully with account: {}", call.upstream().provider(), account.getId());
+        accountPoolService.markAccountSuccess(account.getId());
+        metrics.success(usage.getInputTokens(), usage.getOutputTokens());
+        call.accessLog().onSuccess(200, usage.getInputTokens(), usage.getOutputTokens());
+        
+        long latency = Duration.between(startTime, Instant.now()).toMillis();
+        requestLogService.logRequest(
+            call.accessLog().getRequestId(),
+            call.apiKey().getId(),
+            call.upstream().loggedAccountId(account),
+            account.getEmail(),
+            call.upstream().provider().name(),
+            call.model(),
+            usage.getInputTokens(),
+            usage.getOutputTokens(),
+            (int) latency,
+            200,
+            null,
+            endpoint,
+            null  // 成功请求不记录请求体
+        ).subscribe();
+    }
+    
+    private enum Next { RETRY, FALLBACK, FAIL }
+    
+    /**
+     * 记录失败并决定下一步：换账号重试、转交兜底服务商或直接返回错误
+     */
+    private Next onAttemptFailure(RelayCall call, Throwable error, Account account, String endpoint,
+                                  Instant startTime, RelayMetrics.Attempt metrics, int attempt) {
+        accountPoolService.markAccountFailed(account.getId(), error);
+        metrics.failure();
+        
+        long latency = Duration.between(startTime, Instant.now()).toMillis();
+        int statusCode = error instanceof WebClientResponseException responseException
+            ? responseException.getStatusCode().value()
+            : 500;
+        call.accessLog().onError(statusCode, error.getMessage());
+        
+        // 记录失败请求时包含请求体
+        requestLogService.logRequest(
+            call.accessLog().getRequestId(),
+            call.apiKey().getId(),
+            call.upstream().loggedAccountId(account),
+            account.getEmail(),
+            call.upstream().provider().name(),
+            call.model(),
+            null,
+            null,
+            (int) latency,
+            statusCode,
+            error.getMessage(),
+            endpoint,
+            call.requestBodyJson()
+        ).subscribe();
+        
+        String errorDesc = ErrorClassifier.getErrorDescription(error);
+        if (!ErrorClassifier.isRetryableError(error)) {
+            log.error("{} account {} failed with non-retryable error: {} - {}",
+                call.upstream().provider(), account.getId(), statusCode, errorDesc);
+            return Next.FAIL;
+        }
+        if (attempt + 1 < maxAttempts()) {
+            log.warn("{} account {} failed with retryable error: {} - {}, trying next account... (attempt {}/{})",
+                call.upstream().provider(), account.getId(), statusCode, errorDesc, attempt + 1, maxAttempts());
+            return Next.RETRY;
+        }
+        log.error("{} account {} failed and no more retries allowed", call.upstream().provider(), account.getId());
+        return call.upstream().hasFallback() ? Next.FALLBACK : Next.FAIL;
+    }
+    
+    private RelayTracing.Span upstreamSpan(Upstream upstream, Account account, String model, int attempt, boolean stream) {
+        return relayTracing.span("relay.upstream.attempt")
+            .tag("stream", String.valueOf(stream))
+            .tag("provider", upstream.provider().name())
+            .attribute("account.id", account.getId())
+            .attribute("model", model)
+            .attribute("attempt", attempt + 1);
+    }
+    
+    private static ServerSentEvent<String> errorEvent(String body) {
+        return ServerSentEvent.<String>builder()
+            .event("error")
+            .data(body)
+            .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.aiproxy.core.service;
+
+import com.aiproxy.core.config.AccountPoolConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 会话粘滞表：把客户端会话映射到固定账号
+ * 
+ * 本地使用有界 LRU，Redis 中镜像一份（带 TTL）供多节点共享。
+ */
+@Service
+@Slf4j
+public class SessionAffinityService {
+    
+    private static final String SESSION_KEY_PREFIX = "relay:session:";
+    
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final AccountPoolConfig accountPoolConfig;
+    private final Map<String, SessionBinding> localTable;
+    
+    public SessionAffinityService(ReactiveRedisTemplate<String, String> redisTemplate,
+                                  AccountPoolConfig accountPoolConfig) {
+        this.redisTemplate = redisTemplate;
+        this.accountPoolConfig = accountPoolConfig;
+        int maxEntries = Math.max(1, accountPoolConfig.getSessionAffinity().getMaxEntries());
+        this.localTable = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SessionBinding> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    /**
+     * 查询会话绑定的账号：先查本地 LRU，未命中再查 Redis
+     */
+    public Mono<String> lookup(String sessionKey) {
+        long now = System.currentTimeMillis();
+        SessionBinding binding;
+        synchronized (localTable) {
+            binding = localTable.get(sessionKey);
+            if (binding != null && binding.expiresAt() <= now) {
+                localTable.remove(sessionKey);
+                binding = null;
+            }
+        }
+        
+        if (binding != null) {
+            // 过了半个 TTL 才续期，避免每个请求都写 Redis
+            if (binding.expiresAt() - now < ttl().toMillis() / 2) {
+                bind(sessionKey, binding.accountId());
+            }
+            return Mono.just(binding.accountId());
+        }
+        
+        return redisTemplate.opsForValue()
+            .get(SESSION_KEY_PREFIX + sessionKey)
+            .doOnNext(accountId -> putLocal(sessionKey, accountId))
+            .onErrorResume(error -> {
+                log.warn("Failed to read session affinity from Redis: {}", error.getMessage());
+                return Mono.empty();
+            });
+    }
+    
+    /**
+     * 绑定（或重新绑定）会话到账号
+     */
+    public void bind(String sessionKey, String accountId) {
+        putLocal(sessionKey, accountId);
+        redisTemplate.opsForValue()
+            .set(SESSION_KEY_PREFIX + sessionKey, accountId, ttl())
+            .subscribe(
+                ok -> log.debug("Session {} bound to account {}", sessionKey, accountId),
+                error -> log.warn("Failed to write session affinity to Redis: {}", error.getMessage())
+            );
+    }
+    
+    public int size() {
+        synchronized (localTable) {
+            return localTable.size();
+        }
+    }
+    
+    private void putLocal(String sessionKey, String accountId) {
+        long expiresAt = System.currentTimeMillis() + ttl().toMillis();
+        synchronized (localTable) {
+            localTable.put(sessionKey, new SessionBinding(accountId, expiresAt));
+        }
+    }
+    
+    private Duration ttl() {
+        return accountPoolConfig.getSessionAffinity().getTtl();
+    }
+    
+    private record SessionBinding(String accountId, long expiresAt) {}
+}
@@ -0,0 +1,228 @@
+package com.aiproxy.core.service;
+
+import com.aiproxy.core.config.ClusterConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 通过 Redis 在多个节点间共享账号状态
+ * 
+ * - 冷却截止时间：写入 Redis 并通过 pub/sub 广播，其他节点实时更新本地缓存
+ * - 在途请求数：各节点定期上报自己的计数，读取其他存活节点的计数求和
+ * 
+ * 选号路径只读本地缓存，不产生 Redis 往返。
+ */
+@Service
+@Slf4j
+public class SharedAccountStateService {
+    
+    private static final String HEALTH_KEY_PREFIX = "relay:account:health:";
+    private static final String INFLIGHT_KEY_PREFIX = "relay:account:inflight:";
+    private static final String NODES_KEY = "relay:nodes";
+    private static final String EVENTS_CHANNEL = "relay:account:events";
+    private static final String COOLDOWN_FIELD = "cooldownUntil";
+    
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final ClusterConfig clusterConfig;
+    private final String nodeId;
+    
+    // 其他节点广播的冷却截止时间（epoch 毫秒）
+    private final Map<String, Long> remoteCooldowns = new ConcurrentHashMap<>();
+    // 其他节点的在途请求数之和
+    private volatile Map<String, Integer> remoteInFlight = Map.of();
+    
+    private final AtomicBoolean syncing = new AtomicBoolean(false);
+    private volatile Supplier<Map<String, Integer>> inFlightSource = Map::of;
+    private Disposable subscription;
+    
+    public SharedAccountStateService(ReactiveRedisTemplate<String, String> redisTemplate,
+                                     ClusterConfig clusterConfig) {
+        this.redisTemplate = redisTemplate;
+        this.clusterConfig = clusterConfig;
+        this.nodeId = clusterConfig.getNodeId() != null && !clusterConfig.getNodeId().isBlank()
+            ? clusterConfig.getNodeId()
+            : UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!clusterConfig.isEnabled()) {
+            return;
+        }
+        log.info("Cluster coordination enabled, node id: {}", nodeId);
+        
+        loadCooldowns();
+        
+        subscription = redisTemplate.listenToChannel(EVENTS_CHANNEL)
+            .map(ReactiveSubscription.Message::getMessage)
+            .doOnNext(this::applyEvent)
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                .maxBackoff(Duration.ofSeconds(30))
+                .doBeforeRetry(signal -> log.warn("Account event subscription lost, retrying: {}", 
+                    signal.failure().getMessage())))
+            .subscribe();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    /**
+     * 注册本节点在途请求数的数据源
+     */
+    public void registerInFlightSource(Supplier<Map<String, Integer>> source) {
+        this.inFlightSource = source;
+    }
+    
+    public long getRemoteCooldownUntil(String accountId) {
+        return remoteCooldowns.getOrDefault(accountId, 0L);
+    }
+    
+    public int getRemoteInFlight(String accountId) {
+        return remoteInFlight.getOrDefault(accountId, 0);
+    }
+    
+    /**
+     * 广播账号进入冷却
+     */
+    public void publishCooldown(String accountId, long cooldownUntil) {
+        if (!clusterConfig.isEnabled()) {
+            return;
+        }
+        String key = HEALTH_KEY_PREFIX + accountId;
+        redisTemplate.opsForHash().put(key, COOLDOWN_FIELD, String.valueOf(cooldownUntil))
+            .then(redisTemplate.expireAt(key, Instant.ofEpochMilli(cooldownUntil)))
+            .then(redisTemplate.convertAndSend(EVENTS_CHANNEL, encodeEvent(accountId, cooldownUntil)))
+            .subscribe(
+                receivers -> log.debug("Published cooldown of account {} until {}", accountId, cooldownUntil),
+                error -> log.warn("Failed to publish cooldown for account {}: {}", accountId, error.getMessage())
+            );
+    }
+    
+    /**
+     * 广播账号恢复健康
+     */
+    public void publishRecovered(String accountId) {
+        if (!clusterConfig.isEnabled()) {
+            return;
+        }
+        redisTemplate.delete(HEALTH_KEY_PREFIX + accountId)
+            .then(redisTemplate.convertAndSend(EVENTS_CHANNEL, encodeEvent(accountId, 0L)))
+            .subscribe(
+                receivers -> log.debug("Published recovery of account {}", accountId),
+                error -> log.warn("Failed to publish recovery for account {}: {}", accountId, error.getMessage())
+            );
+    }
+    
+    /**
+     * 上报本节点在途请求数，并汇总其他存活节点的计数
+     */
+    @Scheduled(fixedDelayString = "${relay.cluster.sync-interval:500}")
+    public void syncInFlight() {
+        if (!clusterConfig.isEnabled() || !syncing.compareAndSet(false, true)) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        remoteCooldowns.values().removeIf(until -> until <= now);
+        Duration nodeTtl = Duration.ofMillis(clusterConfig.getNodeTtl());
+        String ownKey = INFLIGHT_KEY_PREFIX + nodeId;
+        
+        Map<String, String> snapshot = new HashMap<>();
+        inFlightSource.get().forEach((accountId, count) -> snapshot.put(accountId, String.valueOf(count)));
+        
+        Mono<Boolean> report = snapshot.isEmpty()
+            ? Mono.just(true)
+            : redisTemplate.<String, String>opsForHash().putAll(ownKey, snapshot)
+                .then(redisTemplate.expire(ownKey, nodeTtl));
+        
+        report
+            .then(redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now))
+            .then(redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 
+                Range.closed(0.0, (double) (now - nodeTtl.toMillis()))))
+            .thenMany(redisTemplate.opsForZSet().rangeByScore(NODES_KEY, 
+                Range.closed((double) (now - nodeTtl.toMillis()), Double.MAX_VALUE)))
+            .filter(node -> !nodeId.equals(node))
+            .flatMap(node -> redisTemplate.<String, String>opsForHash().entries(INFLIGHT_KEY_PREFIX + node))
+            .collect(HashMap<String, Integer>::new, (totals, entry) -> 
+                totals.merge(entry.getKey(), parseInt(entry.getValue()), Integer::sum))
+            .doFinally(signal -> syncing.set(false))
+            .subscribe(
+                totals -> remoteInFlight = totals,
+                error -> log.debug("Failed to sync in-flight counters: {}", error.getMessage())
+            );
+    }
+    
+    private void loadCooldowns() {
+        redisTemplate.scan(ScanOptions.scanOptions().match(HEALTH_KEY_PREFIX + "*").count(100).build())
+            .flatMap(key -> redisTemplate.<String, String>opsForHash().get(key, COOLDOWN_FIELD)
+                .doOnNext(value -> remoteCooldowns.put(
+                    key.substring(HEALTH_KEY_PREFIX.length()), parseLong(value))))
+            .onErrorResume(error -> {
+                log.warn("Failed to load shared account cooldowns: {}", error.getMessage());
+                return Flux.empty();
+            })
+            .subscribe();
+    }
+    
+    private void applyEvent(String event) {
+        String[] parts = event.split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        long cooldownUntil = parseLong(parts[2]);
+        if (cooldownUntil > System.currentTimeMillis()) {
+            remoteCooldowns.put(parts[1], cooldownUntil);
+        } else {
+            remoteCooldowns.remove(parts[1]);
+        }
+        log.debug("Account {} cooldown updated by node {}: {}", parts[1], parts[0], cooldownUntil);
+    }
+    
+    private String encodeEvent(String accountId, long cooldownUntil) {
+        return nodeId + "|" + accountId + "|" + cooldownUntil;
+    }
+    
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+    
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -3,12 +3,15 @@ package com.aiproxy.core.service;
 import com.aiproxy.auth.service.AccountService;
 import com.aiproxy.auth.service.ApiKeyService;
 import com.aiproxy.common.model.ClaudeAccount;
-import com.aiproxy.common.repository.RequestLogRepository;
+import com.aiproxy.common.persistence.PersistenceScheduler;
+import com.aiproxy.common.repository.UsageStatisticsHourlyRepository;
+import com.aiproxy.common.repository.UsageStatisticsRepository;
+import com.aiproxy.common.repository.UsageTotals;
+import com.aiproxy.core.metrics.RealtimeMetricsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -24,7 +27,17 @@ public class StatsService {
     
     private final AccountService accountService;
     private final ApiKeyService apiKeyService;
-    private final RequestLogRepository requestLogRepository;
+    private final UsageStatisticsRepository usageStatisticsRepository;
+    private final UsageStatisticsHourlyRepository usageStatisticsHourlyRepository;
+    private final UsageRollupService usageRollupService;
+    private final UsageTimeSeriesService usageTimeSeriesService;
+    private final RealtimeMetricsService realtimeMetricsService;
+    private final PersistenceScheduler persistenceScheduler;
+    
+    private static final int MODEL_DISTRIBUTION_DAYS = 30;
+    private static final String[] CHART_COLORS = {
+        "#8884d8", "#82ca9d", "#ffc658", "#ff7c7c", "#8dd1e1", "#a4de6c", "#d0ed57", "#ffa07a"
+    };
     
     // 实时统计数据存储
     private final Map<String, AtomicLong> todayStats = new ConcurrentHashMap<>();
@@ -37,8 +50,6 @@ public class StatsService {
         todayStats.put("requests", new AtomicLong(0));
         todayStats.put("tokens", new AtomicLong(0));
         todayStats.put("errors", new AtomicLong(0));
-        todayStats.put("rpm", new AtomicLong(0));
-        todayStats.put("tpm", new AtomicLong(0));
         
         totalStats.put("requests", new AtomicLong(0));
         totalStats.put("tokens", new AtomicLong(0));
@@ -52,7 +63,7 @@ public class StatsService {
         return Mono.zip(
             accountService.getAllAccounts().collectList(),  // 从OAuth服务获取账号
             apiKeyService.getAllApiKeys().collectList(),    // 获取所有API Keys
-            getRequestLogsStats()                           // 从request_logs表获取统计
+            getUsageStats()                                 // 从汇总表获取统计
         ).map(tuple -> {
             var claudeAccounts = tuple.getT1();
             var apiKeys = tuple.getT2();
@@ -77,12 +88,12 @@ public class StatsService {
                 (claudeAccounts.stream().filter(acc -> "ACTIVE".equals(acc.getStatus())).count() * 100.0) / claudeAccounts.size();
             stats.put("accountPoolHealth", healthPercentage);
             
-            // 今日统计 - 从request_logs获取
+            // 今日统计 - 从小时汇总表获取
             stats.put("todayRequests", logsStats.getOrDefault("todayRequests", 0L));
             stats.put("todayTokens", logsStats.getOrDefault("todayTokens", 0L));
             stats.put("todayErrors", logsStats.getOrDefault("todayErrors", 0L));
             
-            // 总统计 - 从request_logs获取
+            // 总统计 - 从日汇总表获取
             stats.put("totalRequests", logsStats.getOrDefault("totalRequests", 0L));
             stats.put("totalTokensUsed", logsStats.getOrDefault("totalTokens", 0L));
             
@@ -93,8 +104,8 @@ public class StatsService {
             stats.put("successRate", String.format("%.2f", successRate));
             
             // 实时RPM和TPM
-            stats.put("currentRPM", todayStats.get("rpm").get());
-            stats.put("currentTPM", todayStats.get("tpm").get());
+            stats.put("currentRPM", realtimeMetricsService.getRequestsPerMinute());
+            stats.put("currentTPM", realtimeMetricsService.getTokensPerMinute());
             
             // 平均响应时间（模拟数据，实际应该从请求日志计算）
             stats.put("avgResponseTime", 1230);
@@ -107,62 +118,57 @@ public class StatsService {
      * 获取Token使用趋势数据（最近7天）
      */
     public Mono<List<Map<String, Object>>> getTokenUsageTrend() {
-        return Mono.fromCallable(() -> {
-            List<Map<String, Object>> trend = new ArrayList<>();
-            LocalDate today = LocalDate.now();
-            
-            for (int i = 6; i >= 0; i--) {
-                LocalDate date = today.minusDays(i);
-                Map<String, Object> data = new HashMap<>();
-                data.put("date", date.toString());
-                
-                // 实际应该从数据库查询历史数据
-                // 这里暂时生成示例数据
-                data.put("tokens", (long) (Math.random() * 50000) + 30000);
-                data.put("requests", (long) (Math.random() * 1000) + 500);
-                
-                trend.add(data);
-            }
-            
-            return trend;
-        });
+        return getTokenUsageTrend(7);
     }
     
     /**
-     * 获取模型使用分布数据
+     * 获取最近 days 天的Token使用趋势（按天）
+     */
+    public Mono<List<Map<String, Object>>> getTokenUsageTrend(int days) {
+        LocalDateTime from = LocalDate.now().minusDays(Math.max(days, 1) - 1L).atStartOfDay();
+        LocalDateTime to = LocalDate.now().plusDays(1).atStartOfDay();
+        
+        return usageTimeSeriesService.getSeries(from, to, 
+                UsageTimeSeriesService.Granularity.DAY, UsageTimeSeriesService.GroupBy.NONE)
+            .map(points -> points.stream()
+                .map(point -> {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("date", LocalDateTime.parse((String) point.get("time")).toLocalDate().toString());
+                    data.put("tokens", point.get("tokens"));
+                    data.put("requests", point.get("requests"));
+                    return data;
+                })
+                .collect(Collectors.toList()));
+    }
+    
+    /**
+     * 获取模型使用分布数据（最近30天，按请求数占比）
      */
     public Mono<List<Map<String, Object>>> getModelUsageDistribution() {
-        return Mono.fromCallable(() -> {
-            List<Map<String, Object>> distribution = new ArrayList<>();
-            
-            // 实际应该从请求日志统计
-            // 这里返回示例数据
-            Map<String, Object> opus41 = new HashMap<>();
-            opus41.put("name", "Claude Opus 4.1");
-            opus41.put("value", 40);
-            opus41.put("color", "#8884d8");
-            distribution.add(opus41);
-            
-            Map<String, Object> sonnet4 = new HashMap<>();
-            sonnet4.put("name", "Claude Sonnet 4");
-            sonnet4.put("value", 25);
-            sonnet4.put("color", "#82ca9d");
-            distribution.add(sonnet4);
-            
-            Map<String, Object> sonnet37 = new HashMap<>();
-            sonnet37.put("name", "Claude Sonnet 3.7");
-            sonnet37.put("value", 20);
-            sonnet37.put("color", "#ffc658");
-            distribution.add(sonnet37);
-            
-            Map<String, Object> haiku35 = new HashMap<>();
-            haiku35.put("name", "Claude Haiku 3.5");
-            haiku35.put("value", 15);
-            haiku35.put("color", "#ff7c7c");
-            distribution.add(haiku35);
-            
-            return distribution;
-        });
+        LocalDateTime to = LocalDateTime.now().plusMinutes(1);
+        
+        return usageTimeSeriesService.getBreakdown(to.minusDays(MODEL_DISTRIBUTION_DAYS), to, 
+                UsageTimeSeriesService.GroupBy.MODEL)
+            .map(breakdown -> {
+                long totalRequests = breakdown.stream()
+                    .mapToLong(entry -> (Long) entry.get("requests"))
+                    .sum();
+                
+                List<Map<String, Object>> distribution = new ArrayList<>();
+                for (int i = 0; i < breakdown.size(); i++) {
+                    Map<String, Object> entry = breakdown.get(i);
+                    long requests = (Long) entry.get("requests");
+                    
+                    Map<String, Object> model = new HashMap<>();
+                    model.put("name", entry.get("key"));
+                    model.put("value", totalRequests > 0 ? Math.round(requests * 1000.0 / totalRequests) / 10.0 : 0);
+                    model.put("requests", requests);
+                    model.put("tokens", entry.get("tokens"));
+                    model.put("color", CHART_COLORS[i % CHART_COLORS.length]);
+                    distribution.add(model);
+                }
+                return distribution;
+            });
     }
     
     /**
@@ -209,14 +215,6 @@ public class StatsService {
             .merge("count", 1L, Long::sum);
     }
     
-    /**
-     * 更新实时RPM/TPM
-     */
-    public void updateRealTimeMetrics(long rpm, long tpm) {
-        todayStats.get("rpm").set(rpm);
-        todayStats.get("tpm").set(tpm);
-    }
-    
     /**
      * 重置今日统计（每天凌晨调用）
      */
@@ -234,36 +232,28 @@ public class StatsService {
     }
     
     /**
-     * 从request_logs表获取统计数据
+     * 从汇总表获取统计数据，并加上内存中尚未写入的部分
      */
-    private Mono<Map<String, Object>> getRequestLogsStats() {
-        return Mono.fromCallable(() -> {
+    private Mono<Map<String, Object>> getUsageStats() {
+        return persistenceScheduler.mono(() -> {
             Map<String, Object> stats = new HashMap<>();
-            LocalDate today = LocalDate.now();
-            LocalDateTime todayStart = today.atStartOfDay();
+            LocalDateTime todayStart = LocalDate.now().atStartOfDay();
             
             try {
-                // 获取总统计
-                Long totalRequests = requestLogRepository.countByStatusCodeBetween(200, 299);
-                Long totalErrors = requestLogRepository.countByStatusCodeGreaterThanEqual(400);
-                Long totalTokens = requestLogRepository.sumTotalTokens();
-                
-                // 获取今日统计
-                Long todayRequests = requestLogRepository.countByCreatedAtAfterAndStatusCodeBetween(
-                    todayStart, 200, 299);
-                Long todayErrors = requestLogRepository.countByCreatedAtAfterAndStatusCodeGreaterThanEqual(
-                    todayStart, 400);
-                Long todayTokens = requestLogRepository.sumTotalTokensByCreatedAtAfter(todayStart);
+                UsageTotals total = usageStatisticsRepository.sumAll();
+                UsageTotals today = usageStatisticsHourlyRepository.sumSince(todayStart);
+                UsageRollupService.Counters pendingTotal = usageRollupService.pendingSince(LocalDateTime.MIN);
+                UsageRollupService.Counters pendingToday = usageRollupService.pendingSince(todayStart);
                 
-                stats.put("totalRequests", totalRequests != null ? totalRequests : 0L);
-                stats.put("totalErrors", totalErrors != null ? totalErrors : 0L);
-                stats.put("totalTokens", totalTokens != null ? totalTokens : 0L);
-                stats.put("todayRequests", todayRequests != null ? todayRequests : 0L);
-                stats.put("todayErrors", todayErrors != null ? todayErrors : 0L);
-                stats.put("todayTokens", todayTokens != null ? todayTokens : 0L);
+                stats.put("totalRequests", valueOf(total.getRequests()) + pendingTotal.getRequests());
+                stats.put("totalErrors", valueOf(total.getErrors()) + pendingTotal.getErrors());
+                stats.put("totalTokens", valueOf(total.getTokens()) + pendingTotal.getTotalTokens());
+                stats.put("todayRequests", valueOf(today.getRequests()) + pendingToday.getRequests());
+                stats.put("todayErrors", valueOf(today.getErrors()) + pendingToday.getErrors());
+                stats.put("todayTokens", valueOf(today.getTokens()) + pendingToday.getTotalTokens());
                 
             } catch (Exception e) {
-                log.error("Error fetching request logs stats:", e);
+                log.error("Error fetching usage stats:", e);
                 // 返回默认值
                 stats.put("totalRequests", 0L);
                 stats.put("totalErrors", 0L);
@@ -274,6 +264,10 @@ public class StatsService {
             }
             
             return stats;
-        }).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+    
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
     }
-}
\ No newline at end of file
+}
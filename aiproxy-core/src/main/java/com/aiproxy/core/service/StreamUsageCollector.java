@@ -0,0 +1,51 @@
+package com.aiproxy.core.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 从流式响应的 SSE 事件中收集 token 用量：
+ * message_start 携带 input_tokens，message_delta 携带累计的 output_tokens
+ */
+@Slf4j
+class StreamUsageCollector implements UsageCollector {
+    
+    private final ObjectMapper objectMapper;
+    private volatile Integer inputTokens;
+    private volatile Integer outputTokens;
+    
+    StreamUsageCollector(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    public void accept(String data) {
+        // 只有 message_start / message_delta 含 usage，其余事件跳过 JSON 解析
+        if (data == null || !data.contains("\"usage\"")) {
+            return;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(data);
+            JsonNode usage = node.has("message") ? node.path("message").path("usage") : node.path("usage");
+            if (usage.has("input_tokens")) {
+                inputTokens = usage.get("input_tokens").asInt();
+            }
+            if (usage.has("output_tokens")) {
+                outputTokens = usage.get("output_tokens").asInt();
+            }
+        } catch (Exception e) {
+            log.debug("Failed to parse usage from stream event", e);
+        }
+    }
+    
+    @Override
+    public Integer getInputTokens() {
+        return inputTokens;
+    }
+    
+    @Override
+    public Integer getOutputTokens() {
+        return outputTokens;
+    }
+}
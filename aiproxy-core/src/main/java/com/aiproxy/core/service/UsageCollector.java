@@ -0,0 +1,13 @@
+package com.aiproxy.core.service;
+
+/**
+ * 从上游响应中收集 token 用量；流式响应逐个 SSE data 调用，非流式响应传入完整响应体
+ */
+interface UsageCollector {
+    
+    void accept(String data);
+    
+    Integer getInputTokens();
+    
+    Integer getOutputTokens();
+}
@@ -0,0 +1,381 @@
+package com.aiproxy.core.service;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+import com.aiproxy.common.model.UsageBucket;
+import com.aiproxy.common.model.UsageCounterRow;
+import com.aiproxy.common.persistence.PersistenceScheduler;
+import com.aiproxy.common.repository.UsageStatisticsHourlyRepository;
+import com.aiproxy.common.repository.UsageStatisticsRepository;
+import com.aiproxy.common.service.RequestLogListener;
+import com.aiproxy.common.store.UsageCounterStore;
+import com.aiproxy.core.config.UsageRollupConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 使用量增量汇总
+ * <p>
+ * 每条请求日志保存后在内存中按分钟累加，定时把已结束的分钟合并成小时/日粒度后
+ * upsert 到 usage_statistics_hourly 和 usage_statistics，统计查询只需扫描汇总行。
+ * <p>
+ * 写入在独立的线程上执行，不占用 @Scheduled 的公共线程（集群状态同步每 500ms 也在那里运行）。
+ */
+@Service
+@Slf4j
+public class UsageRollupService implements RequestLogListener {
+    
+    private static final String BACKFILL_LOCK = "aiproxy_usage_rollup_backfill";
+    private static final String HOURLY_TABLE = "usage_statistics_hourly";
+    private static final String DAILY_TABLE = "usage_statistics";
+    
+    private final UsageRollupConfig config;
+    private final UsageStatisticsRepository dailyRepository;
+    private final UsageStatisticsHourlyRepository hourlyRepository;
+    private final PersistenceScheduler persistenceScheduler;
+    private final UsageCounterStore usageCounterStore;
+    private final TransactionTemplate lockTransaction;
+    private final TransactionTemplate backfillTransaction;
+    private final ConcurrentHashMap<RollupKey, Counters> minuteBuckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("usage-rollup").daemon().factory());
+    
+    public UsageRollupService(UsageRollupConfig config,
+                              UsageStatisticsRepository dailyRepository,
+                              UsageStatisticsHourlyRepository hourlyRepository,
+                              PersistenceScheduler persistenceScheduler,
+                              UsageCounterStore usageCounterStore,
+                              PlatformTransactionManager transactionManager) {
+        this.config = config;
+        this.dailyRepository = dailyRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.persistenceScheduler = persistenceScheduler;
+        this.usageCounterStore = usageCounterStore;
+        this.lockTransaction = new TransactionTemplate(transactionManager);
+        this.backfillTransaction = new TransactionTemplate(transactionManager);
+        this.backfillTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (!config.isBackfillOnStartup()) {
+            scheduleFlush();
+            return;
+        }
+        // 截止时间之后的日志由内存聚合负责，避免重复计数；
+        // 回填结束（成功、失败或由其他节点执行）后才开始 flush，期间的日志留在内存里
+        LocalDateTime cutoff = LocalDateTime.now();
+        persistenceScheduler.run(() -> backfill(cutoff))
+            .doFinally(signal -> scheduleFlush())
+            .subscribe(
+                ok -> { },
+                error -> log.warn("Usage rollup backfill failed: {}", error.getMessage())
+            );
+    }
+    
+    private void scheduleFlush() {
+        flushExecutor.scheduleWithFixedDelay(this::flushClosedBuckets,
+            config.getFlushInterval(), config.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public void onRequestLogged(RequestLogEntity logEntity) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        LocalDateTime createdAt = logEntity.getCreatedAt() != null ? logEntity.getCreatedAt() : LocalDateTime.now();
+        RollupKey key = new RollupKey(
+            createdAt.truncatedTo(ChronoUnit.MINUTES),
+            emptyIfNull(logEntity.getApiKeyId()),
+            emptyIfNull(logEntity.getAccountId()),
+            emptyIfNull(logEntity.getProvider()),
+            emptyIfNull(logEntity.getModel())
+        );
+        boolean error = logEntity.getStatusCode() != null && logEntity.getStatusCode() >= 400;
+        
+        // compute 与 flush 时的 remove 在同一个桶锁内执行，累加不会丢失
+        minuteBuckets.compute(key, (k, counters) -> {
+            Counters target = counters != null ? counters : new Counters();
+            target.add(1, error ? 1 : 0,
+                valueOf(logEntity.getRequestTokens()),
+                valueOf(logEntity.getResponseTokens()),
+                valueOf(logEntity.getTotalTokens()),
+                valueOf(logEntity.getLatencyMs()));
+            return target;
+        });
+    }
+    
+    public void flushClosedBuckets() {
+        try {
+            flush(LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES));
+        } catch (RuntimeException e) {
+            // 异常逃出会取消周期任务
+            log.error("Usage rollup flush failed", e);
+        }
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        flush(LocalDateTime.MAX);
+    }
+    
+    /**
+     * 尚未写入数据库的统计（since 之后），用于和汇总表结果相加得到实时数据
+     */
+    public Counters pendingSince(LocalDateTime since) {
+        Counters total = new Counters();
+        minuteBuckets.forEach((key, counters) -> {
+            if (!key.minute().isBefore(since.truncatedTo(ChronoUnit.MINUTES))) {
+                total.merge(counters);
+            }
+        });
+        return total;
+    }
+    
+    /**
+     * 尚未写入数据库的分钟桶（[from, to) 内），dimension 取值同 UsageSeriesRepository
+     */
+    public List<UsageBucket> pendingBuckets(LocalDateTime from, LocalDateTime to, String dimension) {
+        List<UsageBucket> result = new ArrayList<>();
+        minuteBuckets.forEach((key, counters) -> {
+            if (key.minute().isBefore(from) || !key.minute().isBefore(to)) {
+                return;
+            }
+            result.add(new UsageBucket(key.minute(), dimension != null ? key.dimension(dimension) : null,
+                counters.requests, counters.errors, counters.requestTokens, counters.responseTokens,
+                counters.totalTokens, counters.latencySum));
+        });
+        return result;
+    }
+    
+    private void flush(LocalDateTime before) {
+        List<Map.Entry<RollupKey, Counters>> drained = new ArrayList<>();
+        for (RollupKey key : minuteBuckets.keySet()) {
+            if (!key.minute().isBefore(before)) {
+                continue;
+            }
+            Counters counters = minuteBuckets.remove(key);
+            if (counters != null) {
+                drained.add(Map.entry(key, counters));
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        
+        try {
+            write(drained);
+            log.debug("Flushed {} minute buckets into usage rollups", drained.size());
+        } catch (Exception e) {
+            if (!isConstraintViolation(e)) {
+                // 整批在一个事务内写入，失败时全部回滚，放回内存下次重试不会重复累加
+                log.warn("Failed to flush usage rollups, will retry: {}", e.getMessage());
+                requeue(drained);
+                return;
+            }
+            // 约束失败（如 API Key / 账号已删除导致外键失败）重试也不会成功，
+            // 按维度拆开分别写入，只丢弃写不进去的维度，其余照常入库
+            log.warn("Usage rollup flush hit a constraint violation, retrying per dimension: {}", e.getMessage());
+            Map<RollupKey, List<Map.Entry<RollupKey, Counters>>> byDimensions = new LinkedHashMap<>();
+            drained.forEach(entry -> byDimensions
+                .computeIfAbsent(entry.getKey().withMinute(null), k -> new ArrayList<>())
+                .add(entry));
+            byDimensions.forEach(this::writeDimension);
+        }
+    }
+    
+    private void writeDimension(RollupKey dimensions, List<Map.Entry<RollupKey, Counters>> entries) {
+        try {
+            write(entries);
+        } catch (Exception e) {
+            if (isConstraintViolation(e)) {
+                long requests = entries.stream().mapToLong(entry -> entry.getValue().requests).sum();
+                log.warn("Dropping {} requests of usage for apiKey={} account={} model={}: {}",
+                    requests, dimensions.apiKeyId(), dimensions.accountId(), dimensions.model(), e.getMessage());
+            } else {
+                log.warn("Failed to flush usage rollups, will retry: {}", e.getMessage());
+                requeue(entries);
+            }
+        }
+    }
+    
+    /**
+     * 合并成小时/日粒度后写入；UsageCounterStore 保证一次调用在同一个事务内完成
+     */
+    private void write(List<Map.Entry<RollupKey, Counters>> entries) {
+        Map<RollupKey, Counters> hourly = new HashMap<>();
+        Map<RollupKey, Counters> daily = new HashMap<>();
+        for (Map.Entry<RollupKey, Counters> entry : entries) {
+            RollupKey key = entry.getKey();
+            hourly.computeIfAbsent(key.withMinute(key.minute().truncatedTo(ChronoUnit.HOURS)), k -> new Counters())
+                .merge(entry.getValue());
+            daily.computeIfAbsent(key.withMinute(key.minute().truncatedTo(ChronoUnit.DAYS)), k -> new Counters())
+                .merge(entry.getValue());
+        }
+        usageCounterStore.flush(
+            hourly.entrySet().stream().map(e -> hourlyRow(e.getKey(), e.getValue())).toList(),
+            daily.entrySet().stream().map(e -> dailyRow(e.getKey(), e.getValue())).toList()
+        ).block();
+    }
+    
+    private void requeue(List<Map.Entry<RollupKey, Counters>> entries) {
+        entries.forEach(entry -> minuteBuckets.merge(entry.getKey(), entry.getValue(), Counters::merged));
+    }
+    
+    private static boolean isConstraintViolation(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static UsageCounterRow hourlyRow(RollupKey key, Counters counters) {
+        return new UsageCounterRow(key.minute(), key.apiKeyId(), key.accountId(), key.provider(), key.model(),
+            counters.requests, counters.errors, counters.requestTokens, counters.responseTokens,
+            counters.totalTokens, counters.latencySum);
+    }
+    
+    private static UsageCounterRow dailyRow(RollupKey key, Counters counters) {
+        // usage_statistics 的维度列有外键约束，空值必须写 NULL
+        return new UsageCounterRow(key.minute(), nullIfEmpty(key.apiKeyId()), nullIfEmpty(key.accountId()),
+            nullIfEmpty(key.provider()), nullIfEmpty(key.model()),
+            counters.requests, counters.errors, counters.requestTokens, counters.responseTokens,
+            counters.totalTokens, counters.latencySum);
+    }
+    
+    /**
+     * 多个节点同时启动时用数据库命名锁保证只有一个节点回填，其余节点跳过。
+     * 锁在外层事务的连接上持有，回填在独立事务中提交后才释放，后启动的节点一定能看到回填结果。
+     * 是否已回填看 usage_rollup_backfill 中的标记，不看汇总表是否为空：其他节点的 flush
+     * 可能先写入汇总行，那样历史日志就永远不会回填
+     */
+    private void backfill(LocalDateTime cutoff) {
+        lockTransaction.executeWithoutResult(lock -> {
+            Integer locked = hourlyRepository.tryLock(BACKFILL_LOCK);
+            if (locked == null || locked != 1) {
+                log.info("Usage rollup backfill is running on another node, skipping");
+                return;
+            }
+            try {
+                backfillTransaction.executeWithoutResult(status -> {
+                    if (hourlyRepository.countBackfillMarker(HOURLY_TABLE) == 0) {
+                        int rows = hourlyRepository.backfillFromRequestLogs(cutoff);
+                        hourlyRepository.markBackfilled(HOURLY_TABLE, cutoff, rows);
+                        log.info("Backfilled {} hourly usage rollups from request_logs", rows);
+                    }
+                    if (hourlyRepository.countBackfillMarker(DAILY_TABLE) == 0) {
+                        int rows = dailyRepository.backfillFromRequestLogs(cutoff);
+                        hourlyRepository.markBackfilled(DAILY_TABLE, cutoff, rows);
+                        log.info("Backfilled {} daily usage rollups from request_logs", rows);
+                    }
+                });
+            } finally {
+                hourlyRepository.releaseLock(BACKFILL_LOCK);
+            }
+        });
+    }
+    
+    private static String emptyIfNull(String value) {
+        return value != null ? value : "";
+    }
+    
+    private static String nullIfEmpty(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
+    private static long valueOf(Integer value) {
+        return value != null ? value : 0L;
+    }
+    
+    /**
+     * 汇总维度；minute 字段在合并到小时/日时存放对应粒度的起始时间
+     */
+    private record RollupKey(LocalDateTime minute, String apiKeyId, String accountId, String provider, String model) {
+        
+        RollupKey withMinute(LocalDateTime bucket) {
+            return new RollupKey(bucket, apiKeyId, accountId, provider, model);
+        }
+        
+        String dimension(String name) {
+            return switch (name) {
+                case "model" -> model;
+                case "apiKeyId" -> apiKeyId;
+                case "accountId" -> accountId;
+                case "provider" -> provider;
+                default -> throw new IllegalArgumentException("Unsupported dimension: " + name);
+            };
+        }
+    }
+    
+    /**
+     * 一个时间桶内的累计值；写入在 ConcurrentHashMap.compute 内串行执行
+     */
+    public static class Counters {
+        private volatile long requests;
+        private volatile long errors;
+        private volatile long requestTokens;
+        private volatile long responseTokens;
+        private volatile long totalTokens;
+        private volatile long latencySum;
+        
+        void add(long requests, long errors, long requestTokens, long responseTokens, long totalTokens, long latencySum) {
+            this.requests += requests;
+            this.errors += errors;
+            this.requestTokens += requestTokens;
+            this.responseTokens += responseTokens;
+            this.totalTokens += totalTokens;
+            this.latencySum += latencySum;
+        }
+        
+        void merge(Counters other) {
+            add(other.requests, other.errors, other.requestTokens, other.responseTokens, other.totalTokens, other.latencySum);
+        }
+        
+        static Counters merged(Counters a, Counters b) {
+            a.merge(b);
+            return a;
+        }
+        
+        public long getRequests() {
+            return requests;
+        }
+        
+        public long getErrors() {
+            return errors;
+        }
+        
+        public long getTotalTokens() {
+            return totalTokens;
+        }
+        
+        public long getLatencySum() {
+            return latencySum;
+        }
+    }
+}
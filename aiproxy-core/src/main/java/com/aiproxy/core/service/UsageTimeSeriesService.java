@@ -0,0 +1,207 @@
+package com.aiproxy.core.service;
+
+import com.aiproxy.common.model.UsageBucket;
+import com.aiproxy.common.persistence.PersistenceScheduler;
+import com.aiproxy.common.repository.UsageStatisticsHourlyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基于小时汇总表（加上内存中未写入的分钟桶）的使用量时间序列，
+ * 查询成本与桶数量成正比，与请求日志行数无关
+ */
+@Service
+@Slf4j
+public class UsageTimeSeriesService {
+    
+    /**
+     * 单次查询最多返回的时间桶数量，防止超长范围 + 小时粒度生成过大的结果
+     */
+    private static final int MAX_BUCKETS = 2000;
+    private static final String UNKNOWN = "unknown";
+    
+    private final UsageStatisticsHourlyRepository hourlyRepository;
+    private final UsageRollupService usageRollupService;
+    private final PersistenceScheduler persistenceScheduler;
+    
+    public UsageTimeSeriesService(UsageStatisticsHourlyRepository hourlyRepository,
+                                  UsageRollupService usageRollupService,
+                                  PersistenceScheduler persistenceScheduler) {
+        this.hourlyRepository = hourlyRepository;
+        this.usageRollupService = usageRollupService;
+        this.persistenceScheduler = persistenceScheduler;
+    }
+    
+    public enum Granularity {
+        HOUR, DAY, WEEK, MONTH;
+        
+        LocalDateTime truncate(LocalDateTime time) {
+            return switch (this) {
+                case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+                case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+                case WEEK -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            };
+        }
+        
+        LocalDateTime next(LocalDateTime bucket) {
+            return switch (this) {
+                case HOUR -> bucket.plusHours(1);
+                case DAY -> bucket.plusDays(1);
+                case WEEK -> bucket.plusWeeks(1);
+                case MONTH -> bucket.plusMonths(1);
+            };
+        }
+        
+        public static Granularity fromString(String value) {
+            return value == null || value.isBlank() ? DAY : valueOf(value.trim().toUpperCase());
+        }
+    }
+    
+    public enum GroupBy {
+        NONE(null), MODEL("model"), API_KEY("apiKeyId"), ACCOUNT("accountId"), PROVIDER("provider");
+        
+        private final String dimension;
+        
+        GroupBy(String dimension) {
+            this.dimension = dimension;
+        }
+        
+        public static GroupBy fromString(String value) {
+            if (value == null || value.isBlank()) {
+                return NONE;
+            }
+            return switch (value.trim().toLowerCase()) {
+                case "model" -> MODEL;
+                case "apikey", "api_key", "key" -> API_KEY;
+                case "account" -> ACCOUNT;
+                case "provider" -> PROVIDER;
+                case "none" -> NONE;
+                default -> throw new IllegalArgumentException("Unsupported groupBy: " + value);
+            };
+        }
+    }
+    
+    /**
+     * 查询 [from, to) 内的使用量序列
+     * 未分组时按时间补零返回连续序列；分组时每个时间桶内每个维度值一条记录
+     */
+    public Mono<List<Map<String, Object>>> getSeries(LocalDateTime from, LocalDateTime to,
+                                                     Granularity granularity, GroupBy groupBy) {
+        LocalDateTime start = granularity.truncate(from);
+        if (!to.isAfter(start)) {
+            return Mono.error(new IllegalArgumentException("'to' must be after 'from'"));
+        }
+        if (estimateBuckets(start, to, granularity) > MAX_BUCKETS) {
+            return Mono.error(new IllegalArgumentException(
+                "Range too large for " + granularity + " granularity (max " + MAX_BUCKETS + " buckets)"));
+        }
+        
+        return persistenceScheduler.mono(() -> {
+            Map<LocalDateTime, Map<String, long[]>> series = aggregate(start, to, granularity, groupBy.dimension);
+            List<Map<String, Object>> result = new ArrayList<>();
+            
+            if (groupBy == GroupBy.NONE) {
+                for (LocalDateTime bucket = start; bucket.isBefore(to); bucket = granularity.next(bucket)) {
+                    long[] totals = series.getOrDefault(bucket, Map.of()).getOrDefault(UNKNOWN, new long[6]);
+                    result.add(toPoint(bucket, null, totals));
+                }
+            } else {
+                series.forEach((bucket, byDimension) -> byDimension.forEach((value, totals) ->
+                    result.add(toPoint(bucket, value, totals))));
+            }
+            return result;
+        });
+    }
+    
+    /**
+     * 按维度汇总整个范围（不区分时间桶），按请求数降序
+     */
+    public Mono<List<Map<String, Object>>> getBreakdown(LocalDateTime from, LocalDateTime to, GroupBy groupBy) {
+        if (groupBy == GroupBy.NONE) {
+            return Mono.error(new IllegalArgumentException("groupBy is required for a breakdown"));
+        }
+        return persistenceScheduler.mono(() -> {
+            Map<String, long[]> totals = new HashMap<>();
+            for (UsageBucket bucket : loadBuckets(from, to, groupBy.dimension)) {
+                accumulate(totals.computeIfAbsent(dimensionValue(bucket), k -> new long[6]), bucket);
+            }
+            
+            List<Map<String, Object>> result = new ArrayList<>();
+            totals.forEach((value, sums) -> result.add(toPoint(null, value, sums)));
+            result.sort(Comparator.comparingLong((Map<String, Object> point) -> (Long) point.get("requests")).reversed());
+            return result;
+        });
+    }
+    
+    private Map<LocalDateTime, Map<String, long[]>> aggregate(LocalDateTime from, LocalDateTime to,
+                                                           Granularity granularity, String dimension) {
+        Map<LocalDateTime, Map<String, long[]>> series = new TreeMap<>();
+        for (UsageBucket bucket : loadBuckets(from, to, dimension)) {
+            LocalDateTime key = granularity.truncate(bucket.bucket());
+            accumulate(series.computeIfAbsent(key, k -> new LinkedHashMap<>())
+                .computeIfAbsent(dimensionValue(bucket), k -> new long[6]), bucket);
+        }
+        return series;
+    }
+    
+    private List<UsageBucket> loadBuckets(LocalDateTime from, LocalDateTime to, String dimension) {
+        // 小时表以整点为键，查询起点向下取整；内存中的分钟桶按原始范围过滤
+        List<UsageBucket> buckets = new ArrayList<>(
+            hourlyRepository.findHourlySeries(from.truncatedTo(ChronoUnit.HOURS), to, dimension));
+        buckets.addAll(usageRollupService.pendingBuckets(from, to, dimension));
+        return buckets;
+    }
+    
+    private static void accumulate(long[] sums, UsageBucket bucket) {
+        sums[0] += bucket.requests();
+        sums[1] += bucket.errors();
+        sums[2] += bucket.requestTokens();
+        sums[3] += bucket.responseTokens();
+        sums[4] += bucket.totalTokens();
+        sums[5] += bucket.latencySumMs();
+    }
+    
+    private static String dimensionValue(UsageBucket bucket) {
+        return bucket.dimension() == null || bucket.dimension().isEmpty() ? UNKNOWN : bucket.dimension();
+    }
+    
+    private static Map<String, Object> toPoint(LocalDateTime bucket, String dimension, long[] sums) {
+        Map<String, Object> point = new LinkedHashMap<>();
+        if (bucket != null) {
+            point.put("time", bucket.toString());
+        }
+        if (dimension != null) {
+            point.put("key", dimension);
+        }
+        point.put("requests", sums[0]);
+        point.put("errors", sums[1]);
+        point.put("requestTokens", sums[2]);
+        point.put("responseTokens", sums[3]);
+        point.put("tokens", sums[4]);
+        point.put("avgLatencyMs", sums[0] > 0 ? sums[5] / sums[0] : 0L);
+        return point;
+    }
+    
+    private static long estimateBuckets(LocalDateTime from, LocalDateTime to, Granularity granularity) {
+        return switch (granularity) {
+            case HOUR -> ChronoUnit.HOURS.between(from, to) + 1;
+            case DAY -> ChronoUnit.DAYS.between(from, to) + 1;
+            case WEEK -> ChronoUnit.WEEKS.between(from, to) + 1;
+            case MONTH -> ChronoUnit.MONTHS.between(from, to) + 1;
+        };
+    }
+}
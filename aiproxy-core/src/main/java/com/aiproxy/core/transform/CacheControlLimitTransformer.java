@@ -0,0 +1,27 @@
+package com.aiproxy.core.transform;
+
+import java.util.Map;
+
+/**
+ * 按出现顺序保留前 maxBlocks 个 cache_control，多余的删除（上游最多允许 4 个）
+ */
+final class CacheControlLimitTransformer implements RequestTransformer {
+    
+    private final int maxBlocks;
+    
+    CacheControlLimitTransformer(int maxBlocks) {
+        this.maxBlocks = maxBlocks;
+    }
+    
+    @Override
+    public boolean visitsBlocks() {
+        return true;
+    }
+    
+    @Override
+    public void transformBlock(Map<String, Object> block, TransformContext context) {
+        if (block.containsKey("cache_control") && context.countCacheControlBlock() > maxBlocks) {
+            block.remove("cache_control");
+        }
+    }
+}
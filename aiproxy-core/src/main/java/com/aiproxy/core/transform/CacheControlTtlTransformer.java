@@ -0,0 +1,22 @@
+package com.aiproxy.core.transform;
+
+import java.util.Map;
+
+/**
+ * 去掉 cache_control 中的 ttl，避免上游报错
+ */
+final class CacheControlTtlTransformer implements RequestTransformer {
+    
+    @Override
+    public boolean visitsBlocks() {
+        return true;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public void transformBlock(Map<String, Object> block, TransformContext context) {
+        if (block.get("cache_control") instanceof Map<?, ?> cacheControl) {
+            ((Map<String, Object>) cacheControl).remove("ttl");
+        }
+    }
+}
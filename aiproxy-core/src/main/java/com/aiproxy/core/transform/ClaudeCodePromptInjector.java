@@ -0,0 +1,121 @@
+package com.aiproxy.core.transform;
+
+import com.aiproxy.core.config.PromptInjectionConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OAuth 账号请求预处理：注入 Claude Code 系统提示词，并清理 cache_control（去掉 ttl、限制数量）
+ * <p>
+ * 运行时由 {@link RequestTransformPipeline} 在一次遍历中完成；这里保留独立的清理方法供基准测试对比。
+ */
+@Slf4j
+public final class ClaudeCodePromptInjector {
+    
+    /**
+     * Claude Code system prompt - MUST be exact match!
+     */
+    public static final String CLAUDE_CODE_PROMPT = "You are Claude Code, Anthropic's official CLI for Claude.";
+    
+    private static final RequestTransformPipeline DEFAULT_PIPELINE = RequestTransformPipeline.compile(null,
+        new PromptInjectionConfig().getRules().get(PromptInjectionConfig.CLAUDE_OAUTH), new ObjectMapper());
+    
+    private ClaudeCodePromptInjector() {
+    }
+    
+    /**
+     * 按默认的 claude-oauth 规则注入；运行时的流水线由 {@link RequestTransformers} 按配置编译
+     */
+    public static Map<String, Object> inject(Map<String, Object> request) {
+        return DEFAULT_PIPELINE.apply(request);
+    }
+    
+    /**
+     * Strip TTL field from cache_control to avoid API errors
+     */
+    @SuppressWarnings("unchecked")
+    public static void stripTtlFromCacheControl(Map<String, Object> requestBody) {
+        // Process system field
+        Object system = requestBody.get("system");
+        if (system instanceof List) {
+            processContentArrayForTtl((List<Object>) system);
+        }
+        
+        // Process messages field
+        Object messages = requestBody.get("messages");
+        if (messages instanceof List) {
+            for (Object message : (List<Object>) messages) {
+                if (message instanceof Map) {
+                    Object content = ((Map<String, Object>) message).get("content");
+                    if (content instanceof List) {
+                        processContentArrayForTtl((List<Object>) content);
+                    }
+                }
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static void processContentArrayForTtl(List<Object> contentArray) {
+        for (Object item : contentArray) {
+            if (item instanceof Map) {
+                Map<String, Object> itemMap = (Map<String, Object>) item;
+                Object cacheControl = itemMap.get("cache_control");
+                if (cacheControl instanceof Map) {
+                    Map<String, Object> cacheControlMap = (Map<String, Object>) cacheControl;
+                    if (cacheControlMap.containsKey("ttl")) {
+                        cacheControlMap.remove("ttl");
+                        log.debug("Removed ttl from cache_control");
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Limit the number of cache_control blocks to avoid exceeding API limit (max 4)
+     */
+    @SuppressWarnings("unchecked")
+    public static void limitCacheControlCount(Map<String, Object> requestBody, int maxCount) {
+        AtomicInteger currentCount = new AtomicInteger(0);
+        
+        // Count and potentially remove cache_control from system
+        Object system = requestBody.get("system");
+        if (system instanceof List) {
+            limitCacheControlInArray((List<Object>) system, currentCount, maxCount);
+        }
+        
+        // Count and potentially remove cache_control from messages
+        Object messages = requestBody.get("messages");
+        if (messages instanceof List) {
+            for (Object message : (List<Object>) messages) {
+                if (message instanceof Map) {
+                    Object content = ((Map<String, Object>) message).get("content");
+                    if (content instanceof List) {
+                        limitCacheControlInArray((List<Object>) content, currentCount, maxCount);
+                    }
+                }
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static void limitCacheControlInArray(List<Object> array, AtomicInteger currentCount, int maxCount) {
+        for (Object item : array) {
+            if (item instanceof Map) {
+                Map<String, Object> itemMap = (Map<String, Object>) item;
+                if (itemMap.containsKey("cache_control")) {
+                    if (currentCount.incrementAndGet() > maxCount) {
+                        // Remove excess cache_control
+                        itemMap.remove("cache_control");
+                        log.debug("Removed excess cache_control to stay within API limit");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.aiproxy.core.transform;
+
+import java.util.Map;
+
+/**
+ * max_tokens 超过上限时截断到上限
+ */
+final class MaxTokensClampTransformer implements RequestTransformer {
+    
+    private final int maxTokens;
+    
+    MaxTokensClampTransformer(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+    
+    @Override
+    public void transformRequest(Map<String, Object> request, TransformContext context) {
+        if (request.get("max_tokens") instanceof Number requested && requested.longValue() > maxTokens) {
+            request.put("max_tokens", maxTokens);
+        }
+    }
+}
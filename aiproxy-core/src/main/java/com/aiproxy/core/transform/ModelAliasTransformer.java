@@ -0,0 +1,25 @@
+package com.aiproxy.core.transform;
+
+import java.util.Map;
+
+/**
+ * 把模型别名改写为上游模型名
+ */
+final class ModelAliasTransformer implements RequestTransformer {
+    
+    private final Map<String, String> aliases;
+    
+    ModelAliasTransformer(Map<String, String> aliases) {
+        this.aliases = Map.copyOf(aliases);
+    }
+    
+    @Override
+    public void transformRequest(Map<String, Object> request, TransformContext context) {
+        if (request.get("model") instanceof String model) {
+            String target = aliases.get(model);
+            if (target != null) {
+                request.put("model", target);
+            }
+        }
+    }
+}
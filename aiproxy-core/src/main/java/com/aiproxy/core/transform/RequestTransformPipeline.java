@@ -0,0 +1,125 @@
+package com.aiproxy.core.transform;
+
+import com.aiproxy.core.config.PromptInjectionConfig;
+import com.aiproxy.core.config.RequestTransformConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的请求改写流水线：顶层字段改写 + 一次内容块遍历 + 收尾
+ * <p>
+ * 步骤顺序固定：删除字段、模型别名、max_tokens 上限、去掉 cache_control 的 ttl、
+ * 限制 cache_control 数量、注入 system 块。编译后只读，可被所有请求共享。
+ */
+public final class RequestTransformPipeline {
+    
+    private static final RequestTransformPipeline IDENTITY = new RequestTransformPipeline(List.of());
+    
+    private final RequestTransformer[] transformers;
+    private final RequestTransformer[] blockTransformers;
+    
+    private RequestTransformPipeline(List<RequestTransformer> transformers) {
+        this.transformers = transformers.toArray(RequestTransformer[]::new);
+        this.blockTransformers = transformers.stream()
+            .filter(RequestTransformer::visitsBlocks)
+            .toArray(RequestTransformer[]::new);
+    }
+    
+    public static RequestTransformPipeline of(List<RequestTransformer> transformers) {
+        return transformers.isEmpty() ? IDENTITY : new RequestTransformPipeline(List.copyOf(transformers));
+    }
+    
+    /**
+     * 按配置编译；rule 为空或未启用时只包含通用改写
+     */
+    public static RequestTransformPipeline compile(RequestTransformConfig config, PromptInjectionConfig.Rule rule,
+                                                   ObjectMapper objectMapper) {
+        List<RequestTransformer> transformers = new ArrayList<>();
+        if (config != null) {
+            if (!config.getStripFields().isEmpty()) {
+                transformers.add(new StripFieldsTransformer(config.getStripFields()));
+            }
+            if (!config.getModelAliases().isEmpty()) {
+                transformers.add(new ModelAliasTransformer(config.getModelAliases()));
+            }
+            if (config.getMaxTokens() > 0) {
+                transformers.add(new MaxTokensClampTransformer(config.getMaxTokens()));
+            }
+        }
+        if (rule != null && rule.isEnabled()) {
+            SystemPromptBlock block = rule.getText() != null && !rule.getText().isBlank()
+                ? new SystemPromptBlock(rule.getText(), rule.getCacheControl(), objectMapper)
+                : null;
+            if (rule.isStripCacheControlTtl()) {
+                transformers.add(new CacheControlTtlTransformer());
+            }
+            if (rule.getMaxCacheControlBlocks() > 0) {
+                // 给注入块预留一个 cache_control 名额
+                int reserved = block != null && block.hasCacheControl() ? 1 : 0;
+                transformers.add(new CacheControlLimitTransformer(Math.max(0, rule.getMaxCacheControlBlocks() - reserved)));
+            }
+            if (block != null) {
+                transformers.add(new SystemPromptInjectionTransformer(block, rule.getPosition()));
+            }
+        }
+        return of(transformers);
+    }
+    
+    /**
+     * 不做任何修改的流水线
+     */
+    public static RequestTransformPipeline identity() {
+        return IDENTITY;
+    }
+    
+    /**
+     * 返回改写后的请求；顶层是浅拷贝，内容块上的改写会作用在客户端传入的对象上
+     */
+    public Map<String, Object> apply(Map<String, Object> request) {
+        if (transformers.length == 0) {
+            return request;
+        }
+        Map<String, Object> modifiedRequest = new HashMap<>(request);
+        TransformContext context = new TransformContext();
+        
+        for (RequestTransformer transformer : transformers) {
+            transformer.transformRequest(modifiedRequest, context);
+        }
+        if (blockTransformers.length > 0) {
+            visitBlocks(modifiedRequest, context);
+        }
+        for (RequestTransformer transformer : transformers) {
+            transformer.complete(modifiedRequest, context);
+        }
+        return modifiedRequest;
+    }
+    
+    private void visitBlocks(Map<String, Object> request, TransformContext context) {
+        if (request.get("system") instanceof List<?> system) {
+            visitContent(system, context);
+        }
+        if (request.get("messages") instanceof List<?> messages) {
+            for (Object message : messages) {
+                if (message instanceof Map<?, ?> messageMap && messageMap.get("content") instanceof List<?> content) {
+                    visitContent(content, context);
+                }
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void visitContent(List<?> content, TransformContext context) {
+        for (Object item : content) {
+            if (item instanceof Map<?, ?> && !(item instanceof SystemPromptBlock)) {
+                Map<String, Object> block = (Map<String, Object>) item;
+                for (RequestTransformer transformer : blockTransformers) {
+                    transformer.transformBlock(block, context);
+                }
+            }
+        }
+    }
+}
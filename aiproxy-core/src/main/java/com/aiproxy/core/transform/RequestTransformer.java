@@ -0,0 +1,39 @@
+package com.aiproxy.core.transform;
+
+import java.util.Map;
+
+/**
+ * 请求改写步骤
+ * <p>
+ * 各步骤由 {@link RequestTransformPipeline} 编译到同一次遍历中：先对顶层字段依次调用
+ * {@link #transformRequest}，然后按出现顺序遍历 system 和 messages 中的内容块，每个块依次交给
+ * 所有步骤的 {@link #transformBlock}，最后调用 {@link #complete}。只实现需要的回调即可，
+ * 没有任何步骤处理内容块时整棵消息树不会被遍历。
+ */
+public interface RequestTransformer {
+    
+    /**
+     * 改写顶层字段；request 已是浅拷贝，可以直接修改
+     */
+    default void transformRequest(Map<String, Object> request, TransformContext context) {
+    }
+    
+    /**
+     * 是否需要逐块处理
+     */
+    default boolean visitsBlocks() {
+        return false;
+    }
+    
+    /**
+     * 处理 system 或 message content 中的一个内容块；块来自客户端请求，修改会作用在原对象上
+     */
+    default void transformBlock(Map<String, Object> block, TransformContext context) {
+    }
+    
+    /**
+     * 遍历结束后调用，用于需要看到完整结果的改写（例如拼接注入块）
+     */
+    default void complete(Map<String, Object> request, TransformContext context) {
+    }
+}
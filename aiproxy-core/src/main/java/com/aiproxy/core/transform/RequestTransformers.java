@@ -0,0 +1,54 @@
+package com.aiproxy.core.transform;
+
+import com.aiproxy.core.config.PromptInjectionConfig;
+import com.aiproxy.core.config.RequestTransformConfig;
+import com.aiproxy.core.routing.ModelRoutingTable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按账号类型编译好的请求改写流水线
+ * <p>
+ * 通用改写（relay.transform）对所有账号类型生效，注入规则（relay.prompt-injection.rules）按账号类型叠加。
+ */
+@Component
+@Slf4j
+public class RequestTransformers {
+    
+    private final Map<String, RequestTransformPipeline> pipelines = new HashMap<>();
+    private final RequestTransformPipeline defaultPipeline;
+    
+    public RequestTransformers(RequestTransformConfig config, PromptInjectionConfig injectionConfig,
+                               ModelRoutingTable modelRoutingTable) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        RequestTransformConfig transformConfig = withRoutingAliases(config, modelRoutingTable);
+        this.defaultPipeline = RequestTransformPipeline.compile(transformConfig, null, objectMapper);
+        injectionConfig.getRules().forEach((accountType, rule) -> {
+            pipelines.put(accountType, RequestTransformPipeline.compile(transformConfig, rule, objectMapper));
+            log.info("Request transform pipeline for {}: injection={}, position={}, cacheControl={}", 
+                accountType, rule.isEnabled(), rule.getPosition(), rule.getCacheControl());
+        });
+    }
+    
+    /**
+     * 路由表（relay.claude.models）中的别名与 relay.transform.model-aliases 合并，后者优先
+     */
+    private static RequestTransformConfig withRoutingAliases(RequestTransformConfig config, ModelRoutingTable modelRoutingTable) {
+        RequestTransformConfig merged = new RequestTransformConfig();
+        merged.setStripFields(config.getStripFields());
+        merged.setMaxTokens(config.getMaxTokens());
+        Map<String, String> aliases = new LinkedHashMap<>(modelRoutingTable.getAliases());
+        aliases.putAll(config.getModelAliases());
+        merged.setModelAliases(aliases);
+        return merged;
+    }
+    
+    public RequestTransformPipeline forAccountType(String accountType) {
+        return pipelines.getOrDefault(accountType, defaultPipeline);
+    }
+}
@@ -0,0 +1,45 @@
+package com.aiproxy.core.transform;
+
+import com.aiproxy.common.utils.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 上游 SSE 行解析
+ */
+public final class SseEventParser {
+    
+    private SseEventParser() {
+    }
+    
+    /**
+     * 提取 "data: " 行的内容；[DONE] 和其他行原样返回
+     */
+    public static String parseData(String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+        
+        if (raw.startsWith("data: ")) {
+            String data = raw.substring(6).trim();
+            if (!"[DONE]".equals(data)) {
+                return data;
+            }
+        }
+        return raw;
+    }
+    
+    /**
+     * 事件 JSON 中的 type 字段，解析失败时为 message
+     */
+    public static String eventType(String data) {
+        try {
+            JsonNode node = JsonUtil.parseJson(data);
+            if (node.has("type")) {
+                return node.get("type").asText();
+            }
+        } catch (Exception e) {
+            // Ignore parsing errors
+        }
+        return "message";
+    }
+}
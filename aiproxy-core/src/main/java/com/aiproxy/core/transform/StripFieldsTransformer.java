@@ -0,0 +1,23 @@
+package com.aiproxy.core.transform;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 删除上游不接受的顶层字段
+ */
+final class StripFieldsTransformer implements RequestTransformer {
+    
+    private final String[] fields;
+    
+    StripFieldsTransformer(List<String> fields) {
+        this.fields = fields.toArray(String[]::new);
+    }
+    
+    @Override
+    public void transformRequest(Map<String, Object> request, TransformContext context) {
+        for (String field : fields) {
+            request.remove(field);
+        }
+    }
+}
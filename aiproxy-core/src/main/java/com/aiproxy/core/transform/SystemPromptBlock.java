@@ -0,0 +1,89 @@
+package com.aiproxy.core.transform;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预编译的 system 文本块
+ * <p>
+ * 以不可变 Map 的形式参与后续处理（前缀哈希、cache_control 计数等按 Map 读取），
+ * 序列化时直接写出构造时生成的 JSON 片段，所有请求共享同一个实例。
+ */
+public final class SystemPromptBlock extends AbstractMap<String, Object> implements JsonSerializable {
+    
+    private final Map<String, Object> fields;
+    private final String json;
+    
+    public SystemPromptBlock(String text, String cacheControlType, ObjectMapper objectMapper) {
+        // 保持 type、text、cache_control 的字段顺序，与客户端常见写法一致
+        Map<String, Object> block = new LinkedHashMap<>();
+        block.put("type", "text");
+        block.put("text", text);
+        if (cacheControlType != null && !cacheControlType.isBlank()) {
+            block.put("cache_control", Map.of("type", cacheControlType));
+        }
+        this.fields = Collections.unmodifiableMap(block);
+        try {
+            this.json = objectMapper.writeValueAsString(fields);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize system prompt block", e);
+        }
+    }
+    
+    public String text() {
+        return (String) fields.get("text");
+    }
+    
+    public boolean hasCacheControl() {
+        return fields.containsKey("cache_control");
+    }
+    
+    /**
+     * 预先生成的 JSON 片段
+     */
+    public String json() {
+        return json;
+    }
+    
+    /**
+     * 判断 system 列表中的某一项是否已经是该文本块（客户端自己带了同样的提示词）
+     */
+    public boolean matches(Object item) {
+        return item == this || item instanceof Map<?, ?> map && text().equals(map.get("text"));
+    }
+    
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return fields.entrySet();
+    }
+    
+    @Override
+    public Object get(Object key) {
+        return fields.get(key);
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return fields.containsKey(key);
+    }
+    
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeRawValue(json);
+    }
+    
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+}
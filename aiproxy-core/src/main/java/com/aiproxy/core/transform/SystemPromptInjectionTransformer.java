@@ -0,0 +1,78 @@
+package com.aiproxy.core.transform;
+
+import com.aiproxy.core.config.PromptInjectionConfig;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 注入预编译的 system 块
+ * <p>
+ * 注入是常数时间的拼接：已有的 system 列表通过只读视图在头部或尾部接上共享的注入块，不复制列表。
+ * 客户端在 system 中任何位置已经带了同样的提示词时不再注入，与旧实现一致。
+ */
+final class SystemPromptInjectionTransformer implements RequestTransformer {
+    
+    private final SystemPromptBlock block;
+    private final boolean first;
+    private final List<Object> blockOnly;
+    
+    SystemPromptInjectionTransformer(SystemPromptBlock block, PromptInjectionConfig.Position position) {
+        this.block = block;
+        this.first = position == PromptInjectionConfig.Position.FIRST;
+        this.blockOnly = List.of(block);
+    }
+    
+    @Override
+    public void complete(Map<String, Object> request, TransformContext context) {
+        Object existingSystem = request.get("system");
+        if (existingSystem == null) {
+            request.put("system", blockOnly);
+        } else if (existingSystem instanceof String text) {
+            request.put("system", block.text().equals(text)
+                ? blockOnly
+                : new SplicedList(block, List.of(Map.of("type", "text", "text", text)), first));
+        } else if (existingSystem instanceof List<?> systemList && !containsBlock(systemList)) {
+            request.put("system", new SplicedList(block, systemList, first));
+        }
+    }
+    
+    private boolean containsBlock(List<?> systemList) {
+        for (Object item : systemList) {
+            if (block.matches(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 注入块 + 原 system 列表的只读视图
+     */
+    private static final class SplicedList extends AbstractList<Object> {
+        
+        private final Object block;
+        private final List<?> rest;
+        private final boolean blockFirst;
+        
+        SplicedList(Object block, List<?> rest, boolean blockFirst) {
+            this.block = block;
+            this.rest = rest;
+            this.blockFirst = blockFirst;
+        }
+        
+        @Override
+        public Object get(int index) {
+            if (blockFirst) {
+                return index == 0 ? block : rest.get(index - 1);
+            }
+            return index == rest.size() ? block : rest.get(index);
+        }
+        
+        @Override
+        public int size() {
+            return rest.size() + 1;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.aiproxy.core.transform;
+
+/**
+ * 单个请求在流水线中的状态，由流水线为每个请求新建
+ */
+public final class TransformContext {
+    
+    private int cacheControlBlocks;
+    
+    /**
+     * 记录遇到一个带 cache_control 的内容块，返回到目前为止的数量
+     */
+    public int countCacheControlBlock() {
+        return ++cacheControlBlocks;
+    }
+    
+    public int getCacheControlBlocks() {
+        return cacheControlBlocks;
+    }
+}
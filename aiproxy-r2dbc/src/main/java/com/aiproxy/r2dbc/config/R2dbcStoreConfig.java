@@ -0,0 +1,46 @@
+package com.aiproxy.r2dbc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * R2DBC hot-path stores (account snapshot, API key lookup, usage counters, request logs)
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "relay.r2dbc")
+public class R2dbcStoreConfig {
+    
+    /**
+     * Whether the relay hot path uses the R2DBC stores instead of the JPA ones; requires spring.r2dbc.url
+     * Default: false
+     */
+    private boolean enabled = false;
+    
+    /**
+     * Maximum request logs written in one batched insert
+     * Default: 100
+     */
+    private int logBatchSize = 100;
+    
+    /**
+     * How long a partial batch waits for more logs before it is written
+     * Default: 200ms
+     */
+    private Duration logBatchDelay = Duration.ofMillis(200);
+    
+    /**
+     * Request logs queued for insertion before new ones are rejected
+     * Default: 10000
+     */
+    private int logQueueCapacity = 10000;
+    
+    /**
+     * How long shutdown waits for queued request logs to be written
+     * Default: 10s
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
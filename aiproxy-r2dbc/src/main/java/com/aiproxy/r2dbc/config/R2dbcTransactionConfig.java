@@ -0,0 +1,24 @@
+package com.aiproxy.r2dbc.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 引入 R2DBC 后容器里会有两个事务管理器
+ * <p>
+ * Boot 的 JPA 事务管理器在已存在任何 TransactionManager 时不会创建，这里显式声明并设为 Primary，
+ * 现有的 @Transactional（JPA 仓库、管理后台）保持原行为；R2DBC 存储不使用声明式事务。
+ */
+@Configuration
+public class R2dbcTransactionConfig {
+    
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,56 @@
+package com.aiproxy.r2dbc.store;
+
+import com.aiproxy.common.entity.AccountEntity;
+import com.aiproxy.common.store.AccountStore;
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import static com.aiproxy.r2dbc.store.Rows.bool;
+import static com.aiproxy.r2dbc.store.Rows.longValue;
+import static com.aiproxy.r2dbc.store.Rows.string;
+import static com.aiproxy.r2dbc.store.Rows.timestamp;
+
+@Component
+@ConditionalOnProperty(prefix = "relay.r2dbc", name = "enabled", havingValue = "true")
+public class R2dbcAccountStore implements AccountStore {
+    
+    private static final String SELECT_ACTIVE = 
+        "SELECT id, email, provider, access_token, refresh_token, token_expires_at, enabled, status, " +
+        "created_at, updated_at, last_used_at, total_requests, total_tokens, metadata " +
+        "FROM accounts WHERE enabled = TRUE AND status = 'ACTIVE'";
+    
+    private final DatabaseClient databaseClient;
+    
+    public R2dbcAccountStore(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+    
+    @Override
+    public Flux<AccountEntity> findActive() {
+        return databaseClient.sql(SELECT_ACTIVE)
+            .map((row, metadata) -> toEntity(row))
+            .all();
+    }
+    
+    private static AccountEntity toEntity(Row row) {
+        AccountEntity entity = new AccountEntity();
+        entity.setId(string(row, "id"));
+        entity.setEmail(string(row, "email"));
+        entity.setProvider(string(row, "provider"));
+        entity.setAccessToken(string(row, "access_token"));
+        entity.setRefreshToken(string(row, "refresh_token"));
+        entity.setTokenExpiresAt(timestamp(row, "token_expires_at"));
+        entity.setEnabled(bool(row, "enabled"));
+        entity.setStatus(string(row, "status"));
+        entity.setCreatedAt(timestamp(row, "created_at"));
+        entity.setUpdatedAt(timestamp(row, "updated_at"));
+        entity.setLastUsedAt(timestamp(row, "last_used_at"));
+        entity.setTotalRequests(longValue(row, "total_requests"));
+        entity.setTotalTokens(longValue(row, "total_tokens"));
+        entity.setMetadata(string(row, "metadata"));
+        return entity;
+    }
+}
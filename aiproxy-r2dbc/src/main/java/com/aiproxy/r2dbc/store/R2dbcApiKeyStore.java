@@ -0,0 +1,61 @@
+package com.aiproxy.r2dbc.store;
+
+import com.aiproxy.common.entity.ApiKeyEntity;
+import com.aiproxy.common.enums.PriorityTier;
+import com.aiproxy.common.store.ApiKeyStore;
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import static com.aiproxy.r2dbc.store.Rows.bool;
+import static com.aiproxy.r2dbc.store.Rows.intValue;
+import static com.aiproxy.r2dbc.store.Rows.longValue;
+import static com.aiproxy.r2dbc.store.Rows.string;
+import static com.aiproxy.r2dbc.store.Rows.timestamp;
+
+@Component
+@ConditionalOnProperty(prefix = "relay.r2dbc", name = "enabled", havingValue = "true")
+public class R2dbcApiKeyStore implements ApiKeyStore {
+    
+    private static final String SELECT_BY_HASH = 
+        "SELECT id, key_hash, name, created_by, is_active, rate_limit, daily_token_limit, priority_tier, " +
+        "scheduling_weight, created_at, updated_at, last_used_at, total_requests, total_tokens, " +
+        "allowed_models, metadata FROM api_keys WHERE key_hash = :keyHash";
+    
+    private final DatabaseClient databaseClient;
+    
+    public R2dbcApiKeyStore(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+    
+    @Override
+    public Mono<ApiKeyEntity> findByKeyHash(String keyHash) {
+        return databaseClient.sql(SELECT_BY_HASH)
+            .bind("keyHash", keyHash)
+            .map((row, metadata) -> toEntity(row))
+            .one();
+    }
+    
+    private static ApiKeyEntity toEntity(Row row) {
+        ApiKeyEntity entity = new ApiKeyEntity();
+        entity.setId(string(row, "id"));
+        entity.setKeyHash(string(row, "key_hash"));
+        entity.setName(string(row, "name"));
+        entity.setCreatedBy(string(row, "created_by"));
+        entity.setIsActive(bool(row, "is_active"));
+        entity.setRateLimit(intValue(row, "rate_limit"));
+        entity.setDailyTokenLimit(longValue(row, "daily_token_limit"));
+        entity.setPriorityTier(PriorityTier.fromString(string(row, "priority_tier")));
+        entity.setSchedulingWeight(intValue(row, "scheduling_weight"));
+        entity.setCreatedAt(timestamp(row, "created_at"));
+        entity.setUpdatedAt(timestamp(row, "updated_at"));
+        entity.setLastUsedAt(timestamp(row, "last_used_at"));
+        entity.setTotalRequests(longValue(row, "total_requests"));
+        entity.setTotalTokens(longValue(row, "total_tokens"));
+        entity.setAllowedModels(string(row, "allowed_models"));
+        entity.setMetadata(string(row, "metadata"));
+        return entity;
+    }
+}
@@ -0,0 +1,239 @@
+package com.aiproxy.r2dbc.store;
+
+import com.aiproxy.common.entity.RequestLogEntity;
+import com.aiproxy.common.exception.RelayException;
+import com.aiproxy.common.store.RequestLogStore;
+import com.aiproxy.r2dbc.config.R2dbcStoreConfig;
+import io.r2dbc.spi.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.aiproxy.r2dbc.store.Rows.bind;
+
+/**
+ * 请求日志批量写入
+ * <p>
+ * insert 只把日志放进有界队列；单个写入循环按 logBatchSize / logBatchDelay 攒批，
+ * 每批在一个连接、一个事务内用 Statement.add() 批量执行，完成后逐条回填自增 id 并通知调用方。
+ * 整批失败时逐条重试，只有写不进去的那几条通知失败。
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "relay.r2dbc", name = "enabled", havingValue = "true")
+public class R2dbcRequestLogStore implements RequestLogStore, DisposableBean {
+    
+    private static final String INSERT = "INSERT INTO request_logs " +
+        "(api_key_id, api_key_display, account_id, account_email, provider, model, method, endpoint, status, " +
+        "request_tokens, response_tokens, total_tokens, latency_ms, status_code, error_type, error_message, " +
+        "request_path, request_size, response_size, client_ip, user_agent, request_id, retry_count, " +
+        "failed_accounts, final_account, request_body, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * 并发写入同一个 sink 时的最长自旋时间；竞争窗口只有一次入队，超时说明出了问题，直接拒绝而不是卡住调用线程
+     */
+    private static final Duration EMIT_CONTENTION_TIMEOUT = Duration.ofMillis(50);
+    
+    private final DatabaseClient databaseClient;
+    private final R2dbcStoreConfig config;
+    private volatile Sinks.Many<PendingLog> queue;
+    private volatile CountDownLatch drained;
+    private volatile Disposable writer;
+    private volatile boolean closed;
+    
+    public R2dbcRequestLogStore(DatabaseClient databaseClient, R2dbcStoreConfig config) {
+        this.databaseClient = databaseClient;
+        this.config = config;
+        startWriter();
+    }
+    
+    /**
+     * 写入循环意外终止时重新创建队列和写入循环，避免之后的日志全部被拒绝。
+     * 旧队列和攒批缓冲里剩下的日志在写入循环终止时被丢弃，经 doOnDiscard 逐条通知调用方失败；
+     * 正在写入的批次被取消时同样通知失败，不会有调用方一直等不到结果
+     */
+    private void startWriter() {
+        Sinks.Many<PendingLog> sink = Sinks.many().unicast()
+            .onBackpressureBuffer(Queues.<PendingLog>get(config.getLogQueueCapacity()).get());
+        CountDownLatch latch = new CountDownLatch(1);
+        this.queue = sink;
+        this.drained = latch;
+        this.writer = sink.asFlux()
+            // fair 模式只在下游有需求时才发出批次；非 fair 模式在写库较慢时定时器触发会报
+            // "Could not emit buffer due to lack of requests" 并终止整个写入循环
+            .bufferTimeout(config.getLogBatchSize(), config.getLogBatchDelay(), true)
+            .concatMap(this::write)
+            .doOnDiscard(PendingLog.class, pending -> fail(pending, new RelayException("Request log writer terminated")))
+            .doFinally(signal -> latch.countDown())
+            .subscribe(
+                ignored -> { },
+                error -> {
+                    log.error("Request log writer terminated, restarting; logs still queued in it are failed", error);
+                    if (!closed) {
+                        startWriter();
+                    }
+                });
+    }
+    
+    @Override
+    public Mono<RequestLogEntity> insert(RequestLogEntity logEntity) {
+        return Mono.create(sink -> {
+            if (logEntity.getCreatedAt() == null) {
+                logEntity.setCreatedAt(LocalDateTime.now());
+            }
+            PendingLog pending = new PendingLog(logEntity, sink);
+            Sinks.Many<PendingLog> current = queue;
+            Sinks.EmitResult result = emit(current, pending);
+            if ((result == Sinks.EmitResult.FAIL_TERMINATED || result == Sinks.EmitResult.FAIL_CANCELLED)
+                && !closed && queue != current) {
+                // 写入循环刚重启，改投新队列
+                result = emit(queue, pending);
+            }
+            switch (result) {
+                case OK -> { }
+                case FAIL_OVERFLOW -> sink.error(new RelayException(
+                    "Request log queue is full (capacity " + config.getLogQueueCapacity() + ")"));
+                case FAIL_TERMINATED, FAIL_CANCELLED -> sink.error(new RelayException(
+                    closed ? "Request log store is shutting down" : "Request log writer is restarting"));
+                case FAIL_NON_SERIALIZED -> sink.error(new RelayException(
+                    "Request log queue is contended for more than " + EMIT_CONTENTION_TIMEOUT.toMillis() + "ms"));
+                default -> sink.error(new RelayException("Request log queue rejected entry: " + result));
+            }
+        });
+    }
+    
+    /**
+     * 多个请求线程并发写入同一个 unicast sink 时会返回 FAIL_NON_SERIALIZED，
+     * 在 EMIT_CONTENTION_TIMEOUT 内重试；其他失败原样返回由调用方处理
+     */
+    private static Sinks.EmitResult emit(Sinks.Many<PendingLog> sink, PendingLog pending) {
+        Sinks.EmitFailureHandler retry = Sinks.EmitFailureHandler.busyLooping(EMIT_CONTENTION_TIMEOUT);
+        Sinks.EmitResult result;
+        do {
+            result = sink.tryEmitNext(pending);
+        } while (result.isFailure() && retry.onEmitFailure(SignalType.ON_NEXT, result));
+        return result;
+    }
+    
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        queue.emitComplete(Sinks.EmitFailureHandler.busyLooping(EMIT_CONTENTION_TIMEOUT));
+        if (!drained.await(config.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Request log writer did not drain within {}, pending logs are failed", config.getShutdownTimeout());
+            writer.dispose();
+        }
+    }
+    
+    /**
+     * 写入一批，不向写入循环传播错误
+     */
+    private Mono<Void> write(List<PendingLog> batch) {
+        return insertBatch(batch)
+            .doOnNext(ids -> {
+                complete(batch, ids);
+                log.debug("Inserted {} request logs in one batch", batch.size());
+            })
+            .then()
+            .onErrorResume(error -> {
+                if (batch.size() == 1) {
+                    fail(batch.get(0), error);
+                    return Mono.empty();
+                }
+                // 整批已在事务中回滚，逐条重试，只让真正有问题的日志失败
+                log.warn("Failed to insert {} request logs in one batch, retrying one by one: {}",
+                    batch.size(), error.getMessage());
+                return Flux.fromIterable(batch)
+                    .concatMap(pending -> insertBatch(List.of(pending))
+                        .doOnNext(ids -> complete(List.of(pending), ids))
+                        .then()
+                        .onErrorResume(rowError -> {
+                            fail(pending, rowError);
+                            return Mono.empty();
+                        }))
+                    .then();
+            })
+            // 写入循环终止或关闭超时会取消正在写的批次；已经完成的 sink 会忽略这次失败
+            .doOnCancel(() -> batch.forEach(pending ->
+                fail(pending, new RelayException("Request log writer terminated"))));
+    }
+    
+    private Mono<List<Long>> insertBatch(List<PendingLog> batch) {
+        return databaseClient.inConnection(connection -> Rows.inTransaction(connection, () -> {
+            Statement statement = connection.createStatement(INSERT).returnGeneratedValues("id");
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                bindLog(statement, batch.get(i).entity());
+            }
+            return Flux.from(statement.execute())
+                .concatMap(result -> result.map((row, metadata) -> row.get(0, Number.class).longValue()))
+                .collectList();
+        }));
+    }
+    
+    private static void complete(List<PendingLog> batch, List<Long> ids) {
+        for (int i = 0; i < batch.size(); i++) {
+            PendingLog pending = batch.get(i);
+            if (i < ids.size()) {
+                pending.entity().setId(ids.get(i));
+            }
+            pending.sink().success(pending.entity());
+        }
+    }
+    
+    private static void fail(PendingLog pending, Throwable error) {
+        log.warn("Failed to insert request log {}: {}", pending.entity().getRequestId(), error.getMessage());
+        pending.sink().error(error);
+    }
+    
+    private static void bindLog(Statement statement, RequestLogEntity log) {
+        bind(statement, 0, log.getApiKeyId(), String.class);
+        bind(statement, 1, log.getApiKeyDisplay(), String.class);
+        bind(statement, 2, log.getAccountId(), String.class);
+        bind(statement, 3, log.getAccountEmail(), String.class);
+        bind(statement, 4, log.getProvider(), String.class);
+        bind(statement, 5, log.getModel(), String.class);
+        bind(statement, 6, log.getMethod(), String.class);
+        bind(statement, 7, log.getEndpoint(), String.class);
+        bind(statement, 8, log.getStatus(), String.class);
+        bind(statement, 9, log.getRequestTokens(), Integer.class);
+        bind(statement, 10, log.getResponseTokens(), Integer.class);
+        bind(statement, 11, log.getTotalTokens(), Integer.class);
+        bind(statement, 12, log.getLatencyMs(), Integer.class);
+        bind(statement, 13, log.getStatusCode(), Integer.class);
+        bind(statement, 14, log.getErrorType(), String.class);
+        bind(statement, 15, log.getErrorMessage(), String.class);
+        bind(statement, 16, log.getRequestPath(), String.class);
+        bind(statement, 17, log.getRequestSize(), Long.class);
+        bind(statement, 18, log.getResponseSize(), Long.class);
+        bind(statement, 19, log.getClientIp(), String.class);
+        bind(statement, 20, log.getUserAgent(), String.class);
+        bind(statement, 21, log.getRequestId(), String.class);
+        bind(statement, 22, log.getRetryCount(), Integer.class);
+        bind(statement, 23, log.getFailedAccounts(), String.class);
+        bind(statement, 24, log.getFinalAccount(), String.class);
+        bind(statement, 25, log.getRequestBody(), String.class);
+        bind(statement, 26, log.getCreatedAt(), LocalDateTime.class);
+    }
+    
+    private record PendingLog(RequestLogEntity entity, MonoSink<RequestLogEntity> sink) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.aiproxy.r2dbc.store;
+
+import com.aiproxy.common.model.UsageCounterRow;
+import com.aiproxy.common.store.UsageCounterStore;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.aiproxy.r2dbc.store.Rows.bind;
+
+/**
+ * 汇总表累加写入，SQL 与 UsageStatisticsHourlyRepository / UsageStatisticsRepository 的原生查询一致
+ * <p>
+ * 一次 flush 只占用一个连接、在一个事务内完成：小时表的 upsert 合并为一个批量语句，日表逐行先 UPDATE、未命中再 INSERT。
+ */
+@Component
+@ConditionalOnProperty(prefix = "relay.r2dbc", name = "enabled", havingValue = "true")
+public class R2dbcUsageCounterStore implements UsageCounterStore {
+    
+    private static final String UPSERT_HOURLY = "INSERT INTO usage_statistics_hourly " +
+        "(bucket_start, api_key_id, account_id, provider, model, total_requests, total_errors, " +
+        "request_tokens, response_tokens, total_tokens, latency_sum_ms) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE " +
+        "total_requests = total_requests + VALUES(total_requests), " +
+        "total_errors = total_errors + VALUES(total_errors), " +
+        "request_tokens = request_tokens + VALUES(request_tokens), " +
+        "response_tokens = response_tokens + VALUES(response_tokens), " +
+        "total_tokens = total_tokens + VALUES(total_tokens), " +
+        "latency_sum_ms = latency_sum_ms + VALUES(latency_sum_ms)";
+    
+    private static final String INCREMENT_DAILY = "UPDATE usage_statistics SET " +
+        "avg_latency_ms = ROUND((COALESCE(avg_latency_ms, 0) * total_requests + ?) / (total_requests + ?)), " +
+        "total_requests = total_requests + ?, " +
+        "total_errors = total_errors + ?, " +
+        "total_tokens = total_tokens + ? " +
+        "WHERE date = ? AND api_key_id <=> ? AND account_id <=> ? AND provider <=> ? AND model <=> ?";
+    
+    private static final String INSERT_DAILY = "INSERT INTO usage_statistics " +
+        "(date, api_key_id, account_id, provider, model, total_requests, total_tokens, total_errors, avg_latency_ms) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ROUND(? / ?))";
+    
+    private final DatabaseClient databaseClient;
+    
+    public R2dbcUsageCounterStore(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+    
+    @Override
+    public Mono<Void> flush(List<UsageCounterRow> hourly, List<UsageCounterRow> daily) {
+        return databaseClient.inConnection(connection -> Rows.inTransaction(connection, () ->
+            upsertHourly(connection, hourly)
+                .then(Flux.fromIterable(daily).concatMap(row -> upsertDaily(connection, row)).then())
+        ));
+    }
+    
+    private Mono<Void> upsertHourly(Connection connection, List<UsageCounterRow> rows) {
+        if (rows.isEmpty()) {
+            return Mono.empty();
+        }
+        Statement statement = connection.createStatement(UPSERT_HOURLY);
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                statement.add();
+            }
+            UsageCounterRow row = rows.get(i);
+            statement.bind(0, row.bucket())
+                .bind(1, row.apiKeyId())
+                .bind(2, row.accountId())
+                .bind(3, row.provider())
+                .bind(4, row.model())
+                .bind(5, row.requests())
+                .bind(6, row.errors())
+                .bind(7, row.requestTokens())
+                .bind(8, row.responseTokens())
+                .bind(9, row.totalTokens())
+                .bind(10, row.latencySumMs());
+        }
+        return Flux.from(statement.execute())
+            .concatMap(Result::getRowsUpdated)
+            .then();
+    }
+    
+    private Mono<Void> upsertDaily(Connection connection, UsageCounterRow row) {
+        Statement increment = connection.createStatement(INCREMENT_DAILY)
+            .bind(0, row.latencySumMs())
+            .bind(1, row.requests())
+            .bind(2, row.requests())
+            .bind(3, row.errors())
+            .bind(4, row.totalTokens())
+            .bind(5, row.bucket().toLocalDate());
+        bindDimensions(increment, 6, row);
+        
+        return Flux.from(increment.execute())
+            .concatMap(Result::getRowsUpdated)
+            .reduce(0L, Long::sum)
+            .flatMap(updated -> updated > 0 ? Mono.<Void>empty() : insertDaily(connection, row));
+    }
+    
+    private Mono<Void> insertDaily(Connection connection, UsageCounterRow row) {
+        Statement insert = connection.createStatement(INSERT_DAILY)
+            .bind(0, row.bucket().toLocalDate());
+        bindDimensions(insert, 1, row);
+        insert.bind(5, row.requests())
+            .bind(6, row.totalTokens())
+            .bind(7, row.errors())
+            .bind(8, row.latencySumMs())
+            .bind(9, row.requests());
+        return Flux.from(insert.execute())
+            .concatMap(Result::getRowsUpdated)
+            .then();
+    }
+    
+    private static void bindDimensions(Statement statement, int from, UsageCounterRow row) {
+        // 日表维度列为空时是 NULL（外键约束），配合 <=> 比较
+        bind(statement, from, row.apiKeyId(), String.class);
+        bind(statement, from + 1, row.accountId(), String.class);
+        bind(statement, from + 2, row.provider(), String.class);
+        bind(statement, from + 3, row.model(), String.class);
+    }
+}
@@ -0,0 +1,68 @@
+package com.aiproxy.r2dbc.store;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * 行读取、参数绑定和事务的小工具；r2dbc-mysql 对 NULL 需要显式 bindNull
+ */
+final class Rows {
+    
+    private Rows() {
+    }
+    
+    static String string(Row row, String column) {
+        return row.get(column, String.class);
+    }
+    
+    static Long longValue(Row row, String column) {
+        Number value = row.get(column, Number.class);
+        return value != null ? value.longValue() : null;
+    }
+    
+    static Integer intValue(Row row, String column) {
+        Number value = row.get(column, Number.class);
+        return value != null ? value.intValue() : null;
+    }
+    
+    static Boolean bool(Row row, String column) {
+        // MySQL 的 BIT(1)/TINYINT(1) 在驱动中可能映射为 Boolean 或数字
+        Object value = row.get(column);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        return ((Number) value).intValue() != 0;
+    }
+    
+    static LocalDateTime timestamp(Row row, String column) {
+        return row.get(column, LocalDateTime.class);
+    }
+    
+    static void bind(Statement statement, int index, Object value, Class<?> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+    
+    /**
+     * 在连接上开启事务执行 work，正常结束提交，出错或取消时回滚
+     */
+    static <T> Mono<T> inTransaction(Connection connection, Supplier<Mono<T>> work) {
+        return Mono.from(connection.beginTransaction())
+            .then(Mono.usingWhen(Mono.just(connection),
+                c -> work.get(),
+                Connection::commitTransaction,
+                (c, error) -> c.rollbackTransaction(),
+                Connection::rollbackTransaction));
+    }
+}
@@ -371,7 +371,7 @@ const RequestLogs: React.FC = () => {
         <Row gutter={[16, 16]}>
           <Col xs={24} sm={12} md={6}>
             <Input
-              placeholder="API Key"
+              placeholder="API Key ID（前缀匹配）"
               prefix={<SearchOutlined />}
               value={filters.apiKey}
               onChange={(e) => setFilters({ ...filters, apiKey: e.target.value })}
@@ -380,7 +380,7 @@ const RequestLogs: React.FC = () => {
           </Col>
           <Col xs={24} sm={12} md={6}>
             <Input
-              placeholder="账号邮箱"
+              placeholder="账号 ID（前缀匹配）"
               value={filters.accountId}
               onChange={(e) => setFilters({ ...filters, accountId: e.target.value })}
               onPressEnter={handleSearch}